@@ -1,10 +1,32 @@
 package applications;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import asmCodeGenerator.codeStorage.ASMCodeWriter;
+import asmCodeGenerator.runtime.MemoryManager.Allocator;
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import compiler.CompilationContext;
 
 public class PikaApplication {
 	private static final int EXIT_CODE_FOR_ERROR = 0;
 	private static String outputDirectory = "output/";
+	private static final String STATISTICS_OPTION = "--stats";
+	private static final String STATISTICS_TO_STDOUT = "";
+	private static String statisticsDestination = null;		// null: no statistics
+	private static final String COMPACT_OPTION = "--compact";
+	private static ASMCodeWriter.Format asmFormat = ASMCodeWriter.Format.PRETTY;
+	private static final String OPTIMIZE_OPTION = "-O";
+	private static boolean optimize = false;
+	private static final String ALLOCATOR_OPTION = "--allocator";
+	private static Allocator allocator = Allocator.FIRST_FIT;
+	private static final String RECLAIM_OPTION = "--reclaim";
+	private static Reclamation reclamation = Reclamation.MANUAL;
+	private static boolean takesCompilerOptions = false;
+	private static String usageArguments = "filename [target output directory]";
 
 	public PikaApplication() {
 		super();
@@ -32,7 +54,9 @@ public class PikaApplication {
 		if(args.length > 1) {
 			outputDirectory  = args[1];
 		}
-		
+		ensureOutputDirectoryExists(applicationName);
+	}
+	protected static void ensureOutputDirectoryExists(String applicationName) {
 		if(!makeDirectoryIfNecessary(outputDirectory)) {
 			printUsageMessage(applicationName, "Target directory cannot be created.");
 		}
@@ -52,6 +76,17 @@ public class PikaApplication {
 //		return outputDirectory + basename(filename) + ".asm";
 		return outputDirectory + "pika-4" + ".asm";
 	}
+	// the arguments shown by printUsageMessage, for applications that do not take a filename.
+	protected static void setUsageArguments(String arguments) {
+		usageArguments = arguments;
+	}
+	protected static void setOutputDirectory(String directory) {
+		outputDirectory = directory;
+	}
+	// one output file per source file, for applications that handle many sources.
+	protected static String outputFilenameFor(String filename) {
+		return outputDirectory + basename(filename) + ".asm";
+	}
 	// removes preceding directory names and the file extension
 	// e.g. /usr/root/tricks/bigBag.cpp  ->  bigBag
 	protected static String basename(String filename) {
@@ -85,8 +120,123 @@ public class PikaApplication {
 	}
 
 
+	////////////////////////////////////////////////////////////////////////////////
+	// compiler options, for the applications that compile:
+	//   --stats[=file]    per-phase statistics, as JSON, to stdout (or to file).
+	//   --compact         asm without padding or comments (see ASMCodeWriter).
+	//   -O                run the peephole optimizer (see optimizer.Optimizer).
+	//   --allocator=first-fit|size-classes                  the allocator of the memory manager.
+	//   --reclaim=manual|reference-counting|mark-and-sweep   how records are reclaimed.
+	// (see MemoryManager for the last two.)
+
+	// removes the compiler options from args, noting each; any other argument starting
+	// with "--", or an option with a value it does not take, is a usage error.
+	protected static String[] extractCompilerOptions(String[] args, String applicationName) {
+		takesCompilerOptions = true;
+		List<String> remaining = new ArrayList<String>();
+		for(String arg: args) {
+			String option = arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg;
+			String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : null;
+
+			if(option.equals(STATISTICS_OPTION)) {
+				statisticsDestination = (value == null) ? STATISTICS_TO_STDOUT : value;
+			}
+			else if(arg.equals(COMPACT_OPTION)) {
+				asmFormat = ASMCodeWriter.Format.COMPACT;
+			}
+			else if(arg.equals(OPTIMIZE_OPTION)) {
+				optimize = true;
+			}
+			else if(option.equals(ALLOCATOR_OPTION)) {
+				allocator = optionValue(Allocator.values(), option, value, applicationName);
+			}
+			else if(option.equals(RECLAIM_OPTION)) {
+				reclamation = optionValue(Reclamation.values(), option, value, applicationName);
+			}
+			else if(arg.startsWith("--")) {
+				printUsageMessage(applicationName, "Unknown option " + arg + ".");
+			}
+			else {
+				remaining.add(arg);
+			}
+		}
+		return remaining.toArray(new String[remaining.size()]);
+	}
+	// the value of values named by value: its name in lower case, with hyphens for underscores.
+	private static <E extends Enum<E>> E optionValue(E[] values, String option, String value, String applicationName) {
+		for(E candidate: values) {
+			if(optionName(candidate).equals(value)) {
+				return candidate;
+			}
+		}
+		printUsageMessage(applicationName, (value == null ? "No value" : "Unknown value " + value) +
+				" for " + option + "; expected one of " + optionNames(values) + ".");
+		return null;
+	}
+	private static String optionName(Enum<?> value) {
+		return value.name().toLowerCase().replace('_', '-');
+	}
+	private static String optionNames(Enum<?>[] values) {
+		List<String> names = new ArrayList<String>();
+		for(Enum<?> value: values) {
+			names.add(optionName(value));
+		}
+		return String.join("|", names);
+	}
+
+	protected static boolean statisticsRequested() {
+		return statisticsDestination != null;
+	}
+	// a context for one compilation, with the options given on the command line.
+	protected static CompilationContext makeContext(String filename, boolean echoMessages) {
+		CompilationContext context = echoMessages ? CompilationContext.make(filename) : CompilationContext.makeQuiet(filename);
+		if(statisticsRequested()) {
+			context.collectStatistics();
+		}
+		context.setAsmFormat(asmFormat);
+		context.setOptimize(optimize);
+		context.setAllocator(allocator);
+		context.setReclamation(reclamation);
+		return context;
+	}
+	// one JSON object for one compilation, or an array of them for more.
+	protected static void reportStatistics(List<CompilationContext> contexts) {
+		if(!statisticsRequested()) {
+			return;
+		}
+		StringBuilder json = new StringBuilder(contexts.size() == 1 ? "" : "[");
+		for(int i = 0; i < contexts.size(); i++) {
+			json.append(i == 0 ? "" : ",\n ");
+			json.append(contexts.get(i).statistics().toJSON());
+		}
+		json.append(contexts.size() == 1 ? "" : "]");
+		
+		if(statisticsDestination.equals(STATISTICS_TO_STDOUT)) {
+			System.out.println(json);
+			return;
+		}
+		try(PrintStream out = new PrintStream(new File(statisticsDestination))) {
+			out.println(json);
+		}
+		catch(FileNotFoundException e) {
+			System.err.println("cannot write statistics to " + statisticsDestination);
+		}
+	}
+
+
 	protected static void printUsageMessage(String applicationName, String errorMessage) {
-		System.err.println("usage: " + applicationName + " filename" + " [target output directory]");
+		if(takesCompilerOptions) {
+			System.err.println("usage: " + applicationName + " [options] " + usageArguments);
+			System.err.println("options:");
+			System.err.println("  --stats[=file]    write per-phase statistics, as JSON, to stdout or to file");
+			System.err.println("  --compact         write the asm without padding or comments");
+			System.err.println("  -O                optimize the generated code");
+			System.err.println("  " + ALLOCATOR_OPTION + "=" + optionNames(Allocator.values()));
+			System.err.println("  " + RECLAIM_OPTION + "=" + optionNames(Reclamation.values()));
+		}
+		else {
+			System.err.println("usage: " + applicationName + " " + usageArguments);
+		}
 		System.err.println(errorMessage);
 		System.exit(EXIT_CODE_FOR_ERROR);
 	}
@@ -0,0 +1,134 @@
+package applications;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import compiler.CompilationContext;
+import lexicalAnalyzer.LexicalAnalyzer;
+import tokens.Tokens;
+
+/** Compiles many Pika files at once, in parallel.
+ *  <p>
+ *  usage: PikaBatchCompiler [-j parallelism] [-d target output directory] [--stats[=file]] [--compact] [-O]
+ *                           [--allocator=first-fit|size-classes] [--reclaim=manual|reference-counting|mark-and-sweep] filename...
+ *  <p>
+ *  Each file is compiled with its own CompilationContext, so the .asm written for a
+ *  file is the same as PikaCompiler would write for it alone.  Diagnostics are collected
+ *  per file and printed, in the order the files were given, once all are done.  A file
+ *  whose .asm would overwrite that of a file given before it (one with the same basename)
+ *  is not compiled, and is reported with an error.
+ *  With --stats, a JSON array of the per-phase statistics of each file follows.
+ *  With --compact, the asm is written without padding or comments; with -O it is optimized.
+ */
+public class PikaBatchCompiler extends PikaApplication {
+	public static void main(String[] args) {
+		List<String> filenames = new ArrayList<String>();
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		setUsageArguments("[-j parallelism] [-d target output directory] filename...");
+		args = extractCompilerOptions(args, className());
+
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-j") && i + 1 < args.length && args[i + 1].matches("\\d+")) {
+				parallelism = Math.max(1, Integer.parseInt(args[++i]));
+			}
+			else if(args[i].equals("-d") && i + 1 < args.length) {
+				setOutputDirectory(args[++i]);
+			}
+			else {
+				filenames.add(args[i]);
+			}
+		}
+		if(filenames.isEmpty()) {
+			printUsageMessage(className(), "No source files given.");
+		}
+		ensureOutputDirectoryExists(className());
+		Tokens.setPrintLevel(Tokens.Level.FULL);
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		List<CompilationContext> results = compileAll(filenames, pool);
+		pool.shutdown();
+
+		printResults(results, System.out);
+		reportStatistics(results);
+	}
+
+	/** compiles each file, writing its code to &lt;target output directory&gt;/&lt;basename&gt;.asm.
+	 *  A file with the same basename as one before it is not compiled; its context holds an error.
+	 * @param filenames the files to compile.
+	 * @param pool where the compilations run.
+	 * @return the context of each compilation, in the same order as filenames.
+	 */
+	public static List<CompilationContext> compileAll(List<String> filenames, ForkJoinPool pool) {
+		List<ForkJoinTask<CompilationContext>> tasks = new ArrayList<ForkJoinTask<CompilationContext>>();
+		Map<String, String> sourceOfOutput = new HashMap<String, String>();
+		for(String filename: filenames) {
+			String earlier = sourceOfOutput.putIfAbsent(outputFilenameFor(filename), filename);
+			if(earlier == null) {
+				tasks.add(pool.submit(() -> compileOne(filename)));
+			}
+			else {
+				tasks.add(pool.submit(() -> rejectDuplicateOutput(filename, earlier)));
+			}
+		}
+
+		List<CompilationContext> results = new ArrayList<CompilationContext>();
+		for(ForkJoinTask<CompilationContext> task: tasks) {
+			results.add(task.join());
+		}
+		return results;
+	}
+	public static List<CompilationContext> compileAll(String... filenames) {
+		return compileAll(Arrays.asList(filenames), ForkJoinPool.commonPool());
+	}
+
+	private static CompilationContext compileOne(String filename) {
+		CompilationContext context = makeContext(filename, false);
+		context.setInputMode(LexicalAnalyzer.InputMode.MEMORY_MAPPED);
+		String outfile = outputFilenameFor(filename);
+		try {
+			if(!fileExists(filename)) {
+				context.recordMessage("source file " + filename + " does not exist");
+			}
+			else {
+				PikaCompiler.compile(context, outfile);
+			}
+		}
+		catch(FileNotFoundException e) {
+			context.recordMessage("cannot write " + outfile);
+		}
+		catch(RuntimeException e) {						// compiler crash: report it with this file only.
+			context.recordMessage("internal compiler error: " + e);
+		}
+		return context;
+	}
+
+	private static CompilationContext rejectDuplicateOutput(String filename, String earlier) {
+		CompilationContext context = makeContext(filename, false);
+		context.recordMessage("output " + outputFilenameFor(filename) + " is already that of " + earlier + "; not compiled");
+		return context;
+	}
+
+	private static void printResults(List<CompilationContext> results, PrintStream out) {
+		int failures = 0;
+		for(CompilationContext context: results) {
+			for(String message: context.getMessages()) {
+				out.println(context.getFilename() + ": " + message);
+			}
+			if(context.hasErrors()) {
+				failures++;
+				out.println(context.getFilename() + ": " + context.getNumMessages() + " error(s).  no executable created.");
+			}
+			else {
+				out.println(context.getFilename() + ": ok -> " + outputFilenameFor(context.getFilename()));
+			}
+		}
+		out.println(results.size() + " file(s) compiled, " + failures + " with errors.");
+	}
+}
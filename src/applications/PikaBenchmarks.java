@@ -0,0 +1,167 @@
+package applications;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import benchmarks.Benchmark;
+import benchmarks.BenchmarkRunner;
+import benchmarks.BenchmarkRunner.BenchmarkResult;
+import benchmarks.PhaseBenchmarks;
+import benchmarks.ProgramGenerator;
+import compiler.CompilationContext;
+import lexicalAnalyzer.LexicalAnalyzer;
+import parser.Parser;
+import semanticAnalyzer.SemanticAnalyzer;
+
+/** Measures the throughput of each phase of the compiler over a corpus of Pika programs.
+ *  <p>
+ *  usage: PikaBenchmarks [-w warmup iterations] [-i measured iterations] [-b benchmark name part]
+ *                        [-s scale]... [--json file] [file or directory...]
+ *  <p>
+ *  The corpus is the .pika files given (directories are searched), and a synthetic program
+ *  (see ProgramGenerator) for each scale given, written to a temporary directory that is
+ *  deleted on exit.  With neither, the corpus is input/pika-0 .. input/pika-4.  Programs
+ *  with errors are left out, so that every benchmark runs on the same files.  Results are
+ *  printed as a table, and written as a JSON array to the --json file if one is given.
+ */
+public class PikaBenchmarks extends PikaApplication {
+	private static final String[] DEFAULT_CORPUS = {
+			"input/pika-0", "input/pika-1", "input/pika-2", "input/pika-3", "input/pika-4" };
+	private static final String SYNTHETIC_DIRECTORY_PREFIX = "pika-synthetic";
+	private static File syntheticDirectory = null;
+
+	public static void main(String[] args) throws IOException {
+		int warmupIterations = 5;
+		int measurementIterations = 10;
+		String nameFilter = "";
+		String jsonFilename = null;
+		List<String> paths = new ArrayList<String>();
+		List<String> syntheticPrograms = new ArrayList<String>();
+
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("-w") && i + 1 < args.length && args[i + 1].matches("\\d+")) {
+				warmupIterations = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-i") && i + 1 < args.length && args[i + 1].matches("\\d+")) {
+				measurementIterations = Math.max(1, Integer.parseInt(args[++i]));
+			}
+			else if(args[i].equals("-b") && i + 1 < args.length) {
+				nameFilter = args[++i];
+			}
+			else if(args[i].equals("-s") && i + 1 < args.length && args[i + 1].matches("\\d+")) {
+				syntheticPrograms.add(syntheticProgram(Integer.parseInt(args[++i])));
+			}
+			else if(args[i].equals("--json") && i + 1 < args.length) {
+				jsonFilename = args[++i];
+			}
+			else {
+				paths.add(args[i]);
+			}
+		}
+		if(paths.isEmpty() && syntheticPrograms.isEmpty()) {
+			paths.addAll(Arrays.asList(DEFAULT_CORPUS));
+		}
+
+		List<String> programs = pikaFilesIn(paths);
+		programs.addAll(syntheticPrograms);
+		List<String> corpus = errorFreePrograms(programs);
+		if(corpus.isEmpty()) {
+			System.err.println("usage: " + className() + " [-w warmup iterations] [-i measured iterations] " +
+					"[-b benchmark name part] [-s scale]... [--json file] [file or directory...]");
+			System.err.println("no error-free .pika files found.");
+			System.exit(0);
+		}
+		System.out.println(corpus.size() + " programs, " + warmupIterations + " warmup and " +
+				measurementIterations + " measured iterations.");
+
+		List<BenchmarkResult> results = runAll(corpus, warmupIterations, measurementIterations, nameFilter);
+		if(jsonFilename != null) {
+			writeJSON(jsonFilename, results);
+		}
+	}
+
+	private static List<BenchmarkResult> runAll(List<String> corpus, int warmups, int iterations, String nameFilter) {
+		BenchmarkRunner runner = new BenchmarkRunner(corpus, warmups, iterations);
+		List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+
+		System.out.println(BenchmarkResult.header());
+		for(Benchmark<?> benchmark: PhaseBenchmarks.all()) {
+			if(benchmark.getName().contains(nameFilter)) {
+				BenchmarkResult result = runner.run(benchmark);
+				System.out.println(result);
+				results.add(result);
+			}
+		}
+		return results;
+	}
+	private static void writeJSON(String filename, List<BenchmarkResult> results) throws FileNotFoundException {
+		try(PrintStream out = new PrintStream(new File(filename))) {
+			out.println("[");
+			for(int i = 0; i < results.size(); i++) {
+				out.println("  " + results.get(i).toJSON() + (i + 1 < results.size() ? "," : ""));
+			}
+			out.println("]");
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////////
+	// the corpus
+
+	// the synthetic programs, and the directory they are in, are deleted when the JVM exits.
+	private static String syntheticProgram(int scale) throws IOException {
+		if(syntheticDirectory == null) {
+			syntheticDirectory = Files.createTempDirectory(SYNTHETIC_DIRECTORY_PREFIX).toFile();
+			syntheticDirectory.deleteOnExit();
+		}
+		File file = new File(syntheticDirectory, "synthetic-" + scale + ".pika");
+		file.deleteOnExit();
+		ProgramGenerator.scaled(scale).writeTo(file.getPath());
+		return file.getPath();
+	}
+	private static List<String> pikaFilesIn(List<String> paths) {
+		List<String> result = new ArrayList<String>();
+		for(String path: paths) {
+			addPikaFiles(new File(path), result);
+		}
+		return result;
+	}
+	private static void addPikaFiles(File file, List<String> result) {
+		if(file.isDirectory()) {
+			File[] children = file.listFiles();
+			Arrays.sort(children);
+			for(File child: children) {
+				addPikaFiles(child, result);
+			}
+		}
+		else if(file.getName().endsWith(".pika")) {
+			result.add(file.getPath());
+		}
+	}
+	private static List<String> errorFreePrograms(List<String> filenames) {
+		List<String> result = new ArrayList<String>();
+		for(String filename: filenames) {
+			CompilationContext context = CompilationContext.makeQuiet(filename);
+			CompilationContext outerContext = context.enter();
+			try {
+				SemanticAnalyzer.analyze(Parser.parse(LexicalAnalyzer.make(filename)));
+				if(!context.hasErrors()) {
+					result.add(filename);
+				}
+			}
+			catch(RuntimeException e) {
+				// a program that crashes the compiler is not benchmarked.
+			}
+			finally {
+				outerContext.enter();
+			}
+		}
+		return result;
+	}
+}
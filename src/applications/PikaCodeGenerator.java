@@ -3,12 +3,20 @@ package applications;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 
 import asmCodeGenerator.ASMCodeGenerator;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import lexicalAnalyzer.LexicalAnalyzer;
 import lexicalAnalyzer.Scanner;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.EscapeAnalyzer;
+import optimizer.UnreachableBlockRemover;
 import parseTree.ParseNode;
 import parser.Parser;
 import semanticAnalyzer.SemanticAnalyzer;
@@ -20,6 +28,7 @@ public class PikaCodeGenerator extends PikaApplication {
 	 * @throws FileNotFoundException 
 	 */
 	public static void main(String[] args) throws FileNotFoundException {
+		args = extractCompilerOptions(args, className());
 		checkArguments(args, className());
 		
 		Tokens.setPrintLevel(Tokens.Level.FULL);
@@ -31,6 +40,7 @@ public class PikaCodeGenerator extends PikaApplication {
 	 * @throws FileNotFoundException 
 	 */
 	public static void compile(String filename) throws FileNotFoundException {
+		makeContext(filename, true).enter();
 		Scanner scanner         = LexicalAnalyzer.make(filename);
 		ParseNode syntaxTree    = Parser.parse(scanner);
 		ParseNode decoratedTree = SemanticAnalyzer.analyze(syntaxTree);
@@ -66,18 +76,24 @@ public class PikaCodeGenerator extends PikaApplication {
 		}
 	}
 	
-	// normal code generation.
+	// normal constant folding, dead code elimination, escape analysis and code generation.
 	private static void generateAndPrintCode(String outfile, ParseNode decoratedTree) 
 			throws FileNotFoundException {
-		ASMCodeFragment code = ASMCodeGenerator.generate(decoratedTree);
+		ParseNode simplifiedTree = EscapeAnalyzer.analyze(DeadCodeEliminator.eliminate(ConstantFolder.fold(decoratedTree)));
+		ASMCodeFragment code = UnreachableBlockRemover.removeUnreachable(ASMCodeGenerator.generate(simplifiedTree));
 		printCodeToFile(outfile, code);
 	}
 	private static void printCodeToFile(String filename, ASMCodeFragment code)
 			throws FileNotFoundException {
-		File file = new File(filename);
-		PrintStream out = new PrintStream(file);
-		out.print(code);
-		out.close();
+		try(Writer out = new OutputStreamWriter(new FileOutputStream(filename))) {
+			code.writeTo(out);
+		}
+		catch(FileNotFoundException e) {
+			throw e;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	private static boolean thereAreErrors() {
@@ -0,0 +1,153 @@
+package applications;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import compiler.CompilationContext;
+import lexicalAnalyzer.LexicalAnalyzer;
+import tokens.Tokens;
+
+/** A long-running compiler.  Keeps one JVM (and its warmed-up JIT and static tables)
+ *  for many compilations, instead of starting a PikaCompiler per file.
+ *  <p>
+ *  usage: PikaCompileServer [port] [target output directory]
+ *  <p>
+ *  With no port (or port "-"), requests are read from stdin and responses written to stdout.
+ *  Otherwise the server listens on that port of the loopback interface, serving one
+ *  connection at a time.  The protocol is line-based:
+ *  <pre>
+ *    compile &lt;source file&gt; [&lt;output file&gt;]
+ *        error &lt;message&gt;          (zero or more: the diagnostics for this compilation)
+ *        ok &lt;output file&gt;        or      failed &lt;number of errors&gt;
+ *    quit
+ *        bye
+ *  </pre>
+ *  When no output file is given, it is &lt;target output directory&gt;/&lt;source basename&gt;.asm.
+ *  Each request compiles with its own quiet CompilationContext, so diagnostics
+ *  appear only in the response.
+ */
+public class PikaCompileServer extends PikaApplication {
+	private static final String STDIN_PORT = "-";
+
+	public static void main(String[] args) throws IOException {
+		checkServerArguments(args, className());
+		Tokens.setPrintLevel(Tokens.Level.FULL);
+
+		if(args.length == 0 || args[0].equals(STDIN_PORT)) {
+			serve(System.in, System.out);
+		}
+		else {
+			listen(Integer.parseInt(args[0]));
+		}
+	}
+	private static void checkServerArguments(String[] args, String applicationName) {
+		if(args.length > 2 || (args.length > 0 && !isPort(args[0]))) {
+			System.err.println("usage: " + applicationName + " [port] [target output directory]");
+			System.exit(0);
+		}
+		if(args.length > 1) {
+			setOutputDirectory(args[1]);
+		}
+		ensureOutputDirectoryExists(applicationName);
+	}
+	private static boolean isPort(String arg) {
+		return arg.equals(STDIN_PORT) || arg.matches("\\d{1,5}");
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////////
+	// transports
+
+	private static void listen(int port) throws IOException {
+		try(ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+			System.err.println("PikaCompileServer listening on port " + server.getLocalPort());
+			while(true) {
+				try(Socket socket = server.accept()) {
+					serve(socket.getInputStream(), socket.getOutputStream());
+				}
+				catch(IOException e) {
+					System.err.println("connection dropped: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/** serves requests from one input stream until "quit" or end of input.
+	 * @param input where requests are read from.
+	 * @param output where responses are written.
+	 * @throws IOException
+	 */
+	public static void serve(InputStream input, OutputStream output) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(input));
+		PrintStream out = new PrintStream(output, true);
+
+		String line;
+		while((line = in.readLine()) != null) {
+			String[] words = line.trim().split("\\s+");
+			if(words[0].isEmpty()) {
+				continue;
+			}
+			if(words[0].equals("quit")) {
+				out.println("bye");
+				return;
+			}
+			if(words[0].equals("compile") && (words.length == 2 || words.length == 3)) {
+				String outfile = (words.length == 3) ? words[2] : outputFilenameFor(words[1]);
+				respondToCompile(words[1], outfile, out);
+			}
+			else {
+				out.println("failed unrecognized request: " + line);
+			}
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////////
+	// one compilation
+
+	private static void respondToCompile(String filename, String outfile, PrintStream out) {
+		CompilationContext context = CompilationContext.makeQuiet(filename);
+		context.setInputMode(LexicalAnalyzer.InputMode.MEMORY_MAPPED);
+		try {
+			boolean succeeded = compileOrReportMissing(context, outfile);
+			printMessages(context, out);
+			if(succeeded) {
+				out.println("ok " + outfile);
+			}
+			else {
+				out.println("failed " + Math.max(1, context.getNumMessages()));
+			}
+		}
+		catch(RuntimeException e) {						// compiler crash: report it, keep serving.
+			printMessages(context, out);
+			out.println("error internal compiler error: " + e);
+			out.println("failed " + (context.getNumMessages() + 1));
+		}
+	}
+	private static boolean compileOrReportMissing(CompilationContext context, String outfile) {
+		if(!fileExists(context.getFilename())) {
+			context.recordMessage("source file " + context.getFilename() + " does not exist");
+			return false;
+		}
+		try {
+			return PikaCompiler.compile(context, outfile);
+		}
+		catch(FileNotFoundException e) {
+			context.recordMessage("cannot write " + outfile);
+			return false;
+		}
+	}
+	private static void printMessages(CompilationContext context, PrintStream out) {
+		for(String message: context.getMessages()) {
+			out.println("error " + message.replaceAll("\\s*[\\r\\n]+\\s*", " "));
+		}
+	}
+}
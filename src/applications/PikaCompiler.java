@@ -3,24 +3,51 @@ package applications;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.PrintStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
-//import optimizer.Optimizer;
 import asmCodeGenerator.ASMCodeGenerator;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import compiler.CompilationContext;
+import compiler.CompilationStatistics;
+import compiler.CompilationStatistics.Phase;
 import lexicalAnalyzer.LexicalAnalyzer;
 import lexicalAnalyzer.Scanner;
+import lexicalAnalyzer.TokenListScanner;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.EscapeAnalyzer;
+import optimizer.Optimizer;
+import optimizer.UnreachableBlockRemover;
 import parseTree.ParseNode;
 import parser.Parser;
 import semanticAnalyzer.SemanticAnalyzer;
+import symbolTable.Scope;
 import tokens.Tokens;
 
 public class PikaCompiler extends PikaApplication {
 	/** Compiles a Pika file.
+	 *  With --stats (or --stats=&lt;file&gt;), per-phase statistics are written as JSON
+	 *  to stdout (or to that file).  With --compact, the asm is written without
+	 *  padding or comments.  With -O, the code is optimized, and the reduction in
+	 *  instructions is reported.  With --allocator=size-classes, the memory manager
+	 *  keeps a free list for each small size class (see MemoryManager).  With
+	 *  --reclaim=reference-counting, strings and arrays are freed when nothing refers to
+	 *  them any more (see ReferenceCounter); with --reclaim=mark-and-sweep, a collector
+	 *  frees the ones nothing can reach (see MemoryManager).
 	 * @param args
 	 * @throws FileNotFoundException 
 	 */
 	public static void main(String[] args) throws FileNotFoundException {
+		args = extractCompilerOptions(args, className());
 		checkArguments(args, className());
 		
 		Tokens.setPrintLevel(Tokens.Level.FULL);
@@ -32,29 +59,80 @@ public class PikaCompiler extends PikaApplication {
 	 * @throws FileNotFoundException 
 	 */
 	public static void compile(String filename) throws FileNotFoundException {
-		Scanner scanner         = LexicalAnalyzer.make(filename);
-		ParseNode syntaxTree    = Parser.parse(scanner);
-		ParseNode decoratedTree = SemanticAnalyzer.analyze(syntaxTree);
+		CompilationContext context = makeContext(filename, true);
+		boolean succeeded = compile(context, outputFilename(filename));
+		reportStatistics(Collections.singletonList(context));
+		if(!succeeded) {
+			System.exit(0);
+		}
+	}
+	
+	/** analyzes the file specified by filename, writing its code to outfile.
+	 *  Does not exit the JVM, so may be called repeatedly (e.g. by PikaCompileServer).
+	 * @param filename the name of the file to be analyzed.
+	 * @param outfile the name of the .asm file to be written.
+	 * @return true if code was generated, false if the program has errors.
+	 * @throws FileNotFoundException 
+	 */
+	public static boolean compile(String filename, String outfile) throws FileNotFoundException {
+		return compile(CompilationContext.make(filename), outfile);
+	}
+	
+	/** analyzes the file named by the context, writing its code to outfile.
+	 *  All of the compilation's counters and messages are kept in the context, so
+	 *  different threads may compile (with different contexts) at the same time.
+	 * @param context a fresh context for this compilation.
+	 * @param outfile the name of the .asm file to be written.
+	 * @return true if code was generated, false if the program has errors.
+	 * @throws FileNotFoundException 
+	 */
+	public static boolean compile(CompilationContext context, String outfile) throws FileNotFoundException {
+		CompilationContext outerContext = context.enter();
+		CompilationStatistics statistics = context.statistics();
+		try {
+			Scanner scanner         = scan(context.getFilename(), statistics);
 
-		generateCodeIfNoErrors(filename, decoratedTree);
+			statistics.begin(Phase.PARSE);
+			ParseNode syntaxTree    = Parser.parse(scanner);
+			statistics.end(Phase.PARSE, () -> countNodes(syntaxTree));
+
+			statistics.begin(Phase.SEMANTIC_ANALYSIS);
+			ParseNode decoratedTree = SemanticAnalyzer.analyze(syntaxTree);
+			statistics.end(Phase.SEMANTIC_ANALYSIS, () -> countSymbols(decoratedTree));
+	
+			return generateCodeIfNoErrors(outfile, decoratedTree, statistics);
+		}
+		finally {
+			outerContext.enter();
+		}
+	}
+	
+	// scanning is done as the parser asks for tokens, except when it is being measured.
+	private static Scanner scan(String filename, CompilationStatistics statistics) {
+		if(!statistics.isCollecting()) {
+			return LexicalAnalyzer.make(filename);
+		}
+		statistics.begin(Phase.SCAN);
+		TokenListScanner tokens = TokenListScanner.scanAll(LexicalAnalyzer.make(filename));
+		statistics.end(Phase.SCAN, tokens::numTokens);
+		return tokens;
 	}
 
-	private static void generateCodeIfNoErrors(String filename, ParseNode decoratedTree)
+	private static boolean generateCodeIfNoErrors(String outfile, ParseNode decoratedTree, CompilationStatistics statistics)
 			throws FileNotFoundException {
-		String outfile = outputFilename(filename);
-		
 		if(thereAreErrors()) {
 			stopProcessing(outfile);
-			System.exit(0);
+			return false;
 		} 
-		else {
-			generateAndPrintCode(outfile, decoratedTree);
-		}
+		generateAndPrintCode(outfile, decoratedTree, statistics);
+		return true;
 	}
 
 	// stopProcessing -- inform user and clean up.
 	private static void stopProcessing(String outfile) {
-		informUserNoCodeGenerated();
+		if(CompilationContext.current().echoesMessages()) {
+			informUserNoCodeGenerated();
+		}
 		removeOldASMFile(outfile);
 	}
 	private static void informUserNoCodeGenerated() {
@@ -67,21 +145,97 @@ public class PikaCompiler extends PikaApplication {
 		}
 	}
 	
-	// normal code generation and optimization.
-	private static void generateAndPrintCode(String outfile, ParseNode decoratedTree) 
+	// normal constant folding, dead code elimination, escape analysis, code generation and optimization.
+	private static void generateAndPrintCode(String outfile, ParseNode decoratedTree, CompilationStatistics statistics) 
 			throws FileNotFoundException {
-		ASMCodeFragment code = ASMCodeGenerator.generate(decoratedTree);
-		printCodeToFile(outfile, code);
+		statistics.begin(Phase.CONSTANT_FOLDING);
+		ConstantFolder folder = new ConstantFolder();
+		folder.foldTree(decoratedTree);
+		statistics.end(Phase.CONSTANT_FOLDING, folder::getFoldCount);
+
+		statistics.begin(Phase.DEAD_CODE_ELIMINATION);
+		DeadCodeEliminator eliminator = new DeadCodeEliminator();
+		eliminator.eliminateIn(decoratedTree);
+		statistics.end(Phase.DEAD_CODE_ELIMINATION,
+				() -> eliminator.getStatementsRemoved() + eliminator.getFunctionsRemoved());
+
+		statistics.begin(Phase.ESCAPE_ANALYSIS);
+		EscapeAnalyzer analyzer = new EscapeAnalyzer();
+		analyzer.analyzeTree(decoratedTree);
+		statistics.end(Phase.ESCAPE_ANALYSIS, analyzer::getTemporaryCount);
+
+		statistics.begin(Phase.CODE_GENERATION);
+		ASMCodeFragment generated = ASMCodeGenerator.generate(decoratedTree);
+		statistics.end(Phase.CODE_GENERATION, generated::instructionCount);
+
+		statistics.begin(Phase.UNREACHABLE_CODE_REMOVAL);
+		ASMCodeFragment code = UnreachableBlockRemover.removeUnreachable(generated);
+		statistics.end(Phase.UNREACHABLE_CODE_REMOVAL, code::instructionCount);
+
+		if(CompilationContext.current().optimizes()) {
+			code = optimize(code, statistics);
+		}
+
+		statistics.begin(Phase.EMISSION);
+		long charactersPrinted = printCodeToFile(outfile, code);
+		statistics.end(Phase.EMISSION, () -> charactersPrinted);
+	}
+	private static ASMCodeFragment optimize(ASMCodeFragment code, CompilationStatistics statistics) {
+		statistics.begin(Phase.OPTIMIZATION);
+		Optimizer optimizer = new Optimizer();
+		ASMCodeFragment optimized = optimizer.optimizeFragment(code);
+		statistics.end(Phase.OPTIMIZATION, optimized::instructionCount);
+
+		if(CompilationContext.current().echoesMessages()) {
+			System.err.println(optimizer.getReport());
+		}
+		return optimized;
 	}
-	private static void printCodeToFile(String filename, ASMCodeFragment code)
+	private static long printCodeToFile(String filename, ASMCodeFragment code)
 			throws FileNotFoundException {
-		File file = new File(filename);
-		PrintStream out = new PrintStream(file);
-		out.print(code);
-		out.close();
+		try(Writer out = new OutputStreamWriter(new FileOutputStream(filename))) {
+			return code.writeTo(out);
+		}
+		catch(FileNotFoundException e) {
+			throw e;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	// statistics counts
+	private static long countNodes(ParseNode root) {
+		long result = 0;
+		Deque<ParseNode> pending = new ArrayDeque<ParseNode>();
+		pending.push(root);
+		while(!pending.isEmpty()) {
+			ParseNode node = pending.pop();
+			result++;
+			for(ParseNode child: node.getChildren()) {
+				pending.push(child);
+			}
+		}
+		return result;
+	}
+	private static long countSymbols(ParseNode root) {
+		long result = 0;
+		Set<Scope> counted = Collections.newSetFromMap(new IdentityHashMap<Scope, Boolean>());
+		Deque<ParseNode> pending = new ArrayDeque<ParseNode>();
+		pending.push(root);
+		while(!pending.isEmpty()) {
+			ParseNode node = pending.pop();
+			if(node.hasScope() && counted.add(node.getScope())) {
+				result += node.getScope().getSymbolTable().size();
+			}
+			for(ParseNode child: node.getChildren()) {
+				pending.push(child);
+			}
+		}
+		return result;
 	}
 
 	private static boolean thereAreErrors() {
-		return logging.PikaLogger.hasErrors();
+		return CompilationContext.current().hasErrors();
 	}
 }
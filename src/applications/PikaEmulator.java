@@ -0,0 +1,77 @@
+package applications;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import asmEmulator.ASMEmulator;
+import asmEmulator.ASMProgram;
+import asmEmulator.EmulatorException;
+import asmEmulator.SubroutineProfile;
+
+public class PikaEmulator extends PikaApplication {
+	private static final String PROFILE_OPTION = "--profile=";
+	private static final int EXIT_CODE_FOR_RUNTIME_ERROR = 1;
+
+	/** Runs an ASM file on the pure-Java emulator.
+	 *  With --profile=&lt;label&gt; (which may be repeated), the calls of the subroutine at
+	 *  that label, and the instructions executed in them, are reported on System.err.
+	 *  A fault in the program (such as an invalid memory address) is reported on System.err,
+	 *  and the emulator exits with a nonzero code.
+	 * @param args
+	 * @throws FileNotFoundException 
+	 */
+	public static void main(String[] args) throws FileNotFoundException {
+		List<String> profiledLabels = new ArrayList<String>();
+		List<String> remaining = new ArrayList<String>();
+		for(String arg: args) {
+			if(arg.startsWith(PROFILE_OPTION)) {
+				profiledLabels.add(arg.substring(PROFILE_OPTION.length()));
+			}
+			else {
+				remaining.add(arg);
+			}
+		}
+		args = remaining.toArray(new String[remaining.size()]);
+		checkArguments(args, className());
+		
+		try {
+			if(profiledLabels.isEmpty()) {
+				runFile(args[0], System.out);
+			}
+			else {
+				runProfiled(args[0], profiledLabels, System.out);
+			}
+		}
+		catch(EmulatorException e) {
+			System.out.flush();
+			System.err.println(e.getMessage());
+			System.exit(EXIT_CODE_FOR_RUNTIME_ERROR);
+		}
+	}
+	
+	/** executes the ASM file specified by filename, printing its output
+	 *  to the given PrintStream.
+	 * @param filename the name of the .asm file to be run.
+	 * @param out the PrintStream for the program's output.
+	 * @throws FileNotFoundException 
+	 */
+	public static void runFile(String filename, PrintStream out) throws FileNotFoundException {
+		ASMEmulator.run(filename, out);
+	}
+
+	private static void runProfiled(String filename, List<String> labels, PrintStream out) {
+		ASMEmulator emulator = new ASMEmulator(ASMProgram.load(filename), out);
+		List<SubroutineProfile> profiles = new ArrayList<SubroutineProfile>();
+		for(String label: labels) {
+			profiles.add(emulator.profile(label));
+		}
+		emulator.execute();
+		out.flush();
+		System.err.println(emulator.getInstructionsExecuted() + " instructions executed");
+		for(SubroutineProfile profile: profiles) {
+			System.err.println(profile);
+		}
+	}
+}
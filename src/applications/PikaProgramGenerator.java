@@ -0,0 +1,49 @@
+package applications;
+
+import java.io.FileNotFoundException;
+
+import benchmarks.ProgramGenerator;
+
+/** Writes a synthetic Pika program (see ProgramGenerator) for scaling tests.
+ *  <p>
+ *  usage: PikaProgramGenerator scale outputFilename [-f functions] [-d nesting depth]
+ *                              [-a array length] [-s string length] [--seed n]
+ *  <p>
+ *  The options override the sizes that the scale gives.
+ */
+public class PikaProgramGenerator extends PikaApplication {
+	public static void main(String[] args) throws FileNotFoundException {
+		if(args.length < 2 || !args[0].matches("\\d+")) {
+			usage();
+		}
+		ProgramGenerator scaled = ProgramGenerator.scaled(Integer.parseInt(args[0]));
+		int numFunctions = scaled.getNumFunctions();
+		int nestingDepth = scaled.getNestingDepth();
+		int arrayLength = scaled.getArrayLength();
+		int stringLength = scaled.getStringLength();
+		long seed = Integer.parseInt(args[0]);
+
+		for(int i = 2; i < args.length; i += 2) {
+			if(i + 1 >= args.length || !args[i + 1].matches("\\d+")) {
+				usage();
+			}
+			int value = Integer.parseInt(args[i + 1]);
+			switch(args[i]) {
+			case "-f":		numFunctions = value;	break;
+			case "-d":		nestingDepth = value;	break;
+			case "-a":		arrayLength = value;	break;
+			case "-s":		stringLength = value;	break;
+			case "--seed":	seed = value;			break;
+			default:		usage();
+			}
+		}
+
+		ProgramGenerator generator = new ProgramGenerator(numFunctions, nestingDepth, arrayLength, stringLength, seed);
+		generator.writeTo(args[1]);
+	}
+	private static void usage() {
+		System.err.println("usage: " + className() + " scale outputFilename [-f functions] [-d nesting depth] " +
+				"[-a array length] [-s string length] [--seed n]");
+		System.exit(0);
+	}
+}
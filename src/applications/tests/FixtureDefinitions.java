@@ -15,4 +15,33 @@ public class FixtureDefinitions {
 
 	public static final String SEMANTIC_INPUT_FILENAME          = FIXTURE_DIRECTORY + "coinTest.pika";
 	public static final String SEMANTIC_EXPECTED_FILENAME       = FIXTURE_DIRECTORY + "coinTestSemantics.txt";
+
+	public static final String EMULATOR_INPUT_FILENAME          = FIXTURE_DIRECTORY + "emulatorTest.asm";
+	public static final String EMULATOR_EXPECTED_FILENAME       = FIXTURE_DIRECTORY + "emulatorTestOutput.txt";
+
+	public static final String PEEPHOLE_INPUT_FILENAME          = FIXTURE_DIRECTORY + "peepholeTest.asm";
+	public static final String PEEPHOLE_EXPECTED_FILENAME       = FIXTURE_DIRECTORY + "peepholeTestOptimized.asm";
+	public static final String PEEPHOLE_PROGRAM_FILENAME        = FIXTURE_DIRECTORY + "peepholeTest.pika";
+	public static final String PEEPHOLE_PROGRAM_OUTPUT_FILENAME = FIXTURE_DIRECTORY + "peepholeTestOutput.txt";
+
+	public static final String FOLDING_PROGRAM_FILENAME         = FIXTURE_DIRECTORY + "constantFoldingTest.pika";
+	public static final String FOLDING_PROGRAM_OUTPUT_FILENAME  = FIXTURE_DIRECTORY + "constantFoldingTestOutput.txt";
+	public static final String RATIONAL_FOLDING_PROGRAM_FILENAME = FIXTURE_DIRECTORY + "rationalFoldingTest.pika";
+
+	public static final String DEAD_CODE_PROGRAM_FILENAME       = FIXTURE_DIRECTORY + "deadCodeTest.pika";
+	public static final String DEAD_CODE_PROGRAM_OUTPUT_FILENAME = FIXTURE_DIRECTORY + "deadCodeTestOutput.txt";
+	public static final String UNREACHABLE_INPUT_FILENAME       = FIXTURE_DIRECTORY + "unreachableTest.asm";
+	public static final String UNREACHABLE_EXPECTED_FILENAME    = FIXTURE_DIRECTORY + "unreachableTestReduced.asm";
+	public static final String UNREACHABLE_OUTPUT_FILENAME      = FIXTURE_DIRECTORY + "unreachableTestOutput.txt";
+
+	public static final String ESCAPE_PROGRAM_FILENAME          = FIXTURE_DIRECTORY + "escapeTest.pika";
+	public static final String ESCAPE_PROGRAM_OUTPUT_FILENAME   = FIXTURE_DIRECTORY + "escapeTestOutput.txt";
+	public static final String ESCAPE_STORED_PROGRAM_FILENAME   = FIXTURE_DIRECTORY + "escapeStoredTest.pika";
+
+	public static final String REFERENCE_COUNTING_PROGRAM_FILENAME        = FIXTURE_DIRECTORY + "referenceCountingTest.pika";
+	public static final String REFERENCE_COUNTING_PROGRAM_OUTPUT_FILENAME = FIXTURE_DIRECTORY + "referenceCountingTestOutput.txt";
+	public static final String HEAP_EXHAUSTION_PROGRAM_FILENAME           = FIXTURE_DIRECTORY + "heapExhaustionTest.pika";
+	public static final String HEAP_EXHAUSTION_PROGRAM_OUTPUT_FILENAME    = FIXTURE_DIRECTORY + "heapExhaustionTestOutput.txt";
+	public static final String MARK_AND_SWEEP_PROGRAM_FILENAME            = FIXTURE_DIRECTORY + "markAndSweepTest.pika";
+	public static final String MARK_AND_SWEEP_PROGRAM_OUTPUT_FILENAME     = FIXTURE_DIRECTORY + "markAndSweepTestOutput.txt";
 }
@@ -0,0 +1,49 @@
+package applications.tests;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import applications.PikaCompiler;
+import applications.PikaEmulator;
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import compiler.CompilationContext;
+import tests.FileFixturesTestCase.Command;
+
+/** Compiles a Pika program (with the options given) to a temporary .asm file, and runs it
+ *  in the emulator, printing its output.  A program with errors fails the command.
+ */
+public class ProgramOutputCommand implements Command {
+	private final String filename;
+	private boolean optimize = false;
+	private Reclamation reclamation = Reclamation.MANUAL;
+
+	public ProgramOutputCommand(String filename) {
+		this.filename = filename;
+	}
+	/** compile with -O. */
+	public ProgramOutputCommand optimized() {
+		optimize = true;
+		return this;
+	}
+	/** compile with --reclaim=... */
+	public ProgramOutputCommand reclaimedBy(Reclamation reclamation) {
+		this.reclamation = reclamation;
+		return this;
+	}
+
+	public void run(PrintStream out) throws Exception {
+		File asmFile = File.createTempFile("pikaFixture", ".asm");
+		try {
+			CompilationContext context = CompilationContext.makeQuiet(filename);
+			context.setOptimize(optimize);
+			context.setReclamation(reclamation);
+			if(!PikaCompiler.compile(context, asmFile.getPath())) {
+				throw new IllegalStateException(filename + " has errors: " + context.getMessages());
+			}
+			PikaEmulator.runFile(asmFile.getPath(), out);
+		}
+		finally {
+			asmFile.delete();
+		}
+	}
+}
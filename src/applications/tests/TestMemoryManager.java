@@ -0,0 +1,138 @@
+package applications.tests;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import applications.PikaEmulator;
+import asmCodeGenerator.codeStorage.ASMCodeWriter;
+import asmCodeGenerator.runtime.MemoryManager;
+import asmCodeGenerator.runtime.MemoryManager.Allocator;
+import compiler.CompilationContext;
+import tests.FileFixturesTestCase;
+
+// runs the free-list dump (see MemoryManager.freeListDumpProgram) after sequences of
+// allocations and deallocations.  A block's size includes its two 9-byte tags.
+public class TestMemoryManager extends FileFixturesTestCase {
+	private static final int TAGS_SIZE = 18;
+	private static final String FIRST_FIT_LIST = "$heap-first-free";
+	private static final String CLASS_LIST = "$heap-first-free-class-";
+	private static final Pattern LIST_HEADER = Pattern.compile("Free list (\\S+):");
+	private static final Pattern BLOCK = Pattern.compile("^\\s+([0-9A-F]+)\\[size (\\d+) ");
+	private static final Pattern ALLOCATION = Pattern.compile("^allocate \\d+:\\s+([0-9A-F]+)\\[");
+
+	// the fourth block keeps the third from the end of the heap.
+	public void testFirstFitCoalescing() throws Exception {
+		List<String> steps = dumpSteps(Allocator.FIRST_FIT, 40, 40, 40, 40, -1, -3, -2, 40);
+		String first = allocatedAt(steps.get(0));
+		String third = allocatedAt(steps.get(2));
+		int blockSize = 40 + TAGS_SIZE;
+
+		assertEquals(blocks(third, blockSize, first, blockSize), freeLists(steps.get(5)).get(FIRST_FIT_LIST));
+
+		// freeing the second merges it with both of its neighbours.
+		assertEquals(blocks(first, 3 * blockSize), freeLists(steps.get(6)).get(FIRST_FIT_LIST));
+
+		// and the merged block is split again for the next allocation.
+		assertEquals(first, allocatedAt(steps.get(7)));
+		assertEquals(1, freeLists(steps.get(7)).get(FIRST_FIT_LIST).size());
+	}
+
+	public void testSizeClassesReuseWithoutCoalescing() throws Exception {
+		for(int usableSize: new int[] { 16, 32, 64, 128 }) {
+			List<String> steps = dumpSteps(Allocator.SIZE_CLASSES, usableSize, usableSize, usableSize, -1, -2, usableSize);
+			String classList = CLASS_LIST + usableSize;
+
+			// the two neighbours stay apart, in the list of their class.
+			Map<String, List<String>> afterFrees = freeLists(steps.get(4));
+			assertEquals(blocks(allocatedAt(steps.get(1)), usableSize + TAGS_SIZE,
+								allocatedAt(steps.get(0)), usableSize + TAGS_SIZE),
+						 afterFrees.get(classList));
+			assertEquals(blocks(), afterFrees.get(FIRST_FIT_LIST));
+
+			// the next allocation of the class takes the first of them.
+			assertEquals(allocatedAt(steps.get(1)), allocatedAt(steps.get(5)));
+			assertEquals(blocks(allocatedAt(steps.get(0)), usableSize + TAGS_SIZE),
+						 freeLists(steps.get(5)).get(classList));
+		}
+	}
+
+	private List<String> dumpSteps(Allocator allocator, int... steps) throws Exception {
+		String output = outputFor(new FreeListDumpCommand(allocator, steps));
+		List<String> result = new ArrayList<String>();
+		for(String step: output.split("\n\n")) {
+			result.add(step);
+		}
+		assertEquals(output, steps.length, result.size());
+		return result;
+	}
+
+	// the address of the block allocated by the step, in hex.
+	private static String allocatedAt(String step) {
+		Matcher matcher = ALLOCATION.matcher(step);
+		assertTrue(step, matcher.find());
+		return matcher.group(1);
+	}
+	// the blocks of each free list printed by the step, as "address size".
+	private static Map<String, List<String>> freeLists(String step) {
+		Map<String, List<String>> lists = new LinkedHashMap<String, List<String>>();
+		List<String> current = null;
+		for(String line: step.split("\n")) {
+			Matcher header = LIST_HEADER.matcher(line);
+			Matcher block = BLOCK.matcher(line);
+			if(header.matches()) {
+				current = new ArrayList<String>();
+				lists.put(header.group(1), current);
+			}
+			else if(current != null && block.find()) {
+				current.add(block.group(1) + " " + block.group(2));
+			}
+		}
+		return lists;
+	}
+	// addressesAndSizes alternate: an address in hex, then a size.
+	private static List<String> blocks(Object... addressesAndSizes) {
+		List<String> result = new ArrayList<String>();
+		for(int i = 0; i < addressesAndSizes.length; i += 2) {
+			result.add(addressesAndSizes[i] + " " + addressesAndSizes[i + 1]);
+		}
+		return result;
+	}
+
+	public class FreeListDumpCommand implements Command {
+		Allocator allocator;
+		int[] steps;
+		public FreeListDumpCommand(Allocator allocator, int... steps) {
+			this.allocator = allocator;
+			this.steps = steps;
+		}
+
+		public void run(PrintStream out) throws Exception {
+			File asmFile = File.createTempFile("pikaFreeLists", ".asm");
+			CompilationContext context = CompilationContext.makeQuiet(asmFile.getPath());
+			context.setAllocator(allocator);
+			CompilationContext outerContext = context.enter();
+			try(Writer text = new FileWriter(asmFile)) {
+				ASMCodeWriter writer = new ASMCodeWriter(text);
+				writer.write(MemoryManager.freeListDumpProgram(steps));
+				writer.flush();
+			}
+			finally {
+				outerContext.enter();
+			}
+			try {
+				PikaEmulator.runFile(asmFile.getPath(), out);
+			}
+			finally {
+				asmFile.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package applications.tests;
+
+import static applications.tests.FixtureDefinitions.DEAD_CODE_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.DEAD_CODE_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.ESCAPE_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.ESCAPE_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.ESCAPE_STORED_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.FOLDING_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.FOLDING_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.PEEPHOLE_EXPECTED_FILENAME;
+import static applications.tests.FixtureDefinitions.PEEPHOLE_INPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.PEEPHOLE_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.PEEPHOLE_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.RATIONAL_FOLDING_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.UNREACHABLE_EXPECTED_FILENAME;
+import static applications.tests.FixtureDefinitions.UNREACHABLE_INPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.UNREACHABLE_OUTPUT_FILENAME;
+
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import applications.PikaEmulator;
+import asmCodeGenerator.ASMCodeGenerator;
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMCodeWriter;
+import asmCodeGenerator.codeStorage.ASMInstruction;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+import asmCodeGenerator.runtime.MemoryManager;
+import asmCodeGenerator.runtime.RunTime;
+import compiler.CompilationContext;
+import lexicalAnalyzer.LexicalAnalyzer;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.EscapeAnalyzer;
+import optimizer.Optimizer;
+import optimizer.PeepholeRule;
+import optimizer.UnreachableBlockRemover;
+import parseTree.ParseNode;
+import parser.Parser;
+import semanticAnalyzer.SemanticAnalyzer;
+import tests.FileFixturesTestCase;
+
+public class TestOptimizer extends FileFixturesTestCase {
+	private static final int FOLDS_IN_FOLDING_PROGRAM = 39;
+
+	public void testPeepholeRules() throws Exception {
+		Optimizer optimizer = new Optimizer();
+		String actualOutput =	outputFor(new RewrittenCodeCommand(optimizer::optimizeFragment, PEEPHOLE_INPUT_FILENAME));
+		String expectedOutput = getContents(PEEPHOLE_EXPECTED_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+
+		for(PeepholeRule rule: PeepholeRule.values()) {
+			assertTrue(rule.getName() + " never applied", optimizer.getRewriteCount(rule) > 0);
+		}
+	}
+
+	public void testOptimizedProgramOutput() throws Exception {
+		String expectedOutput = getContents(PEEPHOLE_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, outputFor(new ProgramOutputCommand(PEEPHOLE_PROGRAM_FILENAME)));
+		assertEquals(expectedOutput, outputFor(new ProgramOutputCommand(PEEPHOLE_PROGRAM_FILENAME).optimized()));
+	}
+
+	public void testConstantFolding() throws Exception {
+		ConstantFolder folder = inQuietContext(FOLDING_PROGRAM_FILENAME, tree -> {
+			ConstantFolder result = new ConstantFolder();
+			result.foldTree(tree);
+			return result;
+		});
+		assertEquals(FOLDS_IN_FOLDING_PROGRAM, folder.getFoldCount());
+
+		assertTrue(callsIn(generatedCode(RATIONAL_FOLDING_PROGRAM_FILENAME, false), RunTime.LOWEST_TERMS) > 0);
+		assertEquals(0, callsIn(generatedCode(RATIONAL_FOLDING_PROGRAM_FILENAME, true), RunTime.LOWEST_TERMS));
+
+		String actualOutput =	outputFor(new ProgramOutputCommand(FOLDING_PROGRAM_FILENAME));
+		String expectedOutput = getContents(FOLDING_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+
+	// the statements after the return, break and continue, and the while(_false_);
+	// the funcs unused and onlyFromUnused.
+	public void testDeadCodeElimination() throws Exception {
+		DeadCodeEliminator eliminator = eliminateDeadCode(DEAD_CODE_PROGRAM_FILENAME);
+		assertEquals(4, eliminator.getStatementsRemoved());
+		assertEquals(2, eliminator.getFunctionsRemoved());
+
+		String actualOutput =	outputFor(new ProgramOutputCommand(DEAD_CODE_PROGRAM_FILENAME));
+		String expectedOutput = getContents(DEAD_CODE_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+
+	public void testUnreachableBlockRemoval() throws Exception {
+		String actualOutput =	outputFor(new RewrittenCodeCommand(UnreachableBlockRemover::removeUnreachable, UNREACHABLE_INPUT_FILENAME));
+		String expectedOutput = getContents(UNREACHABLE_EXPECTED_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+
+		// the expected code must run just as the code it was reduced from.
+		String expectedRun = getContents(UNREACHABLE_OUTPUT_FILENAME);
+		assertEquals(expectedRun, outputFor(new EmulatorCommand(UNREACHABLE_INPUT_FILENAME)));
+		assertEquals(expectedRun, outputFor(new EmulatorCommand(UNREACHABLE_EXPECTED_FILENAME)));
+	}
+
+	public void testEscapeAnalysis() throws Exception {
+		assertTrue(temporariesIn(ESCAPE_PROGRAM_FILENAME) > 0);
+		assertTrue(callsIn(generatedCode(ESCAPE_PROGRAM_FILENAME, true), MemoryManager.MEM_MANAGER_ARENA_ALLOCATE) > 0);
+
+		assertEquals(0, temporariesIn(ESCAPE_STORED_PROGRAM_FILENAME));
+		assertEquals(0, callsIn(generatedCode(ESCAPE_STORED_PROGRAM_FILENAME, true), MemoryManager.MEM_MANAGER_ARENA_ALLOCATE));
+
+		String actualOutput =	outputFor(new ProgramOutputCommand(ESCAPE_PROGRAM_FILENAME));
+		String expectedOutput = getContents(ESCAPE_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+
+	private DeadCodeEliminator eliminateDeadCode(String filename) {
+		return inQuietContext(filename, tree -> {
+			DeadCodeEliminator eliminator = new DeadCodeEliminator();
+			eliminator.eliminateIn(ConstantFolder.fold(tree));
+			return eliminator;
+		});
+	}
+
+	private int temporariesIn(String filename) {
+		return inQuietContext(filename, tree -> {
+			EscapeAnalyzer analyzer = new EscapeAnalyzer();
+			analyzer.analyzeTree(ConstantFolder.fold(tree));
+			return analyzer.getTemporaryCount();
+		});
+	}
+
+	// the code for the program, with or without folding; escape analysis always runs.
+	private ASMCodeFragment generatedCode(String filename, boolean folding) {
+		return inQuietContext(filename, tree -> {
+			ParseNode folded = folding ? ConstantFolder.fold(tree) : tree;
+			return ASMCodeGenerator.generate(EscapeAnalyzer.analyze(folded));
+		});
+	}
+
+	private static int callsIn(ASMCodeFragment code, String label) {
+		int count = 0;
+		for(ASMInstruction instruction: code.instructions()) {
+			if(instruction.getOpcode() == ASMOpcode.Call && label.equals(instruction.getStringArgument())) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// runs pass on the decorated tree for filename, in a quiet context of its own.
+	private <T> T inQuietContext(String filename, Function<ParseNode, T> pass) {
+		CompilationContext outerContext = CompilationContext.makeQuiet(filename).enter();
+		try {
+			return pass.apply(SemanticAnalyzer.analyze(Parser.parse(LexicalAnalyzer.make(filename))));
+		}
+		finally {
+			outerContext.enter();
+		}
+	}
+
+	// prints the rewritten instructions, in the compact format.
+	public class RewrittenCodeCommand implements Command {
+		UnaryOperator<ASMCodeFragment> rewriting;
+		String filename;
+		public RewrittenCodeCommand(UnaryOperator<ASMCodeFragment> rewriting, String filename) {
+			this.rewriting = rewriting;
+			this.filename = filename;
+		}
+
+		public void run(PrintStream out) throws Exception {
+			ASMCodeFragment rewritten = rewriting.apply(ASMCodeFragment.readFrom(filename));
+			StringWriter text = new StringWriter();
+			ASMCodeWriter writer = new ASMCodeWriter(text, ASMCodeWriter.Format.COMPACT);
+			writer.write(rewritten);
+			writer.flush();
+			out.print(text);
+		}
+	}
+
+	public class EmulatorCommand implements Command {
+		String filename;
+		public EmulatorCommand(String filename) {
+			this.filename = filename;
+		}
+
+		public void run(PrintStream out) throws Exception {
+			PikaEmulator.runFile(filename, out);
+		}
+	}
+}
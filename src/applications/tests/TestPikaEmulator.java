@@ -0,0 +1,34 @@
+package applications.tests;
+
+import static applications.tests.FixtureDefinitions.EMULATOR_EXPECTED_FILENAME;
+import static applications.tests.FixtureDefinitions.EMULATOR_INPUT_FILENAME;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+
+import tests.FileFixturesTestCase;
+import applications.PikaEmulator;
+
+public class TestPikaEmulator extends FileFixturesTestCase {
+
+	public void testEmulator() throws Exception {
+		String actualOutput =	emulatorOutput(EMULATOR_INPUT_FILENAME);
+		String expectedOutput = getContents(EMULATOR_EXPECTED_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+
+	private String emulatorOutput(String filename) throws Exception {
+		return outputFor(new EmulatorCommand(filename));
+	}
+	
+	public class EmulatorCommand implements Command {
+		String filename;
+		public EmulatorCommand(String filename) {
+			this.filename = filename;
+		}
+
+		public void run(PrintStream out) throws FileNotFoundException {
+			PikaEmulator.runFile(filename, out);
+		}
+	}
+}
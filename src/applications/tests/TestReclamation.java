@@ -0,0 +1,55 @@
+package applications.tests;
+
+import static applications.tests.FixtureDefinitions.HEAP_EXHAUSTION_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.HEAP_EXHAUSTION_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.MARK_AND_SWEEP_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.MARK_AND_SWEEP_PROGRAM_OUTPUT_FILENAME;
+import static applications.tests.FixtureDefinitions.REFERENCE_COUNTING_PROGRAM_FILENAME;
+import static applications.tests.FixtureDefinitions.REFERENCE_COUNTING_PROGRAM_OUTPUT_FILENAME;
+
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import asmEmulator.EmulatorException;
+import tests.FileFixturesTestCase;
+
+public class TestReclamation extends FileFixturesTestCase {
+
+	public void testReferenceCounting() throws Exception {
+		String expectedOutput = getContents(REFERENCE_COUNTING_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, reclaimedOutput(REFERENCE_COUNTING_PROGRAM_FILENAME, Reclamation.MANUAL));
+		assertEquals(expectedOutput, reclaimedOutput(REFERENCE_COUNTING_PROGRAM_FILENAME, Reclamation.REFERENCE_COUNTING));
+	}
+
+	public void testReferenceCountingReclaimsHeap() throws Exception {
+		assertHeapExhaustedWhenManual();
+		assertEquals(getContents(HEAP_EXHAUSTION_PROGRAM_OUTPUT_FILENAME),
+				reclaimedOutput(HEAP_EXHAUSTION_PROGRAM_FILENAME, Reclamation.REFERENCE_COUNTING));
+	}
+
+	public void testMarkAndSweep() throws Exception {
+		String expectedOutput = getContents(MARK_AND_SWEEP_PROGRAM_OUTPUT_FILENAME);
+		assertEquals(expectedOutput, reclaimedOutput(MARK_AND_SWEEP_PROGRAM_FILENAME, Reclamation.MANUAL));
+		assertEquals(expectedOutput, reclaimedOutput(MARK_AND_SWEEP_PROGRAM_FILENAME, Reclamation.MARK_AND_SWEEP));
+	}
+
+	// some 17MB allocated: well over two hundred collection intervals.
+	public void testMarkAndSweepReclaimsHeap() throws Exception {
+		assertHeapExhaustedWhenManual();
+		assertEquals(getContents(HEAP_EXHAUSTION_PROGRAM_OUTPUT_FILENAME),
+				reclaimedOutput(HEAP_EXHAUSTION_PROGRAM_FILENAME, Reclamation.MARK_AND_SWEEP));
+	}
+
+	// the heap-exhaustion fixture must really run out of heap when nothing is reclaimed.
+	private void assertHeapExhaustedWhenManual() throws Exception {
+		try {
+			reclaimedOutput(HEAP_EXHAUSTION_PROGRAM_FILENAME, Reclamation.MANUAL);
+			fail(HEAP_EXHAUSTION_PROGRAM_FILENAME + " ran to completion without reclamation");
+		}
+		catch(EmulatorException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("invalid memory address"));
+		}
+	}
+
+	private String reclaimedOutput(String filename, Reclamation reclamation) throws Exception {
+		return outputFor(new ProgramOutputCommand(filename).reclaimedBy(reclamation));
+	}
+}
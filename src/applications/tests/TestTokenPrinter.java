@@ -6,6 +6,8 @@ import static applications.tests.FixtureDefinitions.TOKEN_PRINTER_INPUT_FILENAME
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
 
+import compiler.CompilationContext;
+import lexicalAnalyzer.LexicalAnalyzer;
 import tests.FileFixturesTestCase;
 import tokens.Tokens;
 import applications.PikaTokenPrinter;
@@ -18,6 +20,18 @@ public class TestTokenPrinter extends FileFixturesTestCase {
 		String expectedOutput = getContents(TOKEN_PRINTER_EXPECTED_FILENAME);
 		assertEquals(expectedOutput, actualOutput);
 	}
+	
+	public void testTableDrivenTokenPrinter() throws Exception {
+		CompilationContext context = CompilationContext.makeQuiet(TOKEN_PRINTER_INPUT_FILENAME);
+		context.setScannerKind(LexicalAnalyzer.ScannerKind.TABLE_DRIVEN);
+		CompilationContext outerContext = context.enter();
+		try {
+			testTokenPrinter();
+		}
+		finally {
+			outerContext.enter();
+		}
+	}
 
 	private String tokenPrinterOutput(String filename) throws Exception {
 		return outputFor(new TokenPrinterCommand(filename));
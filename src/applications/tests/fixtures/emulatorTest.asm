@@ -0,0 +1,51 @@
+        Jump         $$main                    
+        DLabel       $print-format-integer     
+        DataC        37                        
+        DataC        100                       
+        DataC        0                         
+        DLabel       $print-format-floating    
+        DataC        37                        
+        DataC        103                       
+        DataC        0                         
+        DLabel       $print-format-newline     
+        DataC        10                        
+        DataC        0                         
+        DLabel       $counter                  
+        DataZ        4                         
+        Label        $$main                    
+        PushD        $counter                  
+        PushI        5                         
+        StoreI                                 
+        Label        loop                      
+        PushD        $counter                  
+        LoadI                                  
+        JumpFalse    done                      
+        PushD        $counter                  
+        LoadI                                  
+        Call         square                    
+        PushD        $print-format-integer     
+        Printf                                 
+        PushD        $print-format-newline     
+        Printf                                 
+        PushD        $counter                  
+        PushD        $counter                  
+        LoadI                                  
+        PushI        1                         
+        Subtract                               
+        StoreI                                 
+        Jump         loop                      
+        Label        done                      
+        PushF        2.500000                  
+        PushF        0.125000                  
+        FMultiply                              
+        PushD        $print-format-floating    
+        Printf                                 
+        PushD        $print-format-newline     
+        Printf                                 
+        Halt                                   
+        Label        square                    
+        Exchange                               
+        Duplicate                              
+        Multiply                               
+        Exchange                               
+        Return                                 
@@ -0,0 +1,122 @@
+# one case per label; each is rewritten by the rule it is named for, or (for the
+# not- cases) left alone.  x, y and f are never defined: this is not run.
+Label case-add-zero
+PushD x
+LoadI
+PushI 0
+Add
+PushI 0
+Subtract
+Label case-multiply-one
+PushD x
+LoadI
+PushI 1
+Multiply
+PushI 1
+Divide
+Label case-fold-constants
+PushI 6
+PushI 7
+Multiply
+PushI 2
+PushI 5
+Subtract
+PushI 2147483647
+PushI 1
+Add
+Label case-combine-offsets
+PushD x
+PushI 4
+Add
+PushI 8
+Add
+LoadI
+Label case-discarded-push
+PushD x
+LoadI
+Duplicate
+Pop
+PushF 1.5
+Pop
+PushD y
+Pop
+Label case-double-exchange
+PushD x
+PushD y
+Exchange
+Exchange
+Label case-store-then-load
+PushI 5
+PushD x
+Exchange
+StoreI
+PushD x
+LoadI
+PushF 2.5
+PushD y
+Exchange
+StoreF
+PushD y
+LoadF
+Label case-not-store-then-load-of-char
+PushI 321
+PushD x
+Exchange
+StoreC
+PushD x
+LoadC
+Label case-not-store-then-load-of-other-address
+PushI 5
+PushD x
+Exchange
+StoreI
+PushD y
+LoadI
+Label case-jump-to-next
+Jump case-conditional-jump-to-next
+Label case-conditional-jump-to-next
+PushD x
+LoadI
+JumpFalse case-conditional-jump-to-constant
+Label case-conditional-jump-to-constant
+PushI 1
+JumpTrue case-jump-over-jump
+Label case-jump-over-jump
+PushD x
+LoadI
+JumpFalse case-jump-over-jump-over
+Jump f
+Label case-jump-over-jump-over
+PushD x
+LoadI
+JumpTrue case-unreachable-code
+Jump f
+Label case-unreachable-code
+Jump f
+PushI 1
+Add
+Return
+PushD x
+Halt
+DLabel case-unreachable-code-data
+DataI 3
+Label case-not-across-labels
+PushI 0
+Label case-not-across-labels-add
+Add
+PushI 2
+PushI 3
+Label case-not-across-labels-fold
+Add
+Jump f
+Label case-not-across-labels-unreachable
+PushI 1
+PushD x
+Exchange
+StoreI
+Label case-not-across-labels-load
+PushD x
+LoadI
+JumpFalse f
+Label case-not-across-labels-jump
+Halt
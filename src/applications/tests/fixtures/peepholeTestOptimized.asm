@@ -0,0 +1,84 @@
+Label case-add-zero
+PushD x
+LoadI
+Label case-multiply-one
+PushD x
+LoadI
+Label case-fold-constants
+PushI 42
+PushI -3
+PushI -2147483648
+Label case-combine-offsets
+PushD x
+PushI 12
+Add
+LoadI
+Label case-discarded-push
+PushD x
+LoadI
+Label case-double-exchange
+PushD x
+PushD y
+Label case-store-then-load
+PushI 5
+Duplicate
+PushD x
+Exchange
+StoreI
+PushF 2.500000
+Duplicate
+PushD y
+Exchange
+StoreF
+Label case-not-store-then-load-of-char
+PushI 321
+PushD x
+Exchange
+StoreC
+PushD x
+LoadC
+Label case-not-store-then-load-of-other-address
+PushI 5
+PushD x
+Exchange
+StoreI
+PushD y
+LoadI
+Label case-jump-to-next
+Label case-conditional-jump-to-next
+PushD x
+LoadI
+Pop
+Label case-conditional-jump-to-constant
+Label case-jump-over-jump
+PushD x
+LoadI
+JumpTrue f
+Label case-jump-over-jump-over
+PushD x
+LoadI
+JumpFalse f
+Label case-unreachable-code
+Jump f
+DLabel case-unreachable-code-data
+DataI 3
+Label case-not-across-labels
+PushI 0
+Label case-not-across-labels-add
+Add
+PushI 2
+PushI 3
+Label case-not-across-labels-fold
+Add
+Jump f
+Label case-not-across-labels-unreachable
+PushI 1
+PushD x
+Exchange
+StoreI
+Label case-not-across-labels-load
+PushD x
+LoadI
+JumpFalse f
+Label case-not-across-labels-jump
+Halt
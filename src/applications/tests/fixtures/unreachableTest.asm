@@ -0,0 +1,72 @@
+Jump $$main
+DLabel $first-data
+DataI 0
+DLabel $format-integer
+DataC 37
+DataC 100
+DataC 10
+DataC 0
+DLabel $never-named-format
+DataC 37
+DataC 0
+DLabel $table
+DataD via-table
+DLabel $never-named-table
+DataD only-in-never-named-table
+Label $$main
+PushI 1
+Call called
+PushD via-pushd
+CallV
+PushD $table
+LoadI
+CallV
+Call alias
+Jump after
+PushI 99
+Call only-after-jump
+Label after
+PushI 6
+Call falls-through
+Halt
+Label never-called
+PushI 100
+PushD $format-integer
+Printf
+Return
+Label only-after-jump
+Return
+Label only-in-never-named-table
+Return
+Label called
+Exchange
+PushD $format-integer
+Printf
+Return
+Label via-pushd
+PushI 2
+PushD $format-integer
+Printf
+Return
+Label via-table
+PushI 3
+PushD $format-integer
+Printf
+Return
+Label shares-block-with-alias
+Label alias
+PushI 4
+PushD $format-integer
+Printf
+Return
+PushI 101
+Return
+Label falls-through
+Exchange
+PushD $format-integer
+Printf
+Label fallen-into
+PushI 7
+PushD $format-integer
+Printf
+Return
@@ -0,0 +1,54 @@
+Jump $$main
+DLabel $first-data
+DataI 0
+DLabel $format-integer
+DataC 37
+DataC 100
+DataC 10
+DataC 0
+DLabel $table
+DataD via-table
+Label $$main
+PushI 1
+Call called
+PushD via-pushd
+CallV
+PushD $table
+LoadI
+CallV
+Call alias
+Jump after
+Label after
+PushI 6
+Call falls-through
+Halt
+Label called
+Exchange
+PushD $format-integer
+Printf
+Return
+Label via-pushd
+PushI 2
+PushD $format-integer
+Printf
+Return
+Label via-table
+PushI 3
+PushD $format-integer
+Printf
+Return
+Label shares-block-with-alias
+Label alias
+PushI 4
+PushD $format-integer
+Printf
+Return
+Label falls-through
+Exchange
+PushD $format-integer
+Printf
+Label fallen-into
+PushI 7
+PushD $format-integer
+Printf
+Return
@@ -12,6 +12,7 @@ public class ASMCodeGenerationConstants {
 	public static final int ARRAY_LENGTH_OFFSET = 12;
 	
 	public static final int STATUS_FLAG_FOR_REFERENCE = 0b0010;
+	public static final int STATUS_FLAG_FOR_STRING_REFERENCE = 0b0001;	// an array of strings
 	public static final int STATUS_FLAG_FOR_NON_REFERENCE = 0;
 	public static final int STATUS_FLAG_FOR_DELETE_AND_PERM = 0b0011;
 	public static final int STATUS_TO_CHECK_DELETE_OR_PERM = 0b1100;
@@ -21,6 +22,8 @@ public class ASMCodeGenerationConstants {
 	public static final int FUNCTION_CALL_EXTRA_BYTES = 8;
 	public static final int FRAME_POINTER_SIZE = 4;
 	public static final int WHERE_TO_RETURN_ADDRESS_SIZE = 4;
+	public static final int FRAME_MAP_SIZE = 4;		// with mark and sweep, below the return address.
+	public static final int FRAME_MAP_OFFSET = -(FUNCTION_CALL_EXTRA_BYTES + FRAME_MAP_SIZE);
 	
 	// String constants
 	public static final int STRING_TYPE_ID = 6;
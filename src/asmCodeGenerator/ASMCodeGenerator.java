@@ -1,18 +1,24 @@
 package asmCodeGenerator;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import asmCodeGenerator.codeStorage.ASMOpcode;
 import asmCodeGenerator.runtime.MemoryManager;
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import asmCodeGenerator.runtime.ReferenceCounter;
 import asmCodeGenerator.runtime.RunTime;
+import asmCodeGenerator.runtime.RuntimeLinker;
+import asmCodeGenerator.specialCodeGenerator.ArrayCloneCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.FoldOperatorCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.FullCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.MapOperatorCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.ReduceOperatorCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.ReverseOperatorCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.SimpleCodeGenerator;
 import asmCodeGenerator.specialCodeGenerator.ZipOperatorCodeGenerator;
 import lexicalAnalyzer.Keyword;
@@ -33,6 +39,7 @@ import static asmCodeGenerator.codeStorage.ASMOpcode.*;
 // do not call the code generator if any errors have occurred during analysis.
 public class ASMCodeGenerator {
 	ParseNode root;
+	private final ReferenceCounter referenceCounter = new ReferenceCounter();
 
 	public static ASMCodeFragment generate(ParseNode syntaxTree) {
 		ASMCodeGenerator codeGenerator = new ASMCodeGenerator(syntaxTree);
@@ -45,21 +52,27 @@ public class ASMCodeGenerator {
 	}
 
 	public ASMCodeFragment makeASM() {
-		ASMCodeFragment code = new ASMCodeFragment(GENERATES_VOID);
+		RuntimeLinker linker = new RuntimeLinker();
+		RunTime.addNullGuard(linker);
 
 		// Code which should be in the pathway before actual application code
-		code.append(MemoryManager.codeForInitialization());
-
-		code.append(RunTime.getEnvironment());
-		code.append(globalVariableBlockASM());
-		code.append(execVariableBlockASM());
-		code.append(programASM());
+		MemoryManager.addInitialization(linker);
+
+		RunTime.addEnvironment(linker);
+		PrintStatementGenerator.addArrayPrinters(linker);
+		linker.addRoot(globalVariableBlockASM());
+		linker.addRoot(execVariableBlockASM());
+		linker.addRoot(programASM());
+		referenceCounter.addTo(linker);
+		if (MemoryManager.getReclamation() == Reclamation.MARK_AND_SWEEP) {
+			linker.add(globalRootMapASM());
+		}
 
 		// Memory heap manger goes after the main program where main program is the
 		// programASM
-		code.append(MemoryManager.codeForAfterApplication());
+		MemoryManager.addAfterApplication(linker);
 
-		return code;
+		return linker.link();
 	}
 
 	private ASMCodeFragment globalVariableBlockASM() {
@@ -84,6 +97,34 @@ public class ASMCodeGenerator {
 		return code;
 	}
 
+	// the subroutine the collector calls to mark the records that global variables refer to:
+	// [... returnAddress] -> [...].
+	private ASMCodeFragment globalRootMapASM() {
+		ASMCodeFragment code = new ASMCodeFragment(GENERATES_VOID);
+		code.add(Label, MemoryManager.MEM_MANAGER_MARK_GLOBAL_ROOTS);
+		addGlobalRoots(code, root, new HashSet<Binding>());
+		code.add(Return);
+		return code;
+	}
+
+	// a static is installed in its local scope as well as in the base scope.
+	private void addGlobalRoots(ASMCodeFragment code, ParseNode node, Set<Binding> roots) {
+		if (node.hasScope()) {
+			for (Binding binding : node.getScope().getSymbolTable().values()) {
+				String base = binding.getMemoryLocation().getBaseAddress();
+				boolean isGlobal = RunTime.GLOBAL_MEMORY_BLOCK.equals(base) || RunTime.GLOBAL_MEMORY_BLOCK2.equals(base);
+				if (isGlobal && ReferenceCounter.isCounted(binding.getType()) && roots.add(binding)) {
+					binding.generateAddress(code);
+					code.add(LoadI);
+					code.add(Call, MemoryManager.MEM_MANAGER_MARK_CANDIDATE);
+				}
+			}
+		}
+		for (ParseNode child : node.getChildren()) {
+			addGlobalRoots(code, child, roots);
+		}
+	}
+
 	private ASMCodeFragment programASM() {
 		ASMCodeFragment code = new ASMCodeFragment(GENERATES_VOID);
 
@@ -151,37 +192,31 @@ public class ASMCodeGenerator {
 		return frag;
 	}
 
+	// each node's code is kept on the node (see ParseNode.setGeneratedCode) until its parent takes it.
 	protected class CodeVisitor extends ParseNodeVisitor.Default {
-		private Map<ParseNode, ASMCodeFragment> codeMap;
 		ASMCodeFragment code;
 
-		public CodeVisitor() {
-			codeMap = new HashMap<ParseNode, ASMCodeFragment>();
-		}
-
 		////////////////////////////////////////////////////////////////////
 		// Make the field "code" refer to a new fragment of different sorts.
 		private void newAddressCode(ParseNode node) {
 			code = new ASMCodeFragment(GENERATES_ADDRESS);
-			codeMap.put(node, code);
+			node.setGeneratedCode(code);
 		}
 
 		private void newValueCode(ParseNode node) {
 			code = new ASMCodeFragment(GENERATES_VALUE);
-			codeMap.put(node, code);
+			node.setGeneratedCode(code);
 		}
 
 		private void newVoidCode(ParseNode node) {
 			code = new ASMCodeFragment(GENERATES_VOID);
-			codeMap.put(node, code);
+			node.setGeneratedCode(code);
 		}
 
 		////////////////////////////////////////////////////////////////////
-		// Get code from the map.
+		// Get code from the node.
 		private ASMCodeFragment getAndRemoveCode(ParseNode node) {
-			ASMCodeFragment result = codeMap.get(node);
-			codeMap.remove(result);
-			return result;
+			return node.takeGeneratedCode();
 		}
 
 		public ASMCodeFragment removeRootCode(ParseNode tree) {
@@ -265,6 +300,270 @@ public class ASMCodeGenerator {
 			return frag;
 		}
 
+		////////////////////////////////////////////////////////////////////
+		// the statement arena (see optimizer.EscapeAnalyzer): a statement or condition that
+		// allocates in the arena keeps the arena pointer on the stack while it runs, and
+		// restores it when done, releasing what it allocated.
+		private void markArena(ParseNode node) {
+			if (node.releasesArena()) {
+				Macros.loadIFrom(code, MemoryManager.MEM_MANAGER_ARENA_POINTER); // [... arenaPointer]
+			}
+		}
+
+		private void releaseArena(ParseNode node) {
+			if (node.releasesArena()) {
+				Macros.storeITo(code, MemoryManager.MEM_MANAGER_ARENA_POINTER); // [...]
+			}
+		}
+
+		// Stack: [... arenaPointer value] -> [... value], for a condition.
+		private void releaseArenaUnderValue(ParseNode node) {
+			if (node.releasesArena()) {
+				code.add(Exchange);
+				Macros.storeITo(code, MemoryManager.MEM_MANAGER_ARENA_POINTER);
+			}
+		}
+
+		////////////////////////////////////////////////////////////////////
+		// reference counting (see ReferenceCounter), if that is how records are reclaimed:
+		// the references held by variables and elements are counted.
+		private boolean countsReferences() {
+			return MemoryManager.getReclamation() == Reclamation.REFERENCE_COUNTING;
+		}
+
+		private boolean isCounted(Type type) {
+			return countsReferences() && ReferenceCounter.isCounted(type);
+		}
+
+		////////////////////////////////////////////////////////////////////
+		// mark and sweep (see MemoryManager.MEM_MANAGER_COLLECT): the collector cannot see the
+		// accumulator stack, so it is called only where that holds no record, and it is held
+		// off while a func is called from the middle of an expression that may hold one.
+		private boolean collectsGarbage() {
+			return MemoryManager.getReclamation() == Reclamation.MARK_AND_SWEEP;
+		}
+
+		private void collectIfRequested() {
+			if (collectsGarbage()) {
+				Labeller labeller = new Labeller("collect");
+				String notRequested = labeller.newLabel("not-requested");
+				Macros.loadIFrom(code, MemoryManager.MEM_MANAGER_COLLECTION_REQUESTED);
+				code.add(JumpFalse, notRequested);
+				code.add(Call, MemoryManager.MEM_MANAGER_COLLECT);
+				code.add(Label, notRequested);
+			}
+		}
+
+		// the offsets from the frame pointer of the slots of node's frame that may refer to a
+		// record: those of the parameters, variables and for sequences of the lambda, but not of
+		// the lambdas within it, which have frames of their own.
+		private Set<Integer> frameSlots(ParseNode node, Set<Integer> slots) {
+			if (node.hasScope()) {
+				for (Binding binding : node.getScope().getSymbolTable().values()) {
+					boolean inFrame = RunTime.FRAME_POINTER.equals(binding.getMemoryLocation().getBaseAddress());
+					if (inFrame && ReferenceCounter.isCounted(binding.getType())) {
+						slots.add(binding.getMemoryLocation().getOffset());
+					}
+				}
+			}
+			for (ParseNode child : node.getChildren()) {
+				if (!(child instanceof LambdaNode)) {
+					frameSlots(child, slots);
+				}
+			}
+			return slots;
+		}
+
+		// the frame may have been some other's, so its variables' slots are cleared before the
+		// collector can look at them.  Parameters are set by the caller.
+		private void clearFrameSlots(Set<Integer> slots) {
+			if (collectsGarbage()) {
+				for (int offset : slots) {
+					if (offset < 0) {
+						code.add(PushI, 0);
+						Macros.loadIFrom(code, RunTime.FRAME_POINTER);
+						Macros.writeIOffset(code, offset);
+					}
+				}
+			}
+		}
+
+		private void holdCollection() {
+			if (collectsGarbage()) {
+				Macros.incrementInteger(code, MemoryManager.MEM_MANAGER_COLLECTION_HOLDS);
+			}
+		}
+
+		private void releaseCollection() {
+			if (collectsGarbage()) {
+				Macros.decrementInteger(code, MemoryManager.MEM_MANAGER_COLLECTION_HOLDS);
+			}
+		}
+
+		// true if, when the func invocation node is called, the accumulator stack holds no
+		// record: the invocation is the value of a statement, or the first record-valued operand
+		// of operators on the way there.
+		private boolean isSafeCallSite(ParseNode node) {
+			ParseNode child = node;
+			for (ParseNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+				if (parent instanceof DeclarationNode || parent instanceof ReturnNode
+						|| parent instanceof PrintStatementNode) {
+					return true;
+				}
+				if (parent instanceof AssignmentStatementNode) {
+					return parent.child(0) instanceof IdentifierNode;
+				}
+				if (parent instanceof IfStatementNode || parent instanceof WhileStatementNode
+						|| parent instanceof ForStatementNode) {
+					return parent.child(0) == child;
+				}
+				if (parent instanceof UnaryOperatorNode && parent.getToken().isLextant(Keyword.CALL)) {
+					return true;
+				}
+				boolean isOperator = parent instanceof UnaryOperatorNode || parent instanceof BinaryOperatorNode
+						|| (parent instanceof KNaryOperatorNode
+								&& parent.getToken().isLextant(Punctuator.FUNCTION_INVOCATION, Punctuator.ARRAY_INDEXING));
+				if (!isOperator || recordPrecedes(parent, child)) {
+					return false;
+				}
+				child = parent;
+			}
+			return false;
+		}
+
+		// true if an operand of parent evaluated before child is a record.  A func invocation
+		// evaluates its arguments, storing each below the stack pointer (where the collector
+		// does not look until the func's frame is made), and then the func.
+		private boolean recordPrecedes(ParseNode parent, ParseNode child) {
+			List<ParseNode> operands = new ArrayList<ParseNode>(parent.getChildren());
+			if (parent instanceof KNaryOperatorNode && parent.getToken().isLextant(Punctuator.FUNCTION_INVOCATION)) {
+				operands.add(operands.remove(0));
+			}
+			for (ParseNode operand : operands) {
+				if (operand == child) {
+					return false;
+				}
+				if (ReferenceCounter.isCounted(operand.getType())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// Stack: [... value] -> [... value]
+		private void retain(Type type) {
+			if (isCounted(type)) {
+				code.add(Duplicate);
+				code.add(Call, ReferenceCounter.RETAIN);
+			}
+		}
+
+		// Stack: [... value] -> [... value]
+		private void disown(Type type) {
+			if (isCounted(type)) {
+				code.add(Duplicate);
+				code.add(Call, ReferenceCounter.DISOWN);
+			}
+		}
+
+		// Stack: [... address value] -> [...].  A counted reference is retained, and the one
+		// it replaces is released once it is stored.
+		private void storeReplacing(Type type) {
+			if (!isCounted(type)) {
+				code.append(opcodeForStore(type));
+				return;
+			}
+			retain(type); // [... address value]
+			code.add(Exchange);
+			code.add(Duplicate);
+			code.add(LoadI); // [... value address replaced]
+			Macros.storeITo(code, ReferenceCounter.REPLACED_REFERENCE); // [... value address]
+			code.add(Exchange);
+			code.add(StoreI); // [...]
+			Macros.loadIFrom(code, ReferenceCounter.REPLACED_REFERENCE);
+			code.add(Call, referenceCounter.release(type));
+		}
+
+		// Stack: [... array] -> [... array], for a new array: its elements' references are retained.
+		private void retainElements(ParseNode node) {
+			Type type = node.getType();
+			if (isCounted(type) && type instanceof Array && isCounted(((Array) type).getSubtype())) {
+				code.add(Duplicate);
+				code.add(Call, ReferenceCounter.RETAIN_ELEMENTS);
+			}
+		}
+
+		private void retainVariable(IdentifierNode identifier) {
+			Binding binding = identifier.getBinding();
+			if (isCounted(binding.getType())) {
+				binding.generateAddress(code);
+				code.add(LoadI);
+				code.add(Call, ReferenceCounter.RETAIN);
+			}
+		}
+
+		// a static variable keeps its reference.
+		private void releaseVariable(IdentifierNode identifier) {
+			Binding binding = identifier.getBinding();
+			if (isCounted(binding.getType()) && !binding.getIsStatic()) {
+				binding.generateAddress(code);
+				code.add(LoadI);
+				code.add(Call, referenceCounter.release(binding.getType()));
+			}
+		}
+
+		// releases the variables declared by the first n statements of block, the last first.
+		private void releaseVariablesOf(BlockStatementNode block, int n) {
+			for (int i = n - 1; i >= 0; i--) {
+				if (block.child(i) instanceof DeclarationNode) {
+					releaseVariable((IdentifierNode) block.child(i).child(0));
+				}
+			}
+		}
+
+		// releases the variables of the blocks (and fors) that a break, continue or return at
+		// node leaves on its way out of target.
+		private void releaseVariablesLeft(ParseNode node, ParseNode target) {
+			ParseNode child = node;
+			for (ParseNode parent = node.getParent(); parent != target; parent = parent.getParent()) {
+				if (parent instanceof BlockStatementNode) {
+					releaseVariablesOf((BlockStatementNode) parent, parent.getChildren().indexOf(child));
+				} else if (parent instanceof ForStatementNode && isForOnElem((ForStatementNode) parent)) {
+					releaseVariable((IdentifierNode) parent.child(1));
+				}
+				child = parent;
+			}
+		}
+
+		private boolean isForOnElem(ForStatementNode node) {
+			return node.forTypeLextantToken().isLextant(Keyword.ELEM);
+		}
+
+		// the innermost loop (or lambda) around node.
+		private ParseNode enclosing(ParseNode node, Class<?>... kinds) {
+			for (ParseNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+				for (Class<?> kind : kinds) {
+					if (kind.isInstance(parent)) {
+						return parent;
+					}
+				}
+			}
+			return null;
+		}
+
+		// true if records are reclaimed without dealloc, so the fors a break or return leaves
+		// must be cleaned up after.
+		private boolean reclaims() {
+			return MemoryManager.getReclamation() != Reclamation.MANUAL;
+		}
+
+		// Stack: [... sequence] -> [...], with sequence in the slot the collector sees it in.
+		private void storeSequenceSlot(ForStatementNode node) {
+			node.getSequenceBinding().generateAddress(code);
+			code.add(Exchange);
+			code.add(StoreI);
+		}
+
 		////////////////////////////////////////////////////////////////////
 		// ensures all types of ParseNode in given AST have at least a visitLeave
 		public void visitLeave(ParseNode node) {
@@ -287,6 +586,7 @@ public class ASMCodeGenerator {
 				ASMCodeFragment childCode = removeVoidCode(child);
 				code.append(childCode);
 			}
+			releaseVariablesOf(node, node.nChildren());
 		}
 
 		///////////////////////////////////////////////////////////////////////////
@@ -294,7 +594,9 @@ public class ASMCodeGenerator {
 
 		public void visitLeave(PrintStatementNode node) {
 			newVoidCode(node);
+			markArena(node);
 			new PrintStatementGenerator(code, this).generate(node);
+			releaseArena(node);
 		}
 
 		public void visit(NewlineNode node) {
@@ -328,6 +630,15 @@ public class ASMCodeGenerator {
 			 */
 			code.add(Jump, endLabel);
 
+			Set<Integer> frameSlots = frameSlots(node, new TreeSet<Integer>());
+			if (collectsGarbage()) {
+				code.add(DLabel, node.getFrameMapLabel());
+				code.add(DataI, frameSlots.size());
+				for (int offset : frameSlots) {
+					code.add(DataI, offset);
+				}
+			}
+
 			code.add(Label, startLabel);
 
 			/*
@@ -362,6 +673,11 @@ public class ASMCodeGenerator {
 			code.add(Subtract); // [... returnAddress SP-8]
 			code.add(Exchange); // [... SP-8 returnAddress]
 			code.add(StoreI); // [...] and old FP and returnAddress are in memory now
+			if (collectsGarbage()) {
+				code.add(PushD, node.getFrameMapLabel()); // [... frameMap]
+				Macros.loadIFrom(code, RunTime.STACK_POINTER); // [... frameMap SP]
+				Macros.writeIOffset(code, ASMCodeGenerationConstants.FRAME_MAP_OFFSET); // [...]
+			}
 
 			// Step 2.
 			Macros.loadIFrom(code, RunTime.STACK_POINTER); // [... SP]
@@ -369,11 +685,18 @@ public class ASMCodeGenerator {
 
 			// Step 3.
 			Macros.loadIFrom(code, RunTime.STACK_POINTER); // [... SP]
-			int functionOverallSize = ASMCodeGenerationConstants.FUNCTION_CALL_EXTRA_BYTES
+			int functionOverallSize = Scope.frameHeaderSize()
 					+ node.child(node.nChildren() - 1).getScope().getAllocatedSize();
 			code.add(PushI, functionOverallSize); // [... SP sizeOfFunctionCall]
 			code.add(Subtract); // [... newSP]
 			Macros.storeITo(code, RunTime.STACK_POINTER); // [...]
+			clearFrameSlots(frameSlots);
+			collectIfRequested();
+			for (ParseNode child : node.getChildren()) {
+				if (child instanceof ParameterSpecificationNode) {
+					retainVariable((IdentifierNode) child.child(1));
+				}
+			}
 
 			// Step 4.
 			code.append(removeVoidCode(node.child(node.nChildren() - 1)));
@@ -508,14 +831,17 @@ public class ASMCodeGenerator {
 			ASMCodeFragment lvalue = removeAddressCode(node.child(0));
 			ASMCodeFragment rvalue = removeValueCode(node.child(1));
 
+			markArena(node);
 			// If node is static, code for storing should be skipped if not executed for first time.
 			updateCompanionIfZero(node);
 			code.append(lvalue);
 			code.append(rvalue);
 
 			Type type = node.getType();
+			retain(type);
 			code.append(opcodeForStore(type));
 			addSkipInitializationLabel(node);
+			releaseArena(node);
 		}
 
 		public void visitLeave(AssignmentStatementNode node) {
@@ -523,11 +849,13 @@ public class ASMCodeGenerator {
 			ASMCodeFragment lvalue = removeAddressCode(node.child(0));
 			ASMCodeFragment rvalue = removeValueCode(node.child(1));
 
+			markArena(node);
 			code.append(lvalue);
 			code.append(rvalue);
 
 			Type type = node.getType();
-			code.append(opcodeForStore(type));
+			storeReplacing(type);
+			releaseArena(node);
 		}
 
 		public void visitLeave(TypeNode node) {
@@ -544,7 +872,9 @@ public class ASMCodeGenerator {
 			ASMCodeFragment condition = removeValueCode(node.child(0));
 			ASMCodeFragment thenClause = removeVoidCode(node.child(1));
 
+			markArena(node.child(0));
 			code.append(condition);
+			releaseArenaUnderValue(node.child(0));
 			code.add(JumpFalse, falseLabel);
 			code.append(thenClause);
 			code.add(Jump, endLabel);
@@ -573,7 +903,10 @@ public class ASMCodeGenerator {
 			ASMCodeFragment whileBlock = removeVoidCode(node.child(1));
 
 			code.add(Label, startLabel);
+			collectIfRequested();
+			markArena(node.child(0));
 			code.append(condition);
+			releaseArenaUnderValue(node.child(0));
 			code.add(JumpFalse, falseAndEndLabel);
 			code.append(whileBlock);
 			code.add(Jump, startLabel);
@@ -624,6 +957,7 @@ public class ASMCodeGenerator {
 
 			// Start loop: with stack []
 			code.add(Label, startLabel);
+			collectIfRequested();
 
 			Macros.loadIFrom(code, RunTime.FOR_LENGTH); // [len]
 			Macros.loadIFrom(code, RunTime.FOR_INDEX); // [len index]
@@ -685,6 +1019,12 @@ public class ASMCodeGenerator {
 			Macros.storeITo(code, RunTime.FOR_INDEX); // Compiler index set to 0
 
 			code.append(identifier);
+			if (isCounted(subType)) {
+				// the identifier still holds what a last run of this for left there, or garbage.
+				code.add(Duplicate);
+				code.add(PushI, 0);
+				code.add(StoreI);
+			}
 			Macros.storeITo(code, RunTime.FOR_IDENTIFER); // Address of identifier used ready
 
 			code.append(sequence);
@@ -692,6 +1032,12 @@ public class ASMCodeGenerator {
 			
 			code.add(Duplicate);
 			code.add(JumpFalse, RunTime.NULL_ARRAY_RUNTIME_ERROR);
+			retain(node.getSequenceType());
+			if (collectsGarbage()) {
+				// FOR_SEQUENCE points into the sequence, so the collector is shown the sequence itself.
+				code.add(Duplicate);
+				storeSequenceSlot(node);
+			}
 			
 			code.add(Duplicate);
 
@@ -704,6 +1050,7 @@ public class ASMCodeGenerator {
 
 			// Start loop: with stack []
 			code.add(Label, startLabel);
+			collectIfRequested();
 
 			Macros.loadIFrom(code, RunTime.FOR_LENGTH); // [len]
 			Macros.loadIFrom(code, RunTime.FOR_INDEX); // [len index]
@@ -718,7 +1065,7 @@ public class ASMCodeGenerator {
 			code.add(Multiply);
 			code.add(Add);
 			code.append(opcodeForLoad(subType));
-			code.append(opcodeForStore(subType));
+			storeReplacing(subType);
 
 			// Unload variables on stack to avoid getting overwritten
 			Macros.loadIFrom(code, RunTime.FOR_LENGTH);
@@ -743,30 +1090,101 @@ public class ASMCodeGenerator {
 
 			// End loop with stack []
 			code.add(Label, endLabel);
+			if (collectsGarbage()) {
+				code.add(PushI, 0);
+				storeSequenceSlot(node);
+			}
+			if (countsReferences()) {
+				releaseVariable((IdentifierNode) node.child(1));
+				Macros.loadIFrom(code, RunTime.FOR_SEQUENCE);
+				code.add(PushI, headerOffset);
+				code.add(Subtract);
+				code.add(Call, referenceCounter.release(node.getSequenceType()));
+			}
 		}
 
 		public void visit(BreakNode node) {
 			newVoidCode(node);
 
+			if (reclaims()) {
+				ParseNode loop = enclosing(node, WhileStatementNode.class, ForStatementNode.class);
+				if (countsReferences()) {
+					releaseVariablesLeft(node, loop);
+				}
+				if (loop instanceof ForStatementNode) {
+					// the for's end releases (or lets go of) its sequence, so it needs its state back.
+					if (isForOnElem((ForStatementNode) loop)) {
+						Macros.storeITo(code, RunTime.FOR_SEQUENCE);
+					}
+					Macros.storeITo(code, RunTime.FOR_IDENTIFER);
+					Macros.storeITo(code, RunTime.FOR_INDEX);
+					Macros.storeITo(code, RunTime.FOR_LENGTH);
+				}
+			}
 			code.add(Jump, node.getEnclosingLoopEndLabel());
 		}
 
 		public void visit(ContinueNode node) {
 			newVoidCode(node);
 
+			if (countsReferences()) {
+				releaseVariablesLeft(node, enclosing(node, WhileStatementNode.class, ForStatementNode.class));
+			}
 			code.add(Jump, node.getEnclosingLoopStartLabel());
 		}
 
 		public void visitLeave(ReturnNode node) {
 			newVoidCode(node);
 
+			ParseNode lambda = enclosing(node, LambdaNode.class);
+			if (reclaims()) {
+				popStateOfForsLeft(node, lambda);
+			}
 			if (node.nChildren() > 0) {
 				code.append(removeValueCode(node.child(0)));
 			}
 
+			if (countsReferences()) {
+				// the value outlives the variables it may be held by; the caller gets it uncounted.
+				Type type = node.nChildren() > 0 ? node.child(0).getType() : null;
+				retain(type);
+				releaseVariablesLeft(node, lambda);
+				for (ParseNode child : lambda.getChildren()) {
+					if (child instanceof ParameterSpecificationNode) {
+						releaseVariable((IdentifierNode) child.child(1));
+					}
+				}
+				disown(type);
+			}
 			code.add(Jump, node.whereToGoOnReturn());
 		}
 
+		// Stack: [... (state of each for left)] -> [...], releasing the sequence of each for on
+		// elem; with mark and sweep, the sequence slots go with the frame.
+		private void popStateOfForsLeft(ParseNode node, ParseNode lambda) {
+			for (ParseNode parent = node.getParent(); parent != lambda; parent = parent.getParent()) {
+				if (!(parent instanceof ForStatementNode)) {
+					continue;
+				}
+				ForStatementNode forNode = (ForStatementNode) parent;
+				if (isForOnElem(forNode) && countsReferences()) {
+					code.add(PushI, sequenceHeaderSize(forNode));
+					code.add(Subtract);
+					code.add(Call, referenceCounter.release(forNode.getSequenceType()));
+				} else if (isForOnElem(forNode)) {
+					code.add(Pop);
+				}
+				code.add(Pop);
+				code.add(Pop);
+				code.add(Pop);
+			}
+		}
+
+		private int sequenceHeaderSize(ForStatementNode node) {
+			return node.getSequenceType() instanceof Array ? ASMCodeGenerationConstants.ARRAY_HEADER_SIZE
+					: ASMCodeGenerationConstants.STRING_HEADER_SIZE;
+		}
+
 		private void handleFunctionInvocationForCall(UnaryOperatorNode node) {
 			ASMCodeFragment inCaseNotNull = new ASMCodeFragment(GENERATES_VOID);
 			Type childType = node.child(0).getType();
@@ -780,9 +1198,11 @@ public class ASMCodeGenerator {
 			}
 
 			newVoidCode(node);
+			markArena(node);
 			code.append(
 					(childType instanceof NullType) ? removeVoidCode(node.child(0)) : removeValueCode(node.child(0)));
 			code.append(inCaseNotNull);
+			releaseArena(node);
 		}
 
 		///////////////////////////////////////////////////////////////////////////
@@ -813,6 +1233,9 @@ public class ASMCodeGenerator {
 				} else if (fragment.isVoid()) {
 					code.markAsVoid();
 				}
+				if (generator instanceof ReverseOperatorCodeGenerator || generator instanceof ArrayCloneCodeGenerator) {
+					retainElements(node); // a new array, holding the same elements
+				}
 
 			}
 		}
@@ -846,7 +1269,14 @@ public class ASMCodeGenerator {
 
 			// Call the function using address from first child!
 			code.append(childrenCode.get(0)); // [... lambdaAddress]
+			boolean holds = !isSafeCallSite(node);
+			if (holds) {
+				holdCollection();
+			}
 			code.add(CallV); // Jumps to lambdaAddress and stack becomes [... returnAddr]
+			if (holds) {
+				releaseCollection();
+			}
 
 			// After completing the function call, the code comes here with stack:
 			// [...] and with the value returned from function (if any) at stack pointer
@@ -917,7 +1347,9 @@ public class ASMCodeGenerator {
 			
 			code.append(array);
 			code.append(lambda);
+			holdCollection(); // the arrays are on the accumulator while the lambda runs.
 			code.append(new MapOperatorCodeGenerator().generate(node));
+			releaseCollection();
 		}
 		
 		private void visitLeaveForReduceOperator(KNaryOperatorNode node) {
@@ -928,7 +1360,9 @@ public class ASMCodeGenerator {
 			
 			code.append(array);
 			code.append(lambda);
+			holdCollection();
 			code.append(new ReduceOperatorCodeGenerator().generate(node));
+			releaseCollection();
 		}
 		
 		private void visitLeaveForZipOperator(KNaryOperatorNode node) {
@@ -941,7 +1375,9 @@ public class ASMCodeGenerator {
 			code.append(array1);
 			code.append(array2);
 			code.append(lambda);
+			holdCollection();
 			code.append(new ZipOperatorCodeGenerator().generate(node));
+			releaseCollection();
 		}
 		
 		private void visitLeaveForFoldOperator(KNaryOperatorNode node) {
@@ -953,7 +1389,9 @@ public class ASMCodeGenerator {
 			code.append(removeValueCode(node.child(0)));
 			code.append(removeValueCode(node.child(node.nChildren() - 1)));
 			
+			holdCollection();
 			code.append(new FoldOperatorCodeGenerator().generate(node));
+			releaseCollection();
 		}
 
 		public void visitLeave(KNaryOperatorNode node) {
@@ -961,10 +1399,13 @@ public class ASMCodeGenerator {
 				visitLeaveForFunctionInvocation(node);
 			} else if (node.getToken().isLextant(Keyword.MAP)) {
 				visitLeaveForMapOperator(node);
+				retainElements(node);
 			} else if (node.getToken().isLextant(Keyword.REDUCE)) {
 				visitLeaveForReduceOperator(node);
+				retainElements(node);
 			} else if (node.getToken().isLextant(Keyword.ZIP)) {
 				visitLeaveForZipOperator(node);
+				retainElements(node);
 			} else if (node.getToken().isLextant(Keyword.FOLD)) {
 				visitLeaveForFoldOperator(node);
 			} else if (node.getToken().isLextant(Punctuator.ARRAY_INDEXING)) {
@@ -1148,6 +1589,14 @@ public class ASMCodeGenerator {
 			code.add(PushI, node.getValue());
 		}
 
+		public void visit(RationalConstantNode node) {
+			newValueCode(node);
+
+			// Stack: [... num den], already in lowest terms
+			code.add(PushI, node.getNumerator());
+			code.add(PushI, node.getDenominator());
+		}
+
 		public void visit(StringConstantNode node) {
 			newValueCode(node);
 
@@ -1158,7 +1607,7 @@ public class ASMCodeGenerator {
 			code.add(PushI, recordSize);
 
 			// Stack: [... recordSize]
-			DynamicRecordCodeGenerator.createStringRecord(code, value);
+			DynamicRecordCodeGenerator.createStringRecord(code, node, value);
 			Macros.loadIFrom(code, RunTime.RECORD_CREATION_TEMPORARY);
 		}
 
@@ -1166,8 +1615,7 @@ public class ASMCodeGenerator {
 			newValueCode(node);
 
 			Type subtype = ((Array) node.getType()).getSubtype();
-			int statusFlags = subtype instanceof Array ? ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE
-					: ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE;
+			int statusFlags = DynamicRecordCodeGenerator.arrayStatusFlags(subtype);
 			int nElems = node.nChildren();
 			ArrayList<ASMCodeFragment> codeForChildren = new ArrayList<>(nElems);
 			for (ParseNode cNode : node.getChildren()) {
@@ -1175,10 +1623,11 @@ public class ASMCodeGenerator {
 			}
 			int recordSize = ASMCodeGenerationConstants.ARRAY_HEADER_SIZE + nElems * subtype.getSize();
 			code.add(PushI, recordSize); // [... recordSize] before calling to create a record
-			DynamicRecordCodeGenerator.createPopulatedArrayRecord(code, statusFlags, subtype, codeForChildren);
+			DynamicRecordCodeGenerator.createPopulatedArrayRecord(code, node, statusFlags, subtype, codeForChildren);
 
 			// Place the created record's address on the stack
 			Macros.loadIFrom(code, RunTime.RECORD_CREATION_TEMPORARY);
+			retainElements(node);
 		}
 	}
 
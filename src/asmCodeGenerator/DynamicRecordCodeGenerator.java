@@ -14,12 +14,31 @@ import java.util.List;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import asmCodeGenerator.runtime.MemoryManager;
 import asmCodeGenerator.runtime.RunTime;
+import parseTree.ParseNode;
+import semanticAnalyzer.types.Array;
 import semanticAnalyzer.types.PrimitiveType;
 import semanticAnalyzer.types.Type;
 
 public class DynamicRecordCodeGenerator {
-	public static void createRecord(ASMCodeFragment code, int typecode, int statusFlags) {
-		code.add(Call, MemoryManager.MEM_MANAGER_ALLOCATE);
+	// the status flags of an array whose elements are of type subtype: its elements refer to
+	// records if they are arrays or strings.
+	public static int arrayStatusFlags(Type subtype) {
+		if(subtype instanceof Array) {
+			return ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE;
+		}
+		if(subtype == PrimitiveType.STRING) {
+			return ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING_REFERENCE;
+		}
+		return ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE;
+	}
+
+	// Stack: [... recordSize].  The record is for node's value: it is allocated in the statement
+	// arena if node's value does not outlive its statement (see optimizer.EscapeAnalyzer).  node
+	// is null for a scratch record that the code creating it deallocates; that is on the heap.
+	public static void createRecord(ASMCodeFragment code, ParseNode node, int typecode, int statusFlags) {
+		code.add(Call, node != null && node.isAllocatedInArena()
+				? MemoryManager.MEM_MANAGER_ARENA_ALLOCATE
+				: MemoryManager.MEM_MANAGER_ALLOCATE);
 		Macros.storeITo(code, RunTime.RECORD_CREATION_TEMPORARY);
 		Macros.writeIPBaseOffset(code, RunTime.RECORD_CREATION_TEMPORARY,
 				ASMCodeGenerationConstants.RECORD_TYPEID_OFFSET, typecode);
@@ -28,7 +47,7 @@ public class DynamicRecordCodeGenerator {
 	}
 
 	// Stack: [... nElems]
-	public static void createEmptyArrayRecord(ASMCodeFragment code, int statusFlags, int subtypeSize) {
+	public static void createEmptyArrayRecord(ASMCodeFragment code, ParseNode node, int statusFlags, int subtypeSize) {
 		final int typecode = ASMCodeGenerationConstants.ARRAY_TYPE_ID;
 
 		// Give error if nElements < 0
@@ -45,7 +64,7 @@ public class DynamicRecordCodeGenerator {
 		code.add(Add); // [... nElems recordSize]
 
 		// Call createRecord
-		createRecord(code, typecode, statusFlags); // [... nElems]
+		createRecord(code, node, typecode, statusFlags); // [... nElems]
 
 		// Zero out elements of array
 		Macros.loadIFrom(code, RunTime.RECORD_CREATION_TEMPORARY); // [... nElems recordPointer]
@@ -61,14 +80,14 @@ public class DynamicRecordCodeGenerator {
 	}
 
 	// Stack: [... recordSize]
-	public static void createPopulatedArrayRecord(ASMCodeFragment code, int statusFlags, Type subtype,
+	public static void createPopulatedArrayRecord(ASMCodeFragment code, ParseNode node, int statusFlags, Type subtype,
 			List<ASMCodeFragment> codeForChildren) {
 		assert codeForChildren.size() > 0;
 
 		int subtypeSize = subtype.getSize();
 		final int typecode = ASMCodeGenerationConstants.ARRAY_TYPE_ID;
 
-		createRecord(code, typecode, statusFlags); // [...]
+		createRecord(code, node, typecode, statusFlags); // [...]
 		Macros.loadIFrom(code, RunTime.RECORD_CREATION_TEMPORARY); // [... recordPointer]
 
 		// We need to duplicate this since the recordPointer stored in
@@ -101,9 +120,9 @@ public class DynamicRecordCodeGenerator {
 	}
 	
 	// Stack: [... recordSize]
-	public static void createStringRecord(ASMCodeFragment code, String value) {
+	public static void createStringRecord(ASMCodeFragment code, ParseNode node, String value) {
 		// Create record
-		createRecord(code, 
+		createRecord(code, node,
 					ASMCodeGenerationConstants.STRING_TYPE_ID, 
 					ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING);
 		
@@ -1,14 +1,14 @@
 package asmCodeGenerator;
 
-public class Labeller {
-	private static int labelSequenceNumber = 0;
+import compiler.CompilationContext;
 
+public class Labeller {
 	private int labelNumber;
 	private String prefix;
 
+	// label numbers are sequential within each compilation.
 	public Labeller(String userPrefix) {
-		labelSequenceNumber++;
-		labelNumber = labelSequenceNumber;
+		labelNumber = CompilationContext.current().nextLabelSequenceNumber();
 		this.prefix = makePrefix(userPrefix);
 	}
 	private String makePrefix(String prefix) {
@@ -1,6 +1,10 @@
 package asmCodeGenerator;
 
+import static asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType.*;
 import static asmCodeGenerator.codeStorage.ASMOpcode.*;
+
+import java.util.ArrayList;
+
 import parseTree.ParseNode;
 import parseTree.nodeTypes.NewlineNode;
 import parseTree.nodeTypes.PrintStatementNode;
@@ -13,6 +17,7 @@ import semanticAnalyzer.types.Type;
 import asmCodeGenerator.ASMCodeGenerator.CodeVisitor;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import asmCodeGenerator.runtime.RunTime;
+import asmCodeGenerator.runtime.RuntimeLinker;
 
 public class PrintStatementGenerator {
 	ASMCodeFragment code;
@@ -34,7 +39,7 @@ public class PrintStatementGenerator {
 				appendPrintCodeForArray(child);
 			} else if(child.getType() == PrimitiveType.RATIONAL) {
 				code.append(visitor.removeValueCode(child));      // [... num den]
-				appendPrintCodeForRationalNumbers(child);
+				appendPrintCodeForRationalNumbers();
 			} else if(child.getType() instanceof Lambda) {
 				appendPrintCodeForLambda(child);
 			} else {
@@ -45,20 +50,23 @@ public class PrintStatementGenerator {
 	
 	private void appendPrintCodeForArray(ParseNode node) {
 		assert node.getType() instanceof Array;
-		Type concreteType = ((Array)node.getType()).getBaseType();
-		
+		Type baseType = ((Array)node.getType()).getBaseType();
+
+		code.append(visitor.removeValueCode(node));              // [arrPointer]
+		code.add(Call, printArraySubroutine(baseType));           // []
+	}
+
+	// the subroutine that prints an array whose innermost elements are of type baseType, however
+	// deeply nested: the nesting, subtype sizes and status flags are read from the arrays themselves.
+	// [... arrPointer returnPointer] -> [...]
+	private void appendPrintArraySubroutine(Type concreteType) {
 		Labeller labeller = new Labeller("print-array");
-		String firstCall = labeller.newLabel("first-call");
-		String printStart = labeller.newLabel("print-start");
+		String printStart = printArraySubroutine(concreteType);
 		String recursivePrint = labeller.newLabel("recursive-print");
 		String notAnArray = labeller.newLabel("not-an-array");
 		String commonPart = labeller.newLabel("common-part");
 		String endLabel = labeller.newLabel("end-label");
 		
-		code.append(visitor.removeValueCode(node));
-
-		code.add(Jump, firstCall);
-		
 		// Stack has : [arrayPointer returnPointer]
 		code.add(Label, printStart);
 		code.add(Exchange);                                      // [returnPointer arrPointer] -> Will treat as [arrPointer] until endLabel
@@ -114,7 +122,7 @@ public class PrintStatementGenerator {
 		code.append(ASMCodeGenerator.opcodeForLoad(concreteType));// [baseForCurrentEl actualCurrentElement]
 		
 		if(concreteType.equivalent(PrimitiveType.RATIONAL)) {
-			appendPrintCodeForRationalNumbers(node);
+			appendPrintCodeForRationalNumbers();
 		} else if(concreteType instanceof Lambda) {
 			code.add(Pop);
 			code.add(PushD, RunTime.LAMBDA_PRINT_STRING);
@@ -154,9 +162,6 @@ public class PrintStatementGenerator {
 		code.add(Printf);
 		code.add(Pop);
 		code.add(PopPC);
-		
-		code.add(Label, firstCall);
-		code.add(Call, printStart);
 	}
 
 	private void appendPrintCode(ParseNode node) {
@@ -206,7 +211,7 @@ public class PrintStatementGenerator {
 		code.add(Printf);
 	}
 	
-	private void appendPrintCodeForRationalNumbers(ParseNode node) {
+	private void appendPrintCodeForRationalNumbers() {
 		String intPrintFormat = printFormat(PrimitiveType.INTEGER);
 		
 		Labeller labeller = new Labeller("print-rational-numbers");
@@ -287,6 +292,29 @@ public class PrintStatementGenerator {
 	}
 
 
+	//////////////////////////////////////////////////////////////////////
+	// array printing subroutines, one for each type of innermost element
+
+	// any lambda type stands for all of them: lambdas in an array print alike.
+	private static final Type[] ARRAY_BASE_TYPES = {
+		PrimitiveType.INTEGER, PrimitiveType.FLOATING, PrimitiveType.BOOLEAN, PrimitiveType.CHARACTER,
+		PrimitiveType.STRING, PrimitiveType.RATIONAL, new Lambda(new ArrayList<Type>(), PrimitiveType.NO_TYPE)
+	};
+
+	public static String printArraySubroutine(Type baseType) {
+		String kind = (baseType instanceof Lambda) ? "lambda" : baseType.infoString().toLowerCase();
+		return "$print-array-" + kind;
+	}
+
+	// each subroutine is linked only if a print statement calls it.
+	public static void addArrayPrinters(RuntimeLinker linker) {
+		for(Type baseType: ARRAY_BASE_TYPES) {
+			ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+			new PrintStatementGenerator(frag, null).appendPrintArraySubroutine(baseType);
+			linker.add(frag);
+		}
+	}
+
 	private static String printFormat(Type type) {
 		assert type instanceof PrimitiveType;
 		
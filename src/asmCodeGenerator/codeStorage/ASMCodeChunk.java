@@ -1,51 +1,140 @@
 package asmCodeGenerator.codeStorage;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
 
-// a glorified list of instructions.
+import asmCodeGenerator.codeStorage.ASMCodeWriter.Format;
+
+import compiler.CompilationContext;
+
+/** A growable buffer of instructions, held in parallel arrays rather than as objects:
+ *  the opcode ordinals, one long operand per instruction (an int, the bits of a double, or
+ *  the ASMStringTable index of a String), and the comments' string-table indices.  The
+ *  comment array is only made once some instruction has a comment other than "".
+ *  <p>
+ *  Chunks are linked through next into the chunk lists of ASMCodeFragments.
+ */
 public class ASMCodeChunk {
-	List<ASMInstruction> instructions;
-	
+	private static final int INITIAL_CAPACITY = 8;
+	private static final ASMOpcode[] OPCODES = ASMOpcode.values();
+
+	private final ASMStringTable strings;
+	private final int emptyComment;
+	private int[] opcodes;
+	private long[] operands;
+	private int[] comments;				// null: every comment is ""
+	private int size;
+	ASMCodeChunk next;
+
 	public ASMCodeChunk() {
-		instructions = new LinkedList<ASMInstruction>();
+		strings = CompilationContext.current().asmStrings();
+		emptyComment = strings.intern("");
+		opcodes = new int[INITIAL_CAPACITY];
+		operands = new long[INITIAL_CAPACITY];
+		size = 0;
 	}
 	public void add(ASMOpcode opcode, int operand, String comment) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand, comment);
-		instructions.add(instruction);
+		assert opcode.takesInteger() : opcode.toString();
+		add(opcode, operand, strings.intern(comment));
 	}
 	public void add(ASMOpcode opcode, int operand) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand);
-		instructions.add(instruction);
+		add(opcode, operand, "");
 	}
 	public void add(ASMOpcode opcode, double operand, String comment) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand, comment);
-		instructions.add(instruction);
+		assert opcode.takesFloat() : opcode.toString();
+		add(opcode, Double.doubleToRawLongBits(operand), strings.intern(comment));
 	}
 	public void add(ASMOpcode opcode, double operand) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand);
-		instructions.add(instruction);
+		add(opcode, operand, "");
 	}
 	public void add(ASMOpcode opcode, String operand, String comment) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand, comment);
-		instructions.add(instruction);
+		assert (operand == null || operand.isEmpty() || opcode.takesString()) : opcode.toString();
+		add(opcode, strings.intern(operand), strings.intern(comment));
 	}
 	public void add(ASMOpcode opcode, String operand) {
-		ASMInstruction instruction = new ASMInstruction(opcode, operand);
-		instructions.add(instruction);
+		add(opcode, operand, "");
 	}
 	public void add(ASMOpcode opcode) {
-		ASMInstruction instruction = new ASMInstruction(opcode);
-		instructions.add(instruction);
+		add(opcode, ASMStringTable.NO_STRING, emptyComment);
+	}
+
+	private void add(ASMOpcode opcode, long operand, int comment) {
+		if(size == opcodes.length) {
+			grow();
+		}
+		if(comment != emptyComment && comments == null) {
+			comments = new int[opcodes.length];
+			Arrays.fill(comments, emptyComment);
+		}
+		opcodes[size] = opcode.ordinal();
+		operands[size] = operand;
+		if(comments != null) {
+			comments[size] = comment;
+		}
+		size++;
+	}
+	private void grow() {
+		int capacity = 2 * opcodes.length;
+		opcodes = Arrays.copyOf(opcodes, capacity);
+		operands = Arrays.copyOf(operands, capacity);
+		if(comments != null) {
+			comments = Arrays.copyOf(comments, capacity);
+			Arrays.fill(comments, size, capacity, emptyComment);
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// access
+
+	public int size() {
+		return size;
+	}
+	public ASMOpcode opcode(int index) {
+		return OPCODES[opcodes[index]];
+	}
+	public int integerOperand(int index) {
+		return (int)operands[index];
+	}
+	public double floatOperand(int index) {
+		return Double.longBitsToDouble(operands[index]);
+	}
+	public String stringOperand(int index) {
+		return strings.stringAt((int)operands[index]);
+	}
+	public String comment(int index) {
+		return comments == null ? "" : strings.stringAt(comments[index]);
+	}
+
+	/** the instruction at index, as an object. */
+	public ASMInstruction instruction(int index) {
+		ASMOpcode opcode = opcode(index);
+		if(opcode.takesInteger()) {
+			return new ASMInstruction(opcode, integerOperand(index), comment(index));
+		}
+		if(opcode.takesFloat()) {
+			return new ASMInstruction(opcode, floatOperand(index), comment(index));
+		}
+		return new ASMInstruction(opcode, stringOperand(index), comment(index));
+	}
+
+	void writeTo(ASMCodeWriter writer) throws IOException {
+		for(int i = 0; i < size; i++) {
+			writer.write(this, i);
+		}
 	}
-	
-	static private String terminator = System.getProperty("line.separator");
 	public String toString() {
-		StringBuffer buffer = new StringBuffer();
-		for(ASMInstruction instruction: instructions) {
-			buffer.append(instruction.toString());
-			buffer.append(terminator);
+		StringWriter text = new StringWriter();
+		try {
+			ASMCodeWriter writer = new ASMCodeWriter(text, Format.PRETTY);
+			writeTo(writer);
+			writer.flush();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return buffer.toString();
+		return text.toString();
 	}
 }
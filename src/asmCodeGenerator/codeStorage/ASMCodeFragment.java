@@ -2,13 +2,20 @@ package asmCodeGenerator.codeStorage;
 
 import inputHandler.InputHandler;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
+import asmCodeGenerator.codeStorage.ASMCodeWriter.Format;
 import logging.PikaLogger;
 
 public class ASMCodeFragment {
-	private List<ASMCodeChunk> chunks;
+	// a linked list of chunks, so that appending one fragment to another is O(1).
+	private ASMCodeChunk firstChunk;
+	private ASMCodeChunk lastChunk;
 	
 	// these names refer to what the code in the fragment
 	// leaves on top of the accumulator: either nothing, a value
@@ -22,7 +29,6 @@ public class ASMCodeFragment {
 	CodeType codeType;
 	
 	public ASMCodeFragment(CodeType codeType) {
-		chunks = new ArrayList<ASMCodeChunk>();
 		this.codeType = codeType;
 	}
 	
@@ -48,10 +54,23 @@ public class ASMCodeFragment {
 	/** Append all instructions in the argument to this code fragment.
 	 *  This does not change the type of this code fragment; you must
 	 *  call markAsXXX afterwards if you need that to happen.
+	 *  The instructions are moved, not copied, so this takes constant time;
+	 *  the argument is left empty.
 	 * @param fragment
 	 */
 	public void append(ASMCodeFragment fragment) {
-		chunks.addAll(fragment.chunks);
+		if(fragment == this || fragment.firstChunk == null) {
+			return;
+		}
+		if(firstChunk == null) {
+			firstChunk = fragment.firstChunk;
+		}
+		else {
+			lastChunk.next = fragment.firstChunk;
+		}
+		lastChunk = fragment.lastChunk;
+		fragment.firstChunk = null;
+		fragment.lastChunk = null;
 	}
 	
 	public void add(ASMOpcode opcode, int operand, String comment) {
@@ -75,29 +94,78 @@ public class ASMCodeFragment {
 	public void add(ASMOpcode opcode) {
 		lastChunk().add(opcode);
 	}
+	public void add(ASMInstruction instruction) {
+		ASMOpcode opcode = instruction.getOpcode();
+		if(opcode.takesInteger()) {
+			add(opcode, instruction.getIntegerArgument(), instruction.getComment());
+		}
+		else if(opcode.takesFloat()) {
+			add(opcode, instruction.getFloatArgument(), instruction.getComment());
+		}
+		else if(opcode.takesString()) {
+			add(opcode, instruction.getStringArgument(), instruction.getComment());
+		}
+		else {
+			add(opcode, "", instruction.getComment());
+		}
+	}
 
 	private ASMCodeChunk lastChunk() {
-		if(chunks.size() == 0) {
-			newChunk();
+		if(lastChunk == null) {
+			firstChunk = lastChunk = new ASMCodeChunk();
 		}
-		return chunks.get(chunks.size() - 1);
+		return lastChunk;
 	}
-
-	private void newChunk() {
-		ASMCodeChunk chunk = new ASMCodeChunk();
-		chunks.add(chunk);
+	
+	/** All instructions of this fragment, in order.
+	 * @return a new list holding the instructions of every chunk.
+	 */
+	public List<ASMInstruction> instructions() {
+		List<ASMInstruction> result = new ArrayList<ASMInstruction>();
+		for(ASMCodeChunk chunk = firstChunk; chunk != null; chunk = chunk.next) {
+			for(int i = 0; i < chunk.size(); i++) {
+				result.add(chunk.instruction(i));
+			}
+		}
+		return result;
+	}
+	
+	public int instructionCount() {
+		int result = 0;
+		for(ASMCodeChunk chunk = firstChunk; chunk != null; chunk = chunk.next) {
+			result += chunk.size();
+		}
+		return result;
 	}
 	
+	/** writes this fragment's instructions to out, in the default format (see ASMCodeWriter).
+	 * @return the number of characters written.
+	 */
+	public long writeTo(Writer out) throws IOException {
+		ASMCodeWriter writer = new ASMCodeWriter(out);
+		writeTo(writer);
+		writer.flush();
+		return writer.getCharactersWritten();
+	}
+	void writeTo(ASMCodeWriter writer) throws IOException {
+		for(ASMCodeChunk chunk = firstChunk; chunk != null; chunk = chunk.next) {
+			chunk.writeTo(writer);
+		}
+	}
 	public String toString() {
-		StringBuffer buffer = new StringBuffer();
-		for(ASMCodeChunk chunk: chunks) {
-			buffer.append(chunk.toString());
+		StringWriter text = new StringWriter();
+		try {
+			ASMCodeWriter writer = new ASMCodeWriter(text, Format.PRETTY);
+			writeTo(writer);
+			writer.flush();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		return buffer.toString();
+		return text.toString();
 	}
 
 	public static ASMCodeFragment readFrom(String filename) {
-		System.out.println("readFrom: " + filename);
 		ASMCodeFragment result = new ASMCodeFragment(CodeType.GENERATES_VOID);
 		try {
 			read(filename, result);
@@ -0,0 +1,273 @@
+package asmCodeGenerator.codeStorage;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import compiler.CompilationContext;
+
+/** Writes instructions as asm text straight to a Writer, through a buffer of its own,
+ *  so that a program's text is never held in memory all at once.  Numbers and padding
+ *  are formatted by hand, one character at a time, with no String.format.
+ *  <p>
+ *  In the PRETTY format (the default) each line is indented, the opcode and operand are
+ *  padded into columns, and comments are kept.  The COMPACT format has one space between
+ *  opcode and operand and no comments; the emulator reads either.  Unless told otherwise,
+ *  a writer uses the format of the current CompilationContext.
+ *  <p>
+ *  DataS, which the emulator doesn't handle, is written as a DataC for each character
+ *  followed by a DataC 0.
+ */
+public class ASMCodeWriter {
+	public enum Format { PRETTY, COMPACT }
+
+	private static final String TERMINATOR = System.getProperty("line.separator");
+	private static final int INDENTATION = 8;
+	private static final int OPCODE_WIDTH = 12;
+	private static final int OPERAND_WIDTH = 25;
+	private static final int FLOAT_DECIMALS = 6;
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Writer out;
+	private final Format format;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int bufferLength = 0;
+	private final char[] digits = new char[20];
+	private long charactersWritten = 0;
+
+	// in the format asked for by the current compilation.
+	public ASMCodeWriter(Writer out) {
+		this(out, CompilationContext.current().asmFormat());
+	}
+	public ASMCodeWriter(Writer out, Format format) {
+		this.out = out;
+		this.format = format;
+	}
+
+	public void write(ASMCodeFragment fragment) throws IOException {
+		fragment.writeTo(this);
+	}
+	public void flush() throws IOException {
+		out.write(buffer, 0, bufferLength);
+		bufferLength = 0;
+		out.flush();
+	}
+	/** the number of characters written so far, whether or not they have been flushed. */
+	public long getCharactersWritten() {
+		return charactersWritten;
+	}
+
+	/** the text of one instruction, without a final line terminator. */
+	public static String format(ASMInstruction instruction) {
+		StringWriter text = new StringWriter();
+		ASMCodeWriter writer = new ASMCodeWriter(text, Format.PRETTY);
+		try {
+			writer.writeInstruction(instruction);
+			writer.flush();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return text.toString();
+	}
+	/** the value that a float operand has once written and read back; only six decimals are written. */
+	public static double asWritten(double value) {
+		return Double.parseDouble(floatText(value));
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// instructions, each followed by a line terminator.
+
+	void write(ASMCodeChunk chunk, int index) throws IOException {
+		ASMOpcode opcode = chunk.opcode(index);
+		String comment = chunk.comment(index);
+		if(opcode.takesInteger()) {
+			integerInstruction(opcode, chunk.integerOperand(index), comment);
+		}
+		else if(opcode.takesFloat()) {
+			floatInstruction(opcode, chunk.floatOperand(index), comment);
+		}
+		else {
+			stringInstruction(opcode, chunk.stringOperand(index), comment);
+		}
+		append(TERMINATOR);
+	}
+	private void writeInstruction(ASMInstruction instruction) throws IOException {
+		ASMOpcode opcode = instruction.getOpcode();
+		if(opcode.takesInteger()) {
+			integerInstruction(opcode, instruction.getIntegerArgument(), instruction.getComment());
+		}
+		else if(opcode.takesFloat()) {
+			floatInstruction(opcode, instruction.getFloatArgument(), instruction.getComment());
+		}
+		else {
+			String operand = opcode.takesString() ? instruction.getStringArgument() : null;
+			stringInstruction(opcode, operand, instruction.getComment());
+		}
+	}
+
+	private void integerInstruction(ASMOpcode opcode, int operand, String comment) throws IOException {
+		opcode(opcode);
+		operandSeparator();
+		int length = appendInteger(operand);
+		operandEnd(length);
+		comment(comment);
+	}
+	private void floatInstruction(ASMOpcode opcode, double operand, String comment) throws IOException {
+		opcode(opcode);
+		String text = floatText(operand);
+		operandSeparator();
+		append(text);
+		operandEnd(text.length());
+		comment(comment);
+	}
+	private void stringInstruction(ASMOpcode opcode, String operand, String comment) throws IOException {
+		if(opcode == ASMOpcode.DataS) {
+			dataS(operand, comment);
+			return;
+		}
+		opcode(opcode);
+		if(opcode.takesString()) {
+			String text = String.valueOf(operand);
+			operandSeparator();
+			append(text);
+			operandEnd(text.length());
+		}
+		else {
+			operandEnd(0);
+		}
+		comment(comment);
+	}
+
+	private void dataS(String string, String comment) throws IOException {
+		if(string.isEmpty()) {
+			integerInstruction(ASMOpcode.DataC, 0, comment);
+			return;
+		}
+		if(comment == null || comment.isEmpty()) {
+			comment = dataSComment(string);
+		}
+		for(int i = 0; i < string.length(); i++) {
+			integerInstruction(ASMOpcode.DataC, string.charAt(i), i == 0 ? comment : "");
+			append(TERMINATOR);
+		}
+		integerInstruction(ASMOpcode.DataC, 0, "");
+	}
+	private static String dataSComment(String string) {
+		StringBuilder result = new StringBuilder("%% \"");
+		for(int i = 0; i < string.length(); i++) {
+			result.append(printable(string.charAt(i)));
+		}
+		return result.append("\"").toString();
+	}
+	private static String printable(char c) {
+		switch(c) {
+		case '\n': return "\\n";
+		case '\r': return "\\r";
+		case '\t': return "\\t";
+		case '\b': return "\\b";
+		case '\f': return "\\f";
+		default:   return String.valueOf(c);
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// the columns of a line
+
+	private void opcode(ASMOpcode opcode) throws IOException {
+		if(format == Format.COMPACT) {
+			append(opcode.name());
+			return;
+		}
+		spaces(INDENTATION);
+		String name = opcode.name();
+		append(name);
+		spaces(OPCODE_WIDTH - name.length());
+		append(' ');
+	}
+	// In COMPACT format, an operand is preceded by one space; in PRETTY format the opcode
+	// column already ends in one.
+	private void operandSeparator() throws IOException {
+		if(format == Format.COMPACT) {
+			append(' ');
+		}
+	}
+	// called after an operand of the given length has been written (0 for no operand).
+	private void operandEnd(int operandLength) throws IOException {
+		if(format == Format.PRETTY) {
+			spaces(OPERAND_WIDTH - operandLength);
+		}
+	}
+	private void comment(String comment) throws IOException {
+		if(format == Format.PRETTY && comment != null) {
+			append(' ');
+			append(comment);
+		}
+	}
+	private int appendInteger(int value) throws IOException {
+		long magnitude = Math.abs((long)value);
+		int start = digits.length;
+		do {
+			digits[--start] = (char)('0' + magnitude % 10);
+			magnitude /= 10;
+		} while(magnitude != 0);
+		if(value < 0) {
+			digits[--start] = '-';
+		}
+		append(digits, start, digits.length - start);
+		return digits.length - start;
+	}
+	// like %f: rounded half-up to six places from the shortest decimal that gives the double.
+	private static String floatText(double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			return Double.toString(value);
+		}
+		String sign = (value < 0 || (value == 0 && 1 / value < 0)) ? "-" : "";
+		BigDecimal magnitude = new BigDecimal(Double.toString(Math.abs(value)));
+		return sign + magnitude.setScale(FLOAT_DECIMALS, RoundingMode.HALF_UP).toPlainString();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// the buffer
+
+	private void spaces(int count) throws IOException {
+		for(int i = 0; i < count; i++) {
+			append(' ');
+		}
+	}
+	private void append(char c) throws IOException {
+		if(bufferLength == buffer.length) {
+			drain();
+		}
+		buffer[bufferLength++] = c;
+		charactersWritten++;
+	}
+	private void append(String text) throws IOException {
+		int length = text.length();
+		for(int start = 0; start < length; ) {
+			if(bufferLength == buffer.length) {
+				drain();
+			}
+			int count = Math.min(length - start, buffer.length - bufferLength);
+			text.getChars(start, start + count, buffer, bufferLength);
+			bufferLength += count;
+			start += count;
+		}
+		charactersWritten += length;
+	}
+	private void append(char[] chars, int start, int length) throws IOException {
+		for(int i = 0; i < length; i++) {
+			append(chars[start + i]);
+		}
+	}
+	private void drain() throws IOException {
+		out.write(buffer, 0, bufferLength);
+		bufferLength = 0;
+	}
+}
@@ -48,91 +48,34 @@ public class ASMInstruction {
 	}
 
 	
-/////////////////////////////////////////////////////////////////////////
-// toString ... particular attention paid to the DataS instruction, which
-//              the emulator doesn't handle.
-	
-	static private String indentation = "        ";
-	public String toString() {
-		if(opcode == ASMOpcode.DataS) {
-			return DataStoString();
-		}
-		String result = indentation;	// indentation(8);
-		result += opcodeString();
-		result += argumentString();
-		if(comment != null)
-			result += " " + comment;
-		return result;
-	}
-	
-	static String terminator = System.getProperty("line.separator");
-	private String DataStoString() {
-		String string = (String)this.argument;
-		
-		if(string.length() == 0) {
-			return NullDataStoString();
-		}
-		
-		if(comment == null || comment == "") {
-			comment = DataSComment();
-		}
-		String result = dataCString((int)string.charAt(0), comment) + terminator;
-		
-		for(int i=1; i<string.length(); i++) {
-			result += dataCString((int)string.charAt(i), "");
-			result += terminator;
-		}
-		
-		result += dataCString(0, "");	// no terminator
-		return result;
-	}
-	private String DataSComment() {
-		return "%% \"" + printable((String)argument) + "\"";
-	}
-	private String printable(String string) {
-		StringBuilder sb = new StringBuilder();
-		
-		for(int i=0 ; i<string.length(); i++) {
-			char c = string.charAt(i);
-			sb.append(printable(c));
-		}
-		
-		return sb.toString();
+/////////////////////////////////////////////////////////////////////
+// accessors
+
+	public ASMOpcode getOpcode() {
+		return opcode;
 	}
-	private String printable(char c) {
-		switch(c) {
-		case '\n': return "\\n";
-		case '\r': return "\\r";
-		case '\t': return "\\t";
-		case '\b': return "\\b";
-		case '\f': return "\\f";
-		default:   return String.valueOf(c);
-		}
+	public int getIntegerArgument() {
+		assert opcode.takesInteger() : opcode.toString();
+		return (Integer)argument;
 	}
-	private String NullDataStoString() {
-		return dataCString(0, this.comment);
+	public double getFloatArgument() {
+		assert opcode.takesFloat() : opcode.toString();
+		return (Double)argument;
 	}
-	private String dataCString(int charAt, String comment) {
-		ASMInstruction instruction = new ASMInstruction(ASMOpcode.DataC, charAt, comment);
-		return instruction.toString();
+	public String getStringArgument() {
+		assert opcode.takesString() : opcode.toString();
+		return (String)argument;
 	}
-	
-	private String opcodeString() {
-		return String.format("%-12s ", opcode.toString());
+	public String getComment() {
+		return comment;
 	}
+
 	
-	private String argumentString() {
-		if(opcode.takesFloat()) {
-			return String.format("%-25f", (Double)argument);
-		}
-		
-		if(opcode.takesInteger()) {
-			return String.format("%-25d", (Integer)argument);
-		}
-		
-		if(opcode.takesString()) {
-			return String.format("%-25s", (String)argument);
-		}
-		return String.format("%-25s", "");		
+/////////////////////////////////////////////////////////////////////////
+// toString ... see ASMCodeWriter, which also expands the DataS instruction
+//              that the emulator doesn't handle.
+
+	public String toString() {
+		return ASMCodeWriter.format(this);
 	}
 }
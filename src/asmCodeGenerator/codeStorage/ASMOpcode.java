@@ -163,6 +163,13 @@ public enum ASMOpcode {
 	public boolean takesString() {
 		return this == PushD || this == DLabel || this == DataD || this == DataS || labelJumpOrCall();
 	}
+	/** true if the operand names a Label or DLabel that is defined elsewhere. */
+	public boolean namesLabel() {
+		return this == PushD || this == DataD || (this != Label && labelJumpOrCall());
+	}
+	public boolean definesLabel() {
+		return this == Label || this == DLabel;
+	}
 	private boolean labelJumpOrCall() {
 		return this == Label || this == Call || (this.name().indexOf("Jump") == 0 && this != JumpV);
 	}
@@ -0,0 +1,36 @@
+package asmCodeGenerator.codeStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The String operands and comments of the instructions of one compilation, each stored
+ *  once and named by a dense int index.  ASMCodeChunk keeps these indices in place of the
+ *  Strings; a label used by many jumps is one table entry.
+ */
+public class ASMStringTable {
+	public static final int NO_STRING = -1;		// the index standing for null
+
+	private final Map<String, Integer> indices = new HashMap<String, Integer>();
+	private final List<String> strings = new ArrayList<String>();
+
+	public int intern(String string) {
+		if(string == null) {
+			return NO_STRING;
+		}
+		Integer index = indices.get(string);
+		if(index == null) {
+			index = strings.size();
+			strings.add(string);
+			indices.put(string, index);
+		}
+		return index;
+	}
+	public String stringAt(int index) {
+		return index == NO_STRING ? null : strings.get(index);
+	}
+	public int size() {
+		return strings.size();
+	}
+}
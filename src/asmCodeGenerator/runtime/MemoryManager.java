@@ -3,8 +3,14 @@ package asmCodeGenerator.runtime;
 import static asmCodeGenerator.Macros.*;
 import static asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType.*;
 import static asmCodeGenerator.codeStorage.ASMOpcode.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import asmCodeGenerator.ASMCodeGenerationConstants;
 import asmCodeGenerator.Labeller;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import compiler.CompilationContext;
 
 public class MemoryManager {
 	// Debug Mode. DEBUGGING Adds debug code and executes insertDebugMain when the program is initialized.
@@ -19,6 +25,8 @@ public class MemoryManager {
 	public  static final String MEM_MANAGER_ALLOCATE =     "-mem-manager-allocate";
 	public  static final String MEM_MANAGER_DEALLOCATE =   "-mem-manager-deallocate";
 	private static final String MEM_MANAGER_REMOVE_BLOCK = "-mem-manager-remove-block";
+	private static final String MEM_MANAGER_PRINT_FRAGMENTATION = "-mem-manager-print-fragmentation";
+	public  static final String MEM_MANAGER_ARENA_ALLOCATE = "-mem-manager-arena-allocate";
 	
 	// Main memory manager variables.
 	private static final String MEM_MANAGER_HEAP_START_PTR =   "$heap-start-ptr";
@@ -26,6 +34,62 @@ public class MemoryManager {
 	private static final String MEM_MANAGER_FIRST_FREE_BLOCK = "$heap-first-free";
 	private static final String MEM_MANAGER_HEAP =             "$heap-memory";
 	
+	// The statement arena: records that do not outlive the statement that creates them (see
+	// optimizer.EscapeAnalyzer) are allocated here by bumping MEM_MANAGER_ARENA_POINTER.  Such
+	// a statement pushes the pointer when it starts and stores it back when it is done, so
+	// the statements of the funcs it calls release only what they allocated.  When the
+	// arena is full, ARENA_ALLOCATE takes the record from the heap instead, never to be freed.
+	public  static final String MEM_MANAGER_ARENA_POINTER =    "$heap-arena-ptr";
+	private static final String MEM_MANAGER_ARENA =            "$heap-arena";
+	private static final String MEM_MANAGER_ARENA_END =        "$heap-arena-end";
+	private static final int MEM_MANAGER_ARENA_SIZE = 4096;
+	
+	// The collector, with MARK_AND_SWEEP reclamation.  Allocation asks for a collection once
+	// MMGR_GC_INTERVAL bytes have been allocated since the last; the code generator calls
+	// COLLECT where the accumulator holds no record (at the head of a loop and the start of a
+	// func), and COLLECT does nothing while COLLECTION_HOLDS is not zero.  The code generator
+	// also supplies MARK_GLOBAL_ROOTS, which marks the records that the global variables refer
+	// to, and a frame map for each func, which each of its frames holds at FRAME_MAP_OFFSET (see
+	// Scope.frameHeaderSize).  A frame map is DataI count, then a DataI for each of the frame's
+	// slots that may refer to a record, its offset from the frame pointer; COLLECT marks what
+	// those slots refer to.
+	public  static final String MEM_MANAGER_COLLECT =               "-mem-manager-collect";
+	public  static final String MEM_MANAGER_MARK_GLOBAL_ROOTS =     "-mem-manager-mark-global-roots";
+	public  static final String MEM_MANAGER_MARK_CANDIDATE =        "-mem-manager-mark-candidate";
+	private static final String MEM_MANAGER_MARK =                  "-mem-manager-mark";
+	public  static final String MEM_MANAGER_COLLECTION_REQUESTED =  "$heap-collection-requested";
+	public  static final String MEM_MANAGER_COLLECTION_HOLDS =      "$heap-collection-holds";
+	private static final String MMGR_GC_ALLOCATED =                 "$heap-allocated-since-collection";
+	private static final int MMGR_GC_INTERVAL = 1 << 16;		// bytes allocated between collections.
+	private static final int MMGR_GC_MARK = ASMCodeGenerationConstants.BINARY_F + 1;	// in the status word, above the flags.
+	private static final int MMGR_GC_REFERENCE_SIZE = 4;		// the size of an element that refers to a record.
+	
+	// locals and branch targets for COLLECT, MARK_CANDIDATE and MARK
+	private static final String MMGR_GC_RETURN_ADDRESS = 	"$mmgr-gc-return";
+	private static final String MMGR_GC_SCAN = 				"$mmgr-gc-scan";
+	private static final String MMGR_GC_FRAME = 			"$mmgr-gc-frame";
+	private static final String MMGR_GC_SLOTS_LEFT = 		"$mmgr-gc-slots-left";
+	private static final String MMGR_GC_BLOCK = 			"$mmgr-gc-block";
+	private static final String MMGR_GC_NEXT_BLOCK = 		"$mmgr-gc-next-block";
+	private static final String MMGR_GC_DONE = 				"-mmgr-gc-done";
+	private static final String MMGR_GC_SCAN_FRAME = 		"-mmgr-gc-scan-frame";
+	private static final String MMGR_GC_SCAN_SLOT = 		"-mmgr-gc-scan-slot";
+	private static final String MMGR_GC_FRAME_SCANNED = 	"-mmgr-gc-frame-scanned";
+	private static final String MMGR_GC_SWEEP = 			"-mmgr-gc-sweep";
+	private static final String MMGR_GC_SWEEP_NEXT = 		"-mmgr-gc-sweep-next";
+	private static final String MMGR_GC_SWEPT = 			"-mmgr-gc-swept";
+	private static final String MMGR_GC_NOT_A_RECORD = 		"-mmgr-gc-not-a-record";
+	private static final String MMGR_GC_MARKED = 			"-mmgr-gc-marked";
+	private static final String MMGR_GC_ELEMENT_LOOP = 		"-mmgr-gc-element-loop";
+	private static final String MMGR_GC_NOT_IN_HEAP = 		"-mmgr-gc-not-in-heap";
+	private static final String MMGR_GC_NEXT_ELEMENT = 		"-mmgr-gc-next-element";
+	private static final String MMGR_GC_BLOCK_SWEPT = 		"-mmgr-gc-block-swept";
+	private static final String MMGR_GC_CANDIDATE_IN_HEAP = 	"-mmgr-gc-candidate-in-heap";
+	private static final String MMGR_GC_ELEMENTS_DONE = 		"-mmgr-gc-elements-done";
+	private static final String MMGR_GC_ALREADY_MARKED = 		"-mmgr-gc-already-marked";
+	private static final String MMGR_GC_NO_ELEMENTS = 		"-mmgr-gc-no-elements";
+	private static final String MMGR_GC_STEP_ELEMENT = 		"-mmgr-gc-step-element";
+	
 	// locals for MAKE_TAGS
 	private static final String MMGR_BLOCK_RETURN_ADDRESS = "$mmgr-tags-return";
 	private static final String MMGR_BLOCK_START =     		"$mmgr-tags-start";
@@ -53,9 +117,18 @@ public class MemoryManager {
 	private static final String MMGR_ALLOC_NO_BLOCK_WORKS = 	"-mmgr-alloc-no-block-works";
 	private static final String MMGR_ALLOC_RETURN_USERBLOCK =	"-mmgr-alloc-return-userblock";
 	
+	// locals and branch targets for ARENA_ALLOCATE
+	private static final String MMGR_ARENA_RETURN_ADDRESS = 	"$mmgr-arena-return";
+	private static final String MMGR_ARENA_SIZE = 				"$mmgr-arena-size";
+	private static final String MMGR_ARENA_FULL = 				"-mmgr-arena-full";
+	
 	// locals and branch targets for DEALLOCATE	
 	private static final String MMGR_DEALLOC_RETURN_ADDRESS = 	"$mmgr-dealloc-return";
 	private static final String MMGR_DEALLOC_BLOCK = 			"$mmgr-dealloc-block";
+	private static final String MMGR_DEALLOC_NEIGHBOUR = 		"$mmgr-dealloc-neighbour";
+	private static final String MMGR_DEALLOC_PREVIOUS = 		"-mmgr-dealloc-previous";
+	private static final String MMGR_DEALLOC_COALESCED = 		"-mmgr-dealloc-coalesced";
+	private static final String MMGR_DEALLOC_DONE =				"-mmgr-dealloc-done";
 
 	// locals and branch targets for REMOVE_BLOCK
 	private static final String MMGR_REMOVE_RETURN_ADDRESS = 	"$mmgr-remove-return";
@@ -64,9 +137,23 @@ public class MemoryManager {
 	private static final String MMGR_REMOVE_NEXT = 				"$mmgr-remove-next";
 	private static final String MMGR_REMOVE_PROCESS_PREV = 		"-mmgr-remove-process-prev";
 	private static final String MMGR_REMOVE_NO_PREV =			"-mmgr-remove-no-prev";
+	private static final String MMGR_REMOVE_NOT_HEAD_OF =		"-mmgr-remove-not-head-of";	// + list head
 	private static final String MMGR_REMOVE_PROCESS_NEXT =		"-mmgr-remove-process-next";
 	private static final String MMGR_REMOVE_DONE = 				"-mmgr-remove-done";
 	
+	// locals and branch targets for PRINT_FRAGMENTATION
+	private static final String MMGR_FRAG_RETURN_ADDRESS = 	"$mmgr-frag-return";
+	private static final String MMGR_FRAG_BLOCK = 			"$mmgr-frag-block";
+	private static final String MMGR_FRAG_FREE_BYTES = 		"$mmgr-frag-free-bytes";
+	private static final String MMGR_FRAG_FREE_BLOCKS = 	"$mmgr-frag-free-blocks";
+	private static final String MMGR_FRAG_LARGEST = 		"$mmgr-frag-largest";
+	private static final String MMGR_FRAG_PERCENT = 		"$mmgr-frag-percent";
+	private static final String MMGR_FRAG_FORMAT = 			"$mmgr-frag-format";
+	private static final String MMGR_FRAG_LOOP = 			"-mmgr-frag-loop-";			// + list head
+	private static final String MMGR_FRAG_NOT_LARGEST = 	"-mmgr-frag-not-largest-";	// + list head
+	private static final String MMGR_FRAG_LIST_DONE = 		"-mmgr-frag-list-done-";	// + list head
+	private static final String MMGR_FRAG_NO_FREE_BYTES = 	"-mmgr-frag-no-free-bytes";
+	
 	// variables used by a macro (method newBlock) but could be shared by all instances of the macro
 	// (although currently there is only one instance.)  allocated in initialization.
 	private static final String MMGR_NEWBLOCK_BLOCK = "$mmgr-newblock-block";
@@ -85,10 +172,53 @@ public class MemoryManager {
 	// the only tunable parameter.
 	private static final int MEM_MANAGER_WASTE_TOLERANCE = MMGR_TWICE_TAG_SIZE + 8;
 
+	// The allocator generated.  FIRST_FIT keeps all free blocks in one list, and takes the first
+	// that is big enough.  SIZE_CLASSES also keeps a list for each of the small SIZE_CLASSES, of
+	// blocks of exactly that usable size: a small request is rounded up to its class and takes
+	// the first block of that list (or new heap space), and only larger requests walk the
+	// first-fit list.  A freed block goes to the list of its class if its size is exactly that
+	// of a class, and to the first-fit list otherwise.  Only blocks of the first-fit list are
+	// coalesced, so a block of a class keeps its size until it is allocated again.
+	public enum Allocator { FIRST_FIT, SIZE_CLASSES }
+
+	// usable sizes, smallest first.  The smallest holds an empty array's header (16 bytes)
+	// or a short string.
+	private static final int[] SIZE_CLASSES = { 16, 32, 64, 128 };
+	private static final String MMGR_CLASS_FREE_BLOCK =		"$heap-first-free-class-";	// + usable size
+	private static final String MMGR_ALLOC_OVER_CLASS =		"-mmgr-alloc-over-class-";	// + usable size
+	private static final String MMGR_ALLOC_NEW_IN_CLASS =	"-mmgr-alloc-new-in-class-";	// + usable size
+	private static final String MMGR_ALLOC_NO_NEXT_IN_CLASS = "-mmgr-alloc-no-next-in-class-";	// + usable size
+	private static final String MMGR_DEALLOC_TO_CLASS =		"-mmgr-dealloc-to-class-";	// + usable size
+
+	// both chosen per compilation: see CompilationContext.
+	public static Allocator getAllocator() {
+		return CompilationContext.current().allocator();
+	}
+
+	// How records are reclaimed.  MANUAL frees a record only when the program deallocs it.
+	// REFERENCE_COUNTING frees a string or array when the last variable or element that refers
+	// to it lets go of it (see ReferenceCounter).  MARK_AND_SWEEP has the collector free the
+	// records that no variable, parameter or element of a live record refers to (see COLLECT).
+	// With either of the last two, dealloc does nothing.
+	public enum Reclamation { MANUAL, REFERENCE_COUNTING, MARK_AND_SWEEP }
+
+	public static Reclamation getReclamation() {
+		return CompilationContext.current().reclamation();
+	}
+
 	
 
-	// this code should reside on the executable pathway before the application.
-	public static ASMCodeFragment codeForInitialization() {
+	// this code should reside on the executable pathway before the application.  It is linked
+	// only if the program allocates, as it is the code that declares the heap variables.
+	public static void addInitialization(RuntimeLinker linker) {
+		if(DEBUGGING) {
+			linker.addRoot(codeForInitialization());
+		}
+		else {
+			linker.add(codeForInitialization());
+		}
+	}
+	private static ASMCodeFragment codeForInitialization() {
 		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
 		frag.add(Label, MEM_MANAGER_INITIALIZE);
 		
@@ -99,10 +229,22 @@ public class MemoryManager {
 		declareI(frag, MMGR_NEWBLOCK_BLOCK);
 		declareI(frag, MMGR_NEWBLOCK_SIZE);
 		
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			for(int usableSize: SIZE_CLASSES) {
+				declareI(frag, MMGR_CLASS_FREE_BLOCK + usableSize);		// DataZ: no blocks free.
+			}
+		}
+		if(getReclamation() == Reclamation.MARK_AND_SWEEP) {
+			declareI(frag, MEM_MANAGER_COLLECTION_REQUESTED);
+			declareI(frag, MEM_MANAGER_COLLECTION_HOLDS);
+			declareI(frag, MMGR_GC_ALLOCATED);
+		}
+		
 		frag.add(PushD, MEM_MANAGER_HEAP);				// set heapStart and heapEnd
 		frag.add(Duplicate);
 		storeITo(frag, MEM_MANAGER_HEAP_START_PTR);
 		storeITo(frag, MEM_MANAGER_HEAP_END_PTR);
+
 		
 		frag.add(PushI, 0);								// no blocks allocated.
 		storeITo(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
@@ -116,22 +258,29 @@ public class MemoryManager {
 
 
 	// this goes after the main program, so that MEM_MANAGER_HEAP is after all other variable declarations.
-	public static ASMCodeFragment codeForAfterApplication() {
-		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);	
-		
-		frag.append(subroutineMakeTags());
-		frag.append(subroutineMakeOneTag());
-		frag.append(subroutineAllocate());
-		frag.append(subroutineDeallocate());
-		frag.append(subroutineRemoveBlock());
-		if(DEBUGGING) {
-			frag.append(subroutineDebugPrintBlock());
-			frag.append(subroutineDebugPrintFreeList());
+	public static void addAfterApplication(RuntimeLinker linker) {
+		linker.add(subroutineMakeTags());
+		linker.add(subroutineMakeOneTag());
+		linker.add(subroutineAllocate());
+		linker.add(subroutineDeallocate());
+		linker.add(subroutineRemoveBlock());
+		linker.add(subroutineArenaAllocate());
+		linker.add(arena());
+		if(getReclamation() == Reclamation.MARK_AND_SWEEP) {
+			linker.add(subroutineCollect());
+			linker.add(subroutineMarkCandidate());
+			linker.add(subroutineMark());
 		}
+		if(DEBUGGING2) {
+			linker.add(subroutinePrintFragmentation());
+		}
+		linker.add(debugFormats());						// these are linked only where called:
+		linker.add(subroutineDebugPrintBlock());		// by the DEBUGGING main, or by a
+		linker.add(subroutineDebugPrintFreeList());		// freeListDumpProgram.
 		
-		frag.add(DLabel, MEM_MANAGER_HEAP);	
-		
-		return frag;
+		ASMCodeFragment heap = new ASMCodeFragment(GENERATES_VOID);
+		heap.add(DLabel, MEM_MANAGER_HEAP);
+		linker.add(heap);
 	}
 	
 	
@@ -225,10 +374,17 @@ public class MemoryManager {
 
 		//store return addr
 		storeITo(frag, MMGR_ALLOC_RETURN_ADDRESS);	// [... usableSize]
+		if(getReclamation() == Reclamation.MARK_AND_SWEEP) {
+			requestCollectionOverInterval(frag);
+		}
 		
 		if(DEBUGGING2) {
 			printAccumulatorTop(frag, "--allocate %d bytes\n");
 		}
+		
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			allocateFromSizeClass(frag);				// returns, unless usableSize is over every class.
+		}
 
 		//convert user size to mmgr size and store
 		frag.add(PushI, MMGR_TWICE_TAG_SIZE);			// [... usableSize 2*tagsize]
@@ -274,6 +430,7 @@ public class MemoryManager {
 			// remove block from free list
 			loadIFrom(frag, MMGR_ALLOC_CURRENT_BLOCK);
 			frag.add(Call, MEM_MANAGER_REMOVE_BLOCK);
+			writeBlockAvailable(frag, MMGR_ALLOC_CURRENT_BLOCK, 0);
 			
 			// if (not wasting much memory) use this block as is
 			loadIFrom(frag, MMGR_ALLOC_CURRENT_BLOCK);		// [... block]
@@ -354,8 +511,53 @@ public class MemoryManager {
 
 
 
+	// [... usableSize] -> [... userBlock]
+	// the block is in the arena if it fits, and from ALLOCATE otherwise.
+	private static ASMCodeFragment subroutineArenaAllocate() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, MEM_MANAGER_ARENA_ALLOCATE);	// [... usableSize (return)]
+		
+		declareI(frag, MMGR_ARENA_RETURN_ADDRESS);
+		declareI(frag, MMGR_ARENA_SIZE);
+		
+		storeITo(frag, MMGR_ARENA_RETURN_ADDRESS);		// [... usableSize]
+		storeITo(frag, MMGR_ARENA_SIZE);				// [...]
+		
+		// if (arenaPtr + size > arenaEnd) goto ARENA_FULL
+		frag.add(PushD, MEM_MANAGER_ARENA_END);			// [... arenaEnd]
+		loadIFrom(frag, MEM_MANAGER_ARENA_POINTER);
+		loadIFrom(frag, MMGR_ARENA_SIZE);
+		frag.add(Add);									// [... arenaEnd arenaPtr+size]
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_ARENA_FULL);
+		
+		// userBlock = arenaPtr; arenaPtr += size
+		loadIFrom(frag, MEM_MANAGER_ARENA_POINTER);		// [... userBlock]
+		loadIFrom(frag, MMGR_ARENA_SIZE);
+		addITo(frag, MEM_MANAGER_ARENA_POINTER);
+		loadIFrom(frag, MMGR_ARENA_RETURN_ADDRESS);
+		frag.add(Return);
+		
+		frag.add(Label, MMGR_ARENA_FULL);
+		loadIFrom(frag, MMGR_ARENA_SIZE);				// [... usableSize]
+		frag.add(Call, MEM_MANAGER_ALLOCATE);			// [... userBlock]
+		loadIFrom(frag, MMGR_ARENA_RETURN_ADDRESS);
+		frag.add(Return);
+		return frag;
+	}
+	// the arena pointer, initially the start of the arena, and the arena.
+	private static ASMCodeFragment arena() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(DLabel, MEM_MANAGER_ARENA_POINTER);
+		frag.add(DataD, MEM_MANAGER_ARENA);
+		frag.add(DLabel, MEM_MANAGER_ARENA);
+		frag.add(DataZ, MEM_MANAGER_ARENA_SIZE);
+		frag.add(DLabel, MEM_MANAGER_ARENA_END);
+		return frag;
+	}
+
 	// [... block] -> [...]
-	// pre: block is in Free Block List.
+	// pre: block is in a Free Block List.
 	private static ASMCodeFragment subroutineRemoveBlock() {
 		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
 		frag.add(Label, MEM_MANAGER_REMOVE_BLOCK);		// [... block (return)]
@@ -391,9 +593,24 @@ public class MemoryManager {
 			writeTagPointer(frag);						// [...]
 			frag.add(Jump, MMGR_REMOVE_PROCESS_NEXT);
 
+		// block is the first of its list: listHead = next
 		frag.add(Label, MMGR_REMOVE_NO_PREV);
-			loadIFrom(frag, MMGR_REMOVE_NEXT);
-			storeITo(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
+			if(getAllocator() == Allocator.SIZE_CLASSES) {
+				for(String listHead: freeListHeads()) {
+					loadIFrom(frag, listHead);					// [... listHead]
+					loadIFrom(frag, MMGR_REMOVE_BLOCK);			// [... listHead block]
+					frag.add(Subtract);
+					frag.add(JumpTrue, MMGR_REMOVE_NOT_HEAD_OF + listHead);
+					loadIFrom(frag, MMGR_REMOVE_NEXT);
+					storeITo(frag, listHead);
+					frag.add(Jump, MMGR_REMOVE_PROCESS_NEXT);
+					frag.add(Label, MMGR_REMOVE_NOT_HEAD_OF + listHead);
+				}
+			}
+			else {
+				loadIFrom(frag, MMGR_REMOVE_NEXT);
+				storeITo(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
+			}
 
 		//set next block's ptr
 		frag.add(Label, MMGR_REMOVE_PROCESS_NEXT);
@@ -419,6 +636,7 @@ public class MemoryManager {
 		
 		declareI(frag, MMGR_DEALLOC_RETURN_ADDRESS);
 		declareI(frag, MMGR_DEALLOC_BLOCK);
+		declareI(frag, MMGR_DEALLOC_NEIGHBOUR);
 		
 		//store return addr
 		storeITo(frag, MMGR_DEALLOC_RETURN_ADDRESS);	// [... usableBlock]
@@ -428,12 +646,614 @@ public class MemoryManager {
 		frag.add(Subtract);								// [... block]
 		storeITo(frag, MMGR_DEALLOC_BLOCK);				// [...]
 		
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			jumpToSizeClass(frag);						// a block of a class is not coalesced.
+		}
+		coalesceWithNeighbours(frag);
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			jumpToSizeClass(frag);						// the merged block may be the size of a class.
+		}
+		insertIntoFreeList(frag, MEM_MANAGER_FIRST_FREE_BLOCK, "-mmgr-bypass-firstFree");
+		
+		// return
+		frag.add(Label, MMGR_DEALLOC_DONE);
+		if(DEBUGGING2) {
+			frag.add(Call, MEM_MANAGER_PRINT_FRAGMENTATION);
+		}
+		loadIFrom(frag, MMGR_DEALLOC_RETURN_ADDRESS);
+		frag.add(Return);
+		
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			insertIntoSizeClasses(frag);
+		}
+		return frag;
+	}
+	
+	
+	
+	// [... usableSize] -> [... usableSize] if usableSize is over every class; otherwise returns
+	// from ALLOCATE with the user block of a block of its class.
+	private static void allocateFromSizeClass(ASMCodeFragment frag) {
+		for(int usableSize: SIZE_CLASSES) {
+			String listHead = MMGR_CLASS_FREE_BLOCK + usableSize;
+			String overClass = MMGR_ALLOC_OVER_CLASS + usableSize;
+			String newInClass = MMGR_ALLOC_NEW_IN_CLASS + usableSize;
+			String noNext = MMGR_ALLOC_NO_NEXT_IN_CLASS + usableSize;
+
+			// if (size > usableSize) try the next class
+			frag.add(Duplicate);							// [... size size]
+			frag.add(PushI, usableSize);					// [... size size usableSize]
+			frag.add(Subtract);								// [... size size-usableSize]
+			frag.add(JumpPos, overClass);					// [... size]
+			frag.add(Pop);									// [...]
+			
+			// if (listHead == null) goto NEW_IN_CLASS
+			loadIFrom(frag, listHead);
+			frag.add(JumpFalse, newInClass);
+			
+			// curblock = listHead; listHead = curblock.nextptr
+			loadIFrom(frag, listHead);
+			storeITo(frag, MMGR_ALLOC_CURRENT_BLOCK);
+			loadIFrom(frag, MMGR_ALLOC_CURRENT_BLOCK);		// [... block]
+			tailTag(frag);									// [... blockTail]
+			readTagPointer(frag);							// [... next]
+			frag.add(Duplicate);							// [... next next]
+			storeITo(frag, listHead);						// [... next]
+			
+			// if (next != null) next.prevPtr = null
+			frag.add(Duplicate);							// [... next next]
+			frag.add(JumpFalse, noNext);					// [... next]
+			frag.add(PushI, 0);								// [... next 0]
+			frag.add(Exchange);								// [... 0 next]
+			writeTagPointer(frag);							// [...]
+			frag.add(PushI, 0);								// [... 0]
+			frag.add(Label, noNext);						// [... 0]
+			frag.add(Pop);									// [...]
+			
+			writeBlockAvailable(frag, MMGR_ALLOC_CURRENT_BLOCK, 0);
+			frag.add(Jump, MMGR_ALLOC_RETURN_USERBLOCK);
+			
+			// no block of this class is free: take one from new heap space.
+			frag.add(Label, newInClass);
+			frag.add(PushI, usableSize + MMGR_TWICE_TAG_SIZE);	// [... size]
+			newBlock(frag);									// [... block]
+			storeITo(frag, MMGR_ALLOC_CURRENT_BLOCK);
+			frag.add(Jump, MMGR_ALLOC_RETURN_USERBLOCK);
+			
+			frag.add(Label, overClass);						// [... size]
+		}
+	}
+	
+	// [...] -> [...]  Goes to DEALLOC_TO_CLASS if MMGR_DEALLOC_BLOCK is the size of a class,
+	// and falls through otherwise.
+	private static void jumpToSizeClass(ASMCodeFragment frag) {
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);				// [... block]
+		readTagSize(frag);									// [... block.size]
+		for(int usableSize: SIZE_CLASSES) {
+			frag.add(Duplicate);							// [... block.size block.size]
+			frag.add(PushI, usableSize + MMGR_TWICE_TAG_SIZE);
+			frag.add(Subtract);								// [... block.size block.size-classSize]
+			frag.add(JumpFalse, MMGR_DEALLOC_TO_CLASS + usableSize);
+		}
+		frag.add(Pop);										// [...]
+	}
+	// [... block.size] (at DEALLOC_TO_CLASS) -> [...]  Inserts MMGR_DEALLOC_BLOCK in the list of
+	// its class and goes to DEALLOC_DONE.
+	private static void insertIntoSizeClasses(ASMCodeFragment frag) {
+		for(int usableSize: SIZE_CLASSES) {
+			frag.add(Label, MMGR_DEALLOC_TO_CLASS + usableSize);	// [... block.size]
+			frag.add(Pop);									// [...]
+			insertIntoFreeList(frag, MMGR_CLASS_FREE_BLOCK + usableSize, "-mmgr-bypass-class-" + usableSize);
+			frag.add(Jump, MMGR_DEALLOC_DONE);
+		}
+	}
+	
+	// the variables holding the first block of each free list.
+	private static List<String> freeListHeads() {
+		List<String> heads = new ArrayList<String>();
+		heads.add(MEM_MANAGER_FIRST_FREE_BLOCK);
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			for(int usableSize: SIZE_CLASSES) {
+				heads.add(MMGR_CLASS_FREE_BLOCK + usableSize);
+			}
+		}
+		return heads;
+	}
+	
+	// [...] -> [...]
+	// prints the size of the heap, the bytes (tags included) and number of its free blocks, the
+	// largest free block, and how fragmented the free bytes are: the percentage of them that
+	// are not in the largest free block.
+	private static ASMCodeFragment subroutinePrintFragmentation() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, MEM_MANAGER_PRINT_FRAGMENTATION);		// [... (return)]
+		
+		declareI(frag, MMGR_FRAG_RETURN_ADDRESS);
+		declareI(frag, MMGR_FRAG_BLOCK);
+		declareI(frag, MMGR_FRAG_FREE_BYTES);
+		declareI(frag, MMGR_FRAG_FREE_BLOCKS);
+		declareI(frag, MMGR_FRAG_LARGEST);
+		declareI(frag, MMGR_FRAG_PERCENT);
+		frag.add(DLabel, MMGR_FRAG_FORMAT);
+		frag.add(DataS, "--heap %d bytes: %d free in %d blocks, largest %d, %d percent fragmented\n");
+		
+		storeITo(frag, MMGR_FRAG_RETURN_ADDRESS);
+		frag.add(PushI, 0);
+		storeITo(frag, MMGR_FRAG_FREE_BYTES);
+		frag.add(PushI, 0);
+		storeITo(frag, MMGR_FRAG_FREE_BLOCKS);
+		frag.add(PushI, 0);
+		storeITo(frag, MMGR_FRAG_LARGEST);
+		
+		for(String listHead: freeListHeads()) {
+			loadIFrom(frag, listHead);
+			storeITo(frag, MMGR_FRAG_BLOCK);
+			
+			// while(block != null)
+			frag.add(Label, MMGR_FRAG_LOOP + listHead);
+			loadIFrom(frag, MMGR_FRAG_BLOCK);
+			frag.add(JumpFalse, MMGR_FRAG_LIST_DONE + listHead);
+			
+			// freeBytes += block.size; freeBlocks++
+			loadIFrom(frag, MMGR_FRAG_BLOCK);
+			readTagSize(frag);								// [... size]
+			frag.add(Duplicate);							// [... size size]
+			addITo(frag, MMGR_FRAG_FREE_BYTES);				// [... size]
+			incrementInteger(frag, MMGR_FRAG_FREE_BLOCKS);
+			
+			// largest = max(largest, block.size)
+			frag.add(Duplicate);							// [... size size]
+			loadIFrom(frag, MMGR_FRAG_LARGEST);				// [... size size largest]
+			frag.add(Subtract);								// [... size size-largest]
+			frag.add(JumpPos, MMGR_FRAG_NOT_LARGEST + listHead);
+			frag.add(Pop);									// [...]
+			frag.add(Jump, MMGR_FRAG_NOT_LARGEST + listHead + "-done");
+			frag.add(Label, MMGR_FRAG_NOT_LARGEST + listHead);	// [... size]
+			storeITo(frag, MMGR_FRAG_LARGEST);				// [...]
+			frag.add(Label, MMGR_FRAG_NOT_LARGEST + listHead + "-done");
+			
+			// block = block.nextPtr
+			loadIFrom(frag, MMGR_FRAG_BLOCK);
+			tailTag(frag);
+			readTagPointer(frag);
+			storeITo(frag, MMGR_FRAG_BLOCK);
+			frag.add(Jump, MMGR_FRAG_LOOP + listHead);
+			frag.add(Label, MMGR_FRAG_LIST_DONE + listHead);
+		}
+		
+		// percent = freeBytes == 0 ? 0 : (freeBytes - largest) * 100 / freeBytes
+		frag.add(PushI, 0);
+		storeITo(frag, MMGR_FRAG_PERCENT);
+		loadIFrom(frag, MMGR_FRAG_FREE_BYTES);
+		frag.add(JumpFalse, MMGR_FRAG_NO_FREE_BYTES);
+		loadIFrom(frag, MMGR_FRAG_FREE_BYTES);
+		loadIFrom(frag, MMGR_FRAG_LARGEST);
+		frag.add(Subtract);								// [... freeBytes-largest]
+		frag.add(PushI, 100);
+		frag.add(Multiply);
+		loadIFrom(frag, MMGR_FRAG_FREE_BYTES);
+		frag.add(Divide);								// [... percent]
+		storeITo(frag, MMGR_FRAG_PERCENT);
+		frag.add(Label, MMGR_FRAG_NO_FREE_BYTES);
+		
+		loadIFrom(frag, MMGR_FRAG_PERCENT);				// [... percent]
+		loadIFrom(frag, MMGR_FRAG_LARGEST);				// [... percent largest]
+		loadIFrom(frag, MMGR_FRAG_FREE_BLOCKS);			// [... percent largest blocks]
+		loadIFrom(frag, MMGR_FRAG_FREE_BYTES);			// [... percent largest blocks bytes]
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		loadIFrom(frag, MEM_MANAGER_HEAP_START_PTR);
+		frag.add(Subtract);								// [... percent largest blocks bytes heapSize]
+		frag.add(PushD, MMGR_FRAG_FORMAT);
+		frag.add(Printf);
+		
+		loadIFrom(frag, MMGR_FRAG_RETURN_ADDRESS);
+		frag.add(Return);
+		return frag;
+	}
+	
+	// [... (return)] -> [...]
+	// the mark and sweep collector.  It marks the records that the global variables (through
+	// MARK_GLOBAL_ROOTS) and the frames of the funcs running refer to, and the records their
+	// elements refer to, then frees every allocated block that is not marked.  The frames are
+	// walked from the frame pointer through each caller's frame pointer up to memtop, and only
+	// the slots in each frame's map are read: the variables and parameters of string or array
+	// type, and the sequence of each for on elem.  The statement arena is not in the heap, so
+	// its records are never marked or freed here; the records a full arena takes from the heap
+	// are, once their statement is done.
+	private static ASMCodeFragment subroutineCollect() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, MEM_MANAGER_COLLECT);			// [... (return)]
+		
+		declareI(frag, MMGR_GC_RETURN_ADDRESS);
+		declareI(frag, MMGR_GC_SCAN);
+		declareI(frag, MMGR_GC_FRAME);
+		declareI(frag, MMGR_GC_SLOTS_LEFT);
+		declareI(frag, MMGR_GC_BLOCK);
+		declareI(frag, MMGR_GC_NEXT_BLOCK);
+		
+		storeITo(frag, MMGR_GC_RETURN_ADDRESS);			// [...]
+		
+		// if (holds != 0) goto DONE, leaving the collection asked for.
+		loadIFrom(frag, MEM_MANAGER_COLLECTION_HOLDS);
+		frag.add(JumpTrue, MMGR_GC_DONE);
+		frag.add(PushI, 0);
+		storeITo(frag, MEM_MANAGER_COLLECTION_REQUESTED);
+		
+		// mark
+		frag.add(Call, MEM_MANAGER_MARK_GLOBAL_ROOTS);
+		
+		// for(frame = framePointer; frame != memtop; frame = frame's caller's frame pointer)
+		loadIFrom(frag, RunTime.FRAME_POINTER);
+		storeITo(frag, MMGR_GC_FRAME);
+		frag.add(Label, MMGR_GC_SCAN_FRAME);
+		loadIFrom(frag, MMGR_GC_FRAME);
+		frag.add(Memtop);
+		frag.add(Subtract);
+		frag.add(JumpFalse, MMGR_GC_SWEEP);
+		
+		// slotsLeft = map.count; scan = the first offset in map
+		loadIFrom(frag, MMGR_GC_FRAME);
+		readIOffset(frag, ASMCodeGenerationConstants.FRAME_MAP_OFFSET);			// [... map]
+		frag.add(Duplicate);
+		frag.add(LoadI);
+		storeITo(frag, MMGR_GC_SLOTS_LEFT);
+		frag.add(PushI, 4);
+		frag.add(Add);
+		storeITo(frag, MMGR_GC_SCAN);					// [...]
+		
+		// for(; slotsLeft != 0; slotsLeft--, scan += 4) markCandidate(*(frame + *scan))
+		frag.add(Label, MMGR_GC_SCAN_SLOT);
+		loadIFrom(frag, MMGR_GC_SLOTS_LEFT);
+		frag.add(JumpFalse, MMGR_GC_FRAME_SCANNED);
+		decrementInteger(frag, MMGR_GC_SLOTS_LEFT);
+		loadIFrom(frag, MMGR_GC_FRAME);
+		loadIFrom(frag, MMGR_GC_SCAN);
+		frag.add(LoadI);
+		frag.add(Add);
+		frag.add(LoadI);								// [... candidate]
+		frag.add(Call, MEM_MANAGER_MARK_CANDIDATE);
+		frag.add(PushI, 4);
+		addITo(frag, MMGR_GC_SCAN);
+		frag.add(Jump, MMGR_GC_SCAN_SLOT);
+		
+		frag.add(Label, MMGR_GC_FRAME_SCANNED);
+		loadIFrom(frag, MMGR_GC_FRAME);
+		readIOffset(frag, -ASMCodeGenerationConstants.FRAME_POINTER_SIZE);
+		storeITo(frag, MMGR_GC_FRAME);
+		frag.add(Jump, MMGR_GC_SCAN_FRAME);
+		
+		// sweep: for(block = heapStart; block != heapEnd; block = nextBlock)
+		frag.add(Label, MMGR_GC_SWEEP);
+		loadIFrom(frag, MEM_MANAGER_HEAP_START_PTR);
+		storeITo(frag, MMGR_GC_BLOCK);
+		frag.add(Label, MMGR_GC_SWEEP_NEXT);
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		frag.add(Subtract);
+		frag.add(JumpFalse, MMGR_GC_SWEPT);
+		
+		// nextBlock = block + block.size, before block is freed (and perhaps merged).
+		loadIFrom(frag, MMGR_GC_BLOCK);					// [... block]
+		frag.add(Duplicate);
+		readTagSize(frag);								// [... block block.size]
+		frag.add(Add);
+		storeITo(frag, MMGR_GC_NEXT_BLOCK);				// [...]
+		
+		// if(block is allocated) { if(marked) unmark else deallocate }
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		readTagAvailable(frag);
+		frag.add(JumpTrue, MMGR_GC_BLOCK_SWEPT);
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		frag.add(PushI, MMGR_TAG_SIZE_IN_BYTES);
+		frag.add(Add);									// [... userBlock]
+		frag.add(Duplicate);
+		readIOffset(frag, ASMCodeGenerationConstants.RECORD_STATUS_OFFSET);	// [... userBlock status]
+		frag.add(Duplicate);
+		frag.add(PushI, MMGR_GC_MARK);
+		frag.add(BTAnd);
+		frag.add(JumpTrue, MMGR_GC_MARKED);				// [... userBlock status]
+		frag.add(Pop);
+		frag.add(Call, MEM_MANAGER_DEALLOCATE);			// [...]
+		frag.add(Jump, MMGR_GC_BLOCK_SWEPT);
+		frag.add(Label, MMGR_GC_MARKED);				// [... userBlock status]
+		frag.add(PushI, ~MMGR_GC_MARK);
+		frag.add(BTAnd);
+		frag.add(Exchange);								// [... unmarkedStatus userBlock]
+		writeIOffset(frag, ASMCodeGenerationConstants.RECORD_STATUS_OFFSET);
+		frag.add(Label, MMGR_GC_BLOCK_SWEPT);
+		loadIFrom(frag, MMGR_GC_NEXT_BLOCK);
+		storeITo(frag, MMGR_GC_BLOCK);
+		frag.add(Jump, MMGR_GC_SWEEP_NEXT);
+		
+		// the next collection is when another interval has been allocated.
+		frag.add(Label, MMGR_GC_SWEPT);
+		frag.add(PushI, 0);
+		storeITo(frag, MMGR_GC_ALLOCATED);
+		
+		frag.add(Label, MMGR_GC_DONE);
+		loadIFrom(frag, MMGR_GC_RETURN_ADDRESS);
+		frag.add(Return);
+		return frag;
+	}
+	
+	// [... candidate (return)] -> [...]
+	// marks the record at candidate, which is 0, a record in the heap, or one outside it (a
+	// string constant or a record in the statement arena).  A record in the heap is checked
+	// against the tags of its block, which must be allocated and agree on its size.
+	private static ASMCodeFragment subroutineMarkCandidate() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, MEM_MANAGER_MARK_CANDIDATE);	// [... candidate (return)]
+		frag.add(Exchange);								// [... return candidate]
+		
+		// if(candidate < heapStart + tagsize || candidate >= heapEnd) goto NOT_A_RECORD
+		frag.add(Duplicate);
+		loadIFrom(frag, MEM_MANAGER_HEAP_START_PTR);
+		frag.add(PushI, MMGR_TAG_SIZE_IN_BYTES);
+		frag.add(Add);
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_GC_NOT_A_RECORD);
+		frag.add(Duplicate);
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_GC_CANDIDATE_IN_HEAP);
+		frag.add(Jump, MMGR_GC_NOT_A_RECORD);
+		
+		// block = candidate - tagsize; if(block is free) goto NOT_A_RECORD
+		frag.add(Label, MMGR_GC_CANDIDATE_IN_HEAP);
+		frag.add(Duplicate);
+		frag.add(PushI, MMGR_TAG_SIZE_IN_BYTES);
+		frag.add(Subtract);
+		storeITo(frag, MMGR_GC_BLOCK);					// [... return candidate]
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		readTagAvailable(frag);
+		frag.add(JumpTrue, MMGR_GC_NOT_A_RECORD);
+		
+		// if(block.size < 2*tagsize || block + block.size > heapEnd) goto NOT_A_RECORD
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		readTagSize(frag);
+		frag.add(PushI, MMGR_TWICE_TAG_SIZE);
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_GC_NOT_A_RECORD);
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		frag.add(Duplicate);
+		readTagSize(frag);
+		frag.add(Add);
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		frag.add(Subtract);
+		frag.add(JumpPos, MMGR_GC_NOT_A_RECORD);
+		
+		// if(tail tag's size != block.size) goto NOT_A_RECORD
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		tailTag(frag);
+		readTagSize(frag);
+		loadIFrom(frag, MMGR_GC_BLOCK);
+		readTagSize(frag);
+		frag.add(Subtract);
+		frag.add(JumpTrue, MMGR_GC_NOT_A_RECORD);
+		
+		frag.add(Call, MEM_MANAGER_MARK);				// [... return]
+		frag.add(Return);
+		
+		frag.add(Label, MMGR_GC_NOT_A_RECORD);			// [... return candidate]
+		frag.add(Pop);
+		frag.add(Return);
+		return frag;
+	}
+	
+	// [... record (return)] -> [...]
+	// marks record, and then the records its elements refer to, if it is an array of arrays
+	// or strings and was not marked already.
+	private static ASMCodeFragment subroutineMark() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, MEM_MANAGER_MARK);				// [... record (return)]
+		frag.add(Exchange);								// [... return record]
+		
+		// if(marked) return; status |= mark
+		frag.add(Duplicate);
+		frag.add(Duplicate);
+		readIOffset(frag, ASMCodeGenerationConstants.RECORD_STATUS_OFFSET);	// [... return record record status]
+		frag.add(Duplicate);
+		frag.add(PushI, MMGR_GC_MARK);
+		frag.add(BTAnd);
+		frag.add(JumpTrue, MMGR_GC_ALREADY_MARKED);
+		frag.add(PushI, MMGR_GC_MARK);
+		frag.add(BTOr);
+		frag.add(Exchange);								// [... return record markedStatus record]
+		writeIOffset(frag, ASMCodeGenerationConstants.RECORD_STATUS_OFFSET);	// [... return record]
+		
+		// if(not an array of references) return
+		frag.add(Duplicate);
+		readIOffset(frag, ASMCodeGenerationConstants.RECORD_TYPEID_OFFSET);
+		frag.add(PushI, ASMCodeGenerationConstants.ARRAY_TYPE_ID);
+		frag.add(Subtract);
+		frag.add(JumpTrue, MMGR_GC_NO_ELEMENTS);
+		frag.add(Duplicate);
+		readIOffset(frag, ASMCodeGenerationConstants.RECORD_STATUS_OFFSET);
+		frag.add(PushI, ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE
+				| ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING_REFERENCE);
+		frag.add(BTAnd);
+		frag.add(JumpFalse, MMGR_GC_NO_ELEMENTS);
+		
+		// for each element: if(heapStart <= element < heapEnd) mark(element)
+		frag.add(Duplicate);
+		readIOffset(frag, ASMCodeGenerationConstants.ARRAY_LENGTH_OFFSET);	// [... return record length]
+		frag.add(Exchange);
+		frag.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE);
+		frag.add(Add);									// [... return length element]
+		frag.add(Label, MMGR_GC_ELEMENT_LOOP);
+		frag.add(Exchange);								// [... return element length]
+		frag.add(Duplicate);
+		frag.add(JumpFalse, MMGR_GC_ELEMENTS_DONE);
+		frag.add(PushI, 1);
+		frag.add(Subtract);
+		frag.add(Exchange);								// [... return length-1 element]
+		frag.add(Duplicate);
+		frag.add(LoadI);								// [... return length-1 element value]
+		frag.add(Duplicate);
+		loadIFrom(frag, MEM_MANAGER_HEAP_START_PTR);
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_GC_NOT_IN_HEAP);			// includes null.
+		frag.add(Duplicate);
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		frag.add(Subtract);
+		frag.add(JumpNeg, MMGR_GC_NEXT_ELEMENT);
+		frag.add(Label, MMGR_GC_NOT_IN_HEAP);			// [... return length-1 element value]
+		frag.add(Pop);
+		frag.add(Jump, MMGR_GC_STEP_ELEMENT);
+		frag.add(Label, MMGR_GC_NEXT_ELEMENT);
+		frag.add(Call, MEM_MANAGER_MARK);				// [... return length-1 element]
+		frag.add(Label, MMGR_GC_STEP_ELEMENT);
+		frag.add(PushI, MMGR_GC_REFERENCE_SIZE);
+		frag.add(Add);
+		frag.add(Jump, MMGR_GC_ELEMENT_LOOP);
+		
+		frag.add(Label, MMGR_GC_ELEMENTS_DONE);	// [... return element 0]
+		frag.add(Pop);
+		frag.add(Pop);
+		frag.add(Return);
+		
+		frag.add(Label, MMGR_GC_ALREADY_MARKED);	// [... return record record status]
+		frag.add(Pop);
+		frag.add(Pop);
+		frag.add(Label, MMGR_GC_NO_ELEMENTS);	// [... return record]
+		frag.add(Pop);
+		frag.add(Return);
+		return frag;
+	}
+	
+////////////////////////////////////////////////////////////////////////////////////
+//Macros: these get inlined into the subroutines defined above.
+////////////////////////////////////////////////////////////////////////////////////
+
+	// [...] -> [...]
+	// merges MMGR_DEALLOC_BLOCK with the block physically after it and the block physically
+	// before it, if they are free (and, with SIZE_CLASSES, not the size of a class), taking
+	// them out of their free list.  MMGR_DEALLOC_BLOCK is left holding the merged block, which
+	// is in no list.
+	private static void coalesceWithNeighbours(ASMCodeFragment frag) {
+		// neighbour = block + block.size; if(neighbour == heapEnd) goto PREVIOUS
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);			// [... block]
+		frag.add(Duplicate);							// [... block block]
+		readTagSize(frag);								// [... block block.size]
+		frag.add(Add);									// [... neighbour]
+		storeITo(frag, MMGR_DEALLOC_NEIGHBOUR);
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		loadIFrom(frag, MEM_MANAGER_HEAP_END_PTR);
+		frag.add(Subtract);
+		frag.add(JumpFalse, MMGR_DEALLOC_PREVIOUS);
+		
+		// if(!neighbour.avail1) goto PREVIOUS
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		readTagAvailable(frag);
+		frag.add(JumpFalse, MMGR_DEALLOC_PREVIOUS);
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+			readTagSize(frag);							// [... neighbour.size]
+			jumpIfClassSize(frag, MMGR_DEALLOC_PREVIOUS);
+		}
+		
+		// remove neighbour from its list; block.size += neighbour.size
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		frag.add(Call, MEM_MANAGER_REMOVE_BLOCK);
+		frag.add(PushI, 0);								// prevPtr
+		frag.add(PushI, 0);								// nextPtr
+		frag.add(PushI, 0);								// isAvailable
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);			// start_addr
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
+		readTagSize(frag);
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		readTagSize(frag);
+		frag.add(Add);									// size of block
+		frag.add(Call, MEM_MANAGER_MAKE_TAGS);
+		
+		// if(block == heapStart) goto COALESCED
+		frag.add(Label, MMGR_DEALLOC_PREVIOUS);
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
+		loadIFrom(frag, MEM_MANAGER_HEAP_START_PTR);
+		frag.add(Subtract);
+		frag.add(JumpFalse, MMGR_DEALLOC_COALESCED);
+		
+		// if(!(block-tagsize).avail2) goto COALESCED
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
+		frag.add(PushI, MMGR_TAG_SIZE_IN_BYTES);
+		frag.add(Subtract);								// [... neighbourTail]
+		readTagAvailable(frag);
+		frag.add(JumpFalse, MMGR_DEALLOC_COALESCED);
+		
+		// neighbour = block - (block-tagsize).size
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);			// [... block]
+		frag.add(Duplicate);							// [... block block]
+		frag.add(PushI, MMGR_TAG_SIZE_IN_BYTES);
+		frag.add(Subtract);								// [... block neighbourTail]
+		readTagSize(frag);								// [... block neighbour.size]
+		frag.add(Subtract);								// [... neighbour]
+		storeITo(frag, MMGR_DEALLOC_NEIGHBOUR);
+		if(getAllocator() == Allocator.SIZE_CLASSES) {
+			loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+			readTagSize(frag);							// [... neighbour.size]
+			jumpIfClassSize(frag, MMGR_DEALLOC_COALESCED);
+		}
+		
+		// remove neighbour from its list; neighbour.size += block.size; block = neighbour
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		frag.add(Call, MEM_MANAGER_REMOVE_BLOCK);
+		frag.add(PushI, 0);								// prevPtr
+		frag.add(PushI, 0);								// nextPtr
+		frag.add(PushI, 0);								// isAvailable
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);		// start_addr
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		readTagSize(frag);
+		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
+		readTagSize(frag);
+		frag.add(Add);									// size of block
+		frag.add(Call, MEM_MANAGER_MAKE_TAGS);
+		loadIFrom(frag, MMGR_DEALLOC_NEIGHBOUR);
+		storeITo(frag, MMGR_DEALLOC_BLOCK);
+		
+		frag.add(Label, MMGR_DEALLOC_COALESCED);
+	}
+	
+	// [... size] -> [...]
+	// goes to target if size (tags included) is that of a size class.
+	private static void jumpIfClassSize(ASMCodeFragment frag, String target) {
+		Labeller labeller = new Labeller("mmgr-class-size");
+		String isClass = labeller.newLabel("is-class");
+		String notClass = labeller.newLabel("not-class");
+		for(int usableSize: SIZE_CLASSES) {
+			frag.add(Duplicate);							// [... size size]
+			frag.add(PushI, usableSize + MMGR_TWICE_TAG_SIZE);
+			frag.add(Subtract);
+			frag.add(JumpFalse, isClass);					// [... size]
+		}
+		frag.add(Pop);
+		frag.add(Jump, notClass);
+		frag.add(Label, isClass);							// [... size]
+		frag.add(Pop);
+		frag.add(Jump, target);
+		frag.add(Label, notClass);
+	}
+	
+	// [...] -> [...]
+	// sets both avail tags of the block whose address is in blockVariable.
+	private static void writeBlockAvailable(ASMCodeFragment frag, String blockVariable, int isAvailable) {
+		frag.add(PushI, isAvailable);					// [... isAvail]
+		loadIFrom(frag, blockVariable);					// [... isAvail block]
+		writeTagAvailable(frag);
+		frag.add(PushI, isAvailable);					// [... isAvail]
+		loadIFrom(frag, blockVariable);					// [... isAvail block]
+		tailTag(frag);									// [... isAvail blockTail]
+		writeTagAvailable(frag);
+	}
+
+	// [...] -> [...]
+	// makes MMGR_DEALLOC_BLOCK available and puts it at the front of the free list whose
+	// first block is in listHead.
+	private static void insertIntoFreeList(ASMCodeFragment frag, String listHead, String bypassLabel) {
 		// if(firstFree != 0) { firstFree.prev = block }
-		String bypassLabel = "-mmgr-bypass-firstFree";
-		loadIFrom(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
+		loadIFrom(frag, listHead);
 		frag.add(JumpFalse, bypassLabel);
 		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
-		loadIFrom(frag, MEM_MANAGER_FIRST_FREE_BLOCK);	// [... block firstFree]
+		loadIFrom(frag, listHead);						// [... block firstFree]
 		writeTagPointer(frag);		
 		frag.add(Label, bypassLabel);
 
@@ -443,7 +1263,7 @@ public class MemoryManager {
 		writeTagPointer(frag);
 		
 		// block.next = firstFree
-		loadIFrom(frag, MEM_MANAGER_FIRST_FREE_BLOCK);	// [... firstFree]
+		loadIFrom(frag, listHead);						// [... firstFree]
 		loadIFrom(frag, MMGR_DEALLOC_BLOCK);			// [... firstFree block]
 		tailTag(frag);								// [... firstFree blockTail]
 		writeTagPointer(frag);
@@ -461,17 +1281,8 @@ public class MemoryManager {
 
 		// firstFree = block
 		loadIFrom(frag, MMGR_DEALLOC_BLOCK);
-		storeITo(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
-		
-		// return
-		loadIFrom(frag, MMGR_DEALLOC_RETURN_ADDRESS);
-		frag.add(Return);
-		return frag;
+		storeITo(frag, listHead);
 	}
-	
-////////////////////////////////////////////////////////////////////////////////////
-//Macros: these get inlined into the subroutines defined above.
-////////////////////////////////////////////////////////////////////////////////////
 
 	// [... size] -> [... block]
 	// eats new heap space.  allocates a block of given size.
@@ -498,6 +1309,23 @@ public class MemoryManager {
 		loadIFrom(frag, MMGR_NEWBLOCK_BLOCK);
 	}
 
+	// [... usableSize] -> [... usableSize]
+	// counts the bytes allocated, and asks for a collection once they are over the interval.
+	private static void requestCollectionOverInterval(ASMCodeFragment frag) {
+		Labeller labeller = new Labeller("mmgr-alloc");
+		String underInterval = labeller.newLabel("under-interval");
+		
+		frag.add(Duplicate);
+		addITo(frag, MMGR_GC_ALLOCATED);
+		loadIFrom(frag, MMGR_GC_ALLOCATED);
+		frag.add(PushI, MMGR_GC_INTERVAL);
+		frag.add(Subtract);								// [... usableSize allocated-interval]
+		frag.add(JumpNeg, underInterval);
+		frag.add(PushI, 1);
+		storeITo(frag, MEM_MANAGER_COLLECTION_REQUESTED);
+		frag.add(Label, underInterval);
+	}
+
 	// [... blockBaseLocation] -> [... blockTailTagLocation]
 	private static void tailTag(ASMCodeFragment frag) {
 		frag.add(Duplicate);						// [... block block]
@@ -544,11 +1372,16 @@ public class MemoryManager {
 	private static final String MMGRD_MAIN_BLOCK3 = "$$mmgrd-main-block3";
 	private static final String MMGRD_MAIN_BLOCK4 = "$$mmgrd-main-block4";
 	
-	private static void insertDebugMain(ASMCodeFragment frag) {
+	private static ASMCodeFragment debugFormats() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
 		frag.add(DLabel, MMGRD_FORMAT);
 		frag.add(DataS, "%s %d\n");	
 		frag.add(DLabel, MMGRD_FORMAT_FOR_STRING);
 		frag.add(DataS, "%s");
+		return frag;
+	}
+	
+	private static void insertDebugMain(ASMCodeFragment frag) {
 		declareI(frag, MMGRD_MAIN_BLOCK1);
 		declareI(frag, MMGRD_MAIN_BLOCK2);
 		declareI(frag, MMGRD_MAIN_BLOCK3);
@@ -741,45 +1574,96 @@ public class MemoryManager {
 		
 		return frag;
 	}
+	// [...] -> [...]  prints each free list, headed by the variable that holds its first block.
 	private static ASMCodeFragment subroutineDebugPrintFreeList() {
 		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
-		frag.add(Label, MMGRD_PRINT_FREE_LIST);				// [... block (return)]
+		frag.add(Label, MMGRD_PRINT_FREE_LIST);				// [... (return)]
 
 		declareI(frag, MMGRD_PFREE_RETURN_ADDRESS);
 		declareI(frag, MMGRD_PFREE_CURRENT_BLOCK);
 		
 		storeITo(frag, MMGRD_PFREE_RETURN_ADDRESS);
 		
-		debugPrint(frag, "Free list:\n");
-		
-		
-		loadIFrom(frag, MEM_MANAGER_FIRST_FREE_BLOCK);
-		storeITo(frag, MMGRD_PFREE_CURRENT_BLOCK);
-		
-		frag.add(Label, MMGRD_PFREE_LOOP_TEST);
-		    // if(currentBlock == 0) break;
-			loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);		
-			frag.add(JumpFalse, MMGRD_PFREE_LOOP_DONE);
+		for(String listHead: freeListHeads()) {
+			debugPrint(frag, "Free list " + listHead + ":\n");
 			
-			// print "    "+currentBlock;
-			debugPrint(frag, "    ");						
-			loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);
-			frag.add(Call, MMGRD_PRINT_BLOCK);
-			debugPrint(frag, "\n");
-			
-			// currentBlock = currentBlock.next
-			loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);		// [... block]
-			tailTag(frag);									// [... tailTag]
-			readTagPointer(frag);							// [... next]
+			loadIFrom(frag, listHead);
 			storeITo(frag, MMGRD_PFREE_CURRENT_BLOCK);
 			
-			frag.add(Jump, MMGRD_PFREE_LOOP_TEST);
+			frag.add(Label, MMGRD_PFREE_LOOP_TEST + listHead);
+				// if(currentBlock == 0) break;
+				loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);		
+				frag.add(JumpFalse, MMGRD_PFREE_LOOP_DONE + listHead);
+				
+				// print "    "+currentBlock;
+				debugPrint(frag, "    ");						
+				loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);
+				frag.add(Call, MMGRD_PRINT_BLOCK);
+				debugPrint(frag, "\n");
+				
+				// currentBlock = currentBlock.next
+				loadIFrom(frag, MMGRD_PFREE_CURRENT_BLOCK);		// [... block]
+				tailTag(frag);									// [... tailTag]
+				readTagPointer(frag);							// [... next]
+				storeITo(frag, MMGRD_PFREE_CURRENT_BLOCK);
+				
+				frag.add(Jump, MMGRD_PFREE_LOOP_TEST + listHead);
 
-		frag.add(Label, MMGRD_PFREE_LOOP_DONE);
-			debugPrint(frag, "\n");
-			loadIFrom(frag, MMGRD_PFREE_RETURN_ADDRESS);
-			frag.add(Return);
+			frag.add(Label, MMGRD_PFREE_LOOP_DONE + listHead);
+		}
+		debugPrint(frag, "\n");
+		loadIFrom(frag, MMGRD_PFREE_RETURN_ADDRESS);
+		frag.add(Return);
 		return frag;
 	}	
 
+
+	private static final String MMGRD_STEP_BLOCK =		"$$mmgrd-step-block-";		// + number of the allocation
+	private static final String MMGRD_STEP_FORMAT =		"$$mmgrd-step-format";
+
+	/** a program of the memory manager alone, which prints its free lists as the steps are
+	 *  taken.  A positive step allocates that many bytes, and prints the block it gets; a
+	 *  negative step -n deallocates the user block of the n'th allocation (counting from 1).
+	 *  The free lists are printed after every step.  The allocator is that of the current
+	 *  CompilationContext.
+	 */
+	public static ASMCodeFragment freeListDumpProgram(int... steps) {
+		RuntimeLinker linker = new RuntimeLinker();
+		addInitialization(linker);
+		RunTime.addEnvironment(linker);
+		linker.addRoot(freeListSteps(steps));
+		addAfterApplication(linker);
+		return linker.link();
+	}
+	private static ASMCodeFragment freeListSteps(int[] steps) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(Label, RunTime.MAIN_PROGRAM_LABEL);
+		frag.add(DLabel, MMGRD_STEP_FORMAT);
+		frag.add(DataS, "allocate %d: ");
+		
+		int allocations = 0;
+		for(int step: steps) {
+			if(step > 0) {
+				String block = MMGRD_STEP_BLOCK + (++allocations);
+				declareI(frag, block);
+				frag.add(PushI, step);						// [... size]
+				frag.add(PushD, MMGRD_STEP_FORMAT);
+				frag.add(Printf);
+				frag.add(PushI, step);						// [... size]
+				debugSystemBlockAllocate(frag);				// [... block]
+				frag.add(Duplicate);
+				frag.add(Call, MMGRD_PRINT_BLOCK);			// [... block]
+				debugPrint(frag, "\n");
+				storeITo(frag, block);						// [...]
+			}
+			else {
+				debugPrint(frag, "deallocate " + (-step) + "\n");
+				loadIFrom(frag, MMGRD_STEP_BLOCK + (-step));	// [... block]
+				debugSystemBlockDeallocate(frag);			// [...]
+			}
+			frag.add(Call, MMGRD_PRINT_FREE_LIST);
+		}
+		frag.add(Halt);
+		return frag;
+	}
 }
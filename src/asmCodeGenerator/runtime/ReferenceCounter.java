@@ -0,0 +1,229 @@
+package asmCodeGenerator.runtime;
+
+import static asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType.*;
+import static asmCodeGenerator.codeStorage.ASMOpcode.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import asmCodeGenerator.ASMCodeGenerationConstants;
+import asmCodeGenerator.Labeller;
+import asmCodeGenerator.Macros;
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+import semanticAnalyzer.types.Array;
+import semanticAnalyzer.types.PrimitiveType;
+import semanticAnalyzer.types.Type;
+
+/** The runtime of reference counting, the reclamation chosen by --reclaim=reference-counting
+ *  (see MemoryManager.Reclamation).
+ *  <p>
+ *  The count of a string or array record is kept in its status word, above the status flags;
+ *  a new record has a count of zero.  The code generator retains each reference that a
+ *  variable (or parameter), an array element or a running for takes, and releases it when
+ *  the variable is assigned, when its block is left (at its end or by a break, continue or
+ *  return), when the for is done, or when the array is freed.  A record whose count drops to
+ *  zero is freed with MEM_MANAGER_DEALLOCATE, after the references its elements hold are
+ *  released.
+ *  <p>
+ *  A return retains its value while the func's variables are released, and then disowns it:
+ *  the count goes back down without the record being freed, so the caller gets the value as
+ *  it would a new record.  A record that no variable or element ever takes is not freed.
+ */
+public class ReferenceCounter {
+	public static final String RETAIN = "$rc-retain";
+	public static final String DISOWN = "$rc-disown";
+	public static final String RETAIN_ELEMENTS = "$rc-retain-elements";
+	public static final String REPLACED_REFERENCE = "$rc-replaced-reference";
+	private static final String RELEASE = "$rc-release-";		// + nameFor(type)
+
+	private static final int STATUS_OFFSET = ASMCodeGenerationConstants.RECORD_STATUS_OFFSET;
+	private static final int COUNT_UNIT = ASMCodeGenerationConstants.BINARY_F + 1;	// the flags are the low four bits.
+	private static final int COUNT_MASK = ~ASMCodeGenerationConstants.BINARY_F;
+
+	// the types whose release subroutines have been asked for, in the order they were.
+	private final List<Type> releasedTypes = new ArrayList<Type>();
+	private final Set<String> releasedNames = new HashSet<String>();
+
+	public static boolean isCounted(Type type) {
+		return type == PrimitiveType.STRING || type instanceof Array;
+	}
+
+	/** the subroutine that releases a reference of type: [... record returnAddress] -> [...]. */
+	public String release(Type type) {
+		assert isCounted(type);
+		String name = nameFor(type);
+		if(releasedNames.add(name)) {
+			releasedTypes.add(type);
+		}
+		return RELEASE + name;
+	}
+	// the types with the same name are released by the same code.
+	private static String nameFor(Type type) {
+		if(type instanceof Array) {
+			Type subtype = ((Array)type).getSubtype();
+			return isCounted(subtype) ? "array-of-" + nameFor(subtype) : "array";
+		}
+		return "string";
+	}
+
+	/** offers the subroutines to linker; call once the program's code has been generated. */
+	public void addTo(RuntimeLinker linker) {
+		linker.add(retain());
+		linker.add(disown());
+		linker.add(retainElements());
+		linker.add(replacedReference());
+		for(int i = 0; i < releasedTypes.size(); i++) {		// releasing an array may ask for more.
+			linker.add(releaseSubroutine(releasedTypes.get(i)));
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// subroutines
+
+	// [... record returnAddress] -> [...]  Counts one more reference to record, if it is not null.
+	private ASMCodeFragment retain() {
+		return changeCount(RETAIN, Add);
+	}
+	// [... record returnAddress] -> [...]  Counts one less reference to record, if it is not
+	// null, but does not free it.
+	private ASMCodeFragment disown() {
+		return changeCount(DISOWN, Subtract);
+	}
+	private ASMCodeFragment changeCount(String label, ASMOpcode opcode) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		Labeller labeller = new Labeller("rc-change-count");
+		String nullRecord = labeller.newLabel("null-record");
+
+		frag.add(Label, label);                           // [... record retP]
+		frag.add(Exchange);                               // [... retP record]
+		frag.add(Duplicate);
+		frag.add(JumpFalse, nullRecord);                  // [... retP record]
+		frag.add(Duplicate);                              // [... retP record record]
+		Macros.readIOffset(frag, STATUS_OFFSET);          // [... retP record status]
+		frag.add(PushI, COUNT_UNIT);
+		frag.add(opcode);                                 // [... retP record newStatus]
+		frag.add(Exchange);                               // [... retP newStatus record]
+		Macros.writeIOffset(frag, STATUS_OFFSET);         // [... retP]
+		frag.add(Return);
+
+		frag.add(Label, nullRecord);                      // [... retP record]
+		frag.add(Pop);
+		frag.add(Return);
+		return frag;
+	}
+
+	// [... array returnAddress] -> [...]  Retains the reference held by each element of a new
+	// array of strings or arrays.
+	private ASMCodeFragment retainElements() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		Labeller labeller = new Labeller("rc-retain-elements");
+		String loop = labeller.newLabel("loop");
+		String loopEnd = labeller.newLabel("loop-end");
+
+		frag.add(Label, RETAIN_ELEMENTS);                 // [... array retP]
+		frag.add(Exchange);                               // [... retP array]
+		frag.add(Duplicate);
+		Macros.readIOffset(frag, ASMCodeGenerationConstants.ARRAY_LENGTH_OFFSET);	// [... retP array length]
+		frag.add(Exchange);
+		frag.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE);
+		frag.add(Add);                                    // [... retP length element]
+
+		frag.add(Label, loop);
+		frag.add(Exchange);                               // [... retP element length]
+		frag.add(Duplicate);
+		frag.add(JumpFalse, loopEnd);
+		frag.add(PushI, 1);
+		frag.add(Subtract);
+		frag.add(Exchange);                               // [... retP length-1 element]
+		frag.add(Duplicate);
+		frag.add(LoadI);
+		frag.add(Call, RETAIN);                           // [... retP length-1 element]
+		frag.add(PushI, PrimitiveType.STRING.getSize());  // the size of every reference.
+		frag.add(Add);
+		frag.add(Jump, loop);
+
+		frag.add(Label, loopEnd);                         // [... retP element 0]
+		frag.add(Pop);
+		frag.add(Pop);
+		frag.add(Return);
+		return frag;
+	}
+
+	// [... record returnAddress] -> [...]  Counts one less reference to record, if it is not
+	// null, and frees it if that was the last.  An array of strings or arrays releases the
+	// references its elements hold before it is freed.
+	private ASMCodeFragment releaseSubroutine(Type type) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		Labeller labeller = new Labeller("rc-release");
+		String stillReferenced = labeller.newLabel("still-referenced");
+		String nullRecord = labeller.newLabel("null-record");
+		String loop = labeller.newLabel("loop");
+		String loopEnd = labeller.newLabel("loop-end");
+
+		frag.add(Label, RELEASE + nameFor(type));         // [... record retP]
+		frag.add(Exchange);                               // [... retP record]
+		frag.add(Duplicate);
+		frag.add(JumpFalse, nullRecord);                  // [... retP record]
+		frag.add(Duplicate);
+		frag.add(Duplicate);
+		Macros.readIOffset(frag, STATUS_OFFSET);          // [... retP record record status]
+		frag.add(PushI, COUNT_UNIT);
+		frag.add(Subtract);                               // [... retP record record newStatus]
+		frag.add(Duplicate);
+		frag.add(PushI, COUNT_MASK);
+		frag.add(BTAnd);                                  // [... retP record record newStatus newCount]
+		frag.add(JumpTrue, stillReferenced);
+		frag.add(Pop);
+		frag.add(Pop);                                    // [... retP record]
+
+		Type subtype = type instanceof Array ? ((Array)type).getSubtype() : null;
+		if(subtype != null && isCounted(subtype)) {
+			String releaseElement = release(subtype);
+			frag.add(Duplicate);
+			frag.add(Duplicate);
+			Macros.readIOffset(frag, ASMCodeGenerationConstants.ARRAY_LENGTH_OFFSET);	// [... retP record record length]
+			frag.add(Exchange);
+			frag.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE);
+			frag.add(Add);                                // [... retP record length element]
+
+			frag.add(Label, loop);
+			frag.add(Exchange);                           // [... retP record element length]
+			frag.add(Duplicate);
+			frag.add(JumpFalse, loopEnd);
+			frag.add(PushI, 1);
+			frag.add(Subtract);
+			frag.add(Exchange);                           // [... retP record length-1 element]
+			frag.add(Duplicate);
+			frag.add(LoadI);
+			frag.add(Call, releaseElement);               // [... retP record length-1 element]
+			frag.add(PushI, subtype.getSize());
+			frag.add(Add);
+			frag.add(Jump, loop);
+
+			frag.add(Label, loopEnd);                     // [... retP record element 0]
+			frag.add(Pop);
+			frag.add(Pop);                                // [... retP record]
+		}
+		frag.add(Call, MemoryManager.MEM_MANAGER_DEALLOCATE);	// [... retP]
+		frag.add(Return);
+
+		frag.add(Label, stillReferenced);                 // [... retP record record newStatus]
+		frag.add(Exchange);
+		Macros.writeIOffset(frag, STATUS_OFFSET);         // [... retP record]
+		frag.add(Label, nullRecord);
+		frag.add(Pop);
+		frag.add(Return);
+		return frag;
+	}
+
+	// where a store keeps the reference it replaces until the new one is stored.
+	private ASMCodeFragment replacedReference() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		Macros.declareI(frag, REPLACED_REFERENCE);
+		return frag;
+	}
+}
@@ -3,6 +3,8 @@ package asmCodeGenerator.runtime;
 import static asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType.*;
 import static asmCodeGenerator.codeStorage.ASMOpcode.*;
 
+import java.util.function.Consumer;
+
 import asmCodeGenerator.Labeller;
 import asmCodeGenerator.Macros;
 import asmCodeGenerator.ASMCodeGenerationConstants;
@@ -48,6 +50,7 @@ public class RunTime {
 	public static final String ARRAY_LENGTH = "$array-length";
 	public static final String CLEAR_N_BYTES = "$clear-n-bytes";
 	public static final String CLONE_ARRAY = "$clone-array";
+	public static final String DEALLOCATE_ARRAY = "$deallocate-array";
 
 	// Rational static variables
 	public static final String LOWEST_TERMS = "$lowest-terms";
@@ -76,18 +79,19 @@ public class RunTime {
 	public static final String UNEQUAL_LENGTH_ARRAYS_ZIP_OPERATOR_ERROR = "$$unequal-length-array-zip-error";
 	public static final String EMPTY_ARRAY_GIVEN_TO_FOLD = "$$fold-operator-on-empty-array";
 
-	private ASMCodeFragment environmentASM() {
-		ASMCodeFragment result = new ASMCodeFragment(GENERATES_VOID);
-		result.append(pointersForLambdas());
-		result.append(jumpToMain());
-		result.append(stringsForPrintf());
-		result.append(runtimeErrors());
-		result.append(temporaryVariables());
-		result.append(clearNBytes());
-		result.append(cloneArray());
-		result.append(lowestTerms());
-		result.add(DLabel, USABLE_MEMORY_START);
-		return result;
+	// the startup code and the pointers for lambdas are always linked; every other part of
+	// the runtime is linked only if the program uses it.
+	private void addEnvironmentTo(RuntimeLinker linker) {
+		linker.addRoot(pointersForLambdas());
+		linker.addRoot(jumpToMain());
+		stringsForPrintf(linker);
+		runtimeErrors(linker);
+		temporaryVariables(linker);
+		linker.add(clearNBytes());
+		linker.add(cloneArray());
+		linker.add(deallocateArray());
+		linker.add(lowestTerms());
+		linker.add(dataLabel(USABLE_MEMORY_START));
 	}
 
 	private ASMCodeFragment pointersForLambdas() {
@@ -112,64 +116,44 @@ public class RunTime {
 		return frag;
 	}
 
-	private ASMCodeFragment stringsForPrintf() {
-		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
-		frag.add(DLabel, EAT_LOCATION_ZERO);
+	private ASMCodeFragment eatLocationZero() {
+		ASMCodeFragment frag = dataLabel(EAT_LOCATION_ZERO);
 		frag.add(DataZ, 8);
-		frag.add(DLabel, INTEGER_PRINT_FORMAT);
-		frag.add(DataS, "%d");
-		frag.add(DLabel, FLOATING_PRINT_FORMAT);
-		frag.add(DataS, "%g");
-		frag.add(DLabel, CHARACTER_PRINT_FORMAT);
-		frag.add(DataS, "%c");
-		frag.add(DLabel, STRING_PRINT_FORMAT);
-		frag.add(DataS, "%s");
-		frag.add(DLabel, BOOLEAN_PRINT_FORMAT);
-		frag.add(DataS, "%s");
-		frag.add(DLabel, NEWLINE_PRINT_FORMAT);
-		frag.add(DataS, "\n");
-		frag.add(DLabel, SPACE_PRINT_FORMAT);
-		frag.add(DataS, " ");
-		frag.add(DLabel, TAB_PRINT_FORMAT);
-		frag.add(DataS, "\t");
-		frag.add(DLabel, BOOLEAN_TRUE_STRING);
-		frag.add(DataS, "true");
-		frag.add(DLabel, BOOLEAN_FALSE_STRING);
-		frag.add(DataS, "false");
-		frag.add(DLabel, NEGATIVE_SIGN_STRING);
-		frag.add(DataS, "-");
-		frag.add(DLabel, UNDERSCORE_SIGN_STRING);
-		frag.add(DataS, "_");
-		frag.add(DLabel, FORWARD_SLASH_SIGN_STRING);
-		frag.add(DataS, "/");
-		frag.add(DLabel, OPEN_BRACKET_SIGN_STRING);
-		frag.add(DataS, "[");
-		frag.add(DLabel, CLOSE_BRACKET_SIGN_STRING);
-		frag.add(DataS, "]");
-		frag.add(DLabel, ARRAY_SEPARATOR_SIGN_STRING);
-		frag.add(DataS, ", ");
-		frag.add(DLabel, LAMBDA_PRINT_STRING);
-		frag.add(DataS, "<lambda>");
-
 		return frag;
 	}
 
-	private ASMCodeFragment runtimeErrors() {
-		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
-
-		generalRuntimeError(frag);
-		integerDivideByZeroError(frag);
-		floatingDivideByZeroError(frag);
-		rationalGotZeroDenominatorError(frag);
-		nullArrayIndexingError(frag);
-		arrayIndexOutOfBoundsError(frag);
-		arraySecondIndexSmallerEqualError(frag);
-		arrayLengthNegativeError(frag);
-		lambdaWithoutReturnError(frag);
-		unequalLengthArraysZipOperatorError(frag);
-		foldOperatorOnEmptyArrayError(frag);
+	private void stringsForPrintf(RuntimeLinker linker) {
+		linker.add(dataString(INTEGER_PRINT_FORMAT, "%d"));
+		linker.add(dataString(FLOATING_PRINT_FORMAT, "%g"));
+		linker.add(dataString(CHARACTER_PRINT_FORMAT, "%c"));
+		linker.add(dataString(STRING_PRINT_FORMAT, "%s"));
+		linker.add(dataString(BOOLEAN_PRINT_FORMAT, "%s"));
+		linker.add(dataString(NEWLINE_PRINT_FORMAT, "\n"));
+		linker.add(dataString(SPACE_PRINT_FORMAT, " "));
+		linker.add(dataString(TAB_PRINT_FORMAT, "\t"));
+		linker.add(dataString(BOOLEAN_TRUE_STRING, "true"));
+		linker.add(dataString(BOOLEAN_FALSE_STRING, "false"));
+		linker.add(dataString(NEGATIVE_SIGN_STRING, "-"));
+		linker.add(dataString(UNDERSCORE_SIGN_STRING, "_"));
+		linker.add(dataString(FORWARD_SLASH_SIGN_STRING, "/"));
+		linker.add(dataString(OPEN_BRACKET_SIGN_STRING, "["));
+		linker.add(dataString(CLOSE_BRACKET_SIGN_STRING, "]"));
+		linker.add(dataString(ARRAY_SEPARATOR_SIGN_STRING, ", "));
+		linker.add(dataString(LAMBDA_PRINT_STRING, "<lambda>"));
+	}
 
-		return frag;
+	private void runtimeErrors(RuntimeLinker linker) {
+		linker.add(unit(this::generalRuntimeError));
+		linker.add(unit(this::integerDivideByZeroError));
+		linker.add(unit(this::floatingDivideByZeroError));
+		linker.add(unit(this::rationalGotZeroDenominatorError));
+		linker.add(unit(this::nullArrayIndexingError));
+		linker.add(unit(this::arrayIndexOutOfBoundsError));
+		linker.add(unit(this::arraySecondIndexSmallerEqualError));
+		linker.add(unit(this::arrayLengthNegativeError));
+		linker.add(unit(this::lambdaWithoutReturnError));
+		linker.add(unit(this::unequalLengthArraysZipOperatorError));
+		linker.add(unit(this::foldOperatorOnEmptyArrayError));
 	}
 
 	private ASMCodeFragment generalRuntimeError(ASMCodeFragment frag) {
@@ -185,26 +169,25 @@ public class RunTime {
 		return frag;
 	}
 
-	private ASMCodeFragment temporaryVariables() {
-		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
-		Macros.declareI(frag, ARRAY_INDEXING_ARRAY);
-		Macros.declareI(frag, ARRAY_INDEXING_OTHER_ARRAY);
-		Macros.declareI(frag, ARRAY_INDEXING_INDEX);
-		Macros.declareI(frag, ARRAY_LATER_INDEXING_INDEX);
-		Macros.declareI(frag, RECORD_CREATION_TEMPORARY);
-		Macros.declareI(frag, ARRAY_DATASIZE_TEMPORARY);
-		Macros.declareI(frag, ARRAY_SUBTYPE_SIZE);
-		Macros.declareI(frag, ARRAY_LENGTH);
-		Macros.declareI(frag, RATIONAL_NUM);
-		Macros.declareI(frag, RATIONAL_DEN);
-		Macros.declareI(frag, EXPRESS_OVER_DEN);
-		Macros.declareI(frag, RATIONAL_DEN_2_TEMP);
-		Macros.declareI(frag, RETURN_PC);
-		Macros.declareI(frag, FOR_IDENTIFER);
-		Macros.declareI(frag, FOR_INDEX);
-		Macros.declareI(frag, FOR_SEQUENCE);
-		Macros.declareI(frag, FOR_LENGTH);
-		return frag;
+	private void temporaryVariables(RuntimeLinker linker) {
+		linker.add(variable(ARRAY_INDEXING_ARRAY));
+		linker.add(variable(ARRAY_INDEXING_OTHER_ARRAY));
+		linker.add(variable(ARRAY_INDEXING_INDEX));
+		linker.add(variable(ARRAY_LATER_INDEXING_INDEX));
+		linker.add(variable(RECORD_CREATION_TEMPORARY));
+		linker.add(variable(ARRAY_DATASIZE_TEMPORARY));
+		linker.add(variable(ARRAY_STATUS_FLAGS));
+		linker.add(variable(ARRAY_SUBTYPE_SIZE));
+		linker.add(variable(ARRAY_LENGTH));
+		linker.add(variable(RATIONAL_NUM));
+		linker.add(variable(RATIONAL_DEN));
+		linker.add(variable(EXPRESS_OVER_DEN));
+		linker.add(variable(RATIONAL_DEN_2_TEMP));
+		linker.add(variable(RETURN_PC));
+		linker.add(variable(FOR_IDENTIFER));
+		linker.add(variable(FOR_INDEX));
+		linker.add(variable(FOR_SEQUENCE));
+		linker.add(variable(FOR_LENGTH));
 	}
 
 	// [ ... nElems baseAddr numBytes returnPointer ] -> [ ... nElems ]
@@ -319,6 +302,107 @@ public class RunTime {
 		return frag;
 	}
 
+	// [... arr returnPointer] -> [...]  Deallocates arr and, if its elements are arrays, each of
+	// them, recursively; a null array, or one that is permanent or already deleted, is left alone.
+	private ASMCodeFragment deallocateArray() {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+
+		Labeller labeller = new Labeller("subroutine-deallocate-array");
+		String deallocLoopBegin = labeller.newLabel("dealloc-loop-begin");
+		String deallocLoopEnd = labeller.newLabel("dealloc-loop-end");
+		String nullArray = labeller.newLabel("null-array");
+		String notNullArray = labeller.newLabel("not-null-array");
+		String doNotDeAllocAndClearUp = labeller.newLabel("dealloc-cancel-clean-up");
+		String deallocateMe = labeller.newLabel("deallocate-current-array");
+		String coreEnd = labeller.newLabel("core-end");
+
+		frag.add(Label, DEALLOCATE_ARRAY);                                      // [arr retP]
+		frag.add(Exchange);                                                     // [retP arr]	
+		frag.add(Duplicate);                                                    // [retP arr arr]
+		frag.add(JumpFalse, nullArray);                                         // [retP arr]
+		frag.add(Jump, notNullArray);                                           // [retP arr]
+		
+		// If a null array is handled to dealloc, simple don't do anything and return
+		frag.add(Label, nullArray);                                             // [retP arr]
+		frag.add(Pop);                                                          // [retP]
+		frag.add(PopPC);                                                        // [] & returns to the end
+		
+		// If array is not null, check if we need to delete it
+		frag.add(Label, notNullArray);                                          // [retP arr]
+		frag.add(Duplicate);                                                    // [retP arr arr]
+		
+		Macros.readIOffset(frag, ASMCodeGenerationConstants.ARRAY_STATUS_FLAGS_OFFSET);       // [retP arr status]
+		frag.add(PushI, ASMCodeGenerationConstants.STATUS_TO_CHECK_DELETE_OR_PERM);           // [retP arr status checkDelOrPerm]
+		frag.add(BTAnd);		                                                // [retP arr 0||!0]
+		frag.add(JumpTrue, doNotDeAllocAndClearUp);                              // [retP arr]
+
+		frag.add(Duplicate);                                                    // [retP arr arr]
+		frag.add(Duplicate);                                                    // [retP arr arr arr]
+		Macros.readIOffset(frag, ASMCodeGenerationConstants.ARRAY_STATUS_FLAGS_OFFSET);       // [retP arr arr status]		
+		frag.add(PushI, ASMCodeGenerationConstants.TURN_DELETE_BIT_1);                        // [retP arr arr status deleteBitChange]
+		frag.add(BTOr);		                                                    // [retP arr arr updatedStatus]
+		frag.add(Exchange);                                                     // [retP arr updatedStatus arr]
+		Macros.writeIOffset(frag, ASMCodeGenerationConstants.ARRAY_STATUS_FLAGS_OFFSET);      // [retP arr]
+
+		frag.add(Duplicate);	                                                // [retP arr arr]
+		Macros.readIOffset(frag, ASMCodeGenerationConstants.ARRAY_STATUS_FLAGS_OFFSET);       // [retP arr status]
+		frag.add(PushI, ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE);                // [retP arr subTypeRef]
+		frag.add(BTAnd);                                                        // [retP arr 0||!0] -> if 1: array subtype, other not
+		
+		// If top of stack is 0: I do not need to recurse. I just dealloc this array
+		frag.add(JumpFalse, deallocateMe);                                      // [retP arr]
+
+		Macros.storeITo(frag, ARRAY_INDEXING_ARRAY);                    // [retP]
+		Macros.loadIFrom(frag, ARRAY_INDEXING_ARRAY);                   // [retP arr]
+		Macros.readIPtrOffset(frag, ARRAY_INDEXING_ARRAY, ASMCodeGenerationConstants.ARRAY_LENGTH_OFFSET);        // [retP arr len]
+		Macros.readIPtrOffset(frag, ARRAY_INDEXING_ARRAY, ASMCodeGenerationConstants.ARRAY_SUBTYPE_SIZE_OFFSET);  // [retP arr len subTypeSize] 
+		Macros.storeITo(frag, ARRAY_SUBTYPE_SIZE);                      // [retP arr len]
+
+		Macros.loadIFrom(frag, ARRAY_INDEXING_ARRAY);                   // [retP arr len arr]
+		frag.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE);                        // [retP arr len arr headerSize]
+		frag.add(Add);                                                          // [retP arr len baseForFirstElement]
+
+		// ------------ Start of loop --------------
+		// We can start recursing now
+		frag.add(Label, deallocLoopBegin);
+		frag.add(Exchange);		                                                // [retP arr baseForFirstElement len]
+		frag.add(Duplicate);                                                    // [retP arr baseForFirstElement len len]
+		// Check condition of while loop
+		frag.add(JumpFalse, deallocLoopEnd);                                           // [retP arr baseForFirstElement len]
+		// If not yet 0, decrement length
+		frag.add(PushI, 1);                                                     // [retP arr baseForFirstElement len 1]
+		frag.add(Subtract);		                                                // [retP arr baseForFirstElement len-1] --> Decreemented length
+		frag.add(Exchange);                                                     // [retP arr len baseForFirstElement]
+		frag.add(Duplicate);                                                    // [retP arr len baseForFirstElement baseForFirstElement]
+		Macros.loadIFrom(frag, ARRAY_SUBTYPE_SIZE);                     // [retP arr len baseForFirstElement baseForFirstElement subTypeSize]
+		frag.add(Exchange);                                                     // [retP arr len baseForFirstElement subTypeSize baseForFirstElement]
+		frag.add(LoadI);                                                        // [retP oldData firstElementRecord]
+		frag.add(Call, DEALLOCATE_ARRAY);		                                // [retP oldData firstElementRecord otherRetP]
+		
+		// When it comes here: Stack : [retP arr len baseForFirstElement subTypeSize]
+		frag.add(Duplicate);                                                    // [retP arr len baseForFirstElement subTypeSize subTypeSize]
+		Macros.storeITo(frag, ARRAY_SUBTYPE_SIZE);                      // [retP arr len baseForFirstElement subTypeSize]
+		frag.add(Add);                                                          // [retP arr len baseForNextElement]
+		frag.add(Jump, deallocLoopBegin);                                       // [retP arr len baseForNextElement]
+
+		frag.add(Label, deallocLoopEnd);                                        // [retP arr len baseForNextElement]
+		frag.add(Pop);
+		frag.add(Pop);                                                          // [retP arr]
+
+		frag.add(Label, deallocateMe);                            
+		frag.add(Call, MemoryManager.MEM_MANAGER_DEALLOCATE);                   // [retP]
+		frag.add(Jump, coreEnd);                                                // [retP]
+
+		frag.add(Label, doNotDeAllocAndClearUp);	                            // [ret arr]
+		frag.add(Pop);                                                          // [ret]
+		
+		// ------------ End Label ------------
+		frag.add(Label, coreEnd);                                               // [retP]
+		frag.add(Return);                                                       // []
+		
+		return frag;
+	}
+
 	private ASMCodeFragment lowestTerms() {
 		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
 
@@ -527,8 +611,41 @@ public class RunTime {
 		frag.add(Jump, GENERAL_RUNTIME_ERROR);
 	}
 
-	public static ASMCodeFragment getEnvironment() {
+	//////////////////////////////////////////////////////////////////////
+	// units
+
+	private static ASMCodeFragment unit(Consumer<ASMCodeFragment> generator) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		generator.accept(frag);
+		return frag;
+	}
+
+	private static ASMCodeFragment dataLabel(String label) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		frag.add(DLabel, label);
+		return frag;
+	}
+
+	private static ASMCodeFragment dataString(String label, String string) {
+		ASMCodeFragment frag = dataLabel(label);
+		frag.add(DataS, string);
+		return frag;
+	}
+
+	private static ASMCodeFragment variable(String name) {
+		ASMCodeFragment frag = new ASMCodeFragment(GENERATES_VOID);
+		Macros.declareI(frag, name);
+		return frag;
+	}
+
+	// this should be the first data of the program, so that no real data is at location zero.
+	public static void addNullGuard(RuntimeLinker linker) {
+		RunTime rt = new RunTime();
+		linker.addRoot(rt.eatLocationZero());
+	}
+
+	public static void addEnvironment(RuntimeLinker linker) {
 		RunTime rt = new RunTime();
-		return rt.environmentASM();
+		rt.addEnvironmentTo(linker);
 	}
 }
@@ -0,0 +1,99 @@
+package asmCodeGenerator.runtime;
+
+import static asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMInstruction;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+
+/** Links a program with the parts of the runtime that it uses.
+ *  <p>
+ *  The runtime is offered to the linker as units: a subroutine, an error handler, a print
+ *  format, a variable.  A unit is emitted only if a linked fragment names one of the labels
+ *  it defines, in a Call, a jump, a PushD or a DataD; so the code generators register the
+ *  runtime symbols they use just by using them, and a subroutine brings in the variables,
+ *  error handlers and other subroutines it uses in turn.  Roots (the program itself and the
+ *  startup code) are always emitted.  require() registers a symbol that no instruction names.
+ *  <p>
+ *  Everything linked is emitted in the order it was added.
+ */
+public class RuntimeLinker {
+	private static class Unit {
+		final ASMCodeFragment code;
+		final List<ASMInstruction> instructions;
+		boolean linked = false;
+
+		Unit(ASMCodeFragment code) {
+			this.code = code;
+			this.instructions = code.instructions();
+		}
+	}
+
+	private final List<Unit> units = new ArrayList<Unit>();
+	private final Map<String, Unit> unitDefining = new HashMap<String, Unit>();
+	private final Deque<Unit> pending = new ArrayDeque<Unit>();
+
+	/** code that is always emitted. */
+	public void addRoot(ASMCodeFragment code) {
+		link(newUnit(code));
+	}
+	/** code that is emitted only if a linked fragment names one of its labels. */
+	public void add(ASMCodeFragment code) {
+		newUnit(code);
+	}
+	/** emit the unit that defines symbol, even if nothing names it. */
+	public void require(String symbol) {
+		Unit unit = unitDefining.get(symbol);
+		assert unit != null : "no runtime unit defines " + symbol;
+		link(unit);
+	}
+
+	/** the linked units, with everything they name, in the order they were added. */
+	public ASMCodeFragment link() {
+		while(!pending.isEmpty()) {
+			Unit unit = pending.pop();
+			for(ASMInstruction instruction: unit.instructions) {
+				if(instruction.getOpcode().namesLabel()) {
+					Unit target = unitDefining.get(instruction.getStringArgument());
+					if(target != null) {
+						link(target);
+					}
+				}
+			}
+		}
+
+		ASMCodeFragment result = new ASMCodeFragment(GENERATES_VOID);
+		for(Unit unit: units) {
+			if(unit.linked) {
+				result.append(unit.code);
+			}
+		}
+		return result;
+	}
+
+	private Unit newUnit(ASMCodeFragment code) {
+		Unit unit = new Unit(code);
+		units.add(unit);
+		for(ASMInstruction instruction: unit.instructions) {
+			ASMOpcode opcode = instruction.getOpcode();
+			if(opcode.definesLabel()) {
+				Unit previous = unitDefining.put(instruction.getStringArgument(), unit);
+				assert previous == null : "label defined twice: " + instruction.getStringArgument();
+			}
+		}
+		return unit;
+	}
+	private void link(Unit unit) {
+		if(!unit.linked) {
+			unit.linked = true;
+			pending.push(unit);
+		}
+	}
+}
@@ -2,7 +2,6 @@ package asmCodeGenerator.specialCodeGenerator;
 
 import asmCodeGenerator.DynamicRecordCodeGenerator;
 import asmCodeGenerator.Macros;
-import asmCodeGenerator.ASMCodeGenerationConstants;
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType;
 import asmCodeGenerator.runtime.RunTime;
@@ -19,12 +18,12 @@ public class ArrayAllocationCodeGenerator implements SimpleCodeGenerator {
 		ASMCodeFragment frag = new ASMCodeFragment(CodeType.GENERATES_VALUE);
 		
 		Type subtype = ((Array)node.getType()).getSubtype();
-		int statusFlags = subtype instanceof Array ? ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE : ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE;
+		int statusFlags = DynamicRecordCodeGenerator.arrayStatusFlags(subtype);
 		int subtypeSize = subtype.getSize();
 		
 		// Stack currently: [nElems]
 		
-		DynamicRecordCodeGenerator.createEmptyArrayRecord(frag, statusFlags, subtypeSize);
+		DynamicRecordCodeGenerator.createEmptyArrayRecord(frag, node, statusFlags, subtypeSize);
 		Macros.loadIFrom(frag, RunTime.RECORD_CREATION_TEMPORARY);
 		return frag;
 	}
@@ -16,11 +16,11 @@ public class ArrayCloneCodeGenerator implements SimpleCodeGenerator {
 	public ASMCodeFragment generate(ParseNode node) {
 		// Stack: [... toBeClonedArrayPointer]
 		ASMCodeFragment frag = new ASMCodeFragment(CodeType.GENERATES_VALUE);
-		this.createCloneArrayRecord(frag);
+		this.createCloneArrayRecord(frag, node);
 		return frag;
 	}
 	
-	private void createCloneArrayRecord(ASMCodeFragment code) {
+	private void createCloneArrayRecord(ASMCodeFragment code, ParseNode node) {
 		final int typecode = ASMCodeGenerationConstants.ARRAY_TYPE_ID;
 		
 		code.add(Duplicate);
@@ -33,6 +33,8 @@ public class ArrayCloneCodeGenerator implements SimpleCodeGenerator {
 		Macros.storeITo(code, RunTime.ARRAY_INDEXING_ARRAY);        // [... toBeClonedArrayPointer] & save the base of other array
 		code.add(Duplicate);                                        // [... toBeClonedArrayPointer toBeClonedArrayPointer]
 		Macros.readIOffset(code, ASMCodeGenerationConstants.ARRAY_STATUS_FLAGS_OFFSET); // [... toBeClonedArrayPointer statusFlagOfOtherArray]
+		code.add(PushI, ASMCodeGenerationConstants.BINARY_F);       // only the flags: not a reference count (see ReferenceCounter)
+		code.add(BTAnd);
 		Macros.storeITo(code, RunTime.ARRAY_STATUS_FLAGS);    // [... toBeClonedArrayPointer]
 		code.add(Duplicate);                                        // [... toBeClonedArrayPointer toBeClonedArrayPointer]
 		Macros.readIOffset(code, ASMCodeGenerationConstants.ARRAY_SUBTYPE_SIZE_OFFSET); // [... toBeClonedArrayPointer subtypeSizeOfToBeClonedArray]
@@ -50,7 +52,7 @@ public class ArrayCloneCodeGenerator implements SimpleCodeGenerator {
 		code.add(Add);                                              // [... numBytesToCopy totalRecordSize]
 		
 		// Need record size on top of stack which is the case
-		DynamicRecordCodeGenerator.createRecord(code, typecode, 0);    // This stores a pointer to an array in RECORD_CREATION_TEMPORARY
+		DynamicRecordCodeGenerator.createRecord(code, node, typecode, 0);    // This stores a pointer to an array in RECORD_CREATION_TEMPORARY
 		
 		Macros.loadIFrom(code, RunTime.RECORD_CREATION_TEMPORARY);  // [... numBytesToCopy thisArrayPointer]
 		code.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE);                  // [... numBytesToCopy thisArrayPointer headerSize]
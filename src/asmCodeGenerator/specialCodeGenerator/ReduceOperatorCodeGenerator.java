@@ -42,9 +42,7 @@ public class ReduceOperatorCodeGenerator implements SimpleCodeGenerator {
 		Type booleanType = PrimitiveType.BOOLEAN;
 		int booleanTypeSize = booleanType.getSize();
 		
-		int statusFlags = arraySubType instanceof Array 
-						  ? ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE
-						  : ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE;
+		int statusFlags = DynamicRecordCodeGenerator.arrayStatusFlags(arraySubType);
 		
 		// Stack: [array lambda]
 		ASMCodeFragment code = new ASMCodeFragment(CodeType.GENERATES_VALUE);
@@ -77,7 +75,7 @@ public class ReduceOperatorCodeGenerator implements SimpleCodeGenerator {
 		
 		// ----------- Create new record -----------
 		Macros.loadIFrom(code, RunTime.ARRAY_LENGTH);
-		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, 
+		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, null,
 														  ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE, 
 														  booleanTypeSize);
 		// ----------- Record created -----------
@@ -164,7 +162,7 @@ public class ReduceOperatorCodeGenerator implements SimpleCodeGenerator {
 		
 		// ----------- Create actual array -----------
 		Macros.loadIFrom(code, resultLength);
-		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, statusFlags, arraySubTypeSize);
+		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, node, statusFlags, arraySubTypeSize);
 		// ----------- Created actual array -----------
 		
 		// ----------- Get constants ready -----------
@@ -37,9 +37,7 @@ public class ReverseOperatorCodeGenerator implements SimpleCodeGenerator {
 		int arraySubTypeSize = arraySubType.getSize();
 		
 		int statusFlags = isArray
-						  ? arraySubType instanceof Array 
-						  ? ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE
-						  : ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE
+						  ? DynamicRecordCodeGenerator.arrayStatusFlags(arraySubType)
 						  : ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING;
 		int lengthOffset = isArray
 						   ? ASMCodeGenerationConstants.ARRAY_LENGTH_OFFSET
@@ -77,12 +75,12 @@ public class ReverseOperatorCodeGenerator implements SimpleCodeGenerator {
 		// ----------- Create new record -----------
 		Macros.loadIFrom(code, RunTime.ARRAY_LENGTH);
 		if(isArray) {			
-			DynamicRecordCodeGenerator.createEmptyArrayRecord(code, statusFlags, arraySubTypeSize);
+			DynamicRecordCodeGenerator.createEmptyArrayRecord(code, node, statusFlags, arraySubTypeSize);
 		} else {
 			code.add(Duplicate);
 			code.add(PushI, ASMCodeGenerationConstants.STRING_HEADER_SIZE + 1);
 			code.add(Add);
-			DynamicRecordCodeGenerator.createRecord(code, ASMCodeGenerationConstants.STRING_TYPE_ID, statusFlags);
+			DynamicRecordCodeGenerator.createRecord(code, node, ASMCodeGenerationConstants.STRING_TYPE_ID, statusFlags);
 			Macros.writeIPtrOffset(code, 
 					RunTime.RECORD_CREATION_TEMPORARY, 
 					ASMCodeGenerationConstants.STRING_LENGTH_OFFSET);
@@ -27,7 +27,7 @@ public class StringCharConcatenationCodeGenerator implements SimpleCodeGenerator
 		frag.add(Add);                                                              // [char len len 14]
 		frag.add(Add);                                                              // [char len newRecordSize]
 		
-		DynamicRecordCodeGenerator.createRecord(frag, 
+		DynamicRecordCodeGenerator.createRecord(frag, node, 
 				ASMCodeGenerationConstants.STRING_TYPE_ID, 
 				ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING);
 		
@@ -31,7 +31,7 @@ public class StringStringConcatenationCodeGenerator implements SimpleCodeGenerat
 		frag.add(Add);                                                                  // [len len 1+headerSize]
 		frag.add(Add);                                                                  // [len recordSize]
 		
-		DynamicRecordCodeGenerator.createRecord(frag, 
+		DynamicRecordCodeGenerator.createRecord(frag, node, 
 				ASMCodeGenerationConstants.STRING_TYPE_ID, 
 				ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING);
 		
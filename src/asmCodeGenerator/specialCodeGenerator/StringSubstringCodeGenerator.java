@@ -87,7 +87,7 @@ public class StringSubstringCodeGenerator implements SimpleCodeGenerator {
 		frag.add(PushI, ASMCodeGenerationConstants.ARRAY_HEADER_SIZE + 1);             // [lenToCopy lenToCopy + 17]
 		frag.add(Add);                                                                 // [lenToCopy recordSize]
 		
-		DynamicRecordCodeGenerator.createRecord(frag,                                  // [lenToCopy] 
+		DynamicRecordCodeGenerator.createRecord(frag, node,                            // [lenToCopy] 
 												ASMCodeGenerationConstants.STRING_TYPE_ID, 
 												ASMCodeGenerationConstants.STATUS_FLAG_FOR_STRING);
 		
@@ -39,9 +39,7 @@ public class ZipOperatorCodeGenerator implements SimpleCodeGenerator {
 		Type returnArraySubType = ((Array) node.getType()).getSubtype();
 		int returnArraySubTypeSize = returnArraySubType.getSize();
 		
-		int statusFlags = returnArraySubType instanceof Array 
-						  ? ASMCodeGenerationConstants.STATUS_FLAG_FOR_REFERENCE
-						  : ASMCodeGenerationConstants.STATUS_FLAG_FOR_NON_REFERENCE;
+		int statusFlags = DynamicRecordCodeGenerator.arrayStatusFlags(returnArraySubType);
 		
 		// Stack: [array1 array2 lambda]
 		ASMCodeFragment code = new ASMCodeFragment(CodeType.GENERATES_VALUE);
@@ -93,7 +91,7 @@ public class ZipOperatorCodeGenerator implements SimpleCodeGenerator {
 		
 		// ----------- Create new record -----------
 		Macros.loadIFrom(code, RunTime.ARRAY_LENGTH);
-		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, statusFlags, returnArraySubTypeSize);
+		DynamicRecordCodeGenerator.createEmptyArrayRecord(code, node, statusFlags, returnArraySubTypeSize);
 		// ----------- Record created -----------
 		
 		// ----------- Start operation -----------
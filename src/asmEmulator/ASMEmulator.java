@@ -0,0 +1,380 @@
+package asmEmulator;
+
+import java.io.PrintStream;
+
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+
+/** A pure-Java implementation of the abstract stack machine described in ASMOpcode.
+ *  <p>
+ *  The program is first resolved into an ASMProgram, so every branch target is an
+ *  instruction index and every data label is a memory location.  Memory is a flat byte
+ *  array (with the data image copied into its low end), and the accumulator is a pair of
+ *  parallel primitive arrays: the raw bits of each entry, and whether it is floating.
+ *  Apart from Printf and PStack, executing an instruction allocates nothing.
+ *  <p>
+ *  Any condition that would halt the Windows emulator with an error (stack underflow, bad
+ *  operand type, bad address, ...) throws an EmulatorException.
+ */
+public class ASMEmulator implements PrintfFormatter.Arguments {
+	public static final int DEFAULT_MEMORY_SIZE = 1 << 24;
+	public static final int DEFAULT_ACCUMULATOR_SIZE = 1 << 16;
+
+	private final ASMProgram program;
+	private final ASMOpcode[] opcodes;
+	private final int[] operands;
+	private final double[] floatOperands;
+
+	private final byte[] memory;
+	private final long[] accumulator;
+	private final boolean[] isFloat;
+	private int top;					// number of entries on the accumulator
+	private int pc;
+	private long instructionsExecuted;
+	private SubroutineProfile[] profiles = new SubroutineProfile[0];
+
+	private final PrintStream out;
+	private final PrintfFormatter formatter = new PrintfFormatter();
+
+
+	public ASMEmulator(ASMProgram program, PrintStream out, int memorySize, int accumulatorSize) {
+		if(program.getDataSize() > memorySize) {
+			throw new EmulatorException("data of " + program.getDataSize() + " bytes does not fit in memory");
+		}
+		this.program = program;
+		this.opcodes = program.opcodes();
+		this.operands = program.operands();
+		this.floatOperands = program.floatOperands();
+		this.out = out;
+
+		this.memory = new byte[memorySize];
+		this.accumulator = new long[accumulatorSize];
+		this.isFloat = new boolean[accumulatorSize];
+		reset();
+	}
+	public ASMEmulator(ASMProgram program, PrintStream out) {
+		this(program, out, DEFAULT_MEMORY_SIZE, DEFAULT_ACCUMULATOR_SIZE);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// convenience entry points
+
+	/** Runs the given code to completion.
+	 * @return the number of instructions executed.
+	 */
+	public static long run(ASMCodeFragment code, PrintStream out) {
+		ASMEmulator emulator = new ASMEmulator(ASMProgram.load(code), out);
+		emulator.execute();
+		return emulator.getInstructionsExecuted();
+	}
+	/** Runs the .asm file with the given name to completion.
+	 * @return the number of instructions executed.
+	 */
+	public static long run(String filename, PrintStream out) {
+		ASMEmulator emulator = new ASMEmulator(ASMProgram.load(filename), out);
+		emulator.execute();
+		return emulator.getInstructionsExecuted();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// state
+
+	/** restores memory to the loaded data image, empties the accumulator, and sets the PC to 0. */
+	public void reset() {
+		java.util.Arrays.fill(memory, (byte)0);
+		byte[] image = program.dataImage();
+		System.arraycopy(image, 0, memory, 0, image.length);
+		top = 0;
+		pc = 0;
+		instructionsExecuted = 0;
+	}
+	public long getInstructionsExecuted() {
+		return instructionsExecuted;
+	}
+	public ASMProgram getProgram() {
+		return program;
+	}
+	public int readInteger(int location) {
+		checkAddress(location, ASMOpcode.ASMIntSize);
+		return Memory.readInt(memory, location);
+	}
+	public int accumulatorDepth() {
+		return top;
+	}
+	/** counts, from now on, the calls of the subroutine at label and the instructions they execute. */
+	public SubroutineProfile profile(String label) {
+		int entry = program.codeLabel(label);
+		if(entry < 0) {
+			throw new EmulatorException("label " + label + " does not exist");
+		}
+		SubroutineProfile profile = new SubroutineProfile(label, entry);
+		profiles = java.util.Arrays.copyOf(profiles, profiles.length + 1);
+		profiles[profiles.length - 1] = profile;
+		return profile;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// main dispatch loop.  Runs until Halt, or until control passes the last instruction.
+
+	public void execute() {
+		final int size = program.size();
+		while(pc < size) {
+			int current = pc++;
+			instructionsExecuted++;
+			if(profiles.length != 0) {
+				profileInstruction(current);
+			}
+
+			switch(opcodes[current]) {
+			case Add:		{ int b = popInt(); int a = popInt(); pushInt(a + b); break; }
+			case Subtract:	{ int b = popInt(); int a = popInt(); pushInt(a - b); break; }
+			case Negate:	pushInt(-popInt()); break;
+			case Multiply:	{ int b = popInt(); int a = popInt(); pushInt(a * b); break; }
+			case Divide:	{ int b = nonzero(popInt()); int a = popInt(); pushInt(a / b); break; }
+			case Remainder:	{ int b = nonzero(popInt()); int a = popInt(); pushInt(a % b); break; }
+
+			case FAdd:		{ double b = popFloat(); double a = popFloat(); pushFloat(a + b); break; }
+			case FSubtract:	{ double b = popFloat(); double a = popFloat(); pushFloat(a - b); break; }
+			case FNegate:	pushFloat(-popFloat()); break;
+			case FMultiply:	{ double b = popFloat(); double a = popFloat(); pushFloat(a * b); break; }
+			case FDivide:	{ double b = popFloat(); double a = popFloat(); pushFloat(a / b); break; }
+
+			case And:		{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(a && b); break; }
+			case Or:		{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(a || b); break; }
+			case Nand:		{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(!(a && b)); break; }
+			case Nor:		{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(!(a || b)); break; }
+			case Xor:		{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(a != b); break; }
+			case BEqual:	{ boolean b = popBoolean(); boolean a = popBoolean(); pushBoolean(a == b); break; }
+			case BNegate:	pushBoolean(!popBoolean()); break;
+
+			case BTAnd:		{ int b = popInt(); int a = popInt(); pushInt(a & b); break; }
+			case BTOr:		{ int b = popInt(); int a = popInt(); pushInt(a | b); break; }
+			case BTNand:	{ int b = popInt(); int a = popInt(); pushInt(~(a & b)); break; }
+			case BTNor:		{ int b = popInt(); int a = popInt(); pushInt(~(a | b)); break; }
+			case BTXor:		{ int b = popInt(); int a = popInt(); pushInt(a ^ b); break; }
+			case BTEqual:	{ int b = popInt(); int a = popInt(); pushInt(~(a ^ b)); break; }
+			case BTNegate:	pushInt(~popInt()); break;
+
+			case ConvertF:	pushFloat(popInt()); break;
+			case ConvertI:	pushInt((int)popFloat()); break;
+
+			case Duplicate:
+				ensureDepth(1);
+				push(accumulator[top - 1], isFloat[top - 1]);
+				break;
+			case Exchange: {
+				ensureDepth(2);
+				long bits = accumulator[top - 1];
+				boolean floating = isFloat[top - 1];
+				accumulator[top - 1] = accumulator[top - 2];
+				isFloat[top - 1] = isFloat[top - 2];
+				accumulator[top - 2] = bits;
+				isFloat[top - 2] = floating;
+				break;
+			}
+			case Pop:
+				ensureDepth(1);
+				top--;
+				break;
+			case PushI:
+			case PushD:
+				pushInt(operands[current]);
+				break;
+			case PushF:
+				pushFloat(floatOperands[current]);
+				break;
+			case PushPC:
+				pushInt(pc);
+				break;
+			case PopPC:
+			case Return:
+				pc = popCodeAddress();
+				break;
+
+			case LoadC:		{ int a = popAddress(1); pushInt(memory[a] & 0xff); break; }
+			case LoadI:		{ int a = popAddress(ASMOpcode.ASMIntSize); pushInt(Memory.readInt(memory, a)); break; }
+			case LoadF:		{ int a = popAddress(ASMOpcode.ASMFloatSize); pushFloat(Memory.readDouble(memory, a)); break; }
+
+			case StoreC:	{ int b = popInt(); int a = popAddress(1); memory[a] = (byte)b; break; }
+			case StoreI:	{ int b = popInt(); int a = popAddress(ASMOpcode.ASMIntSize); Memory.writeInt(memory, a, b); break; }
+			case StoreF:	{ double b = popFloat(); int a = popAddress(ASMOpcode.ASMFloatSize); Memory.writeDouble(memory, a, b); break; }
+
+			case Memtop:
+				pushInt(memory.length);
+				break;
+
+			case Jump:
+				pc = operands[current];
+				break;
+			case JumpFalse:	if(popInt() == 0)  { pc = operands[current]; } break;
+			case JumpTrue:	if(popInt() != 0)  { pc = operands[current]; } break;
+			case JumpNeg:	if(popInt() < 0)   { pc = operands[current]; } break;
+			case JumpPos:	if(popInt() > 0)   { pc = operands[current]; } break;
+			case JumpFNeg:	if(popFloat() < 0) { pc = operands[current]; } break;
+			case JumpFPos:	if(popFloat() > 0) { pc = operands[current]; } break;
+			case JumpFZero:	if(popFloat() == 0){ pc = operands[current]; } break;
+			case Call:
+				pushInt(pc);
+				pc = operands[current];
+				break;
+			case JumpV:
+				pc = popCodeAddress();
+				break;
+			case CallV: {
+				int target = popCodeAddress();
+				pushInt(pc);
+				pc = target;
+				break;
+			}
+			case Halt:
+				out.flush();
+				return;
+
+			case PStack:
+				printStack();
+				break;
+			case Printf:
+				printf();
+				break;
+			case Nop:
+				break;
+
+			default:
+				throw error("opcode " + opcodes[current] + " cannot be executed");
+			}
+		}
+		out.flush();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// accumulator
+
+	private void push(long bits, boolean floating) {
+		if(top == accumulator.length) {
+			throw error("accumulator overflow");
+		}
+		accumulator[top] = bits;
+		isFloat[top] = floating;
+		top++;
+	}
+	private void profileInstruction(int address) {
+		long topEntry = (top == 0) ? 0 : accumulator[top - 1];
+		for(SubroutineProfile profile: profiles) {
+			profile.beforeInstruction(address, topEntry);
+		}
+	}
+	private void pushInt(int value) {
+		push(value, false);
+	}
+	private void pushFloat(double value) {
+		push(Double.doubleToRawLongBits(value), true);
+	}
+	private void pushBoolean(boolean value) {
+		push(value ? 1 : 0, false);
+	}
+	private int popInt() {
+		ensureDepth(1);
+		top--;
+		if(isFloat[top]) {
+			throw error("integer operand expected, floating found");
+		}
+		return (int)accumulator[top];
+	}
+	private double popFloat() {
+		ensureDepth(1);
+		top--;
+		if(!isFloat[top]) {
+			throw error("floating operand expected, integer found");
+		}
+		return Double.longBitsToDouble(accumulator[top]);
+	}
+	private boolean popBoolean() {
+		return popInt() != 0;
+	}
+	private void ensureDepth(int depth) {
+		if(top < depth) {
+			throw error("accumulator underflow");
+		}
+	}
+
+	private int popAddress(int width) {
+		int address = popInt();
+		checkAddress(address, width);
+		return address;
+	}
+	private void checkAddress(int address, int width) {
+		if(address < 0 || address > memory.length - width) {
+			throw error("invalid memory address " + address);
+		}
+	}
+	private int popCodeAddress() {
+		int address = popInt();
+		if(address < 0 || address > program.size()) {
+			throw error("invalid instruction address " + address);
+		}
+		return address;
+	}
+	private int nonzero(int divisor) {
+		if(divisor == 0) {
+			throw error("integer divide by zero");
+		}
+		return divisor;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// Printf and PStack
+
+	private void printf() {
+		String format = nextString();
+		out.print(formatter.format(format, this));
+	}
+	@Override
+	public int nextInteger() {
+		return popInt();
+	}
+	@Override
+	public double nextFloat() {
+		return popFloat();
+	}
+	@Override
+	public String nextString() {
+		int location = popInt();
+		StringBuilder result = new StringBuilder();
+		for(int i = location; memory[checkedByte(i)] != 0; i++) {
+			result.append((char)(memory[i] & 0xff));
+		}
+		return result.toString();
+	}
+	private int checkedByte(int location) {
+		checkAddress(location, 1);
+		return location;
+	}
+
+	private void printStack() {
+		out.print("stack: [");
+		for(int i = 0; i < top; i++) {
+			out.print(i == 0 ? "" : " ");
+			if(isFloat[i]) {
+				out.print(Double.longBitsToDouble(accumulator[i]));
+			}
+			else {
+				out.print((int)accumulator[i]);
+			}
+		}
+		out.println("]");
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// error reporting
+
+	private EmulatorException error(String message) {
+		out.flush();
+		return new EmulatorException("ASM runtime error at instruction " + (pc - 1) + " (" + opcodes[pc - 1] + "): " + message);
+	}
+}
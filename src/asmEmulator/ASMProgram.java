@@ -0,0 +1,214 @@
+package asmEmulator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMInstruction;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+
+/** An ASM program resolved for execution by the ASMEmulator.
+ *  <p>
+ *  Loading separates the directives from the executable instructions.  Data directives
+ *  (DLabel, DataC, DataI, DataF, DataS, DataZ, DataD) are laid out, in program order, into a
+ *  data image that starts at memory location zero.  Label directives are removed from the
+ *  instruction store, and every label operand (of Jump*, Call, PushD and DataD) is replaced by
+ *  the integer it denotes: an instruction index for a Label, a memory location for a DLabel.
+ *  <p>
+ *  The executable instructions are kept in parallel arrays so that the emulator never has to
+ *  look at a String or a boxed operand while running.
+ */
+public class ASMProgram {
+	private static final int NO_OPERAND = 0;
+
+	private ASMOpcode[] opcodes;
+	private int[] operands;				// PushI value, or resolved label value
+	private double[] floatOperands;		// PushF value
+	private int size;
+
+	private byte[] dataImage;
+	private int dataSize;
+
+	private Map<String, Integer> codeLabels = new HashMap<String, Integer>();
+	private Map<String, Integer> dataLabels = new HashMap<String, Integer>();
+
+
+	private ASMProgram(List<ASMInstruction> instructions) {
+		assignLabels(instructions);
+		opcodes = new ASMOpcode[size];
+		operands = new int[size];
+		floatOperands = new double[size];
+		dataImage = new byte[dataSize];
+
+		loadInstructionsAndData(instructions);
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// factories
+
+	public static ASMProgram load(ASMCodeFragment fragment) {
+		return new ASMProgram(fragment.instructions());
+	}
+	public static ASMProgram load(String filename) {
+		return load(ASMCodeFragment.readFrom(filename));
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// accessors (package-private: for the emulator only)
+
+	int size() {
+		return size;
+	}
+	ASMOpcode[] opcodes() {
+		return opcodes;
+	}
+	int[] operands() {
+		return operands;
+	}
+	double[] floatOperands() {
+		return floatOperands;
+	}
+	byte[] dataImage() {
+		return dataImage;
+	}
+
+	/** the instruction index of a Label, or -1 if there is no such Label. */
+	public int codeLabel(String label) {
+		return codeLabels.getOrDefault(label, -1);
+	}
+	/** the memory location of a DLabel, or -1 if there is no such DLabel. */
+	public int dataLabel(String label) {
+		return dataLabels.getOrDefault(label, -1);
+	}
+	public int getDataSize() {
+		return dataSize;
+	}
+	public int getInstructionCount() {
+		return size;
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// first pass: find where each label points, and how big the two stores are.
+
+	private void assignLabels(List<ASMInstruction> instructions) {
+		size = 0;
+		dataSize = 0;
+		for(ASMInstruction instruction: instructions) {
+			ASMOpcode opcode = instruction.getOpcode();
+			switch(opcode) {
+			case Label:
+				define(codeLabels, instruction.getStringArgument(), size);
+				break;
+			case DLabel:
+				define(dataLabels, instruction.getStringArgument(), dataSize);
+				break;
+			case DataC:
+			case DataI:
+			case DataF:
+			case DataD:
+			case DataZ:
+			case DataS:
+				dataSize += dataBytes(instruction);
+				break;
+			default:
+				size++;
+			}
+		}
+	}
+	private void define(Map<String, Integer> labels, String label, int value) {
+		if(codeLabels.containsKey(label) || dataLabels.containsKey(label)) {
+			throw new EmulatorException("duplicate label " + label);
+		}
+		labels.put(label, value);
+	}
+	private int dataBytes(ASMInstruction instruction) {
+		switch(instruction.getOpcode()) {
+		case DataC:	return 1;
+		case DataI:	return ASMOpcode.ASMIntSize;
+		case DataD:	return ASMOpcode.ASMIntSize;
+		case DataF:	return ASMOpcode.ASMFloatSize;
+		case DataZ:	return instruction.getIntegerArgument();
+		case DataS:	return instruction.getStringArgument().length() + 1;
+		default:
+			return 0;
+		}
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// second pass: fill the instruction arrays and the data image.
+
+	private void loadInstructionsAndData(List<ASMInstruction> instructions) {
+		int index = 0;
+		int dataLocation = 0;
+		for(ASMInstruction instruction: instructions) {
+			ASMOpcode opcode = instruction.getOpcode();
+			switch(opcode) {
+			case Label:
+			case DLabel:
+				break;
+			case DataC:
+				dataImage[dataLocation] = (byte)instruction.getIntegerArgument();
+				break;
+			case DataI:
+				Memory.writeInt(dataImage, dataLocation, instruction.getIntegerArgument());
+				break;
+			case DataF:
+				Memory.writeDouble(dataImage, dataLocation, instruction.getFloatArgument());
+				break;
+			case DataD:
+				Memory.writeInt(dataImage, dataLocation, labelValue(instruction.getStringArgument()));
+				break;
+			case DataS:
+				writeString(dataLocation, instruction.getStringArgument());
+				break;
+			case DataZ:
+				break;		// the image starts out zeroed.
+			default:
+				opcodes[index] = opcode;
+				operands[index] = operandFor(instruction);
+				floatOperands[index] = opcode.takesFloat() ? instruction.getFloatArgument() : NO_OPERAND;
+				index++;
+			}
+			dataLocation += dataBytes(instruction);
+		}
+	}
+	private void writeString(int location, String string) {
+		for(int i = 0; i < string.length(); i++) {
+			dataImage[location + i] = (byte)string.charAt(i);
+		}
+		dataImage[location + string.length()] = 0;
+	}
+
+	private int operandFor(ASMInstruction instruction) {
+		ASMOpcode opcode = instruction.getOpcode();
+		if(opcode.takesInteger()) {
+			return instruction.getIntegerArgument();
+		}
+		if(opcode == ASMOpcode.PushD) {
+			return labelValue(instruction.getStringArgument());
+		}
+		if(opcode.takesString()) {
+			return codeLabelValue(instruction.getStringArgument());
+		}
+		return NO_OPERAND;
+	}
+
+	// PushD and DataD may name either kind of label.
+	private int labelValue(String label) {
+		if(dataLabels.containsKey(label)) {
+			return dataLabels.get(label);
+		}
+		return codeLabelValue(label);
+	}
+	private int codeLabelValue(String label) {
+		if(!codeLabels.containsKey(label)) {
+			throw new EmulatorException("label " + label + " does not exist");
+		}
+		return codeLabels.get(label);
+	}
+}
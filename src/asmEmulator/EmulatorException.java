@@ -0,0 +1,10 @@
+package asmEmulator;
+
+/** Thrown when an ASM program cannot be loaded, or halts abnormally while running. */
+public class EmulatorException extends RuntimeException {
+	private static final long serialVersionUID = 3355708236196421473L;
+
+	public EmulatorException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,32 @@
+package asmEmulator;
+
+/** Little-endian access to multi-byte values in a flat byte-array memory.
+ *  Callers are responsible for bounds checking.
+ */
+class Memory {
+	private Memory() {}
+
+	static int readInt(byte[] memory, int location) {
+		return  (memory[location]     & 0xff)        |
+				(memory[location + 1] & 0xff) << 8   |
+				(memory[location + 2] & 0xff) << 16  |
+				(memory[location + 3]       ) << 24;
+	}
+	static void writeInt(byte[] memory, int location, int value) {
+		memory[location]     = (byte)value;
+		memory[location + 1] = (byte)(value >> 8);
+		memory[location + 2] = (byte)(value >> 16);
+		memory[location + 3] = (byte)(value >> 24);
+	}
+
+	static double readDouble(byte[] memory, int location) {
+		long low  = readInt(memory, location) & 0xffffffffL;
+		long high = readInt(memory, location + 4);
+		return Double.longBitsToDouble(high << 32 | low);
+	}
+	static void writeDouble(byte[] memory, int location, double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		writeInt(memory, location, (int)bits);
+		writeInt(memory, location + 4, (int)(bits >> 32));
+	}
+}
@@ -0,0 +1,222 @@
+package asmEmulator;
+
+import java.util.Locale;
+
+/** C-style printf formatting, as done by the ASM Printf opcode.
+ *  <p>
+ *  Supports the flags "-+ #0", a field width, a precision, and the conversions
+ *  d i u o x X c s f F e E g G and %%.  Length modifiers (h, l, L) are accepted and ignored.
+ *  As in the Windows emulator, 'I64' wide integers and the 'n' and 'p' conversions
+ *  are not supported.
+ */
+class PrintfFormatter {
+	/** Where the formatter gets its arguments from: the accumulator, for Printf. */
+	interface Arguments {
+		int nextInteger();
+		double nextFloat();
+		String nextString();
+	}
+
+	private final StringBuilder result = new StringBuilder();
+	private String format;
+	private int index;
+
+	String format(String format, Arguments arguments) {
+		this.format = format;
+		this.index = 0;
+		result.setLength(0);
+
+		while(index < format.length()) {
+			char c = format.charAt(index++);
+			if(c == '%') {
+				formatSpecifier(arguments);
+			}
+			else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// one conversion specification
+
+	private void formatSpecifier(Arguments arguments) {
+		int start = index;
+		while(index < format.length() && "-+ #0".indexOf(format.charAt(index)) >= 0) {
+			index++;
+		}
+		String flags = format.substring(start, index);
+		int width = readNumber(-1);
+		int precision = -1;
+		if(index < format.length() && format.charAt(index) == '.') {
+			index++;
+			precision = readNumber(0);
+		}
+		while(index < format.length() && "hlL".indexOf(format.charAt(index)) >= 0) {
+			index++;
+		}
+		if(index >= format.length()) {
+			throw new EmulatorException("incomplete printf specifier in \"" + format + "\"");
+		}
+
+		char conversion = format.charAt(index++);
+		switch(conversion) {
+		case '%':
+			result.append('%');
+			break;
+		case 'd':
+		case 'i':
+			pad(flags, width, javaFormat(flags.replace("#", ""), -1, 'd', arguments.nextInteger()));
+			break;
+		case 'u':
+			pad(flags, width, Integer.toUnsignedString(arguments.nextInteger()));
+			break;
+		case 'o':
+		case 'x':
+		case 'X':
+			pad(flags, width, javaFormat(flags.replace("+", "").replace(" ", ""), -1, conversion, arguments.nextInteger()));
+			break;
+		case 'c':
+			pad(flags, width, String.valueOf((char)(arguments.nextInteger() & 0xff)));
+			break;
+		case 's':
+			String string = arguments.nextString();
+			if(precision >= 0 && precision < string.length()) {
+				string = string.substring(0, precision);
+			}
+			pad(flags, width, string);
+			break;
+		case 'f':
+		case 'F':
+		case 'e':
+		case 'E':
+			pad(flags, width, floating(flags, precision, conversion, arguments.nextFloat()));
+			break;
+		case 'g':
+		case 'G':
+			pad(flags, width, general(flags, precision, conversion == 'G', arguments.nextFloat()));
+			break;
+		default:
+			throw new EmulatorException("invalid printf conversion %" + conversion + " in \"" + format + "\"");
+		}
+	}
+	private int readNumber(int absent) {
+		int start = index;
+		while(index < format.length() && Character.isDigit(format.charAt(index))) {
+			index++;
+		}
+		if(start == index) {
+			return absent;
+		}
+		return Integer.parseInt(format.substring(start, index));
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// numeric conversions
+
+	private String javaFormat(String flags, int precision, char conversion, Object value) {
+		String javaFlags = flags.replace("0", "").replace("-", "");
+		String spec = "%" + javaFlags + (precision >= 0 ? "." + precision : "") + conversion;
+		return String.format(Locale.ROOT, spec, value);
+	}
+	private String floating(String flags, int precision, char conversion, double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			return nonFinite(flags, value, Character.isUpperCase(conversion));
+		}
+		int digits = precision < 0 ? 6 : precision;
+		char javaConversion = Character.toLowerCase(conversion) == 'f' ? 'f' : conversion;
+		return javaFormat(flags, digits, javaConversion, value);
+	}
+
+	// %g: %e or %f, whichever C would choose, with trailing zeros removed (unless '#').
+	private String general(String flags, int precision, boolean upper, double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			return nonFinite(flags, value, upper);
+		}
+		int significant = precision < 0 ? 6 : Math.max(precision, 1);
+		int exponent = decimalExponent(value, significant);
+
+		String text;
+		if(significant > exponent && exponent >= -4) {
+			text = javaFormat(flags, significant - 1 - exponent, 'f', value);
+		}
+		else {
+			text = javaFormat(flags, significant - 1, upper ? 'E' : 'e', value);
+		}
+		if(flags.indexOf('#') < 0) {
+			text = removeTrailingZeros(text);
+		}
+		return text;
+	}
+	// the exponent of value in %e format, after rounding to the given number of significant digits.
+	private int decimalExponent(double value, int significant) {
+		if(value == 0) {
+			return 0;
+		}
+		String scientific = String.format(Locale.ROOT, "%." + (significant - 1) + "e", value);
+		int e = scientific.indexOf('e');
+		return Integer.parseInt(scientific.substring(e + 1));
+	}
+	private String removeTrailingZeros(String text) {
+		int exponentStart = Math.max(text.indexOf('e'), text.indexOf('E'));
+		String mantissa = exponentStart < 0 ? text : text.substring(0, exponentStart);
+		String exponent = exponentStart < 0 ? "" : text.substring(exponentStart);
+		if(mantissa.indexOf('.') >= 0) {
+			int end = mantissa.length();
+			while(mantissa.charAt(end - 1) == '0') {
+				end--;
+			}
+			if(mantissa.charAt(end - 1) == '.') {
+				end--;
+			}
+			mantissa = mantissa.substring(0, end);
+		}
+		return mantissa + exponent;
+	}
+	private String nonFinite(String flags, double value, boolean upper) {
+		String text;
+		if(Double.isNaN(value)) {
+			text = "nan";
+		}
+		else {
+			text = value < 0 ? "-inf" : (flags.indexOf('+') >= 0 ? "+inf" : "inf");
+		}
+		return upper ? text.toUpperCase(Locale.ROOT) : text;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// field width
+
+	private void pad(String flags, int width, String text) {
+		int padding = width - text.length();
+		if(padding <= 0) {
+			result.append(text);
+		}
+		else if(flags.indexOf('-') >= 0) {
+			result.append(text);
+			appendRepeated(' ', padding);
+		}
+		else if(flags.indexOf('0') >= 0 && isNumeric(text)) {
+			int signLength = (text.charAt(0) == '-' || text.charAt(0) == '+' || text.charAt(0) == ' ') ? 1 : 0;
+			result.append(text, 0, signLength);
+			appendRepeated('0', padding);
+			result.append(text, signLength, text.length());
+		}
+		else {
+			appendRepeated(' ', padding);
+			result.append(text);
+		}
+	}
+	private boolean isNumeric(String text) {
+		return !text.isEmpty() && (Character.isDigit(text.charAt(text.length() - 1)) || text.indexOf('.') >= 0);
+	}
+	private void appendRepeated(char c, int count) {
+		for(int i = 0; i < count; i++) {
+			result.append(c);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package asmEmulator;
+
+/** The calls of one subroutine made while an ASMEmulator runs, and the instructions executed
+ *  in them.  A call starts when control reaches the subroutine's label with no call of it in
+ *  progress, and ends when control reaches the return address that was on top of the
+ *  accumulator then; the instructions of the subroutines it calls are counted as its own.
+ */
+public class SubroutineProfile {
+	private final String label;
+	private final int entry;
+	private boolean inCall = false;
+	private int returnAddress;
+	private long calls = 0;
+	private long instructions = 0;
+
+	SubroutineProfile(String label, int entry) {
+		this.label = label;
+		this.entry = entry;
+	}
+
+	// called before each instruction is executed, with the accumulator's top entry (if any).
+	void beforeInstruction(int address, long top) {
+		if(inCall && address == returnAddress) {
+			inCall = false;
+		}
+		if(!inCall && address == entry) {
+			inCall = true;
+			returnAddress = (int)top;
+			calls++;
+		}
+		if(inCall) {
+			instructions++;
+		}
+	}
+
+	public String getLabel() {
+		return label;
+	}
+	public long getCalls() {
+		return calls;
+	}
+	public long getInstructions() {
+		return instructions;
+	}
+	public double instructionsPerCall() {
+		return calls == 0 ? 0 : (double)instructions / calls;
+	}
+	@Override
+	public String toString() {
+		return String.format("%s: %d calls, %d instructions, %.1f per call",
+				label, calls, instructions, instructionsPerCall());
+	}
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+/** One measured operation of the compiler, performed on one source file at a time.
+ *  <p>
+ *  prepare(...) does the untimed setup for a single invocation (in the manner of a JMH
+ *  setup method at invocation level), and run(...) is the timed operation.  Both are
+ *  called with a fresh CompilationContext entered, so each invocation compiles as if it
+ *  were the first in the JVM.
+ *
+ * @param <T> what prepare(...) makes and run(...) works on.
+ */
+public abstract class Benchmark<T> {
+	private final String name;
+	private final String unit;
+
+	protected Benchmark(String name, String unit) {
+		this.name = name;
+		this.unit = unit;
+	}
+	public String getName() {
+		return name;
+	}
+	/** what run(...) counts: "tokens", "nodes", ... */
+	public String getUnit() {
+		return unit;
+	}
+
+	/** untimed setup for one invocation on one file. */
+	public abstract T prepare(String filename);
+	/** the timed operation.
+	 * @return the number of units of work done, e.g. the number of tokens scanned.
+	 */
+	public abstract long run(T prepared);
+}
@@ -0,0 +1,141 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import compiler.CompilationContext;
+
+/** Runs a Benchmark over a corpus of source files: some warmup iterations (for the JIT),
+ *  then the measured iterations.  Each iteration invokes the benchmark once on every
+ *  file in the corpus, timing only run(...).
+ *  <p>
+ *  Results of run(...) go to a sink (as to a JMH Blackhole), so the JIT cannot discard them.
+ */
+public class BenchmarkRunner {
+	private static volatile long sink;
+
+	private final List<String> corpus;
+	private final int warmupIterations;
+	private final int measurementIterations;
+
+	public BenchmarkRunner(List<String> corpus, int warmupIterations, int measurementIterations) {
+		this.corpus = corpus;
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+	}
+
+	public <T> BenchmarkResult run(Benchmark<T> benchmark) {
+		for(int i = 0; i < warmupIterations; i++) {
+			iterate(benchmark);
+		}
+		BenchmarkResult result = new BenchmarkResult(benchmark.getName(), benchmark.getUnit(), corpus.size());
+		for(int i = 0; i < measurementIterations; i++) {
+			long[] nanosAndUnits = iterate(benchmark);
+			result.addIteration(nanosAndUnits[0], nanosAndUnits[1]);
+		}
+		return result;
+	}
+
+	// one invocation per file; returns the total timed nanoseconds and units of work.
+	private <T> long[] iterate(Benchmark<T> benchmark) {
+		long nanos = 0;
+		long units = 0;
+		for(String filename: corpus) {
+			CompilationContext outerContext = CompilationContext.makeQuiet(filename).enter();
+			try {
+				T prepared = benchmark.prepare(filename);
+				long start = System.nanoTime();
+				long work = benchmark.run(prepared);
+				nanos += System.nanoTime() - start;
+				units += work;
+				sink += work;
+			}
+			finally {
+				outerContext.enter();
+			}
+		}
+		return new long[] {nanos, units};
+	}
+
+	/** for benchmarks whose result is not a count: keeps the JIT from discarding it. */
+	public static void consume(Object result) {
+		sink += System.identityHashCode(result);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// results: throughput in units per second, one sample per measured iteration.
+
+	public static class BenchmarkResult {
+		private final String name;
+		private final String unit;
+		private final int numFiles;
+		private final List<Double> unitsPerSecond = new ArrayList<Double>();
+		private final List<Double> nanosPerFile = new ArrayList<Double>();
+		private long unitsPerIteration;
+
+		BenchmarkResult(String name, String unit, int numFiles) {
+			this.name = name;
+			this.unit = unit;
+			this.numFiles = numFiles;
+		}
+		void addIteration(long nanos, long units) {
+			unitsPerIteration = units;
+			unitsPerSecond.add(units * 1e9 / Math.max(1, nanos));
+			nanosPerFile.add((double)nanos / Math.max(1, numFiles));
+		}
+
+		public String getName() {
+			return name;
+		}
+		public String getUnit() {
+			return unit;
+		}
+		public long getUnitsPerIteration() {
+			return unitsPerIteration;
+		}
+		public double meanUnitsPerSecond() {
+			return mean(unitsPerSecond);
+		}
+		public double standardDeviationUnitsPerSecond() {
+			return standardDeviation(unitsPerSecond);
+		}
+		public double meanNanosPerFile() {
+			return mean(nanosPerFile);
+		}
+
+		public String toString() {
+			return String.format("%-24s %10d %-12s %14.0f +- %-12.0f %12.0f",
+					name, unitsPerIteration, unit,
+					meanUnitsPerSecond(), standardDeviationUnitsPerSecond(), meanNanosPerFile());
+		}
+		public static String header() {
+			return String.format("%-24s %23s %30s %12s", "benchmark", "units per iteration", "units/s (mean +- sd)", "ns/file");
+		}
+		public String toJSON() {
+			return String.format("{\"benchmark\": \"%s\", \"unit\": \"%s\", \"unitsPerIteration\": %d, " +
+					"\"unitsPerSecond\": %.1f, \"unitsPerSecondStdDev\": %.1f, \"nanosPerFile\": %.1f}",
+					name, unit, unitsPerIteration,
+					meanUnitsPerSecond(), standardDeviationUnitsPerSecond(), meanNanosPerFile());
+		}
+
+		private static double mean(List<Double> samples) {
+			double sum = 0;
+			for(double sample: samples) {
+				sum += sample;
+			}
+			return samples.isEmpty() ? 0 : sum / samples.size();
+		}
+		private static double standardDeviation(List<Double> samples) {
+			if(samples.size() < 2) {
+				return 0;
+			}
+			double mean = mean(samples);
+			double sumOfSquares = 0;
+			for(double sample: samples) {
+				sumOfSquares += (sample - mean) * (sample - mean);
+			}
+			return Math.sqrt(sumOfSquares / (samples.size() - 1));
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import asmCodeGenerator.ASMCodeGenerator;
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import inputHandler.CharCursor;
+import inputHandler.LocatedCharStream;
+import inputHandler.SourceText;
+import inputHandler.StringSource;
+import lexicalAnalyzer.LexicalAnalyzer;
+import lexicalAnalyzer.Scanner;
+import lexicalAnalyzer.TableDrivenScanner;
+import lexicalAnalyzer.TokenListScanner;
+import optimizer.ConstantFolder;
+import optimizer.DeadCodeEliminator;
+import optimizer.EscapeAnalyzer;
+import parseTree.ParseNode;
+import parser.Parser;
+import semanticAnalyzer.SemanticAnalyzer;
+
+/** The benchmarks for each phase of the compiler.  Each phase's input is made, untimed, by
+ *  running the phases before it; each source file is read into memory before timing starts.
+ */
+public class PhaseBenchmarks {
+	public static List<Benchmark<?>> all() {
+		List<Benchmark<?>> result = new ArrayList<Benchmark<?>>();
+		result.add(new CharacterStreamBenchmark());
+		result.add(new CharCursorBenchmark());
+		result.add(new ScannerBenchmark());
+		result.add(new TableDrivenScannerBenchmark());
+		result.add(new ParserBenchmark());
+		result.add(new SemanticAnalyzerBenchmark());
+		result.add(new CodeGeneratorBenchmark());
+		result.add(new CodeToStringBenchmark());
+		return result;
+	}
+
+	// the phases, for preparing the input of a later phase.
+	private static Scanner scannerFor(SourceText source) {
+		return new LexicalAnalyzer(CharCursor.make(source));
+	}
+	private static ParseNode parse(String filename) {
+		return Parser.parse(scannerFor(StringSource.fromFilename(filename)));
+	}
+	private static ParseNode analyze(String filename) {
+		return SemanticAnalyzer.analyze(parse(filename));
+	}
+	// the tree the code generator is given.
+	private static ParseNode simplify(ParseNode decoratedTree) {
+		return EscapeAnalyzer.analyze(DeadCodeEliminator.eliminate(ConstantFolder.fold(decoratedTree)));
+	}
+	private static ASMCodeFragment generate(String filename) {
+		return ASMCodeGenerator.generate(simplify(analyze(filename)));
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// characters
+
+	private static class CharacterStreamBenchmark extends Benchmark<SourceText> {
+		CharacterStreamBenchmark() {
+			super("LocatedCharStream", "chars");
+		}
+		public SourceText prepare(String filename) {
+			return StringSource.fromFilename(filename);
+		}
+		public long run(SourceText source) {
+			long count = 0;
+			LocatedCharStream stream = new LocatedCharStream(source);
+			while(stream.hasNext()) {
+				BenchmarkRunner.consume(stream.next());
+				count++;
+			}
+			return count;
+		}
+	}
+	private static class CharCursorBenchmark extends Benchmark<SourceText> {
+		CharCursorBenchmark() {
+			super("CharCursor", "chars");
+		}
+		public SourceText prepare(String filename) {
+			return StringSource.fromFilename(filename);
+		}
+		public long run(SourceText source) {
+			long count = 0;
+			long checksum = 0;
+			CharCursor cursor = CharCursor.make(source);
+			while(cursor.hasNext()) {
+				checksum += cursor.next();
+				count++;
+			}
+			BenchmarkRunner.consume(checksum);
+			return count;
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// scanning
+
+	private static class ScannerBenchmark extends Benchmark<SourceText> {
+		ScannerBenchmark() {
+			super("LexicalAnalyzer", "tokens");
+		}
+		public SourceText prepare(String filename) {
+			return StringSource.fromFilename(filename);
+		}
+		public long run(SourceText source) {
+			return TokenListScanner.scanAll(scannerFor(source)).numTokens();
+		}
+	}
+	private static class TableDrivenScannerBenchmark extends Benchmark<SourceText> {
+		TableDrivenScannerBenchmark() {
+			super("TableDrivenScanner", "tokens");
+		}
+		public SourceText prepare(String filename) {
+			return StringSource.fromFilename(filename);
+		}
+		public long run(SourceText source) {
+			return TokenListScanner.scanAll(new TableDrivenScanner(CharCursor.make(source))).numTokens();
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// parsing and semantic analysis.  Node counts are of the resulting tree.
+
+	private static class ParserBenchmark extends Benchmark<TokenListScanner> {
+		ParserBenchmark() {
+			super("Parser.parse", "nodes");
+		}
+		public TokenListScanner prepare(String filename) {
+			return TokenListScanner.scanAll(scannerFor(StringSource.fromFilename(filename)));
+		}
+		public long run(TokenListScanner tokens) {
+			return countNodes(Parser.parse(tokens));
+		}
+	}
+	private static class SemanticAnalyzerBenchmark extends Benchmark<ParseNode> {
+		SemanticAnalyzerBenchmark() {
+			super("SemanticAnalyzer.analyze", "nodes");
+		}
+		public ParseNode prepare(String filename) {
+			return parse(filename);
+		}
+		public long run(ParseNode tree) {
+			return countNodes(SemanticAnalyzer.analyze(tree));
+		}
+	}
+	private static long countNodes(ParseNode node) {
+		long result = 1;
+		for(ParseNode child: node.getChildren()) {
+			result += countNodes(child);
+		}
+		return result;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// code generation and emission
+
+	private static class CodeGeneratorBenchmark extends Benchmark<ParseNode> {
+		CodeGeneratorBenchmark() {
+			super("ASMCodeGenerator", "instructions");
+		}
+		public ParseNode prepare(String filename) {
+			return simplify(analyze(filename));
+		}
+		public long run(ParseNode decoratedTree) {
+			return ASMCodeGenerator.generate(decoratedTree).instructionCount();
+		}
+	}
+	private static class CodeToStringBenchmark extends Benchmark<ASMCodeFragment> {
+		CodeToStringBenchmark() {
+			super("ASMCodeFragment.toString", "chars");
+		}
+		public ASMCodeFragment prepare(String filename) {
+			return generate(filename);
+		}
+		public long run(ASMCodeFragment code) {
+			return code.toString().length();
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Random;
+
+/** Generates valid Pika programs of a chosen size, for measuring how the compiler scales.
+ *  <p>
+ *  A generated program has numFunctions functions <int a> -> int, each with blocks nested
+ *  nestingDepth deep (if/else, while, for and bare blocks, each declaring its own variables),
+ *  lambdas, and uses of map, reduce, fold and zip.  Function k calls function k/2, so calls
+ *  go O(log numFunctions) deep.  The exec block populates an array of arrayLength ints, and a
+ *  string of stringLength characters, and runs them through the higher-order operators; only
+ *  a sample of SAMPLE_LENGTH ints is mapped through a function, since each call allocates
+ *  records that are never freed.  Every loop is bounded, and the programs of scales 1 to 16
+ *  run to completion in the emulator's default memory.
+ *  <p>
+ *  The same parameters and seed always give the same program.
+ */
+public class ProgramGenerator {
+	private static final String INDENT = "\t";
+	private static final int BASE_FUNCTIONS = 100;
+	private static final int BASE_NESTING_DEPTH = 8;
+	private static final int MAX_NESTING_DEPTH = 128;
+	private static final int BASE_ARRAY_LENGTH = 1000;
+	private static final int BASE_STRING_LENGTH = 1000;
+	private static final int SAMPLE_LENGTH = 16;		// the elements mapped through a function.
+
+	private final int numFunctions;
+	private final int nestingDepth;
+	private final int arrayLength;
+	private final int stringLength;
+	private final long seed;
+
+	private Random random;
+	private StringBuilder code;
+	private int indentation;
+
+	public ProgramGenerator(int numFunctions, int nestingDepth, int arrayLength, int stringLength, long seed) {
+		this.numFunctions = Math.max(1, numFunctions);
+		this.nestingDepth = Math.max(0, nestingDepth);
+		this.arrayLength = Math.max(1, arrayLength);
+		this.stringLength = Math.max(0, stringLength);
+		this.seed = seed;
+	}
+	/** a program about scale times the size of the scale-1 program: 100 functions nested 8
+	 *  deep, and a 1000-element array and 1000-character string.  Nesting grows more slowly.
+	 */
+	public static ProgramGenerator scaled(int scale) {
+		int factor = Math.max(1, scale);
+		int depth = Math.min(MAX_NESTING_DEPTH, BASE_NESTING_DEPTH * (32 - Integer.numberOfLeadingZeros(factor)));
+		return new ProgramGenerator(BASE_FUNCTIONS * factor, depth,
+				BASE_ARRAY_LENGTH * factor, BASE_STRING_LENGTH * factor, factor);
+	}
+
+	public int getNumFunctions() {
+		return numFunctions;
+	}
+	public int getNestingDepth() {
+		return nestingDepth;
+	}
+	public int getArrayLength() {
+		return arrayLength;
+	}
+	public int getStringLength() {
+		return stringLength;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// generation
+
+	public String generate() {
+		random = new Random(seed);
+		code = new StringBuilder();
+		indentation = 0;
+
+		line("# generated: " + numFunctions + " functions, nesting depth " + nestingDepth +
+				", array length " + arrayLength + ", string length " + stringLength + ", seed " + seed);
+		line("var total := 0.");
+		line("");
+		helperFunctions();
+		for(int k = 0; k < numFunctions; k++) {
+			function(k);
+		}
+		exec();
+		return code.toString();
+	}
+	public void writeTo(String filename) throws FileNotFoundException {
+		File file = new File(filename);
+		if(file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		try(PrintStream out = new PrintStream(file)) {
+			out.print(generate());
+		}
+	}
+
+	private void helperFunctions() {
+		open("func isEven<int x> -> bool {");
+		line("return (x/2)*2 == x.");
+		close("}");
+		open("func plus<int x, int y> -> int {");
+		line("return x + y.");
+		close("}");
+		open("func maxOf<int x, int y> -> int {");
+		open("if(x > y) {");
+		line("return x.");
+		close("}");
+		line("return y.");
+		close("}");
+		line("");
+	}
+
+	// func fk<int a> -> int, with a body nested nestingDepth deep.
+	private void function(int k) {
+		open("func " + functionName(k) + "<int a> -> int {");
+		line("var r := a + " + smallConstant() + ".");
+		line("const small := [" + intList(4 + random.nextInt(5)) + "].");
+		line("var lam := <int x, int y> -> int { return x " + arithmeticOperator() + " y. }.");
+		nestedStatements(0, nestingDepth);
+		line("r := r + (small fold lam) + length (small reduce isEven).");
+		line("r := r + (zip small, small, plus)[0].");
+		line("const letters := small fold [\"" + lowercase(4) + "\"] <string s, int x> -> string { return s + [x + 97|char]. }.");
+		line("r := r + length letters.");
+		if(k > 0) {
+			line("r := r + " + functionName(k / 2) + "(a - 1).");
+		}
+		line("total := total + 1.");
+		line("return r.");
+		close("}");
+		line("");
+	}
+
+	// one level of nesting; level names the variables declared at that level.
+	private void nestedStatements(int level, int depth) {
+		if(level >= depth) {
+			line("r := r + " + smallConstant() + ".");
+			return;
+		}
+		String v = "v" + level;
+		line("var " + v + " := r " + arithmeticOperator() + " " + smallConstant() + ".");
+
+		switch(random.nextInt(4)) {
+		case 0:
+			open("if(" + v + " > " + smallConstant() + ") {");
+			nestedStatements(level + 1, depth);
+			reopen("} else {");
+			line("r := r - " + v + ".");
+			close("}");
+			break;
+		case 1:
+			String counter = "k" + level;
+			line("var " + counter + " := 0.");
+			open("while(" + counter + " < 2) {");
+			nestedStatements(level + 1, depth);
+			line(counter + " := " + counter + " + 1.");
+			close("}");
+			break;
+		case 2:
+			String element = "e" + level;
+			open("for elem " + element + " of small {");
+			line(v + " := " + v + " + " + element + ".");
+			close("}");
+			open("{");
+			nestedStatements(level + 1, depth);
+			close("}");
+			break;
+		default:
+			open("{");
+			line("const s" + level + " := \"" + lowercase(8 + random.nextInt(24)) + "\".");
+			line(v + " := " + v + " + length s" + level + ".");
+			nestedStatements(level + 1, depth);
+			close("}");
+			break;
+		}
+		line("r := r + " + v + ".");
+	}
+
+	private void exec() {
+		open("exec {");
+		line("const data := [");
+		indentation++;
+		for(int start = 0; start < arrayLength; start += 20) {
+			int end = Math.min(arrayLength, start + 20);
+			line(intList(end - start) + (end < arrayLength ? "," : ""));
+		}
+		indentation--;
+		line("].");
+		line("const text := \"" + lowercase(stringLength) + "\".");
+
+		line("var sum := 0.");
+		open("for elem d of data {");
+		line("sum := sum + d.");
+		close("}");
+		for(int k = 0; k < numFunctions; k += Math.max(1, numFunctions / 16)) {
+			line("sum := sum + " + functionName(k) + "(" + random.nextInt(100) + ").");
+		}
+
+		// each call allocates arrays and strings that are never freed, so only a few elements go
+		// through a function.
+		line("const sample := [" + intList(SAMPLE_LENGTH) + "].");
+		String mapped = functionName(numFunctions - 1);
+		line("const mapped := sample map " + mapped + ".");
+		line("const evens := data reduce isEven.");
+		line("const pairs := zip sample, mapped, plus.");
+		line("const largest := pairs fold maxOf.");
+		open("const countChars := <int n, char c> -> int {");
+		line("return n + 1.");
+		close("}.");
+		line("var chars := 0.");
+		open("for elem c of text {");
+		line("chars := countChars(chars, c).");
+		close("}");
+
+		line("print sum, _n_.");
+		line("print length mapped, _t_, length evens, _t_, largest, _n_.");
+		line("print chars, _t_, length text, _n_.");
+		line("print total, _n_.");
+		close("}");
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// pieces of code
+
+	private static String functionName(int k) {
+		return "f" + k;
+	}
+	private String smallConstant() {
+		return Integer.toString(random.nextInt(10));
+	}
+	private String arithmeticOperator() {
+		return random.nextBoolean() ? "+" : "-";
+	}
+	private String intList(int length) {
+		StringBuilder result = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			result.append(i == 0 ? "" : ", ").append(random.nextInt(1000));
+		}
+		return result.toString();
+	}
+	private String lowercase(int length) {
+		StringBuilder result = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			result.append((char)('a' + random.nextInt(26)));
+		}
+		return result.toString();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// lines and indentation
+
+	private void line(String text) {
+		for(int i = 0; i < indentation; i++) {
+			code.append(INDENT);
+		}
+		code.append(text).append('\n');
+	}
+	private void open(String text) {
+		line(text);
+		indentation++;
+	}
+	private void reopen(String text) {
+		indentation--;
+		open(text);
+	}
+	private void close(String text) {
+		indentation--;
+		line(text);
+	}
+}
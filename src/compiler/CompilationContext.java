@@ -0,0 +1,218 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import asmCodeGenerator.codeStorage.ASMCodeWriter;
+import asmCodeGenerator.codeStorage.ASMStringTable;
+import asmCodeGenerator.runtime.MemoryManager.Allocator;
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import lexicalAnalyzer.IdentifierInterner;
+import lexicalAnalyzer.LexicalAnalyzer.InputMode;
+import lexicalAnalyzer.LexicalAnalyzer.ScannerKind;
+import semanticAnalyzer.types.PrimitiveType;
+import semanticAnalyzer.types.Type;
+import semanticAnalyzer.types.TypeVariable;
+
+/** The mutable state of one compilation: error count and messages, the table of
+ *  source files (for packed source positions), the identifier ids, the asm string table,
+ *  the label and static-lexeme counters, the current bindings of the (shared) type
+ *  variables in the operator signatures, how the source is read and scanned, and the
+ *  code-generation options (allocator, reclamation, optimization and asm format) this
+ *  compilation was asked for.
+ *  <p>
+ *  A context is bound to the thread compiling with it, from enter() until the
+ *  previous context is re-entered.  Code deep in the pipeline (Labeller, Scope,
+ *  PikaLogger, TypeVariable) finds it with current(), so that independent compilations
+ *  may run on different threads at once.  A thread that never enters a context gets
+ *  a default one of its own, so single-file applications and tests need not bother.
+ */
+public class CompilationContext {
+	private static final ThreadLocal<CompilationContext> current =
+			ThreadLocal.withInitial(() -> new CompilationContext("", true));
+
+	private final String filename;
+	private final boolean echoMessages;
+	private final List<String> messages = new ArrayList<String>();
+	private int numMessages = 0;
+	private final List<String> files = new ArrayList<String>();
+	private final Map<String, Integer> fileIds = new HashMap<String, Integer>();
+	private final IdentifierInterner identifiers = new IdentifierInterner();
+	private final ASMStringTable asmStrings = new ASMStringTable();
+	private CompilationStatistics statistics = CompilationStatistics.nullInstance();
+	private int labelSequenceNumber = 0;
+	private int staticLexemeCount = 0;
+	private final Map<TypeVariable, Type> typeVariableBindings = new IdentityHashMap<TypeVariable, Type>();
+	private InputMode inputMode = InputMode.LINE_BASED;
+	private ScannerKind scannerKind = "table".equals(System.getProperty("pika.scanner")) ?
+			ScannerKind.TABLE_DRIVEN : ScannerKind.HAND_WRITTEN;
+	private Allocator allocator = Allocator.FIRST_FIT;
+	private Reclamation reclamation = Reclamation.MANUAL;
+	private boolean optimize = false;
+	private ASMCodeWriter.Format asmFormat = ASMCodeWriter.Format.PRETTY;
+
+
+	//////////////////////////////////////////////////////////////////////
+	// factories
+
+	/** a context whose messages are also logged immediately (to the console). */
+	public static CompilationContext make(String filename) {
+		return new CompilationContext(filename, true);
+	}
+	/** a context whose messages are only collected; see getMessages(). */
+	public static CompilationContext makeQuiet(String filename) {
+		return new CompilationContext(filename, false);
+	}
+	private CompilationContext(String filename, boolean echoMessages) {
+		this.filename = filename;
+		this.echoMessages = echoMessages;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// binding to the current thread
+
+	public static CompilationContext current() {
+		return current.get();
+	}
+	/** makes this the current thread's context.
+	 * @return the context that was current, to be re-entered when this compilation is done.
+	 */
+	public CompilationContext enter() {
+		CompilationContext previous = current.get();
+		current.set(this);
+		return previous;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// error state
+
+	public String getFilename() {
+		return filename;
+	}
+	public boolean echoesMessages() {
+		return echoMessages;
+	}
+	public void recordMessage(String message) {
+		messages.add(message);
+		numMessages++;
+	}
+	public int getNumMessages() {
+		return numMessages;
+	}
+	public boolean hasErrors() {
+		return numMessages != 0;
+	}
+	public List<String> getMessages() {
+		return Collections.unmodifiableList(messages);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// file table: see inputHandler.SourcePosition
+
+	public int fileId(String filename) {
+		Integer id = fileIds.get(filename);
+		if(id == null) {
+			id = files.size();
+			files.add(filename);
+			fileIds.put(filename, id);
+		}
+		return id;
+	}
+	public String filename(int fileId) {
+		return files.get(fileId);
+	}
+
+
+	public IdentifierInterner identifiers() {
+		return identifiers;
+	}
+	public ASMStringTable asmStrings() {
+		return asmStrings;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// per-phase statistics: collected only if asked for before compiling.
+
+	public void collectStatistics() {
+		statistics = new CompilationStatistics(filename);
+	}
+	public CompilationStatistics statistics() {
+		return statistics;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// counters
+
+	public int nextLabelSequenceNumber() {
+		return ++labelSequenceNumber;
+	}
+	public int nextStaticLexemeNumber() {
+		return staticLexemeCount++;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// type variables
+
+	public Type typeVariableBinding(TypeVariable variable) {
+		return typeVariableBindings.getOrDefault(variable, PrimitiveType.NO_TYPE);
+	}
+	public void bindTypeVariable(TypeVariable variable, Type type) {
+		typeVariableBindings.put(variable, type);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// scanning options: see LexicalAnalyzer.make.
+
+	public InputMode inputMode() {
+		return inputMode;
+	}
+	public void setInputMode(InputMode inputMode) {
+		this.inputMode = inputMode;
+	}
+	public ScannerKind scannerKind() {
+		return scannerKind;
+	}
+	public void setScannerKind(ScannerKind scannerKind) {
+		this.scannerKind = scannerKind;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// code-generation options: set before compiling; the defaults are those of a plain compile.
+
+	public Allocator allocator() {
+		return allocator;
+	}
+	public void setAllocator(Allocator allocator) {
+		this.allocator = allocator;
+	}
+	public Reclamation reclamation() {
+		return reclamation;
+	}
+	public void setReclamation(Reclamation reclamation) {
+		this.reclamation = reclamation;
+	}
+	public boolean optimizes() {
+		return optimize;
+	}
+	public void setOptimize(boolean optimize) {
+		this.optimize = optimize;
+	}
+	public ASMCodeWriter.Format asmFormat() {
+		return asmFormat;
+	}
+	public void setAsmFormat(ASMCodeWriter.Format asmFormat) {
+		this.asmFormat = asmFormat;
+	}
+}
@@ -0,0 +1,217 @@
+package compiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/** Per-phase measurements of one compilation: wall time, thread CPU time, bytes allocated
+ *  by the compiling thread, and a size count for the phase (tokens scanned, parse-tree
+ *  nodes, symbols bound, constant expressions folded, statements and funcs removed,
+ *  temporaries found, instructions generated or left by the optimizers, characters emitted).
+ *  <p>
+ *  A compiler brackets each phase with begin(phase) and end(phase, count).  Statistics are
+ *  kept only for a CompilationContext that was asked to collect them; every other context
+ *  has the null instance, which measures nothing and never evaluates the counts.
+ *  toJSON() gives the measurements in a machine-readable form, for tracking the compiler's
+ *  performance from one version to the next.
+ */
+public class CompilationStatistics {
+	public enum Phase {
+		SCAN("scan", "tokens"),
+		PARSE("parse", "nodes"),
+		SEMANTIC_ANALYSIS("semantic", "symbols"),
+		CONSTANT_FOLDING("fold", "folds"),
+		DEAD_CODE_ELIMINATION("deadcode", "removed"),
+		ESCAPE_ANALYSIS("escape", "temporaries"),
+		CODE_GENERATION("codegen", "instructions"),
+		UNREACHABLE_CODE_REMOVAL("unreachable", "instructions"),
+		OPTIMIZATION("optimize", "instructions"),
+		EMISSION("emit", "characters");
+
+		private final String jsonName;
+		private final String countName;
+		private Phase(String jsonName, String countName) {
+			this.jsonName = jsonName;
+			this.countName = countName;
+		}
+		public String getJSONName() {
+			return jsonName;
+		}
+		public String getCountName() {
+			return countName;
+		}
+	}
+
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private static final long NOT_MEASURED = -1;
+
+	private final String filename;
+	private final List<Measurement> measurements = new ArrayList<Measurement>();
+	private Phase currentPhase;
+	private long startWall;
+	private long startCPU;
+	private long startAllocated;
+
+
+	public CompilationStatistics(String filename) {
+		this.filename = filename;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// measuring
+
+	public boolean isCollecting() {
+		return true;
+	}
+	public void begin(Phase phase) {
+		assert currentPhase == null : "phase " + currentPhase + " has not ended";
+		currentPhase = phase;
+		startAllocated = allocatedBytes();
+		startCPU = cpuTime();
+		startWall = System.nanoTime();
+	}
+	/** ends the current phase.
+	 * @param phase the phase begun last.
+	 * @param count computes the phase's count, after the phase's time and allocation are taken.
+	 */
+	public void end(Phase phase, LongSupplier count) {
+		long wall = System.nanoTime() - startWall;
+		long cpu = difference(cpuTime(), startCPU);
+		long allocated = difference(allocatedBytes(), startAllocated);
+		assert phase == currentPhase : "ending phase " + phase + " during " + currentPhase;
+		measurements.add(new Measurement(phase, wall, cpu, allocated, count.getAsLong()));
+		currentPhase = null;
+	}
+	public List<Measurement> getMeasurements() {
+		return measurements;
+	}
+
+	private static long cpuTime() {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : NOT_MEASURED;
+	}
+	private static long allocatedBytes() {
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean)threads;
+			if(sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+				return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return NOT_MEASURED;
+	}
+	private static long difference(long end, long start) {
+		return (end == NOT_MEASURED || start == NOT_MEASURED) ? NOT_MEASURED : end - start;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// one phase's numbers.  Times are in nanoseconds; -1 means the JVM could not measure it.
+
+	public static class Measurement {
+		private final Phase phase;
+		private final long wallNanos;
+		private final long cpuNanos;
+		private final long allocatedBytes;
+		private final long count;
+
+		Measurement(Phase phase, long wallNanos, long cpuNanos, long allocatedBytes, long count) {
+			this.phase = phase;
+			this.wallNanos = wallNanos;
+			this.cpuNanos = cpuNanos;
+			this.allocatedBytes = allocatedBytes;
+			this.count = count;
+		}
+		public Phase getPhase() {
+			return phase;
+		}
+		public long getWallNanos() {
+			return wallNanos;
+		}
+		public long getCPUNanos() {
+			return cpuNanos;
+		}
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+		public long getCount() {
+			return count;
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// JSON
+
+	/** e.g. {"file": "a.pika", "phases": [{"phase": "scan", "wallNanos": 1234, ..., "tokens": 56}, ...], "total": {...}} */
+	public String toJSON() {
+		StringBuilder result = new StringBuilder();
+		result.append("{\"file\": ").append(quoted(filename)).append(", \"phases\": [");
+
+		long wall = 0, cpu = 0, allocated = 0;
+		for(int i = 0; i < measurements.size(); i++) {
+			Measurement measurement = measurements.get(i);
+			result.append(i == 0 ? "" : ", ");
+			result.append("{\"phase\": \"").append(measurement.phase.getJSONName()).append("\", ");
+			appendTimes(result, measurement.wallNanos, measurement.cpuNanos, measurement.allocatedBytes);
+			result.append(", \"").append(measurement.phase.getCountName()).append("\": ").append(measurement.count);
+			result.append("}");
+
+			wall += measurement.wallNanos;
+			cpu = sumOrNotMeasured(cpu, measurement.cpuNanos);
+			allocated = sumOrNotMeasured(allocated, measurement.allocatedBytes);
+		}
+		result.append("], \"total\": {");
+		appendTimes(result, wall, cpu, allocated);
+		result.append("}}");
+		return result.toString();
+	}
+	private static long sumOrNotMeasured(long sum, long value) {
+		return (sum == NOT_MEASURED || value == NOT_MEASURED) ? NOT_MEASURED : sum + value;
+	}
+	private static void appendTimes(StringBuilder result, long wall, long cpu, long allocated) {
+		result.append("\"wallNanos\": ").append(wall);
+		result.append(", \"cpuNanos\": ").append(cpu);
+		result.append(", \"allocatedBytes\": ").append(allocated);
+	}
+	private static String quoted(String string) {
+		StringBuilder result = new StringBuilder("\"");
+		for(char c: string.toCharArray()) {
+			if(c == '"' || c == '\\') {
+				result.append('\\').append(c);
+			}
+			else if(c < ' ') {
+				result.append(String.format("\\u%04x", (int)c));
+			}
+			else {
+				result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// Null object: for compilations that are not measured.
+
+	public static CompilationStatistics nullInstance() {
+		return NullStatistics.instance;
+	}
+	private static class NullStatistics extends CompilationStatistics {
+		private static final NullStatistics instance = new NullStatistics();
+		private NullStatistics() {
+			super("");
+		}
+		@Override
+		public boolean isCollecting() {
+			return false;
+		}
+		@Override
+		public void begin(Phase phase) {
+		}
+		@Override
+		public void end(Phase phase, LongSupplier count) {
+		}
+	}
+}
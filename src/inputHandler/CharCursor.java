@@ -0,0 +1,94 @@
+package inputHandler;
+
+import compiler.CompilationContext;
+
+/** A cursor over a SourceText, for scanners that want characters without objects.
+ *  <p>
+ *  The cursor is just an offset into the text.  next() and peek() return primitive chars
+ *  (END_OF_INPUT once the text is exhausted), and pushback is done by remembering
+ *  a position with mark() and returning to it with reset(...).  Tokens get packed
+ *  SourcePositions; a LocatedChar (for error messages) is made only when asked for.
+ */
+public class CharCursor {
+	public static final char END_OF_INPUT = LocatedCharStream.NULL_CHAR;
+
+	private final SourceText source;
+	private final int length;
+	private final int fileId;
+	private int position;
+
+	public CharCursor(SourceText source) {
+		this.source = source;
+		this.length = source.length();
+		this.fileId = CompilationContext.current().fileId(source.fileName());
+		this.position = 0;
+	}
+	public static CharCursor make(SourceText source) {
+		return new CharCursor(source);
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// reading
+
+	/** the offset of the next character to be read. */
+	public int position() {
+		return position;
+	}
+	public boolean hasNext() {
+		return position < length;
+	}
+	public char peek() {
+		if(!hasNext()) {
+			return END_OF_INPUT;
+		}
+		return source.charAt(position);
+	}
+	public char next() {
+		if(!hasNext()) {
+			return END_OF_INPUT;
+		}
+		char result = source.charAt(position);
+		position = source.nextOffset(position);
+		return result;
+	}
+
+
+	/** the characters from offset start up to (not including) offset end: a lexeme. */
+	public String text(int start, int end) {
+		return source.text(start, end);
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// pushback
+
+	public int mark() {
+		return position;
+	}
+	public void reset(int mark) {
+		position = mark;
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// locations
+
+	public boolean isEndOfInput(int offset) {
+		return offset >= length;
+	}
+	/** the packed SourcePosition of the character at offset. */
+	public long positionOf(int offset) {
+		if(isEndOfInput(offset)) {
+			return SourcePosition.END_OF_INPUT;
+		}
+		return SourcePosition.make(fileId, source.lineNumber(offset), source.position(offset));
+	}
+	/** the character at offset, with its location: for error messages. */
+	public LocatedChar locatedCharAt(int offset) {
+		if(isEndOfInput(offset)) {
+			return LocatedCharStream.FLAG_END_OF_INPUT;
+		}
+		return new LocatedChar(source.charAt(offset), source.locationOf(offset));
+	}
+}
@@ -17,6 +17,9 @@ public class LocatedCharStream implements Iterator<LocatedChar> {
 	private LocatedChar next;
 	private InputHandler input;
 	
+	private SourceText source;			// non-null if reading a whole SourceText
+	private int offset;
+	
 	
 	public LocatedCharStream(InputHandler input) {
 		super();
@@ -26,11 +29,29 @@ public class LocatedCharStream implements Iterator<LocatedChar> {
 		this.line = "";
 		preloadChar();
 	}
+	public LocatedCharStream(SourceText source) {
+		super();
+		this.source = source;
+		this.offset = 0;
+		preloadChar();
+	}
 	
 	private void preloadChar() {
+		if(source != null) {
+			next = nextSourceTextChar();
+			return;
+		}
 		ensureLineHasACharacter();
 		next = nextCharInLine();
 	}	
+	private LocatedChar nextSourceTextChar() {
+		if(offset >= source.length()) {
+			return FLAG_END_OF_INPUT;
+		}
+		LocatedChar result = new LocatedChar(source.charAt(offset), source.locationOf(offset));
+		offset = source.nextOffset(offset);
+		return result;
+	}
 	private LocatedChar nextCharInLine() {
 		if(endOfInput()) {
 			return FLAG_END_OF_INPUT;
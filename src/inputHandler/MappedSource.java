@@ -0,0 +1,81 @@
+package inputHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** A source file memory-mapped (read-only) and read in place, one byte per character.
+ *  Use the factory <code>fromFilename(...)</code> to construct.
+ *  <p>
+ *  Line terminators ("\n", "\r\n" or "\r") all read as a single '\n', and a '\n' is
+ *  supplied after the last line if the file does not end with one.  No per-line Strings
+ *  are made.
+ */
+public class MappedSource extends SourceText {
+	private final String filename;
+	private final ByteBuffer bytes;
+	private final int size;					// bytes in the file
+	private final int length;				// characters, including a supplied final '\n'
+
+
+	private MappedSource(String filename, ByteBuffer bytes) {
+		this.filename = filename;
+		this.bytes = bytes;
+		this.size = bytes.limit();
+		this.length = size + (needsFinalNewline() ? 1 : 0);
+	}
+	private boolean needsFinalNewline() {
+		if(size == 0) {
+			return false;
+		}
+		byte last = bytes.get(size - 1);
+		return last != '\n' && last != '\r';
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// factories
+
+	public static MappedSource fromFilename(String filename) {
+		try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("file too large to map: " + filename);
+			}
+			return new MappedSource(filename, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		catch(IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// characters
+
+	@Override
+	public String fileName() {
+		return filename;
+	}
+	@Override
+	public int length() {
+		return length;
+	}
+	@Override
+	public char charAt(int offset) {
+		if(offset == size) {
+			return '\n';
+		}
+		char c = (char)(bytes.get(offset) & 0xff);
+		return (c == '\r') ? '\n' : c;
+	}
+	// "\r\n" is one character.
+	@Override
+	public int nextOffset(int offset) {
+		if(offset + 1 < size && bytes.get(offset) == '\r' && bytes.get(offset + 1) == '\n') {
+			return offset + 2;
+		}
+		return offset + 1;
+	}
+}
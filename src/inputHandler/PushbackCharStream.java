@@ -1,23 +1,28 @@
 package inputHandler;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 public class PushbackCharStream extends LocatedCharStream {
-	private Stack<LocatedChar> pushedBack;
+	private Deque<LocatedChar> pushedBack;
 	
 	public PushbackCharStream(InputHandler handler) {
 		super(handler);
-		this.pushedBack = new Stack<LocatedChar>();
+		this.pushedBack = new ArrayDeque<LocatedChar>();
+	}
+	public PushbackCharStream(SourceText source) {
+		super(source);
+		this.pushedBack = new ArrayDeque<LocatedChar>();
 	}
 
 	@Override
 	public boolean hasNext() {
-		return !pushedBack.empty() || super.hasNext();
+		return !pushedBack.isEmpty() || super.hasNext();
 	}
 
 	@Override
 	public LocatedChar next() {
-		if(pushedBack.empty()) {
+		if(pushedBack.isEmpty()) {
 			return super.next();
 		}
 		else {
@@ -45,5 +50,8 @@ public class PushbackCharStream extends LocatedCharStream {
 	public static PushbackCharStream make(InputHandler handler) {
 		return new PushbackCharStream(handler);
 	}
+	public static PushbackCharStream make(SourceText source) {
+		return new PushbackCharStream(source);
+	}
 
 }
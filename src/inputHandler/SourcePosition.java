@@ -0,0 +1,79 @@
+package inputHandler;
+
+import compiler.CompilationContext;
+
+/** Static helpers for source positions packed into a long, in place of TextLocation objects.
+ *  <p>
+ *  A position packs a file id (an index into the file table of the current
+ *  CompilationContext), a line number and a character position:
+ *  <pre>
+ *      [ file id : 16 bits | line : 28 bits | position : 20 bits ]
+ *  </pre>
+ *  Lines and positions too big for their fields are clamped.  The TextLocation for a
+ *  position is made only when asked for (for printing diagnostics and trees).
+ */
+public final class SourcePosition {
+	public static final long NO_POSITION = -1L;				// TextLocation.nullInstance()
+	public static final long END_OF_INPUT = -2L;			// location of LocatedCharStream.FLAG_END_OF_INPUT
+
+	private static final int FILE_BITS = 16;
+	private static final int LINE_BITS = 28;
+	private static final int POSITION_BITS = 20;
+	private static final long FILE_MASK = (1L << FILE_BITS) - 1;
+	private static final long LINE_MASK = (1L << LINE_BITS) - 1;
+	private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+
+	private SourcePosition() {}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// packing and unpacking
+
+	public static long make(int fileId, int lineNumber, int position) {
+		assert fileId >= 0 && fileId <= FILE_MASK : "too many files in one compilation";
+		return ((long)fileId << (LINE_BITS + POSITION_BITS)) |
+			   (clamp(lineNumber, LINE_MASK) << POSITION_BITS) |
+			   clamp(position, POSITION_MASK);
+	}
+	private static long clamp(int value, long mask) {
+		return Math.min(Math.max(value, 0), mask);
+	}
+
+	public static boolean isSpecial(long position) {
+		return position < 0;
+	}
+	public static int fileId(long position) {
+		return (int)((position >>> (LINE_BITS + POSITION_BITS)) & FILE_MASK);
+	}
+	public static int lineNumber(long position) {
+		return (int)((position >>> POSITION_BITS) & LINE_MASK);
+	}
+	public static int position(long position) {
+		return (int)(position & POSITION_MASK);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// conversion to and from TextLocation
+
+	public static TextLocation toTextLocation(long position) {
+		if(position == NO_POSITION) {
+			return TextLocation.nullInstance();
+		}
+		if(position == END_OF_INPUT) {
+			return LocatedCharStream.FLAG_END_OF_INPUT.getLocation();
+		}
+		String filename = CompilationContext.current().filename(fileId(position));
+		return new TextLocation(filename, lineNumber(position), position(position));
+	}
+	public static long fromTextLocation(TextLocation location) {
+		if(location == TextLocation.nullInstance()) {
+			return NO_POSITION;
+		}
+		if(location == LocatedCharStream.FLAG_END_OF_INPUT.getLocation()) {
+			return END_OF_INPUT;
+		}
+		int fileId = CompilationContext.current().fileId(location.getFilename());
+		return make(fileId, location.getLineNumber(), location.getPosition());
+	}
+}
@@ -0,0 +1,98 @@
+package inputHandler;
+
+import java.util.Arrays;
+
+/** The whole text of a source file, addressed by character offset.
+ *  <p>
+ *  Line terminators read as a single '\n', and the text ends with a '\n' if it is not
+ *  empty, so a SourceText holds the same characters as an InputHandler with the default
+ *  terminator would give.
+ *  <p>
+ *  Line numbers and positions are computed only when asked for, from a table of
+ *  line-start offsets that is filled in on demand.
+ */
+public abstract class SourceText {
+	private static final int INITIAL_LINE_TABLE_SIZE = 256;
+
+	private int[] lineStarts = new int[INITIAL_LINE_TABLE_SIZE];
+	private int numLines = 1;				// lineStarts[0] == 0
+	private int scannedThrough = 0;			// the table is complete for offsets below this
+
+
+	public abstract String fileName();
+	/** the number of character offsets; valid offsets are 0..length()-1. */
+	public abstract int length();
+	/** the character at offset, with any line terminator read as '\n'. */
+	public abstract char charAt(int offset);
+	/** the offset of the character after the one at offset. */
+	public abstract int nextOffset(int offset);
+
+	/** the characters from offset start up to (not including) offset end. */
+	public String text(int start, int end) {
+		StringBuilder result = new StringBuilder(end - start);
+		for(int offset = start; offset < end; offset = nextOffset(offset)) {
+			result.append(charAt(offset));
+		}
+		return result.toString();
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// locations
+
+	/** the (one-based) line number of the character at offset. */
+	public int lineNumber(int offset) {
+		return lineIndex(offset) + 1;
+	}
+	/** the (zero-based) position within its line of the character at offset. */
+	public int position(int offset) {
+		return offset - lineStarts[lineIndex(offset)];
+	}
+	/** a TextLocation for offset, whose line and position are found only if asked for. */
+	public TextLocation locationOf(int offset) {
+		return new SourceTextLocation(this, offset);
+	}
+
+	private int lineIndex(int offset) {
+		ensureLineStartsThrough(offset);
+		int index = Arrays.binarySearch(lineStarts, 0, numLines, offset);
+		return (index >= 0) ? index : -index - 2;
+	}
+	private void ensureLineStartsThrough(int offset) {
+		int length = length();
+		while(scannedThrough <= offset && scannedThrough < length) {
+			int next = nextOffset(scannedThrough);
+			if(charAt(scannedThrough) == '\n' && next < length) {
+				addLineStart(next);
+			}
+			scannedThrough = next;
+		}
+	}
+	private void addLineStart(int offset) {
+		if(numLines == lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, 2 * numLines);
+		}
+		lineStarts[numLines++] = offset;
+	}
+
+
+	// a location that asks its source for its line and position when they are wanted.
+	private static class SourceTextLocation extends TextLocation {
+		private final SourceText source;
+		private final int offset;
+
+		SourceTextLocation(SourceText source, int offset) {
+			super(source.fileName(), -1, -1);
+			this.source = source;
+			this.offset = offset;
+		}
+		@Override
+		public int getLineNumber() {
+			return source.lineNumber(offset);
+		}
+		@Override
+		public int getPosition() {
+			return source.position(offset);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package inputHandler;
+
+/** A source file read (through an InputHandler) into a single String.
+ *  Use one of the factories <code>fromFilename(...)</code> or <code>fromInputHandler(...)</code>.
+ */
+public class StringSource extends SourceText {
+	private static final String TERMINATOR = "\n";
+
+	private final String filename;
+	private final String text;
+
+
+	private StringSource(String filename, String text) {
+		this.filename = filename;
+		this.text = text;
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// factories
+
+	public static StringSource fromInputHandler(InputHandler handler) {
+		StringBuilder text = new StringBuilder();
+		for(String line: handler) {
+			text.append(line);
+		}
+		return new StringSource(handler.fileName(), text.toString());
+	}
+	public static StringSource fromFilename(String filename) {
+		return fromInputHandler(InputHandler.fromFilename(filename, TERMINATOR));
+	}
+
+
+//////////////////////////////////////////////////////////////////////////////
+// characters
+
+	@Override
+	public String fileName() {
+		return filename;
+	}
+	@Override
+	public int length() {
+		return text.length();
+	}
+	@Override
+	public char charAt(int offset) {
+		return text.charAt(offset);
+	}
+	@Override
+	public int nextOffset(int offset) {
+		return offset + 1;
+	}
+	@Override
+	public String text(int start, int end) {
+		return text.substring(start, end);
+	}
+}
@@ -30,9 +30,9 @@ public class TextLocation {
 	}
 
 	private String rawString() {
-		return filename + 
-			   " line " + lineNumber + 
-			   ", character " + position;
+		return getFilename() + 
+			   " line " + getLineNumber() + 
+			   ", character " + getPosition();
 	}
 	
 	
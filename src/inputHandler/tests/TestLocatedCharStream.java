@@ -5,6 +5,9 @@ import static inputHandler.tests.FixtureDefinitions.*;
 import inputHandler.InputHandler;
 import inputHandler.LocatedChar;
 import inputHandler.LocatedCharStream;
+import inputHandler.SourceText;
+import inputHandler.MappedSource;
+import inputHandler.StringSource;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -21,6 +24,17 @@ public class TestLocatedCharStream extends FileFixturesTestCase {
 		assertEquals(expectedOutput, actualOutput);
 	}
 	
+	public void testMappedLocCharStream() throws Exception {
+		String actualOutput =	sourceTextLocCharStreamOutput(MappedSource.fromFilename(SIMPLE_FIXTURE_FILENAME));
+		String expectedOutput = getContents(SIMPLE_LCHAR_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+	public void testStringSourceLocCharStream() throws Exception {
+		String actualOutput =	sourceTextLocCharStreamOutput(StringSource.fromFilename(SIMPLE_FIXTURE_FILENAME));
+		String expectedOutput = getContents(SIMPLE_LCHAR_FILENAME);
+		assertEquals(expectedOutput, actualOutput);
+	}
+	
 	public String locCharStreamOutput(String filename) throws Exception {
 		InputHandler input = InputHandler.fromFilename(filename, "\n");
 		LocatedCharStream stream = new LocatedCharStream(input);
@@ -28,6 +42,12 @@ public class TestLocatedCharStream extends FileFixturesTestCase {
 		return outputFor(printCommand);
 	}
 	
+	public String sourceTextLocCharStreamOutput(SourceText source) throws Exception {
+		LocatedCharStream stream = new LocatedCharStream(source);
+		Command printCommand = new printLCStreamCommand(stream);
+		return outputFor(printCommand);
+	}
+	
 	private void printLocatedCharStream(LocatedCharStream stream, PrintStream out) {
 		while(stream.hasNext()) {
 			LocatedChar c = stream.next();
@@ -0,0 +1,34 @@
+package lexicalAnalyzer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Gives each distinct identifier lexeme of one compilation a dense int id (0, 1, 2, ...),
+ *  so that later phases can key their tables by int instead of by String.
+ *  <p>
+ *  There is one per CompilationContext.  IdentifierTokens get their ids as they are
+ *  scanned, and share the one canonical String for each lexeme.
+ */
+public class IdentifierInterner {
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> lexemes = new ArrayList<String>();
+
+	/** the id of lexeme, which is assigned the next id if it has not been seen before. */
+	public int intern(String lexeme) {
+		Integer id = ids.get(lexeme);
+		if(id == null) {
+			id = lexemes.size();
+			lexemes.add(lexeme);
+			ids.put(lexeme, id);
+		}
+		return id;
+	}
+	public String lexemeOf(int id) {
+		return lexemes.get(id);
+	}
+	public int size() {
+		return lexemes.size();
+	}
+}
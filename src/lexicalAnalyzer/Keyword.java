@@ -1,5 +1,6 @@
 package lexicalAnalyzer;
 
+import inputHandler.SourcePosition;
 import tokens.LextantToken;
 import tokens.Token;
 
@@ -57,7 +58,7 @@ public enum Keyword implements Lextant {
 	
 	private Keyword(String lexeme) {
 		this.lexeme = lexeme;
-		this.prototype = LextantToken.make(null, lexeme, this);
+		this.prototype = LextantToken.make(SourcePosition.NO_POSITION, lexeme, this);
 	}
 	public String getLexeme() {
 		return lexeme;
@@ -67,10 +68,9 @@ public enum Keyword implements Lextant {
 	}
 	
 	public static Keyword forLexeme(String lexeme) {
-		for(Keyword keyword: values()) {
-			if(keyword.lexeme.equals(lexeme)) {
-				return keyword;
-			}
+		Keyword candidate = keywordTable[slotFor(lexeme, hashSeed)];
+		if(candidate != null && candidate.lexeme.equals(lexeme)) {
+			return candidate;
 		}
 		return NULL_KEYWORD;
 	}
@@ -78,10 +78,37 @@ public enum Keyword implements Lextant {
 		return forLexeme(lexeme) != NULL_KEYWORD;
 	}
 	
-	/*   the following hashtable lookup can replace the serial-search implementation of forLexeme() above. It is faster but less clear. 
-	private static LexemeMap<Keyword> lexemeToKeyword = new LexemeMap<Keyword>(values(), NULL_KEYWORD);
-	public static Keyword forLexeme(String lexeme) {
-		return lexemeToKeyword.forLexeme(lexeme);
+	// perfect hashing: hashSeed is the first seed for which no two keyword lexemes share a
+	// slot of keywordTable, so forLexeme makes one hash and at most one string comparison.
+	private static final int KEYWORD_TABLE_SIZE = 256;
+	private static Keyword[] keywordTable;
+	private static int hashSeed;
+	static {
+		for(hashSeed = 1; !fillKeywordTable(); hashSeed++) {
+		}
+	}
+	private static boolean fillKeywordTable() {
+		keywordTable = new Keyword[KEYWORD_TABLE_SIZE];
+		for(Keyword keyword: values()) {
+			if(keyword == NULL_KEYWORD) {
+				continue;
+			}
+			int slot = slotFor(keyword.lexeme, hashSeed);
+			if(keywordTable[slot] != null) {
+				return false;
+			}
+			keywordTable[slot] = keyword;
+		}
+		return true;
+	}
+	private static int slotFor(String lexeme, int seed) {
+		int hash = seed;
+		for(int i = 0; i < lexeme.length(); i++) {
+			hash = hash * 31 + lexeme.charAt(i);
+		}
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash & (KEYWORD_TABLE_SIZE - 1);
 	}
-	*/
 }
@@ -1,12 +1,13 @@
 package lexicalAnalyzer;
 
-import logging.PikaLogger;
+import compiler.CompilationContext;
 
-import inputHandler.InputHandler;
+import inputHandler.CharCursor;
 import inputHandler.LocatedChar;
-import inputHandler.LocatedCharStream;
-import inputHandler.PushbackCharStream;
-import inputHandler.TextLocation;
+import inputHandler.MappedSource;
+import inputHandler.SourceText;
+import inputHandler.StringSource;
+import inputHandler.SourcePosition;
 import tokens.IdentifierToken;
 import tokens.LextantToken;
 import tokens.NullToken;
@@ -19,80 +20,99 @@ import tokens.Token;
 import static lexicalAnalyzer.PunctuatorScanningAids.*;
 
 public class LexicalAnalyzer extends ScannerImp implements Scanner {
-	public static LexicalAnalyzer make(String filename) {
-		InputHandler handler = InputHandler.fromFilename(filename);
-		PushbackCharStream charStream = PushbackCharStream.make(handler);
-		return new LexicalAnalyzer(charStream);
+	// LINE_BASED reads through an InputHandler (into a StringSource); MEMORY_MAPPED reads bytes in place (via MappedSource).
+	public enum InputMode { LINE_BASED, MEMORY_MAPPED }
+	// HAND_WRITTEN is this class; TABLE_DRIVEN is TableDrivenScanner.  -Dpika.scanner=table sets the default.
+	public enum ScannerKind { HAND_WRITTEN, TABLE_DRIVEN }
+
+	// the input mode and scanner kind are those of the current CompilationContext.
+	public static Scanner make(String filename) {
+		CompilationContext context = CompilationContext.current();
+		CharCursor input = CharCursor.make(sourceFor(filename, context.inputMode()));
+		if(context.scannerKind() == ScannerKind.TABLE_DRIVEN) {
+			return new TableDrivenScanner(input);
+		}
+		return new LexicalAnalyzer(input);
+	}
+	private static SourceText sourceFor(String filename, InputMode inputMode) {
+		if(inputMode == InputMode.MEMORY_MAPPED) {
+			return MappedSource.fromFilename(filename);
+		}
+		return StringSource.fromFilename(filename);
 	}
 
-	public LexicalAnalyzer(PushbackCharStream input) {
+	public LexicalAnalyzer(CharCursor input) {
 		super(input);
 	}
 
 	//////////////////////////////////////////////////////////////////////////////
 	// Token-finding main dispatch
+	// Characters are read from the cursor as primitives; each scanning method gets the
+	// offset of its first character, from which the token's location is made.
 
 	@Override
 	protected Token findNextToken() {
-		LocatedChar ch = nextNonWhitespaceChar();
+		int start = skipWhitespace();
+		char ch = input.next();
 
 		// Remove comments while scanning instead of doing it while parsing
-		while (ch.isCommentToken()) {
+		while (isCommentToken(ch)) {
 			ch = input.next();
-			while (!(ch.isCommentToken() || ch.isNewLine())) {
+			while (!(isCommentToken(ch) || isNewLine(ch))) {
 				ch = input.next();
 			}
-			ch = nextNonWhitespaceChar();
+			start = skipWhitespace();
+			ch = input.next();
 		}
 
-		if (ch.isNumberStart()) {
-			return scanNumber(ch);
-		} else if (ch.isCharacterSymbol()) {
-			return scanCharacter(ch);
-		} else if (ch.isIdentifierStart()) {
-			return scanIdentifier(ch);
-		} else if (ch.isStringSymbol()) {
-			return scanString(ch);
+		if (input.isEndOfInput(start)) {
+			return NullToken.make(input.positionOf(start));
+		} else if (isNumberStart(ch)) {
+			return scanNumber(start, ch);
+		} else if (isCharacterSymbol(ch)) {
+			return scanCharacter(start, ch);
+		} else if (isIdentifierStart(ch)) {
+			return scanIdentifier(start, ch);
+		} else if (isStringSymbol(ch)) {
+			return scanString(start);
 		} else if (isPunctuatorStart(ch)) {
-			return PunctuatorScanner.scan(ch, input);
-		} else if (isEndOfInput(ch)) {
-			return NullToken.make(ch.getLocation());
+			return PunctuatorScanner.scan(start, input);
 		} else {
-			lexicalError(ch);
+			lexicalError(start);
 			return findNextToken();
 		}
 	}
 
-	private LocatedChar nextNonWhitespaceChar() {
-		LocatedChar ch = input.next();
-		while (ch.isWhitespace()) {
-			ch = input.next();
+	// leaves the cursor on the next non-whitespace character, and returns its offset.
+	private int skipWhitespace() {
+		while (Character.isWhitespace(input.peek())) {
+			input.next();
 		}
-		return ch;
+		return input.position();
 	}
 
 	//////////////////////////////////////////////////////////////////////////////
 	// Integer lexical analysis
 
-	private Token scanNumber(LocatedChar firstChar) {
-		StringBuffer buffer = new StringBuffer();
+	private Token scanNumber(int start, char firstChar) {
+		StringBuilder buffer = new StringBuilder();
 		boolean digitsScanned = false;
 
-		LocatedChar next = input.peek();
+		char next = input.peek();
 
-		if (firstChar.isNumericSign() && (!next.isDigit() && !next.isDecimalPoint())) {
-			return PunctuatorScanner.scan(firstChar, input);
-		} else if(firstChar.isDecimalPoint() && !next.isDigit()) {
-			return PunctuatorScanner.scan(firstChar, input);
+		if (isNumericSign(firstChar) && (!isDigit(next) && !isDecimalPoint(next))) {
+			return PunctuatorScanner.scan(start, input);
+		} else if(isDecimalPoint(firstChar) && !isDigit(next)) {
+			return PunctuatorScanner.scan(start, input);
 		}
 
-		buffer.append(firstChar.getCharacter());
-		if(firstChar.isDigit()) {
+		buffer.append(firstChar);
+		if(isDigit(firstChar)) {
 			digitsScanned = true;
 		}
 
-		if (firstChar.isDecimalPoint()) {
-			return appendFloatingPointAfterDecimal(firstChar, buffer);
+		if (isDecimalPoint(firstChar)) {
+			return appendFloatingPointAfterDecimal(start, buffer);
 		} else {
 			int bufferLength = buffer.length();
 			appendSubsequentDigits(buffer);
@@ -100,141 +120,132 @@ public class LexicalAnalyzer extends ScannerImp implements Scanner {
 				// Digits have been added
 				digitsScanned = true;
 			}
+			int mark = input.mark();
 			next = input.next();
-			if (next.isDecimalPoint() && input.peek().isDigit()) {
-				buffer.append(next.getCharacter());
-				return appendFloatingPointAfterDecimal(firstChar, buffer);
-			} else if(next.isDecimalPoint() && !input.peek().isDigit() && !digitsScanned) {
-				next = input.next();
-				lexicalErrorFloating(next);
+			if (isDecimalPoint(next) && isDigit(input.peek())) {
+				buffer.append(next);
+				return appendFloatingPointAfterDecimal(start, buffer);
+			} else if(isDecimalPoint(next) && !isDigit(input.peek()) && !digitsScanned) {
+				lexicalErrorFloating(input.position());
+				input.next();
 				return findNextToken();
 			}
-			input.pushback(next);
+			input.reset(mark);
 		}
 
-		return IntegerToken.make(firstChar.getLocation(), buffer.toString());
+		return IntegerToken.make(input.positionOf(start), buffer.toString());
 	}
 
-	private Token appendFloatingPointAfterDecimal(LocatedChar firstChar, StringBuffer buffer) {
+	private Token appendFloatingPointAfterDecimal(int start, StringBuilder buffer) {
 		appendSubsequentDigits(buffer);
-		LocatedChar next = input.peek();
 		
-		if (next.getCharacter() == 'E') {
-			next = input.next();
-			buffer.append(next.getCharacter());
-			next = input.peek();
-			if (next.isNumericSign()) {
-				next = input.next();
-				buffer.append(next.getCharacter());
+		if (input.peek() == 'E') {
+			buffer.append(input.next());
+			if (isNumericSign(input.peek())) {
+				buffer.append(input.next());
 			}
 
-			next = input.peek();
-			if (next.isDigit()) {
+			if (isDigit(input.peek())) {
 				appendSubsequentDigits(buffer);
 			} else {
-				next = input.next();
-				lexicalErrorFloating(next);
+				lexicalErrorFloating(input.position());
+				input.next();
 				return findNextToken();
 			}
 		}
 		
-		return FloatingToken.make(firstChar.getLocation(), buffer.toString());
+		return FloatingToken.make(input.positionOf(start), buffer.toString());
 	}
 
-	private void appendSubsequentDigits(StringBuffer buffer) {
-		LocatedChar c = input.next();
-		while (c.isDigit()) {
-			buffer.append(c.getCharacter());
-			c = input.next();
+	private void appendSubsequentDigits(StringBuilder buffer) {
+		while (isDigit(input.peek())) {
+			buffer.append(input.next());
 		}
-		input.pushback(c);
 	}
 
 	//////////////////////////////////////////////////////////////////////////////
 	// Identifier and keyword lexical analysis
 
-	private Token scanIdentifier(LocatedChar firstChar) {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append(firstChar.getCharacter());
+	private Token scanIdentifier(int start, char firstChar) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(firstChar);
 		appendSubsequentIdentifierCharacters(buffer);
 
 		String lexeme = buffer.toString();
 		if (Keyword.isAKeyword(lexeme)) {
-			return LextantToken.make(firstChar.getLocation(), lexeme, Keyword.forLexeme(lexeme));
+			return LextantToken.make(input.positionOf(start), lexeme, Keyword.forLexeme(lexeme));
 		} else {
-			return IdentifierToken.make(firstChar.getLocation(), lexeme);
+			return IdentifierToken.make(input.positionOf(start), lexeme);
 		}
 	}
 
-	private void appendSubsequentIdentifierCharacters(StringBuffer buffer) {
+	private void appendSubsequentIdentifierCharacters(StringBuilder buffer) {
 		int identifierLength = buffer.length();
+		int faultyCharOffset = input.position();
 
-		LocatedChar c = input.next();
-		LocatedChar faultyChar = c;
-
-		while (c.isValidIdentifierCharacter()) {
-			buffer.append(c.getCharacter());
+		while (isValidIdentifierCharacter(input.peek())) {
 			identifierLength++;
-
 			if (identifierLength == 33) {
-				faultyChar = c;
+				faultyCharOffset = input.position();
 			}
-			c = input.next();
+			buffer.append(input.next());
 		}
-		input.pushback(c);
 
 		if (identifierLength > 32) {
-			lexicalErrorIdentifier(faultyChar);
+			lexicalErrorIdentifier(faultyCharOffset);
 		}
 	}
 
-	private Token scanCharacter(LocatedChar firstChar) {
-		StringBuffer buffer = new StringBuffer();
-		buffer.append(firstChar.getCharacter());
+	private Token scanCharacter(int start, char firstChar) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(firstChar);
 		boolean characterScannedProperly = appendSubsequentCharacterToken(buffer);
 		
 		if(characterScannedProperly) {
 			String lexeme = buffer.toString();
-			return CharacterToken.make(firstChar.getLocation(), lexeme);
+			return CharacterToken.make(input.positionOf(start), lexeme);
 		} else {
 			return findNextToken();
 		}
 	}
 
-	private boolean appendSubsequentCharacterToken(StringBuffer buffer) {
-		LocatedChar c = input.next();
-		if (c.isCharacter()) {
-			buffer.append(c.getCharacter());
-			c = input.peek();
+	private boolean appendSubsequentCharacterToken(StringBuilder buffer) {
+		int offset = input.position();
+		char c = input.next();
+		if (isCharacter(c)) {
+			buffer.append(c);
+			offset = input.position();
 
-			if (c.isCharacterSymbol()) {
-				buffer.append(input.next().getCharacter());
+			if (isCharacterSymbol(input.peek())) {
+				buffer.append(input.next());
 				return true;
 			} 
 		}
 		
-		lexicalErrorCharacter(c);
+		lexicalErrorCharacter(offset);
 		return false;
 	}
 
-	private Token scanString(LocatedChar firstChar) {
-		StringBuffer buffer = new StringBuffer();
+	private Token scanString(int start) {
+		StringBuilder buffer = new StringBuilder();
 		appendSubsequentStringCharacters(buffer);
 
 		String lexeme = buffer.toString();
-		return StringToken.make(firstChar.getLocation(), lexeme);
+		return StringToken.make(input.positionOf(start), lexeme);
 	}
 
-	private void appendSubsequentStringCharacters(StringBuffer buffer) {
-		LocatedChar c = input.next();
+	private void appendSubsequentStringCharacters(StringBuilder buffer) {
+		int offset = input.position();
+		char c = input.next();
 
-		while (!c.isStringTerminator()) {
-			buffer.append(c.getCharacter());
+		while (!isStringTerminator(c)) {
+			buffer.append(c);
+			offset = input.position();
 			c = input.next();
 		}
-		if (!c.isStringSymbol()) {
+		if (!isStringSymbol(c)) {
 			// String is ended by endline which should be an error
-			lexicalErrorString(c);
+			lexicalErrorString(offset);
 		}
 	}
 
@@ -245,7 +256,7 @@ public class LexicalAnalyzer extends ScannerImp implements Scanner {
 
 	@SuppressWarnings("unused")
 	private Token oldScanPunctuator(LocatedChar ch) {
-		TextLocation location = ch.getLocation();
+		long location = SourcePosition.fromTextLocation(ch.getLocation());
 
 		switch (ch.getCharacter()) {
 		case '*':
@@ -271,42 +282,45 @@ public class LexicalAnalyzer extends ScannerImp implements Scanner {
 
 	//////////////////////////////////////////////////////////////////////////////
 	// Character-classification routines specific to Pika scanning.
+	// (primitive versions of the LocatedChar delegates; TableDrivenScanner builds its tables from these too)
 
-	private boolean isPunctuatorStart(LocatedChar lc) {
-		char c = lc.getCharacter();
+	static boolean isPunctuatorStart(char c) {
 		return isPunctuatorStartingCharacter(c);
 	}
-
-	private boolean isEndOfInput(LocatedChar lc) {
-		return lc == LocatedCharStream.FLAG_END_OF_INPUT;
+	static boolean isDigit(char c) {
+		return Character.isDigit(c);
 	}
-
-	//////////////////////////////////////////////////////////////////////////////
-	// Error-reporting
-
-	private void lexicalError(LocatedChar ch) {
-		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
-		log.severe("Lexical error: invalid character " + ch);
+	static boolean isCommentToken(char c) {
+		return c == '#';
 	}
-
-	private void lexicalErrorIdentifier(LocatedChar ch) {
-		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
-		log.severe("Lexical error: identifier length exceeded than 32 at invalid character " + ch);
+	static boolean isNewLine(char c) {
+		return c == '\n';
 	}
-	
-	private void lexicalErrorCharacter(LocatedChar ch) {
-		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
-		log.severe("Lexical error: Initialization of character token contains unexpected character " + ch);
+	static boolean isNumericSign(char c) {
+		return c == '+' || c == '-';
 	}
-
-	private void lexicalErrorString(LocatedChar ch) {
-		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
-		log.severe("Lexical error: String token contains an unexpected character " + ch);
+	static boolean isDecimalPoint(char c) {
+		return c == '.';
 	}
-	
-	private void lexicalErrorFloating(LocatedChar ch) {
-		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
-		log.severe("Lexical error: Floating number contains an unexpected characters at " + ch);
+	static boolean isNumberStart(char c) {
+		return isDigit(c) || isNumericSign(c) || isDecimalPoint(c);
+	}
+	static boolean isCharacterSymbol(char c) {
+		return c == '^';
+	}
+	static boolean isCharacter(char c) {
+		return c > 31 && c < 127;
+	}
+	static boolean isIdentifierStart(char c) {
+		return Character.isLowerCase(c) || Character.isUpperCase(c) || (c == '_');
+	}
+	static boolean isValidIdentifierCharacter(char c) {
+		return isIdentifierStart(c) || isDigit(c) || (c == '$');
+	}
+	static boolean isStringSymbol(char c) {
+		return c == '"';
+	}
+	static boolean isStringTerminator(char c) {
+		return isStringSymbol(c) || isNewLine(c);
 	}
-
 }
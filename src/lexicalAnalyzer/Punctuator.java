@@ -1,5 +1,6 @@
 package lexicalAnalyzer;
 
+import inputHandler.SourcePosition;
 import tokens.LextantToken;
 import tokens.Token;
 
@@ -51,7 +52,7 @@ public enum Punctuator implements Lextant {
 
 	private Punctuator(String lexeme) {
 		this.lexeme = lexeme;
-		this.prototype = LextantToken.make(null, lexeme, this);
+		this.prototype = LextantToken.make(SourcePosition.NO_POSITION, lexeme, this);
 	}
 
 	public String getLexeme() {
@@ -1,61 +1,77 @@
 package lexicalAnalyzer;
 
-import static lexicalAnalyzer.PunctuatorScanningAids.punctuatorSetForPrefix;
-import inputHandler.LocatedChar;
-import inputHandler.PushbackCharStream;
-
-import java.util.Set;
+import static lexicalAnalyzer.PunctuatorScanningAids.*;
+import inputHandler.CharCursor;
 
+import tokens.LextantToken;
+import tokens.NullToken;
 import tokens.Token;
 
 /** Algorithm object to scan to find a punctuator.  Invoke only on a character that can start a punctuator lexeme.
  * <p>
  *  PunctuatorScanner will grab input characters as long as it as seen a punctuator lexeme prefix.
  *  If it discovers that it has taken input that is not such a prefix, it backtracks (possibly multiple
- *  characters) until it matches a punctuator.  
+ *  characters) until it matches a punctuator.
  * <p>
  *  If it cannot find a punctuator starting with the given starting character, it returns a NullToken at the
- *  startingCharacter's location. 
+ *  startingCharacter's location.
  * <p>
  *  PunctuatorScanner uses information derived from the lexeme fields of the enum constants of Punctuator,
  *  and should work regardless of what the set of constants in Punctuator is.
- *  Part of derived information is in PunctuatorScanningAids.java, part is in Punctuator itself.
+ *  The prefixes seen are nodes of the punctuator trie in PunctuatorScanningAids.java, so no
+ *  strings are made while scanning.
  */
 public class PunctuatorScanner {
-	private PushbackCharStream input;
-	private PartiallyScannedPunctuator scanned;
-	
-	public static Token scan(LocatedChar startingCharacter, PushbackCharStream input) {
-		PunctuatorScanner scanner = new PunctuatorScanner(startingCharacter, input);
+	private CharCursor input;
+	private int start;
+	private int node = TRIE_ROOT;
+
+	// the longest punctuator seen so far, and the cursor position just after it.
+	private Punctuator longestMatch = Punctuator.NULL_PUNCTUATOR;
+	private int longestMatchEnd;
+
+	/** scan a punctuator whose first character (at offset start) has just been read from input. */
+	public static Token scan(int start, CharCursor input) {
+		PunctuatorScanner scanner = new PunctuatorScanner(start, input);
 		return scanner.scanPunctuator();
 	}
-	
-	private PunctuatorScanner(LocatedChar startingCharacter, PushbackCharStream input) {
+
+	private PunctuatorScanner(int start, CharCursor input) {
 		this.input = input;
-		
-		scanned = new PartiallyScannedPunctuator(startingCharacter);
+		this.start = start;
+
+		input.reset(start);
 	}
-	
+
 	private Token scanPunctuator() {
-		Set<Punctuator> punctuators = punctuatorSetForPrefix(scanned.asString());
-		
-		if(punctuators.size() == 1 && scanned.isPunctuator()) {
-			return scanned.asToken();
-		}
-		
-		if(punctuators.isEmpty() || !input.hasNext()) {
-			backupToLastPunctuatorPrefix();
-			return scanned.asToken();
-		}
-		
-		scanned.add(input.next());
-		return scanPunctuator();
+		do {
+			node = punctuatorTrieStep(node, input.next());
+			if(node == NO_NODE) {
+				return backupToLongestMatch();
+			}
+
+			Punctuator punctuator = punctuatorAt(node);
+			if(punctuator != Punctuator.NULL_PUNCTUATOR) {
+				longestMatch = punctuator;
+				longestMatchEnd = input.position();
+			}
+			if(!hasLongerLexemes(node)) {
+				return backupToLongestMatch();
+			}
+		} while(input.hasNext());
+
+		return backupToLongestMatch();
 	}
 
-	private void backupToLastPunctuatorPrefix() {
-		while(!scanned.isPunctuator() && !scanned.isEmpty()) {
-			LocatedChar lc = scanned.chopTail();
-			input.pushback(lc);
+	private Token backupToLongestMatch() {
+		if(longestMatch == Punctuator.NULL_PUNCTUATOR) {
+			input.reset(start);
+			return NullToken.make(input.positionOf(start));
 		}
+		input.reset(longestMatchEnd);
+		return asToken();
+	}
+	private Token asToken() {
+		return LextantToken.make(input.positionOf(start), longestMatch.getLexeme(), longestMatch);
 	}
 }
@@ -1,108 +1,91 @@
 package lexicalAnalyzer;
 
-import java.util.Collections;
-import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Arrays;
 
 
+/** Tables derived from the lexemes of Punctuator, for PunctuatorScanner.
+ * <p>
+ *  The lexemes are compiled into a trie whose nodes are ints.  Following an edge is
+ *  one lookup in a dense (node, character) table, so a scanner can advance through a
+ *  punctuator one character at a time without building or interning any prefix strings.
+ */
 public class PunctuatorScanningAids {
-	private static Set<Character> punctuatorStartingCharacters = new HashSet<Character>();
-	private static Map<String, Set<Punctuator>> punctuatorsHavingPrefix = new HashMap<String, Set<Punctuator>>();
-	private static final Set<Punctuator> emptyPunctuatorSet = Collections.unmodifiableSet(EnumSet.noneOf(Punctuator.class));
+	public static final int TRIE_ROOT = 0;
+	public static final int NO_NODE = -1;
+
+	private static int alphabetSize;					// one more than the largest character in any lexeme
+	private static int[] trieEdges;						// [node * alphabetSize + c] -> child node, or NO_NODE
+	private static Punctuator[] punctuatorAtNode;		// NULL_PUNCTUATOR where no lexeme ends
+	private static boolean[] nodeHasChildren;
+	private static int numNodes;
 	static {
-		makeStartingCharacters();
-		makePunctuatorsHavingPrefix();
+		makeTrie();
 	}
 
 	//////////////////////////////////////////////////////////////////////////////
 	// public static interface
-	
-	public static boolean isPunctuatorStartingCharacter(Character c) {
-		return punctuatorStartingCharacters.contains(c);
+
+	public static boolean isPunctuatorStartingCharacter(char c) {
+		return punctuatorTrieStep(TRIE_ROOT, c) != NO_NODE;
 	}
 
-	public static Set<Punctuator> punctuatorSetForPrefix(String prefix) {
-		if(punctuatorsHavingPrefix.containsKey(prefix)) {
-			return punctuatorsHavingPrefix.get(prefix);
-		}
-		else {
-			return emptyPunctuatorSet;
+	/** the node reached from node by the character c, or NO_NODE if no lexeme continues that way. */
+	public static int punctuatorTrieStep(int node, char c) {
+		if(c >= alphabetSize) {
+			return NO_NODE;
 		}
+		return trieEdges[node * alphabetSize + c];
+	}
+	/** the punctuator whose lexeme ends at node, or NULL_PUNCTUATOR. */
+	public static Punctuator punctuatorAt(int node) {
+		return punctuatorAtNode[node];
+	}
+	/** whether some longer lexeme continues past node. */
+	public static boolean hasLongerLexemes(int node) {
+		return nodeHasChildren[node];
 	}
 
 	//////////////////////////////////////////////////////////////////////////////
-	// creation of startingCharacters
+	// creation of the trie
 
-	static private void makeStartingCharacters() {
+	private static void makeTrie() {
+		int maxNodes = 1;
+		alphabetSize = 1;
 		for(Punctuator p: Punctuator.values()) {
 			String lexeme = p.getLexeme();
-			if(!lexeme.isEmpty()) {
-				punctuatorStartingCharacters.add(lexeme.charAt(0));
+			maxNodes += lexeme.length();
+			for(int i = 0; i < lexeme.length(); i++) {
+				alphabetSize = Math.max(alphabetSize, lexeme.charAt(i) + 1);
 			}
 		}
-		punctuatorStartingCharacters = Collections.unmodifiableSet(punctuatorStartingCharacters);
-	}
-	
-	
-	//////////////////////////////////////////////////////////////////////////////
-	// creation of prefix map
 
-	private static void makePunctuatorsHavingPrefix() {
+		trieEdges = new int[maxNodes * alphabetSize];
+		Arrays.fill(trieEdges, NO_NODE);
+		punctuatorAtNode = new Punctuator[maxNodes];
+		Arrays.fill(punctuatorAtNode, Punctuator.NULL_PUNCTUATOR);
+		nodeHasChildren = new boolean[maxNodes];
+		numNodes = 1;
+
 		for(Punctuator p: Punctuator.values()) {
-			addAllPrefixesToMap(p);
+			if(!p.getLexeme().isEmpty()) {
+				addToTrie(p);
+			}
 		}
-		makeAllMapEntriesconstutable();
 	}
-	private static void addAllPrefixesToMap(Punctuator punctuator) {
+	private static void addToTrie(Punctuator punctuator) {
 		String lexeme = punctuator.getLexeme();
-		
-		for(String prefix: allNonemptyPrefixes(lexeme)) {
-			addPrefixToMap(prefix.intern(), punctuator);
-		}
-	}
-
-	private static void addPrefixToMap(String prefix, Punctuator punctuator) {
-		Set<Punctuator> setForThisPrefix = mutablePunctuatorSetForPrefix(prefix);
-		setForThisPrefix.add(punctuator);
-	}
-	private static Set<Punctuator> mutablePunctuatorSetForPrefix(String prefix) {
-		if(punctuatorsHavingPrefix.containsKey(prefix)) {
-			return punctuatorsHavingPrefix.get(prefix);
-		}
-		else {
-			EnumSet<Punctuator> emptySet = EnumSet.noneOf(Punctuator.class);
-			punctuatorsHavingPrefix.put(prefix, emptySet);
-			return emptySet;
-		}
-	}
-
-	
-	private static void makeAllMapEntriesconstutable() {
-		for(Entry<String, Set<Punctuator>> entry: punctuatorsHavingPrefix.entrySet()) {
-			replaceValueWithconstutableValue(entry);
+		int node = TRIE_ROOT;
+		for(int i = 0; i < lexeme.length(); i++) {
+			node = childOf(node, lexeme.charAt(i));
 		}
+		punctuatorAtNode[node] = punctuator;
 	}
-	private static void replaceValueWithconstutableValue(Entry<String, Set<Punctuator>> entry) {
-		Set<Punctuator> value = entry.getValue();
-		Set<Punctuator> unmodifiableSet = Collections.unmodifiableSet(value);
-		entry.setValue(unmodifiableSet);
-	}
-	
-	
-	//////////////////////////////////////////////////////////////////////////////
-	// string utility
-
-	private static String[] allNonemptyPrefixes(String string) {
-		String[] result = new String[string.length()];
-		
-		for(int length = 1; length <= string.length(); length++) {
-			result[length-1] = string.substring(0, length);
+	private static int childOf(int node, char c) {
+		int edge = node * alphabetSize + c;
+		if(trieEdges[edge] == NO_NODE) {
+			trieEdges[edge] = numNodes++;
+			nodeHasChildren[node] = true;
 		}
-		return result;
+		return trieEdges[edge];
 	}
-	
 }
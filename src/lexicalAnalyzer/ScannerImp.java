@@ -1,16 +1,17 @@
 package lexicalAnalyzer;
 
-import inputHandler.PushbackCharStream;
+import inputHandler.CharCursor;
+import logging.PikaLogger;
 import tokens.NullToken;
 import tokens.Token;
 
 public abstract class ScannerImp implements Scanner {
 	private Token nextToken;
-	protected final PushbackCharStream input;
+	protected final CharCursor input;
 	
 	protected abstract Token findNextToken();
 
-	public ScannerImp(PushbackCharStream input) {
+	public ScannerImp(CharCursor input) {
 		super();
 		this.input = input;
 		nextToken = findNextToken();
@@ -33,4 +34,33 @@ public abstract class ScannerImp implements Scanner {
 	public void remove() {
 		throw new UnsupportedOperationException();
 	}
-}
\ No newline at end of file
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// Error-reporting, shared by the scanners: the offending character (and its location) is made only here.
+
+	protected void lexicalError(int offset) {
+		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
+		log.severe("Lexical error: invalid character " + input.locatedCharAt(offset));
+	}
+
+	protected void lexicalErrorIdentifier(int offset) {
+		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
+		log.severe("Lexical error: identifier length exceeded than 32 at invalid character " + input.locatedCharAt(offset));
+	}
+
+	protected void lexicalErrorCharacter(int offset) {
+		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
+		log.severe("Lexical error: Initialization of character token contains unexpected character " + input.locatedCharAt(offset));
+	}
+
+	protected void lexicalErrorString(int offset) {
+		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
+		log.severe("Lexical error: String token contains an unexpected character " + input.locatedCharAt(offset));
+	}
+
+	protected void lexicalErrorFloating(int offset) {
+		PikaLogger log = PikaLogger.getLogger("compiler.lexicalAnalyzer");
+		log.severe("Lexical error: Floating number contains an unexpected characters at " + input.locatedCharAt(offset));
+	}
+}
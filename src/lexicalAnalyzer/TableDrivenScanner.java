@@ -0,0 +1,419 @@
+package lexicalAnalyzer;
+
+import static lexicalAnalyzer.LexicalAnalyzer.*;
+import static lexicalAnalyzer.PunctuatorScanningAids.isPunctuatorStartingCharacter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import inputHandler.CharCursor;
+import tokens.CharacterToken;
+import tokens.FloatingToken;
+import tokens.IdentifierToken;
+import tokens.IntegerToken;
+import tokens.LextantToken;
+import tokens.NullToken;
+import tokens.StringToken;
+import tokens.Token;
+
+/** A scanner that finds tokens with a deterministic finite automaton held in tables,
+ *  instead of with the chains of character predicates in LexicalAnalyzer.
+ *  Select it with <code>CompilationContext.setScannerKind(ScannerKind.TABLE_DRIVEN)</code>.
+ *  <p>
+ *  Each character maps (through a 64K table) to a character class, and each
+ *  (state, class) pair to the next state.  The automaton covers whitespace, comments,
+ *  integer and floating literals (with exponents), characters, strings, identifiers and
+ *  a trie of all Punctuator lexemes.  When it can go no further, the longest token seen
+ *  is returned, or the action of the state it stopped in reports a lexical error.
+ * <p>
+ *  The tables are derived from the same character predicates that LexicalAnalyzer uses,
+ *  and the tokens, locations and error messages are the same as LexicalAnalyzer gives.
+ */
+public class TableDrivenScanner extends ScannerImp implements Scanner {
+	private static final int MAX_IDENTIFIER_LENGTH = 32;
+
+	public TableDrivenScanner(CharCursor input) {
+		super(input);
+	}
+
+	//////////////////////////////////////////////////////////////////////////////
+	// the automaton: run from START until stuck, then act on the state we stopped in.
+
+	@Override
+	protected Token findNextToken() {
+		int start = input.position();
+		int state = START;
+		int lastAccepting = STUCK;
+		int lastAcceptingEnd = start;
+
+		while(true) {
+			int characterClass = input.hasNext() ? classOf[input.peek()] : END_OF_INPUT_CLASS;
+			int next = transitions[state * numClasses + characterClass];
+			if(next == STUCK) {
+				break;
+			}
+			input.next();
+			state = next;
+			if(state == START) {							// after whitespace or a comment
+				start = input.position();
+			}
+			else if(kindOf[state] != Kind.NONE) {
+				lastAccepting = state;
+				lastAcceptingEnd = input.position();
+			}
+		}
+		return actOnStuck(state, start, lastAccepting, lastAcceptingEnd);
+	}
+
+	private Token actOnStuck(int state, int start, int lastAccepting, int lastAcceptingEnd) {
+		int offset = input.position();
+
+		switch(stuckActionOf[state]) {
+		case LONGEST_MATCH:
+			if(lastAccepting == STUCK) {
+				input.reset(start);
+				return NullToken.make(input.positionOf(start));
+			}
+			input.reset(lastAcceptingEnd);
+			return tokenFor(lastAccepting, start, lastAcceptingEnd);
+
+		case SKIP_CHARACTER:
+			if(!input.hasNext()) {
+				return NullToken.make(input.positionOf(offset));
+			}
+			input.next();
+			lexicalError(offset);
+			return findNextToken();
+
+		case FLOATING_ERROR:
+			lexicalErrorFloating(offset);
+			input.next();
+			return findNextToken();
+
+		case CHARACTER_ERROR_SKIPPING:
+			input.next();
+			lexicalErrorCharacter(offset);
+			return findNextToken();
+
+		case CHARACTER_ERROR:
+			lexicalErrorCharacter(offset);
+			return findNextToken();
+
+		case STRING_ERROR:
+			input.next();
+			lexicalErrorString(offset);
+			return StringToken.make(input.positionOf(start), input.text(start + 1, offset));
+
+		default:
+			throw new IllegalStateException("no stuck action for scanner state " + state);
+		}
+	}
+
+	private Token tokenFor(int state, int start, int end) {
+		switch(kindOf[state]) {
+		case INTEGER:
+			return IntegerToken.make(input.positionOf(start), input.text(start, end));
+		case FLOATING:
+			return FloatingToken.make(input.positionOf(start), input.text(start, end));
+		case CHARACTER:
+			return CharacterToken.make(input.positionOf(start), input.text(start, end));
+		case STRING:
+			return StringToken.make(input.positionOf(start), input.text(start + 1, end - 1));
+		case IDENTIFIER:
+			return identifierOrKeyword(start, end);
+		case PUNCTUATOR:
+			Punctuator punctuator = punctuatorOf[state];
+			return LextantToken.make(input.positionOf(start), punctuator.getLexeme(), punctuator);
+		default:
+			throw new IllegalStateException("scanner state " + state + " accepts no token");
+		}
+	}
+
+	// identifier characters never span a line break, so each takes one offset.
+	private Token identifierOrKeyword(int start, int end) {
+		if(end - start > MAX_IDENTIFIER_LENGTH) {
+			lexicalErrorIdentifier(start + MAX_IDENTIFIER_LENGTH);
+		}
+		String lexeme = input.text(start, end);
+		if(Keyword.isAKeyword(lexeme)) {
+			return LextantToken.make(input.positionOf(start), lexeme, Keyword.forLexeme(lexeme));
+		}
+		return IdentifierToken.make(input.positionOf(start), lexeme);
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// states.  Punctuator-prefix states are numbered after these, one per prefix.
+
+	private static final int STUCK = -1;
+	private static final int START = 0;
+	private static final int COMMENT = 1;
+	private static final int INTEGER = 2;
+	private static final int INTEGER_POINT = 3;				// "5." : a floating only if a digit follows
+	private static final int SIGN_POINT = 4;				// "+." : a digit must follow
+	private static final int FRACTION = 5;
+	private static final int EXPONENT_MARK = 6;
+	private static final int EXPONENT_SIGN = 7;
+	private static final int EXPONENT = 8;
+	private static final int CHARACTER_OPEN = 9;
+	private static final int CHARACTER_BODY = 10;
+	private static final int CHARACTER_CLOSE = 11;
+	private static final int IDENTIFIER = 12;
+	private static final int STRING = 13;
+	private static final int STRING_CLOSE = 14;
+	private static final int NUM_FIXED_STATES = 15;
+
+	private enum Kind { NONE, INTEGER, FLOATING, CHARACTER, STRING, IDENTIFIER, PUNCTUATOR }
+	private enum StuckAction {
+		LONGEST_MATCH,				// back up to the longest token seen (a NullToken if none)
+		SKIP_CHARACTER,				// end of input, or a character that starts no token
+		FLOATING_ERROR,				// the character is skipped, with the token so far
+		CHARACTER_ERROR_SKIPPING,
+		CHARACTER_ERROR,
+		STRING_ERROR,				// the string so far is still a token
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// the tables
+
+	private static final byte[] classOf = new byte[Character.MAX_VALUE + 1];
+	private static final int END_OF_INPUT_CLASS;
+	private static final int numClasses;
+	private static final int[] transitions;
+	private static final Kind[] kindOf;
+	private static final StuckAction[] stuckActionOf;
+	private static final Punctuator[] punctuatorOf;
+
+	// used only while the tables are built.
+	private static Map<String, Integer> prefixStates = new HashMap<String, Integer>();
+	private static List<String> prefixOf = new ArrayList<String>();
+
+	static {
+		makePrefixStates();
+		int numStates = prefixOf.size();
+
+		List<int[]> columns = makeCharacterClasses(numStates);
+		END_OF_INPUT_CLASS = columns.size();
+		numClasses = columns.size() + 1;
+		transitions = new int[numStates * numClasses];
+		for(int state = 0; state < numStates; state++) {
+			for(int characterClass = 0; characterClass < END_OF_INPUT_CLASS; characterClass++) {
+				transitions[state * numClasses + characterClass] = columns.get(characterClass)[state];
+			}
+			transitions[state * numClasses + END_OF_INPUT_CLASS] = STUCK;
+		}
+
+		kindOf = new Kind[numStates];
+		stuckActionOf = new StuckAction[numStates];
+		punctuatorOf = new Punctuator[numStates];
+		for(int state = 0; state < numStates; state++) {
+			describeState(state);
+		}
+		prefixStates = null;
+		prefixOf = null;
+	}
+
+	private static void makePrefixStates() {
+		for(int state = 0; state < NUM_FIXED_STATES; state++) {
+			prefixOf.add(null);
+		}
+		for(Punctuator punctuator: Punctuator.values()) {
+			String lexeme = punctuator.getLexeme();
+			for(int length = 1; length <= lexeme.length(); length++) {
+				stateForPrefix(lexeme.substring(0, length));
+			}
+		}
+		// numbers may start with these; if no number follows, they are scanned as punctuators.
+		stateForPrefix("+");
+		stateForPrefix("-");
+		stateForPrefix(".");
+	}
+	private static int stateForPrefix(String prefix) {
+		Integer state = prefixStates.get(prefix);
+		if(state == null) {
+			state = prefixOf.size();
+			prefixOf.add(prefix);
+			prefixStates.put(prefix, state);
+		}
+		return state;
+	}
+
+	private static void describeState(int state) {
+		kindOf[state] = Kind.NONE;
+		stuckActionOf[state] = StuckAction.LONGEST_MATCH;
+		switch(state) {
+		case START:
+		case COMMENT:					// stuck only at end of input
+			stuckActionOf[state] = StuckAction.SKIP_CHARACTER;
+			break;
+		case INTEGER:
+			kindOf[state] = Kind.INTEGER;
+			break;
+		case FRACTION:
+		case EXPONENT:
+			kindOf[state] = Kind.FLOATING;
+			break;
+		case SIGN_POINT:
+		case EXPONENT_MARK:
+		case EXPONENT_SIGN:
+			stuckActionOf[state] = StuckAction.FLOATING_ERROR;
+			break;
+		case CHARACTER_OPEN:
+			stuckActionOf[state] = StuckAction.CHARACTER_ERROR_SKIPPING;
+			break;
+		case CHARACTER_BODY:
+			stuckActionOf[state] = StuckAction.CHARACTER_ERROR;
+			break;
+		case CHARACTER_CLOSE:
+			kindOf[state] = Kind.CHARACTER;
+			break;
+		case IDENTIFIER:
+			kindOf[state] = Kind.IDENTIFIER;
+			break;
+		case STRING:
+			stuckActionOf[state] = StuckAction.STRING_ERROR;
+			break;
+		case STRING_CLOSE:
+			kindOf[state] = Kind.STRING;
+			break;
+		case INTEGER_POINT:
+			break;
+		default:
+			Punctuator punctuator = Punctuator.forLexeme(prefixOf.get(state));
+			if(punctuator != Punctuator.NULL_PUNCTUATOR) {
+				kindOf[state] = Kind.PUNCTUATOR;
+				punctuatorOf[state] = punctuator;
+			}
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// the transition function, one character at a time.  Mirrors LexicalAnalyzer.
+
+	private static int step(int state, char c) {
+		switch(state) {
+		case START:
+			if(Character.isWhitespace(c))		return START;
+			if(isCommentToken(c))				return COMMENT;
+			if(isDigit(c))						return INTEGER;
+			if(isNumberStart(c))				return prefixStates.get(String.valueOf(c));
+			if(isCharacterSymbol(c))			return CHARACTER_OPEN;
+			if(isIdentifierStart(c))			return IDENTIFIER;
+			if(isStringSymbol(c))				return STRING;
+			if(isPunctuatorStartingCharacter(c))return prefixStates.get(String.valueOf(c));
+			return STUCK;
+		case COMMENT:
+			return (isCommentToken(c) || isNewLine(c)) ? START : COMMENT;
+		case INTEGER:
+			if(isDigit(c))						return INTEGER;
+			if(isDecimalPoint(c))				return INTEGER_POINT;
+			return STUCK;
+		case INTEGER_POINT:
+		case SIGN_POINT:
+			return isDigit(c) ? FRACTION : STUCK;
+		case FRACTION:
+			if(isDigit(c))						return FRACTION;
+			if(c == 'E')						return EXPONENT_MARK;
+			return STUCK;
+		case EXPONENT_MARK:
+			if(isNumericSign(c))				return EXPONENT_SIGN;
+			return isDigit(c) ? EXPONENT : STUCK;
+		case EXPONENT_SIGN:
+		case EXPONENT:
+			return isDigit(c) ? EXPONENT : STUCK;
+		case CHARACTER_OPEN:
+			return isCharacter(c) ? CHARACTER_BODY : STUCK;
+		case CHARACTER_BODY:
+			return isCharacterSymbol(c) ? CHARACTER_CLOSE : STUCK;
+		case IDENTIFIER:
+			return isValidIdentifierCharacter(c) ? IDENTIFIER : STUCK;
+		case STRING:
+			if(isStringSymbol(c))				return STRING_CLOSE;
+			return isNewLine(c) ? STUCK : STRING;
+		case CHARACTER_CLOSE:
+		case STRING_CLOSE:
+			return STUCK;
+		default:
+			return stepFromPrefix(prefixOf.get(state), c);
+		}
+	}
+	// a sign or point followed by a digit (or a sign by a point) continues as a number.
+	private static int stepFromPrefix(String prefix, char c) {
+		if(prefix.length() == 1 && isNumericSign(prefix.charAt(0))) {
+			if(isDigit(c))						return INTEGER;
+			if(isDecimalPoint(c))				return SIGN_POINT;
+		}
+		if(prefix.length() == 1 && isDecimalPoint(prefix.charAt(0)) && isDigit(c)) {
+			return FRACTION;
+		}
+		Integer state = prefixStates.get(prefix + c);
+		return (state == null) ? STUCK : state;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////////////
+	// character classes: characters whose columns of the transition function are equal.
+	// step(...) looks only at the identity of the characters in significantCharacters()
+	// and at the predicates in predicateKey(...), so one representative of each key suffices.
+
+	private static List<int[]> makeCharacterClasses(int numStates) {
+		Set<Character> significant = significantCharacters();
+		Map<Integer, Integer> classOfKey = new HashMap<Integer, Integer>();
+		Map<String, Integer> classOfColumn = new HashMap<String, Integer>();
+		List<int[]> columns = new ArrayList<int[]>();
+
+		for(int i = 0; i <= Character.MAX_VALUE; i++) {
+			char c = (char)i;
+			int key = significant.contains(c) ? c : predicateKey(c);
+			Integer characterClass = classOfKey.get(key);
+			if(characterClass == null) {
+				int[] column = columnFor(c, numStates);
+				characterClass = classOfColumn.get(Arrays.toString(column));
+				if(characterClass == null) {
+					characterClass = columns.size();
+					columns.add(column);
+					classOfColumn.put(Arrays.toString(column), characterClass);
+				}
+				classOfKey.put(key, characterClass);
+			}
+			classOf[i] = (byte)(int)characterClass;
+		}
+		assert columns.size() < Byte.MAX_VALUE : "too many character classes for a byte table";
+		return columns;
+	}
+	private static Set<Character> significantCharacters() {
+		Set<Character> result = new HashSet<Character>();
+		for(Punctuator punctuator: Punctuator.values()) {
+			for(char c: punctuator.getLexeme().toCharArray()) {
+				result.add(c);
+			}
+		}
+		for(char c: "#^\"E\n.+-".toCharArray()) {
+			result.add(c);
+		}
+		return result;
+	}
+	private static int predicateKey(char c) {
+		int key = Character.MAX_VALUE + 1;
+		key |= Character.isWhitespace(c)		? 1 << 17 : 0;
+		key |= isDigit(c)						? 1 << 18 : 0;
+		key |= isIdentifierStart(c)				? 1 << 19 : 0;
+		key |= isValidIdentifierCharacter(c)	? 1 << 20 : 0;
+		key |= isCharacter(c)					? 1 << 21 : 0;
+		return key;
+	}
+	private static int[] columnFor(char c, int numStates) {
+		int[] column = new int[numStates];
+		for(int state = 0; state < numStates; state++) {
+			column[state] = step(state, c);
+		}
+		return column;
+	}
+}
@@ -0,0 +1,52 @@
+package lexicalAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tokens.Token;
+
+/** A Scanner over tokens that have all been scanned already, so that scanning can be
+ *  done (and measured) apart from parsing.  Behaves as the scanner it was filled from:
+ *  after the last token it returns the final NullToken, and keeps returning it.
+ */
+public class TokenListScanner implements Scanner {
+	private final List<Token> tokens;			// the last is the NullToken
+	private int index = 0;
+
+	public static TokenListScanner scanAll(Scanner scanner) {
+		List<Token> tokens = new ArrayList<Token>();
+		while(scanner.hasNext()) {
+			tokens.add(scanner.next());
+		}
+		tokens.add(scanner.next());
+		return new TokenListScanner(tokens);
+	}
+	private TokenListScanner(List<Token> tokens) {
+		this.tokens = tokens;
+	}
+
+	/** the number of tokens, not counting the final NullToken. */
+	public int numTokens() {
+		return tokens.size() - 1;
+	}
+
+	// Iterator<Token> implementation
+	@Override
+	public boolean hasNext() {
+		return index < tokens.size() - 1;
+	}
+
+	@Override
+	public Token next() {
+		Token result = tokens.get(index);
+		if(hasNext()) {
+			index++;
+		}
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
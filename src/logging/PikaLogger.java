@@ -1,12 +1,15 @@
 package logging;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import compiler.CompilationContext;
+
 /** This class is a Facade for java.util.logging.
- * It also retains the number of messages that have been logged.
+ * It also retains the number of messages that have been logged,
+ * per compilation (in the current CompilationContext).
  * Optionally, one may configure this logger to throw an exception
  * when a certain message count is reached.
  * <p>
@@ -14,20 +17,19 @@ import java.util.logging.Logger;
  */ 
 
 public class PikaLogger {
-	private static Map<String, PikaLogger> loggers = new HashMap<String, PikaLogger>();
-	private static int numMessages = 0;
-	private static int maxMessagesBeforeQuit = Integer.MAX_VALUE;
+	private static Map<String, PikaLogger> loggers = new ConcurrentHashMap<String, PikaLogger>();
+	private static volatile int maxMessagesBeforeQuit = Integer.MAX_VALUE;
 	
 	////////////////////////////////////////////////////////////////
 	// static interface
 	public static PikaLogger getLogger(String loggerName) {
-		if(!loggers.containsKey(loggerName)) {
-			loggers.put(loggerName, new PikaLogger(loggerName)); 
-		}
-		return loggers.get(loggerName);
+		return loggers.computeIfAbsent(loggerName, PikaLogger::new);
 	}
 	public static boolean hasErrors() {
-		return numMessages != 0;
+		return CompilationContext.current().hasErrors();
+	}
+	public static int getNumMessages() {
+		return CompilationContext.current().getNumMessages();
 	}
 	public static void setMaximumErrorMessages(int numMessages) {
 		maxMessagesBeforeQuit = numMessages;
@@ -41,15 +43,18 @@ public class PikaLogger {
 	}
 	
 	public void log(Level level, String message) {
-		logger.log(level, message);
-		incrementNumMessages();
+		CompilationContext context = CompilationContext.current();
+		if(context.echoesMessages()) {
+			logger.log(level, message);
+		}
+		incrementNumMessages(context, message);
 	}
 	public void severe(String message) {
 		log(Level.SEVERE, message);
 	}
-	private void incrementNumMessages() {
-		numMessages++;
-		if(numMessages >= maxMessagesBeforeQuit) {
+	private void incrementNumMessages(CompilationContext context, String message) {
+		context.recordMessage(message);
+		if(context.getNumMessages() >= maxMessagesBeforeQuit) {
 			throw new PikaLoggerException("Too many error messages.  Aborting.");
 		}
 	}
@@ -0,0 +1,352 @@
+package optimizer;
+
+import asmCodeGenerator.codeStorage.ASMCodeWriter;
+import lexicalAnalyzer.Keyword;
+import lexicalAnalyzer.Lextant;
+import lexicalAnalyzer.Punctuator;
+import parseTree.ParseNode;
+import parseTree.nodeTypes.BinaryOperatorNode;
+import parseTree.nodeTypes.BooleanConstantNode;
+import parseTree.nodeTypes.CharacterConstantNode;
+import parseTree.nodeTypes.FloatingConstantNode;
+import parseTree.nodeTypes.IntegerConstantNode;
+import parseTree.nodeTypes.RationalConstantNode;
+import parseTree.nodeTypes.StringConstantNode;
+import parseTree.nodeTypes.UnaryOperatorNode;
+import semanticAnalyzer.types.PrimitiveType;
+import semanticAnalyzer.types.Type;
+import tokens.CharacterToken;
+import tokens.FloatingToken;
+import tokens.IntegerToken;
+import tokens.LextantToken;
+import tokens.StringToken;
+import tokens.Token;
+
+/** Folds constant expressions in a decorated tree, between semantic analysis and code
+ *  generation.  An operator whose operands are all constants is replaced by a constant
+ *  node holding its value, bottom-up, so that folding one expression can make its parent
+ *  foldable.
+ *  <p>
+ *  Values are computed exactly as the code for the operator's FunctionSignature variant
+ *  computes them on the emulator: int arithmetic wraps, comparisons test the sign of the
+ *  difference of the operands, [i|bool] tests i != 0, [i|char] keeps the low 7 bits, and
+ *  rational results are brought to lowest terms as RunTime.LOWEST_TERMS does.  An expression
+ *  whose code would stop with a runtime error (division by zero, a zero denominator) is left
+ *  as it is, so that the error still happens when the program runs; so is a floating result
+ *  that the six decimals of a PushF operand cannot hold exactly.  So are operations on
+ *  strings other than concatenation and length, since string comparisons compare records.
+ */
+public class ConstantFolder {
+	private int foldCount = 0;
+
+	public static ParseNode fold(ParseNode decoratedTree) {
+		return new ConstantFolder().foldTree(decoratedTree);
+	}
+
+	/** folds decoratedTree in place, and returns it. */
+	public ParseNode foldTree(ParseNode decoratedTree) {
+		foldNode(decoratedTree);
+		return decoratedTree;
+	}
+	/** the number of expressions replaced by constants so far. */
+	public int getFoldCount() {
+		return foldCount;
+	}
+
+	// folds the children of node, then node itself.  Returns the node to take node's
+	// place: node itself if it does not fold.
+	private ParseNode foldNode(ParseNode node) {
+		for(int i = 0; i < node.nChildren(); i++) {
+			ParseNode child = node.child(i);
+			ParseNode folded = foldNode(child);
+			if(folded != child) {
+				node.replaceChild(child, folded);
+			}
+		}
+
+		ParseNode result = null;
+		if(node instanceof BinaryOperatorNode) {
+			result = foldBinary((BinaryOperatorNode)node);
+		}
+		else if(node instanceof UnaryOperatorNode) {
+			result = foldUnary((UnaryOperatorNode)node);
+		}
+		if(result == null) {
+			return node;
+		}
+		result.setType(node.getType());
+		foldCount++;
+		return result;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// operators.  Each returns the constant node for the value, or null if the
+	// expression does not fold.
+
+	private ParseNode foldUnary(UnaryOperatorNode node) {
+		ParseNode operand = node.child(0);
+		Token token = node.getToken();
+		if(token.isLextant(Punctuator.NOT) && operand instanceof BooleanConstantNode) {
+			return booleanConstant(token, !booleanValue(operand));
+		}
+		if(token.isLextant(Keyword.LENGTH) && operand instanceof StringConstantNode) {
+			return integerConstant(token, stringValue(operand).length());
+		}
+		return null;
+	}
+
+	private ParseNode foldBinary(BinaryOperatorNode node) {
+		Lextant operator = node.getOperator();
+		if(!(operator instanceof Punctuator)) {
+			return null;
+		}
+		Punctuator punctuator = (Punctuator)operator;
+		if(punctuator == Punctuator.CAST) {
+			return foldCast(node, node.child(0), node.child(1).getType());
+		}
+
+		ParseNode left = node.child(0);
+		ParseNode right = node.child(1);
+		if(!isConstant(left) || !isConstant(right)) {
+			return null;
+		}
+		if(Punctuator.isComparisonPunctuator(operator.getLexeme())) {
+			return foldComparison(node, punctuator, left, right);
+		}
+
+		Type leftType = left.getType();
+		Type rightType = right.getType();
+		if(leftType == PrimitiveType.STRING || rightType == PrimitiveType.STRING) {
+			return foldConcatenation(node, punctuator, left, right);
+		}
+		if(leftType == PrimitiveType.INTEGER) {
+			return foldInteger(node, punctuator, integerValue(left), integerValue(right));
+		}
+		if(leftType == PrimitiveType.FLOATING) {
+			return foldFloating(node, punctuator, floatingValue(left), floatingValue(right));
+		}
+		if(leftType == PrimitiveType.RATIONAL) {
+			RationalConstantNode r1 = (RationalConstantNode)left;
+			RationalConstantNode r2 = (RationalConstantNode)right;
+			return foldRational(node, punctuator,
+					r1.getNumerator(), r1.getDenominator(), r2.getNumerator(), r2.getDenominator());
+		}
+		if(leftType == PrimitiveType.BOOLEAN) {
+			return foldBoolean(node, punctuator, booleanValue(left), booleanValue(right));
+		}
+		return null;
+	}
+
+	private ParseNode foldInteger(ParseNode node, Punctuator punctuator, int a, int b) {
+		Token token = node.getToken();
+		switch(punctuator) {
+		case ADD:		return integerConstant(token, a + b);
+		case SUBTRACT:	return integerConstant(token, a - b);
+		case MULTIPLY:	return integerConstant(token, a * b);
+		case DIVIDE:	return (b == 0) ? null : integerConstant(token, a / b);
+		case OVER:		return lowestTerms(token, a, b);
+		default:		return null;
+		}
+	}
+	private ParseNode foldFloating(ParseNode node, Punctuator punctuator, double a, double b) {
+		Token token = node.getToken();
+		switch(punctuator) {
+		case ADD:		return floatingConstant(token, a + b);
+		case SUBTRACT:	return floatingConstant(token, a - b);
+		case MULTIPLY:	return floatingConstant(token, a * b);
+		case DIVIDE:	return (b == 0) ? null : floatingConstant(token, a / b);
+		default:		return null;
+		}
+	}
+	// the products and sums are those of the Rational...CodeGenerators, in the same order.
+	private ParseNode foldRational(ParseNode node, Punctuator punctuator, int num1, int den1, int num2, int den2) {
+		Token token = node.getToken();
+		switch(punctuator) {
+		case ADD:		return lowestTerms(token, num2 * den1 + num1 * den2, den1 * den2);
+		case SUBTRACT:	return lowestTerms(token, -(num2 * den1 - num1 * den2), den1 * den2);
+		case MULTIPLY:	return lowestTerms(token, num1 * num2, den1 * den2);
+		case DIVIDE:	return lowestTerms(token, num1 * den2, den1 * num2);
+		default:		return null;
+		}
+	}
+	private ParseNode foldBoolean(ParseNode node, Punctuator punctuator, boolean a, boolean b) {
+		Token token = node.getToken();
+		switch(punctuator) {
+		case AND:		return booleanConstant(token, a && b);
+		case OR:		return booleanConstant(token, a || b);
+		default:		return null;
+		}
+	}
+	private ParseNode foldConcatenation(ParseNode node, Punctuator punctuator, ParseNode left, ParseNode right) {
+		if(punctuator != Punctuator.ADD) {
+			return null;
+		}
+		return stringConstant(node.getToken(), textOf(left) + textOf(right));
+	}
+	private static String textOf(ParseNode node) {
+		if(node instanceof CharacterConstantNode) {
+			return String.valueOf(((CharacterConstantNode)node).getValue());
+		}
+		return stringValue(node);
+	}
+
+	// as in ASMCodeGenerator.visitComparisonOperatorNode: the operands are subtracted, and
+	// the sign of the difference is tested.
+	private ParseNode foldComparison(ParseNode node, Punctuator punctuator, ParseNode left, ParseNode right) {
+		Type type = left.getType();
+		double difference;
+		if(type == PrimitiveType.INTEGER || type == PrimitiveType.CHARACTER || type == PrimitiveType.BOOLEAN) {
+			difference = integerValue(left) - integerValue(right);
+		}
+		else if(type == PrimitiveType.FLOATING) {
+			difference = floatingValue(left) - floatingValue(right);
+		}
+		else if(type == PrimitiveType.RATIONAL) {
+			RationalConstantNode r1 = (RationalConstantNode)left;
+			RationalConstantNode r2 = (RationalConstantNode)right;
+			difference = r1.getNumerator() * r2.getDenominator() - r1.getDenominator() * r2.getNumerator();
+		}
+		else {
+			return null;
+		}
+
+		boolean result;
+		switch(punctuator) {
+		case GREATER:			result = difference > 0;		break;
+		case GREATER_OR_EQUAL:	result = !(difference < 0);		break;
+		case LESS:				result = difference < 0;		break;
+		case LESS_OR_EQUAL:		result = !(difference > 0);		break;
+		case EQUAL:				result = difference == 0;		break;
+		case NOT_EQUAL:			result = !(difference == 0);	break;
+		default:
+			return null;
+		}
+		return booleanConstant(node.getToken(), result);
+	}
+
+	private ParseNode foldCast(ParseNode node, ParseNode operand, Type target) {
+		if(!isConstant(operand)) {
+			return null;
+		}
+		Token token = node.getToken();
+		Type source = operand.getType();
+		if(source == target) {
+			return operand;
+		}
+
+		if(source == PrimitiveType.INTEGER || source == PrimitiveType.CHARACTER) {
+			int value = integerValue(operand);
+			if(target == PrimitiveType.INTEGER) {
+				return integerConstant(token, value);
+			}
+			if(target == PrimitiveType.FLOATING) {
+				return floatingConstant(token, value);
+			}
+			if(target == PrimitiveType.BOOLEAN) {
+				return booleanConstant(token, value != 0);
+			}
+			if(target == PrimitiveType.CHARACTER) {
+				return characterConstant(token, (char)(value & 127));
+			}
+			if(target == PrimitiveType.RATIONAL) {
+				return new RationalConstantNode(token, value, 1);
+			}
+		}
+		if(source == PrimitiveType.FLOATING && target == PrimitiveType.INTEGER) {
+			return integerConstant(token, (int)floatingValue(operand));
+		}
+		if(source == PrimitiveType.RATIONAL) {
+			RationalConstantNode rational = (RationalConstantNode)operand;
+			if(target == PrimitiveType.INTEGER) {
+				return integerConstant(token, rational.getNumerator() / rational.getDenominator());
+			}
+			if(target == PrimitiveType.FLOATING) {
+				return floatingConstant(token, (double)rational.getNumerator() / (double)rational.getDenominator());
+			}
+		}
+		return null;
+	}
+
+	// RunTime.LOWEST_TERMS, for the operands on which it is well-behaved: a zero denominator
+	// is a runtime error, and a product num*den that overflows gives it a meaningless sign,
+	// so those don't fold.
+	private static ParseNode lowestTerms(Token token, int num, int den) {
+		if(den == 0 || num == Integer.MIN_VALUE || den == Integer.MIN_VALUE) {
+			return null;
+		}
+		if(num == 0) {
+			return new RationalConstantNode(token, 0, 1);
+		}
+		long product = (long)num * den;
+		if(product != (int)product) {
+			return null;
+		}
+		int magnitude = Math.abs(num);
+		int gcd = gcd(magnitude, Math.abs(den));
+		int sign = product < 0 ? -1 : 1;
+		return new RationalConstantNode(token, sign * magnitude / gcd, Math.abs(den) / gcd);
+	}
+	private static int gcd(int a, int b) {
+		while(b != 0) {
+			int remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// constant nodes, read and made
+
+	private static boolean isConstant(ParseNode node) {
+		return node instanceof IntegerConstantNode ||
+			   node instanceof FloatingConstantNode ||
+			   node instanceof BooleanConstantNode ||
+			   node instanceof CharacterConstantNode ||
+			   node instanceof StringConstantNode ||
+			   node instanceof RationalConstantNode;
+	}
+	// the value an integer, character or boolean constant pushes.
+	private static int integerValue(ParseNode node) {
+		if(node instanceof CharacterConstantNode) {
+			return ((CharacterConstantNode)node).getValue();
+		}
+		if(node instanceof BooleanConstantNode) {
+			return booleanValue(node) ? 1 : 0;
+		}
+		return ((IntegerConstantNode)node).getValue();
+	}
+	// the value the constant's PushF pushes, which has only the decimals that are written.
+	private static double floatingValue(ParseNode node) {
+		return ASMCodeWriter.asWritten(((FloatingConstantNode)node).getValue());
+	}
+	private static boolean booleanValue(ParseNode node) {
+		return ((BooleanConstantNode)node).getValue();
+	}
+	private static String stringValue(ParseNode node) {
+		return ((StringConstantNode)node).getValue();
+	}
+
+	private static ParseNode integerConstant(Token locator, int value) {
+		return new IntegerConstantNode(IntegerToken.make(locator.getPosition(), Integer.toString(value)));
+	}
+	// a value that would not survive being written (see ASMCodeWriter) does not fold.
+	private static ParseNode floatingConstant(Token locator, double value) {
+		if(Double.isNaN(value) || Double.isInfinite(value) ||
+				Double.compare(ASMCodeWriter.asWritten(value), value) != 0) {
+			return null;
+		}
+		return new FloatingConstantNode(FloatingToken.make(locator.getPosition(), Double.toString(value)));
+	}
+	private static ParseNode booleanConstant(Token locator, boolean value) {
+		return new BooleanConstantNode(LextantToken.artificial(locator, value ? Keyword.TRUE : Keyword.FALSE));
+	}
+	private static ParseNode characterConstant(Token locator, char value) {
+		return new CharacterConstantNode(CharacterToken.make(locator.getPosition(), "^" + value + "^"));
+	}
+	private static ParseNode stringConstant(Token locator, String value) {
+		return new StringConstantNode(StringToken.make(locator.getPosition(), value));
+	}
+}
@@ -0,0 +1,162 @@
+package optimizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import parseTree.ParseNode;
+import parseTree.nodeTypes.BlockStatementNode;
+import parseTree.nodeTypes.BooleanConstantNode;
+import parseTree.nodeTypes.BreakNode;
+import parseTree.nodeTypes.ContinueNode;
+import parseTree.nodeTypes.FunctionNode;
+import parseTree.nodeTypes.IdentifierNode;
+import parseTree.nodeTypes.IfStatementNode;
+import parseTree.nodeTypes.ProgramNode;
+import parseTree.nodeTypes.ReturnNode;
+import parseTree.nodeTypes.WhileStatementNode;
+import symbolTable.Binding;
+
+/** Removes code that can never run from a decorated (and constant-folded) tree:
+ *  <ul>
+ *  <li>the statements of a block after one that always returns, breaks or continues,</li>
+ *  <li>the branch of an if whose condition is a constant, and a while(_false_), and</li>
+ *  <li>every func that is not reachable from the rest of the program.</li>
+ *  </ul>
+ *  A func is reachable if its identifier is used in the exec block, in a global declaration,
+ *  or in the body of a reachable func; a func used only by unreachable funcs is not.
+ *  Removing a func removes only the code that stores its lambda in the global variable
+ *  that nothing reads; the storage the semantic analyzer allocated is left as it was.
+ */
+public class DeadCodeEliminator {
+	private int statementsRemoved = 0;
+	private int functionsRemoved = 0;
+
+	public static ParseNode eliminate(ParseNode decoratedTree) {
+		return new DeadCodeEliminator().eliminateIn(decoratedTree);
+	}
+
+	/** removes the dead code of decoratedTree in place, and returns it. */
+	public ParseNode eliminateIn(ParseNode decoratedTree) {
+		simplify(decoratedTree);
+		if(decoratedTree instanceof ProgramNode) {
+			removeUnusedFunctions((ProgramNode)decoratedTree);
+		}
+		return decoratedTree;
+	}
+	public int getStatementsRemoved() {
+		return statementsRemoved;
+	}
+	public int getFunctionsRemoved() {
+		return functionsRemoved;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// unreachable statements and constant conditions
+
+	// simplifies the children of node, then node itself.  Returns the node to take node's
+	// place: node itself, the branch of an if that is always taken, or null for nothing.
+	private ParseNode simplify(ParseNode node) {
+		for(int i = 0; i < node.nChildren(); ) {
+			ParseNode child = node.child(i);
+			ParseNode replacement = simplify(child);
+			if(replacement == null) {
+				node.removeChild(child);
+				statementsRemoved++;
+				continue;
+			}
+			if(replacement != child) {
+				node.replaceChild(child, replacement);
+			}
+			i++;
+		}
+
+		if(node instanceof BlockStatementNode) {
+			removeStatementsAfterJump(node);
+		}
+		else if(node instanceof IfStatementNode && node.child(0) instanceof BooleanConstantNode) {
+			boolean condition = ((BooleanConstantNode)node.child(0)).getValue();
+			if(condition) {
+				return node.child(1);
+			}
+			return (node.nChildren() == 3) ? node.child(2) : null;
+		}
+		else if(node instanceof WhileStatementNode && node.child(0) instanceof BooleanConstantNode) {
+			boolean condition = ((BooleanConstantNode)node.child(0)).getValue();
+			if(!condition) {
+				return null;
+			}
+		}
+		return node;
+	}
+	private void removeStatementsAfterJump(ParseNode block) {
+		for(int i = 0; i < block.nChildren() - 1; i++) {
+			if(alwaysJumps(block.child(i))) {
+				while(block.nChildren() > i + 1) {
+					block.removeChild(block.child(i + 1));
+					statementsRemoved++;
+				}
+				return;
+			}
+		}
+	}
+	// true if the statement never finishes normally: it always returns, breaks or continues.
+	private static boolean alwaysJumps(ParseNode statement) {
+		if(statement instanceof ReturnNode || statement instanceof BreakNode || statement instanceof ContinueNode) {
+			return true;
+		}
+		if(statement instanceof BlockStatementNode) {
+			for(ParseNode child: statement.getChildren()) {
+				if(alwaysJumps(child)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if(statement instanceof IfStatementNode) {
+			return statement.nChildren() == 3 && alwaysJumps(statement.child(1)) && alwaysJumps(statement.child(2));
+		}
+		return false;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// unused funcs
+
+	private void removeUnusedFunctions(ProgramNode program) {
+		Map<Binding, FunctionNode> functions = new IdentityHashMap<Binding, FunctionNode>();
+		Deque<ParseNode> pending = new ArrayDeque<ParseNode>();
+		for(ParseNode child: program.getChildren()) {
+			if(child instanceof FunctionNode) {
+				functions.put(((IdentifierNode)child.child(0)).getBinding(), (FunctionNode)child);
+			}
+			else {
+				pending.push(child);
+			}
+		}
+
+		// each func is pushed when it is first found to be used, and removed from functions.
+		while(!pending.isEmpty()) {
+			ParseNode node = pending.pop();
+			if(node instanceof IdentifierNode) {
+				FunctionNode function = functions.remove(((IdentifierNode)node).getBinding());
+				if(function != null) {
+					pending.push(function.child(1));
+				}
+			}
+			for(ParseNode child: node.getChildren()) {
+				pending.push(child);
+			}
+		}
+
+		List<FunctionNode> unused = new ArrayList<FunctionNode>(functions.values());
+		for(FunctionNode function: unused) {
+			program.removeChild(function);
+			functionsRemoved++;
+		}
+	}
+}
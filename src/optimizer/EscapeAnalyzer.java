@@ -0,0 +1,160 @@
+package optimizer;
+
+import asmCodeGenerator.specialCodeGenerator.ArrayAllocationCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.ArrayCloneCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.ArrayIndexingCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.ArrayLengthCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.CharStringConcatenationCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.ReverseOperatorCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.StringCharConcatenationCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.StringIndexingCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.StringLengthCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.StringStringConcatenationCodeGenerator;
+import asmCodeGenerator.specialCodeGenerator.StringSubstringCodeGenerator;
+import lexicalAnalyzer.Keyword;
+import lexicalAnalyzer.Punctuator;
+import parseTree.ParseNode;
+import parseTree.nodeTypes.AssignmentStatementNode;
+import parseTree.nodeTypes.BinaryOperatorNode;
+import parseTree.nodeTypes.DeclarationNode;
+import parseTree.nodeTypes.IfStatementNode;
+import parseTree.nodeTypes.KNaryOperatorNode;
+import parseTree.nodeTypes.LambdaNode;
+import parseTree.nodeTypes.PopulatedArrayNode;
+import parseTree.nodeTypes.PrintStatementNode;
+import parseTree.nodeTypes.StringConstantNode;
+import parseTree.nodeTypes.UnaryOperatorNode;
+import parseTree.nodeTypes.WhileStatementNode;
+import semanticAnalyzer.signatures.FunctionSignature;
+
+/** Finds the records that a decorated tree creates only to be used up within one statement,
+ *  so that their code allocates them in the statement arena (see MemoryManager) rather than
+ *  on the heap, where nothing ever freed them.
+ *  <p>
+ *  A record is one of these temporaries if it is new (a string constant, a populated array,
+ *  or the result of concatenation, substring, reverse, clone, alloc, map, zip or reduce)
+ *  and its only use is as an operand that reads it and keeps no pointer to it: an operand of
+ *  concatenation, substring, indexing, length, reverse, clone or a comparison, the array of
+ *  a map, zip, reduce or fold, or a value printed.  Anything else (a stored value, a
+ *  parameter, a returned value, an array element, a cast, a dealloc) lets the record escape.
+ *  <p>
+ *  The arena is released at the end of a print, declaration, assignment or call statement,
+ *  and after the condition of an if or while; temporaries elsewhere (in a return statement,
+ *  or the sequence of a for) stay on the heap.  The statements in the body of a lambda have
+ *  arenas of their own.
+ */
+public class EscapeAnalyzer {
+	private int temporaryCount = 0;
+
+	public static ParseNode analyze(ParseNode decoratedTree) {
+		return new EscapeAnalyzer().analyzeTree(decoratedTree);
+	}
+
+	/** marks the temporaries of decoratedTree, and the statements that release them, and returns it. */
+	public ParseNode analyzeTree(ParseNode decoratedTree) {
+		analyze(decoratedTree, null);
+		return decoratedTree;
+	}
+	/** the number of records found to be temporaries so far. */
+	public int getTemporaryCount() {
+		return temporaryCount;
+	}
+
+	// statement is the innermost statement or condition that releases the arena and
+	// contains node without a lambda in between, or null.
+	private void analyze(ParseNode node, ParseNode statement) {
+		if(node instanceof LambdaNode) {
+			statement = null;
+		}
+		else if(releasesArena(node)) {
+			statement = node;
+		}
+		else if(statement != null && isNewRecord(node) && isUsedUp(node.getParent(), node)) {
+			node.setAllocatedInArena(true);
+			statement.setReleasesArena(true);
+			temporaryCount++;
+		}
+		for(ParseNode child: node.getChildren()) {
+			analyze(child, statement);
+		}
+	}
+
+	private static boolean releasesArena(ParseNode node) {
+		if(node instanceof PrintStatementNode || node instanceof DeclarationNode ||
+				node instanceof AssignmentStatementNode) {
+			return true;
+		}
+		if(node instanceof UnaryOperatorNode && node.getToken().isLextant(Keyword.CALL)) {
+			return true;
+		}
+		ParseNode parent = node.getParent();
+		return (parent instanceof IfStatementNode || parent instanceof WhileStatementNode)
+				&& parent.child(0) == node;
+	}
+
+	// true if node's code creates a record for its value.
+	private static boolean isNewRecord(ParseNode node) {
+		if(node instanceof StringConstantNode || node instanceof PopulatedArrayNode) {
+			return true;
+		}
+		if(node instanceof KNaryOperatorNode && node.getToken().isLextant(Keyword.MAP, Keyword.ZIP, Keyword.REDUCE)) {
+			return true;
+		}
+		Object variant = variantOf(node);
+		return variant instanceof StringStringConcatenationCodeGenerator ||
+			   variant instanceof StringCharConcatenationCodeGenerator ||
+			   variant instanceof CharStringConcatenationCodeGenerator ||
+			   variant instanceof StringSubstringCodeGenerator ||
+			   variant instanceof ReverseOperatorCodeGenerator ||
+			   variant instanceof ArrayCloneCodeGenerator ||
+			   variant instanceof ArrayAllocationCodeGenerator;
+	}
+
+	// true if parent reads operand and keeps no pointer to it.
+	private static boolean isUsedUp(ParseNode parent, ParseNode operand) {
+		if(parent instanceof PrintStatementNode) {
+			return true;
+		}
+		boolean isFirst = parent.nChildren() > 0 && parent.child(0) == operand;
+		boolean isLast = parent.nChildren() > 0 && parent.child(parent.nChildren() - 1) == operand;
+		if(parent instanceof KNaryOperatorNode && parent.getToken().isLextant(Keyword.MAP, Keyword.ZIP, Keyword.REDUCE)) {
+			return !isLast;				// the last operand is the lambda.
+		}
+		if(parent instanceof KNaryOperatorNode && parent.getToken().isLextant(Keyword.FOLD)) {
+			return isFirst;				// a fold's base value may be returned by its lambda.
+		}
+		if(parent instanceof BinaryOperatorNode &&
+				Punctuator.isComparisonPunctuator(((BinaryOperatorNode)parent).getOperator().getLexeme())) {
+			return true;
+		}
+		Object variant = variantOf(parent);
+		if(variant instanceof StringStringConcatenationCodeGenerator ||
+		   variant instanceof StringCharConcatenationCodeGenerator ||
+		   variant instanceof CharStringConcatenationCodeGenerator) {
+			return true;
+		}
+		return isFirst && (
+			   variant instanceof StringSubstringCodeGenerator ||
+			   variant instanceof StringIndexingCodeGenerator ||
+			   variant instanceof ArrayIndexingCodeGenerator ||
+			   variant instanceof StringLengthCodeGenerator ||
+			   variant instanceof ArrayLengthCodeGenerator ||
+			   variant instanceof ReverseOperatorCodeGenerator ||
+			   variant instanceof ArrayCloneCodeGenerator);
+	}
+
+	// the variant of an operator node's signature, or null.
+	private static Object variantOf(ParseNode node) {
+		FunctionSignature signature = null;
+		if(node instanceof UnaryOperatorNode) {
+			signature = ((UnaryOperatorNode)node).getSignature();
+		}
+		else if(node instanceof BinaryOperatorNode) {
+			signature = ((BinaryOperatorNode)node).getSignature();
+		}
+		else if(node instanceof KNaryOperatorNode) {
+			signature = ((KNaryOperatorNode)node).getSignature();
+		}
+		return signature == null ? null : signature.getVariant();
+	}
+}
@@ -0,0 +1,115 @@
+package optimizer;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType;
+import asmCodeGenerator.codeStorage.ASMInstruction;
+
+/** A peephole optimizer for generated code.
+ *  <p>
+ *  Instructions are emitted one at a time into a new instruction list.  After each, every
+ *  enabled PeepholeRule is tried on the end of the list; a rule that matches replaces the
+ *  end with fewer instructions, which are emitted again in turn, so that one rewriting can
+ *  expose another.  Since each rewriting shortens the code, this stops.
+ *  <p>
+ *  The optimizer counts the instructions before and after, and how often each rule applied;
+ *  see getReport().
+ */
+public class Optimizer {
+	private final Set<PeepholeRule> rules;
+	private final int[] rewriteCounts = new int[PeepholeRule.values().length];
+	private int instructionsBefore = 0;
+	private int instructionsAfter = 0;
+	private List<ASMInstruction> output;
+
+	/** an optimizer with every rule enabled. */
+	public Optimizer() {
+		this(EnumSet.allOf(PeepholeRule.class));
+	}
+	public Optimizer(Set<PeepholeRule> rules) {
+		this.rules = EnumSet.noneOf(PeepholeRule.class);
+		this.rules.addAll(rules);
+	}
+
+	public static ASMCodeFragment optimize(ASMCodeFragment fragment) {
+		return new Optimizer().optimizeFragment(fragment);
+	}
+
+	/** an optimized copy of fragment. */
+	public ASMCodeFragment optimizeFragment(ASMCodeFragment fragment) {
+		List<ASMInstruction> input = fragment.instructions();
+		output = new ArrayList<ASMInstruction>(input.size());
+		for(ASMInstruction instruction: input) {
+			emit(instruction);
+		}
+
+		ASMCodeFragment result = new ASMCodeFragment(CodeType.GENERATES_VOID);
+		for(ASMInstruction instruction: output) {
+			result.add(instruction);
+		}
+		instructionsBefore += input.size();
+		instructionsAfter += output.size();
+		output = null;
+		return result;
+	}
+
+	private void emit(ASMInstruction instruction) {
+		output.add(instruction);
+		rewriteEnd();
+	}
+	private void rewriteEnd() {
+		for(PeepholeRule rule: rules) {
+			int size = output.size();
+			if(size < rule.getWindowSize()) {
+				continue;
+			}
+			List<ASMInstruction> window = output.subList(size - rule.getWindowSize(), size);
+			List<ASMInstruction> replacement = rule.rewrite(window);
+			if(replacement != null) {
+				assert replacement.size() < window.size() : rule;
+				rewriteCounts[rule.ordinal()]++;
+				replacement = new ArrayList<ASMInstruction>(replacement);
+				window.clear();
+				for(ASMInstruction instruction: replacement) {
+					emit(instruction);
+				}
+				return;
+			}
+		}
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// reporting
+
+	public int getInstructionsBefore() {
+		return instructionsBefore;
+	}
+	public int getInstructionsAfter() {
+		return instructionsAfter;
+	}
+	public int getRewriteCount(PeepholeRule rule) {
+		return rewriteCounts[rule.ordinal()];
+	}
+	/** e.g. "optimizer: 59265 -> 51020 instructions (13.9% fewer); add-zero 49, ..." */
+	public String getReport() {
+		int removed = instructionsBefore - instructionsAfter;
+		double percent = instructionsBefore == 0 ? 0 : 100.0 * removed / instructionsBefore;
+		StringBuilder result = new StringBuilder("optimizer: ");
+		result.append(instructionsBefore).append(" -> ").append(instructionsAfter).append(" instructions (");
+		result.append(Math.round(percent * 10) / 10.0).append("% fewer)");
+
+		String separator = "; ";
+		for(PeepholeRule rule: rules) {
+			if(getRewriteCount(rule) > 0) {
+				result.append(separator).append(rule.getName()).append(" ").append(getRewriteCount(rule));
+				separator = ", ";
+			}
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,190 @@
+package optimizer;
+
+import static asmCodeGenerator.codeStorage.ASMOpcode.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import asmCodeGenerator.codeStorage.ASMInstruction;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+
+/** The rewritings done by the peephole Optimizer.  Each looks at a window of the last few
+ *  instructions emitted and, if they match its pattern, gives fewer instructions that do
+ *  the same.  A Label in a window can be jumped to, so patterns only include a Label as
+ *  their last instruction, where it is kept.
+ */
+public enum PeepholeRule {
+	// PushI 0 / Add   ->   (nothing)         and likewise Subtract
+	ADD_ZERO("add-zero", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(isPushI(window.get(0), 0) && is(window.get(1), Add, Subtract)) {
+				return none();
+			}
+			return null;
+		}
+	},
+	// PushI 1 / Multiply   ->   (nothing)     and likewise Divide
+	MULTIPLY_ONE("multiply-one", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(isPushI(window.get(0), 1) && is(window.get(1), Multiply, Divide)) {
+				return none();
+			}
+			return null;
+		}
+	},
+	// PushI a / PushI b / Add   ->   PushI a+b      and likewise Subtract and Multiply
+	FOLD_CONSTANTS("fold-constants", 3) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			ASMInstruction first = window.get(0);
+			ASMInstruction second = window.get(1);
+			ASMOpcode operator = window.get(2).getOpcode();
+			if(first.getOpcode() != PushI || second.getOpcode() != PushI || !is(window.get(2), Add, Subtract, Multiply)) {
+				return null;
+			}
+			int a = first.getIntegerArgument();
+			int b = second.getIntegerArgument();
+			int value = operator == Add ? a + b : operator == Subtract ? a - b : a * b;
+			return Collections.singletonList(new ASMInstruction(PushI, value, first.getComment()));
+		}
+	},
+	// PushI a / Add / PushI b / Add   ->   PushI a+b / Add
+	COMBINE_OFFSETS("combine-offsets", 4) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(window.get(0).getOpcode() == PushI && window.get(1).getOpcode() == Add &&
+					window.get(2).getOpcode() == PushI && window.get(3).getOpcode() == Add) {
+				int offset = window.get(0).getIntegerArgument() + window.get(2).getIntegerArgument();
+				return Arrays.asList(new ASMInstruction(PushI, offset, window.get(0).getComment()), window.get(1));
+			}
+			return null;
+		}
+	},
+	// Duplicate / Pop, or a push of a constant / Pop   ->   (nothing)
+	DISCARDED_PUSH("discarded-push", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(is(window.get(0), Duplicate, PushI, PushF, PushD) && window.get(1).getOpcode() == Pop) {
+				return none();
+			}
+			return null;
+		}
+	},
+	// Exchange / Exchange   ->   (nothing)
+	DOUBLE_EXCHANGE("double-exchange", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(window.get(0).getOpcode() == Exchange && window.get(1).getOpcode() == Exchange) {
+				return none();
+			}
+			return null;
+		}
+	},
+	// PushD x / Exchange / StoreI / PushD x / LoadI   ->   Duplicate / PushD x / Exchange / StoreI
+	// and likewise StoreF / LoadF.  (Not StoreC / LoadC: a stored char keeps only its low 8 bits.)
+	STORE_THEN_LOAD("store-then-load", 5) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			ASMInstruction address = window.get(0);
+			ASMInstruction store = window.get(2);
+			ASMOpcode load = store.getOpcode() == StoreI ? LoadI : LoadF;
+			if(address.getOpcode() == PushD && window.get(1).getOpcode() == Exchange && is(store, StoreI, StoreF) &&
+					isPushD(window.get(3), address.getStringArgument()) && window.get(4).getOpcode() == load) {
+				return Arrays.asList(new ASMInstruction(Duplicate), address, window.get(1), store);
+			}
+			return null;
+		}
+	},
+	// Jump L / Label L   ->   Label L
+	JUMP_TO_NEXT("jump-to-next", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(window.get(0).getOpcode() == Jump && jumpsTo(window.get(0), window.get(1))) {
+				return Collections.singletonList(window.get(1));
+			}
+			return null;
+		}
+	},
+	// JumpFalse L / Label L   ->   Pop / Label L          and likewise JumpTrue
+	CONDITIONAL_JUMP_TO_NEXT("conditional-jump-to-next", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(is(window.get(0), JumpFalse, JumpTrue) && jumpsTo(window.get(0), window.get(1))) {
+				return Arrays.asList(new ASMInstruction(Pop), window.get(1));
+			}
+			return null;
+		}
+	},
+	// JumpFalse L1 / Jump L2 / Label L1   ->   JumpTrue L2 / Label L1      and likewise JumpTrue
+	JUMP_OVER_JUMP("jump-over-jump", 3) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			ASMInstruction conditional = window.get(0);
+			ASMInstruction jump = window.get(1);
+			if(is(conditional, JumpFalse, JumpTrue) && jump.getOpcode() == Jump && jumpsTo(conditional, window.get(2))) {
+				ASMOpcode inverse = conditional.getOpcode() == JumpFalse ? JumpTrue : JumpFalse;
+				return Arrays.asList(new ASMInstruction(inverse, jump.getStringArgument(), conditional.getComment()),
+						window.get(2));
+			}
+			return null;
+		}
+	},
+	// an instruction after a Jump, Return, PopPC, JumpV or Halt, with no Label between   ->   (nothing)
+	UNREACHABLE_CODE("unreachable-code", 2) {
+		protected List<ASMInstruction> rewrite(List<ASMInstruction> window) {
+			if(is(window.get(0), Jump, JumpV, Return, PopPC, Halt) && isExecutable(window.get(1))) {
+				return Collections.singletonList(window.get(0));
+			}
+			return null;
+		}
+	};
+
+	private final String name;
+	private final int windowSize;
+
+	private PeepholeRule(String name, int windowSize) {
+		this.name = name;
+		this.windowSize = windowSize;
+	}
+	public String getName() {
+		return name;
+	}
+	public int getWindowSize() {
+		return windowSize;
+	}
+	public static PeepholeRule forName(String name) {
+		for(PeepholeRule rule: values()) {
+			if(rule.name.equals(name)) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	/** the replacement for the instructions of the window (the last getWindowSize() emitted),
+	 *  or null if they do not match this rule.  The replacement is always shorter.
+	 */
+	protected abstract List<ASMInstruction> rewrite(List<ASMInstruction> window);
+
+
+	//////////////////////////////////////////////////////////////////////
+	// matching
+
+	private static boolean is(ASMInstruction instruction, ASMOpcode... opcodes) {
+		for(ASMOpcode opcode: opcodes) {
+			if(instruction.getOpcode() == opcode) {
+				return true;
+			}
+		}
+		return false;
+	}
+	private static boolean isPushI(ASMInstruction instruction, int value) {
+		return instruction.getOpcode() == PushI && instruction.getIntegerArgument() == value;
+	}
+	private static boolean isPushD(ASMInstruction instruction, String label) {
+		return instruction.getOpcode() == PushD && label.equals(instruction.getStringArgument());
+	}
+	private static boolean jumpsTo(ASMInstruction jump, ASMInstruction label) {
+		return label.getOpcode() == Label && label.getStringArgument().equals(jump.getStringArgument());
+	}
+	// labels and data directives are not executed.
+	private static boolean isExecutable(ASMInstruction instruction) {
+		return !is(instruction, Label, DLabel, DataC, DataI, DataF, DataS, DataZ, DataD);
+	}
+	private static List<ASMInstruction> none() {
+		return Collections.emptyList();
+	}
+}
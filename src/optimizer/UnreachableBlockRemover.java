@@ -0,0 +1,200 @@
+package optimizer;
+
+import static asmCodeGenerator.codeStorage.ASMOpcode.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import asmCodeGenerator.codeStorage.ASMCodeFragment.CodeType;
+import asmCodeGenerator.codeStorage.ASMInstruction;
+import asmCodeGenerator.codeStorage.ASMOpcode;
+
+/** Removes the code and data of a whole program that nothing can reach: runtime subroutines
+ *  and error handlers that are never called or jumped to, print formats and other data that
+ *  no instruction names, and instructions that follow a Jump, Return or Halt.
+ *  <p>
+ *  The code is split into blocks at its Labels, and the data into blocks at its DLabels
+ *  (consecutive labels share a block).  Execution starts at the first block; a reachable
+ *  block makes reachable the blocks it falls through to and every block whose label it
+ *  names in a jump, Call, PushD or DataD.  The first data block is always kept, so that
+ *  no data is moved to location zero, where it could not be told from a null pointer.
+ *  <p>
+ *  The generated code never computes an address from PushPC, so the labels it names are
+ *  the only ways into a block.
+ */
+public class UnreachableBlockRemover {
+	private static final int NO_BLOCK = -1;
+
+	private List<ASMInstruction> instructions;
+	private int[] blockOf;							// for each instruction
+	private boolean[] live;							// for each instruction
+	private List<Integer> blockStarts;				// the index of the first instruction of each block
+	private List<Boolean> blockIsData;
+	private Map<String, Integer> blockForLabel;
+	private boolean[] reached;
+	private int instructionsBefore = 0;
+	private int instructionsAfter = 0;
+
+	public static ASMCodeFragment removeUnreachable(ASMCodeFragment program) {
+		return new UnreachableBlockRemover().removeFrom(program);
+	}
+
+	/** a copy of program without its unreachable code and data. */
+	public ASMCodeFragment removeFrom(ASMCodeFragment program) {
+		instructions = program.instructions();
+		splitIntoBlocks();
+		findReachableBlocks();
+
+		ASMCodeFragment result = new ASMCodeFragment(CodeType.GENERATES_VOID);
+		for(int i = 0; i < instructions.size(); i++) {
+			if(live[i]) {
+				result.add(instructions.get(i));
+			}
+		}
+		instructionsBefore += instructions.size();
+		instructionsAfter += result.instructionCount();
+		instructions = null;
+		return result;
+	}
+	public int getInstructionsBefore() {
+		return instructionsBefore;
+	}
+	public int getInstructionsAfter() {
+		return instructionsAfter;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// blocks
+
+	private void splitIntoBlocks() {
+		int size = instructions.size();
+		blockOf = new int[size];
+		blockStarts = new ArrayList<Integer>();
+		blockIsData = new ArrayList<Boolean>();
+		blockForLabel = new HashMap<String, Integer>();
+
+		int codeBlock = NO_BLOCK;
+		int dataBlock = NO_BLOCK;
+		ASMOpcode previousCode = null;
+		ASMOpcode previousData = null;
+		for(int i = 0; i < size; i++) {
+			ASMInstruction instruction = instructions.get(i);
+			ASMOpcode opcode = instruction.getOpcode();
+			if(isData(opcode)) {
+				if(dataBlock == NO_BLOCK || (opcode == DLabel && previousData != DLabel)) {
+					dataBlock = newBlock(i, true);
+				}
+				if(opcode == DLabel) {
+					blockForLabel.put(instruction.getStringArgument(), dataBlock);
+				}
+				blockOf[i] = dataBlock;
+				previousData = opcode;
+			}
+			else {
+				if(codeBlock == NO_BLOCK || (opcode == Label && previousCode != Label)) {
+					codeBlock = newBlock(i, false);
+				}
+				if(opcode == Label) {
+					blockForLabel.put(instruction.getStringArgument(), codeBlock);
+				}
+				blockOf[i] = codeBlock;
+				previousCode = opcode;
+			}
+		}
+	}
+	private int newBlock(int start, boolean isData) {
+		blockStarts.add(start);
+		blockIsData.add(isData);
+		return blockStarts.size() - 1;
+	}
+
+
+	//////////////////////////////////////////////////////////////////////
+	// reachability
+
+	private void findReachableBlocks() {
+		live = new boolean[instructions.size()];
+		reached = new boolean[blockStarts.size()];
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+
+		boolean codeSeen = false;
+		boolean dataSeen = false;
+		for(int block = 0; block < blockStarts.size(); block++) {
+			boolean isData = blockIsData.get(block);
+			if(isData ? !dataSeen : !codeSeen) {
+				reach(block, pending);
+			}
+			codeSeen |= !isData;
+			dataSeen |= isData;
+		}
+
+		while(!pending.isEmpty()) {
+			int block = pending.pop();
+			int next = scan(block, pending);
+			if(next != NO_BLOCK) {
+				reach(next, pending);
+			}
+		}
+	}
+	private void reach(int block, Deque<Integer> pending) {
+		if(!reached[block]) {
+			reached[block] = true;
+			pending.push(block);
+		}
+	}
+
+	// marks the live instructions of block and reaches the blocks they name.  Returns the
+	// code block that block falls through to, or NO_BLOCK.
+	private int scan(int block, Deque<Integer> pending) {
+		boolean isData = blockIsData.get(block);
+		boolean fallsThrough = true;
+		int i = blockStarts.get(block);
+		for( ; i < instructions.size(); i++) {
+			ASMInstruction instruction = instructions.get(i);
+			if(blockOf[i] != block) {
+				if(isData(instruction.getOpcode()) == isData) {
+					break;
+				}
+				continue;
+			}
+			if(!fallsThrough) {
+				continue;
+			}
+			live[i] = true;
+			ASMOpcode opcode = instruction.getOpcode();
+			if(opcode.namesLabel()) {
+				Integer target = blockForLabel.get(instruction.getStringArgument());
+				if(target != null) {
+					reach(target, pending);
+				}
+			}
+			if(endsFlow(opcode)) {
+				fallsThrough = false;
+			}
+		}
+		if(isData || !fallsThrough) {
+			return NO_BLOCK;
+		}
+		// the next code block, if there is one.
+		for( ; i < instructions.size(); i++) {
+			if(!isData(instructions.get(i).getOpcode())) {
+				return blockOf[i];
+			}
+		}
+		return NO_BLOCK;
+	}
+
+	private static boolean isData(ASMOpcode opcode) {
+		return opcode == DLabel || opcode == DataC || opcode == DataI || opcode == DataF ||
+			   opcode == DataS || opcode == DataZ || opcode == DataD;
+	}
+	private static boolean endsFlow(ASMOpcode opcode) {
+		return opcode == Jump || opcode == JumpV || opcode == Return || opcode == PopPC || opcode == Halt;
+	}
+}
@@ -3,6 +3,7 @@ package parseTree;
 import java.util.ArrayList;
 import java.util.List;
 
+import asmCodeGenerator.codeStorage.ASMCodeFragment;
 import parseTree.nodeTypes.ProgramNode;
 import semanticAnalyzer.types.PrimitiveType;
 import semanticAnalyzer.types.Type;
@@ -20,6 +21,9 @@ public class ParseNode {
 	protected Token token;
 	Type type;					// used for expressions
 	private Scope scope;		// the scope created by this node, if any.
+	private ASMCodeFragment generatedCode;		// during code generation, until the parent takes it.
+	private boolean allocatedInArena = false;	// see optimizer.EscapeAnalyzer
+	private boolean releasesArena = false;
 
 	public ParseNode(Token token) {
 		this.token = token;
@@ -77,26 +81,54 @@ public class ParseNode {
 		}
 		return Scope.nullInstance();
 	}
-	public boolean containsBindingOf(String identifier) {
+	// identifiers are given by their ids in the compilation's IdentifierInterner.
+	public boolean containsBindingOf(int identifierId) {
 		if(!hasScope()) {
 			return false;
 		}
 		SymbolTable symbolTable = scope.getSymbolTable();
-		return symbolTable.containsKey(identifier);
+		return symbolTable.containsKey(identifierId);
 	}
-	public Binding bindingOf(String identifier) {
+	public Binding bindingOf(int identifierId) {
 		if(!hasScope()) {
 			return Binding.nullInstance();
 		}
 		SymbolTable symbolTable = scope.getSymbolTable();
-		return symbolTable.lookup(identifier);
+		return symbolTable.lookup(identifierId);
+	}
+	
+////////////////////////////////////////////////////////////////////////////////////
+// generated code: held here from when this node's code is made until it is taken,
+// so that only the fragments not yet appended to a parent's are live.
+
+	public void setGeneratedCode(ASMCodeFragment code) {
+		this.generatedCode = code;
+	}
+	public ASMCodeFragment takeGeneratedCode() {
+		ASMCodeFragment result = generatedCode;
+		generatedCode = null;
+		return result;
+	}
+	
+////////////////////////////////////////////////////////////////////////////////////
+// the statement arena (see optimizer.EscapeAnalyzer): an expression whose record is
+// allocated in the arena, and a statement or condition that releases the arena when done.
+
+	public void setAllocatedInArena(boolean allocatedInArena) {
+		this.allocatedInArena = allocatedInArena;
+	}
+	public boolean isAllocatedInArena() {
+		return allocatedInArena;
+	}
+	public void setReleasesArena(boolean releasesArena) {
+		this.releasesArena = releasesArena;
+	}
+	public boolean releasesArena() {
+		return releasesArena;
 	}
 	
 ////////////////////////////////////////////////////////////////////////////////////
 // dealing with children and parent
-//
-// note: there is no provision as of yet for removal of children.  Be sure to update
-// the removed child's parent pointer if you do implement it.
 	
 	public ParseNode getParent() {
 		return parent;
@@ -135,6 +167,12 @@ public class ParseNode {
 			}
 		}	
 	}
+	// removes the child and clears its parent link.  Like replaceChild, not in the middle of a visit.
+	public void removeChild(ParseNode child) {
+		if(children.remove(child)) {
+			child.setParent(NO_PARENT);
+		}
+	}
 	public int nChildren() {
 		return children.size();
 	}
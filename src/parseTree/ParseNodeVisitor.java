@@ -69,6 +69,7 @@ public interface ParseNodeVisitor {
 	void visit(FloatingConstantNode node);
 	void visit(CharacterConstantNode node);
 	void visit(StringConstantNode node);
+	void visit(RationalConstantNode node);
 	void visit(NewlineNode node);
 	void visit(SpaceNode node);
 	void visit(TabNode node);
@@ -218,6 +219,9 @@ public interface ParseNodeVisitor {
 		public void visit(StringConstantNode node) {
 			defaultVisitForLeaf(node);
 		}
+		public void visit(RationalConstantNode node) {
+			defaultVisitForLeaf(node);
+		}
 		public void visit(NewlineNode node) {
 			defaultVisitForLeaf(node);
 		}	
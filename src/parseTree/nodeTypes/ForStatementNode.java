@@ -6,15 +6,18 @@ import lexicalAnalyzer.Lextant;
 import parseTree.ParseNode;
 import parseTree.ParseNodeVisitor;
 import semanticAnalyzer.types.Type;
+import symbolTable.Binding;
 import tokens.LextantToken;
 import tokens.Token;
 
 public class ForStatementNode extends ParseNode {
+	public static final String SEQUENCE_LEXEME = "#for-sequence";
 	
 	Token forTypeToken;
 	private String startLabel;
 	private String readyForNextIterationLabel;
 	private String endLabel;
+	private Binding sequenceBinding = Binding.nullInstance();	// with mark and sweep, on elem.
 
 	public ForStatementNode(Token token, Token forTypeToken) {
 		super(token);
@@ -73,6 +76,14 @@ public class ForStatementNode extends ParseNode {
 		return this.child(0).getType();
 	}
 	
+	public Binding getSequenceBinding() {
+		return this.sequenceBinding;
+	}
+	
+	public void setSequenceBinding(Binding sequenceBinding) {
+		this.sequenceBinding = sequenceBinding;
+	}
+	
 
 ////////////////////////////////////////////////////////////
 //convenience factory
@@ -5,6 +5,7 @@ import parseTree.ParseNodeVisitor;
 import logging.PikaLogger;
 import symbolTable.Binding;
 import symbolTable.Scope;
+import symbolTable.SymbolTable;
 import tokens.IdentifierToken;
 import tokens.Token;
 
@@ -46,7 +47,7 @@ public class IdentifierNode extends ParseNode {
 // Specialty functions
 
 	public Binding findVariableBinding() {
-		String identifier = token.getLexeme();
+		int identifier = SymbolTable.identifierIdOf(token);
 		
 		for(ParseNode current : pathToRoot()) {
 			if(current.containsBindingOf(identifier)) {
@@ -62,7 +63,7 @@ public class IdentifierNode extends ParseNode {
 		return Binding.nullInstance();
 	}
 	
-	public Binding lookForGlobalStaticOrFuncDefinations(ParseNode current, String identifier) {
+	public Binding lookForGlobalStaticOrFuncDefinations(ParseNode current, int identifier) {
 		for(ParseNode parentOfCurrent: current.pathToRoot()) {
 			if(parentOfCurrent instanceof ProgramNode) {
 				if(parentOfCurrent.containsBindingOf(identifier)) {
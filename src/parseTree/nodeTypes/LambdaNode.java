@@ -14,6 +14,7 @@ public class LambdaNode extends ParseNode {
 	private String lambdaStartLabel;
 	private String lambdaEndLabel;
 	private String codeAfterReturnLabel;
+	private String frameMapLabel;
 
 	public LambdaNode(Token token) {
 		super(token);
@@ -30,6 +31,7 @@ public class LambdaNode extends ParseNode {
 		this.lambdaStartLabel = labeller.newLabel("start");
 		this.lambdaEndLabel = labeller.newLabel("end");
 		this.codeAfterReturnLabel = labeller.newLabel("return-lambda");
+		this.frameMapLabel = labeller.newLabel("frame-map");
 	}
 
 	public LextantToken lextantToken() {
@@ -55,6 +57,10 @@ public class LambdaNode extends ParseNode {
 	public String getReturnLabel() {
 		return this.codeAfterReturnLabel;
 	}
+	
+	public String getFrameMapLabel() {
+		return this.frameMapLabel;
+	}
 
 ////////////////////////////////////////////////////////////
 // convenience factory
@@ -0,0 +1,41 @@
+package parseTree.nodeTypes;
+
+import parseTree.ParseNode;
+import parseTree.ParseNodeVisitor;
+import semanticAnalyzer.types.PrimitiveType;
+import tokens.Token;
+
+/** A rational value known at compile time, already in lowest terms.  There is no rational
+ *  literal in Pika; these nodes are made by the ConstantFolder, and their token is that of
+ *  the expression they replace.
+ */
+public class RationalConstantNode extends ParseNode {
+	private final int numerator;
+	private final int denominator;
+
+	public RationalConstantNode(Token token, int numerator, int denominator) {
+		super(token);
+		assert(denominator > 0);
+		this.numerator = numerator;
+		this.denominator = denominator;
+		setType(PrimitiveType.RATIONAL);
+	}
+
+////////////////////////////////////////////////////////////
+// attributes
+
+	public int getNumerator() {
+		return numerator;
+	}
+	public int getDenominator() {
+		return denominator;
+	}
+
+///////////////////////////////////////////////////////////
+// accept a visitor
+
+	public void accept(ParseNodeVisitor visitor) {
+		visitor.visit(this);
+	}
+
+}
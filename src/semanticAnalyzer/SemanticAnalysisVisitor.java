@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import compiler.CompilationContext;
 import lexicalAnalyzer.Keyword;
 import lexicalAnalyzer.Lextant;
 import lexicalAnalyzer.Punctuator;
@@ -1008,6 +1010,12 @@ class SemanticAnalysisVisitor extends ParseNodeVisitor.Default {
 					}
 				}
 
+				if (CompilationContext.current().reclamation() == Reclamation.MARK_AND_SWEEP) {
+					// the collector finds the sequence of the for in a slot of the for's scope.
+					Binding sequence = parent.getScope().createHiddenBinding(ForStatementNode.SEQUENCE_LEXEME,
+							parent.getSequenceType());
+					parent.setSequenceBinding(sequence);
+				}
 				addBinding(node, node.getType(), constIdentifierToken.getLextant());
 
 			} else {
@@ -94,10 +94,7 @@ public class FunctionSignatures extends ArrayList<FunctionSignature> {
 	public static FunctionSignatures nullSignatures = new FunctionSignatures(0, FunctionSignature.nullInstance());
 
 	public static FunctionSignatures signaturesOf(Object key) {
-		if (signaturesForKey.containsKey(key)) {
-			return signaturesForKey.get(key);
-		}
-		return nullSignatures;
+		return signaturesForKey.getOrDefault(key, nullSignatures);
 	}
 
 	public static FunctionSignature signature(Object key, List<Type> types) {
@@ -1,14 +1,14 @@
 package semanticAnalyzer.types;
 
 import asmCodeGenerator.codeStorage.ASMOpcode;
+import compiler.CompilationContext;
 
+// TypeVariables live in the shared signature tables; their bindings are per-compilation.
 public class TypeVariable implements Type {
 	private String name; 
-	private Type typeConstraint;
 
 	public TypeVariable(String name) {
 		this.name = name;
-		this.typeConstraint = PrimitiveType.NO_TYPE;
 	}
 	
 	public String getName() {
@@ -16,11 +16,11 @@ public class TypeVariable implements Type {
 	}
 	
 	public Type getType() {
-		return this.typeConstraint;
+		return CompilationContext.current().typeVariableBinding(this);
 	}
 	
 	private void setType(Type typeConstraint) {
-		this.typeConstraint = typeConstraint;
+		CompilationContext.current().bindTypeVariable(this, typeConstraint);
 	}
 
 	@Override
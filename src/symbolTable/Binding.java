@@ -1,6 +1,7 @@
 package symbolTable;
 
 import asmCodeGenerator.codeStorage.ASMCodeFragment;
+import inputHandler.SourcePosition;
 import inputHandler.TextLocation;
 import lexicalAnalyzer.Keyword;
 import lexicalAnalyzer.Lextant;
@@ -9,17 +10,17 @@ import semanticAnalyzer.types.Type;
 
 public class Binding {
 	private Type type;
-	private TextLocation textLocation;
+	private long position;				// a packed SourcePosition
 	private MemoryLocation memoryLocation;
 	private String lexeme;
 	private Lextant declareLextant;
 	private boolean isStatic;
 	
-	public Binding(Type type, Lextant declareLextant, TextLocation location, MemoryLocation memoryLocation, String lexeme) {
+	public Binding(Type type, Lextant declareLextant, long position, MemoryLocation memoryLocation, String lexeme) {
 		super();
 		this.type = type;
 		this.declareLextant = declareLextant;
-		this.textLocation = location;
+		this.position = position;
 		this.memoryLocation = memoryLocation;
 		this.lexeme = lexeme;
 		this.isStatic = false;
@@ -42,7 +43,10 @@ public class Binding {
 		return declareLextant;
 	}
 	public TextLocation getLocation() {
-		return textLocation;
+		return SourcePosition.toTextLocation(position);
+	}
+	public long getPosition() {
+		return position;
 	}
 	public MemoryLocation getMemoryLocation() {
 		return memoryLocation;
@@ -68,17 +72,15 @@ public class Binding {
 		return NullBinding.getInstance();
 	}
 	private static class NullBinding extends Binding {
-		private static NullBinding instance=null;
+		private static final NullBinding instance = new NullBinding();
 		private NullBinding() {
 			super(PrimitiveType.ERROR,
 					Keyword.CONST,
-					TextLocation.nullInstance(),
+					SourcePosition.NO_POSITION,
 					MemoryLocation.nullInstance(),
 					"the-null-binding");
 		}
 		public static NullBinding getInstance() {
-			if(instance==null)
-				instance = new NullBinding();
 			return instance;
 		}
 	}
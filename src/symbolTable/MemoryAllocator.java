@@ -7,5 +7,6 @@ public interface MemoryAllocator {
 	public MemoryLocation allocate(int sizeInBytes);
 	public void saveState();
 	public void restoreState();
+	public void discardState();		// forgets the last saved state, keeping what was allocated since.
 	public int getMaxAllocatedSize();
 }
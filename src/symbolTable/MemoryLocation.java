@@ -53,14 +53,12 @@ public class MemoryLocation {
 	}
 	private static class NullMemoryLocation extends MemoryLocation {
 		private static final int NULL_OFFSET = 0;
-		private static NullMemoryLocation instance=null;
+		private static final NullMemoryLocation instance = new NullMemoryLocation();
 		
 		private NullMemoryLocation() {
 			super(MemoryAccessMethod.NULL_ACCESS, "", NULL_OFFSET);
 		}
 		public static NullMemoryLocation getInstance() {
-			if(instance==null)
-				instance = new NullMemoryLocation();
 			return instance;
 		}
 	}
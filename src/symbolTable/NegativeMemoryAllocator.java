@@ -55,4 +55,9 @@ public class NegativeMemoryAllocator implements MemoryAllocator {
 		int bookmarkIndex = bookmarks.size()-1;
 		currentOffset = (int) bookmarks.remove(bookmarkIndex);
 	}
+	@Override
+	public void discardState() {
+		assert bookmarks.size() > 0;
+		bookmarks.remove(bookmarks.size()-1);
+	}
 }
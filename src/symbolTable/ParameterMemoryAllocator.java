@@ -66,4 +66,10 @@ public class ParameterMemoryAllocator implements MemoryAllocator {
 			}
 		}
 	}
+	@Override
+	public void discardState() {
+		int offset = currentOffset;
+		restoreState();
+		currentOffset = offset;
+	}
 }
@@ -1,7 +1,10 @@
 package symbolTable;
 
 import asmCodeGenerator.ASMCodeGenerationConstants;
-import inputHandler.TextLocation;
+import asmCodeGenerator.runtime.MemoryManager.Reclamation;
+import compiler.CompilationContext;
+import inputHandler.SourcePosition;
+import lexicalAnalyzer.Keyword;
 import lexicalAnalyzer.Lextant;
 import logging.PikaLogger;
 import parseTree.nodeTypes.IdentifierNode;
@@ -12,7 +15,6 @@ public class Scope {
 	private Scope baseScope;
 	private MemoryAllocator allocator;
 	private SymbolTable symbolTable;
-	private static int sCount = 0;
 	
 //////////////////////////////////////////////////////////////////////
 // factories
@@ -64,7 +66,16 @@ public class Scope {
 		return new NegativeMemoryAllocator(
 				MemoryAccessMethod.INDIRECT_ACCESS_BASE,
 				MemoryLocation.FRAME_POINTER,
-				-ASMCodeGenerationConstants.FUNCTION_CALL_EXTRA_BYTES);
+				-frameHeaderSize());
+	}
+
+	// the bytes of a frame above its procedure scope: the caller's frame pointer and the return
+	// address, and with MARK_AND_SWEEP the frame map of the func, at FRAME_MAP_OFFSET.
+	public static int frameHeaderSize() {
+		if(CompilationContext.current().reclamation() == Reclamation.MARK_AND_SWEEP) {
+			return ASMCodeGenerationConstants.FUNCTION_CALL_EXTRA_BYTES + ASMCodeGenerationConstants.FRAME_MAP_SIZE;
+		}
+		return ASMCodeGenerationConstants.FUNCTION_CALL_EXTRA_BYTES;
 	}
 	
 //////////////////////////////////////////////////////////////////////
@@ -91,14 +102,20 @@ public class Scope {
 		return symbolTable;
 	}
 	public static String generateStaticLexeme(String lexeme) {
-		return "#" + lexeme + "-" + sCount++;
+		return "#" + lexeme + "-" + CompilationContext.current().nextStaticLexemeNumber();
 	}
 	
 ///////////////////////////////////////////////////////////////////////
 //memory allocation
-	// must call leave() when destroying/leaving a scope.
+	// must call leave() when destroying/leaving a scope.  Sibling subscopes share their slots,
+	// except with mark and sweep: there the collector takes a slot to hold one type throughout.
 	public void leave() {
-		allocator.restoreState();
+		if(CompilationContext.current().reclamation() == Reclamation.MARK_AND_SWEEP) {
+			allocator.discardState();
+		}
+		else {
+			allocator.restoreState();
+		}
 	}
 	public int getAllocatedSize() {
 		return allocator.getMaxAllocatedSize();
@@ -111,8 +128,8 @@ public class Scope {
 		symbolTable.errorIfAlreadyDefined(token);
 
 		String lexeme = token.getLexeme();
-		Binding binding = allocateNewBinding(type, declareLextant, token.getLocation(), lexeme, false);	
-		symbolTable.install(lexeme, binding);
+		Binding binding = allocateNewBinding(type, declareLextant, token.getPosition(), lexeme, false);	
+		symbolTable.install(SymbolTable.identifierIdOf(token), binding);
 
 		return binding;
 	}
@@ -120,22 +137,27 @@ public class Scope {
 		Token token = identifierNode.getToken();
 		symbolTable.errorIfAlreadyDefined(token);
 		
-		String lexeme = token.getLexeme();
-		symbolTable.install(lexeme, binding);
+		symbolTable.install(SymbolTable.identifierIdOf(token), binding);
 	}
 	public Binding createStaticBinding(IdentifierNode identifierNode, Type type, Lextant declareLextant) {
 		Token token = identifierNode.getToken();
 		symbolTable.errorIfAlreadyDefined(token);
 		
 		String lexeme = generateStaticLexeme(token.getLexeme());
-		Binding binding = allocateNewBinding(type, declareLextant, token.getLocation(), lexeme, true);
+		Binding binding = allocateNewBinding(type, declareLextant, token.getPosition(), lexeme, true);
 		symbolTable.install(lexeme, binding);
 		
 		return binding;
 	}
-	private Binding allocateNewBinding(Type type, Lextant declareLextant, TextLocation textLocation, String lexeme, boolean allocateCompanion) {
+	// a slot for the code generator, under a lexeme no identifier has.
+	public Binding createHiddenBinding(String lexeme, Type type) {
+		Binding binding = allocateNewBinding(type, Keyword.CONST, SourcePosition.NO_POSITION, lexeme, false);
+		symbolTable.install(lexeme, binding);
+		return binding;
+	}
+	private Binding allocateNewBinding(Type type, Lextant declareLextant, long position, String lexeme, boolean allocateCompanion) {
 		MemoryLocation memoryLocation = allocator.allocate(type.getSize() + (allocateCompanion ? 1 : 0));
-		return new Binding(type, declareLextant, textLocation, memoryLocation, lexeme);
+		return new Binding(type, declareLextant, position, memoryLocation, lexeme);
 	}
 	
 ///////////////////////////////////////////////////////////////////////
@@ -1,57 +1,142 @@
 package symbolTable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import compiler.CompilationContext;
+import lexicalAnalyzer.IdentifierInterner;
 import logging.PikaLogger;
 
+import tokens.IdentifierToken;
 import tokens.Token;
 
+/** The bindings of one scope, keyed by the identifier ids of the current compilation
+ *  (see IdentifierInterner).  The table is open-addressed on those ints, so lookups
+ *  neither hash nor compare Strings.  The String versions of the methods intern first.
+ */
 public class SymbolTable {
-	private Map<String, Binding> table;
-	
+	private static final int INITIAL_CAPACITY = 8;			// a power of two
+	private static final int EMPTY = -1;
+
+	private int[] ids;
+	private Binding[] bindings;
+	private int size;
+	private List<Integer> installationOrder = new ArrayList<Integer>();
+
 	public SymbolTable() {
-		table = new HashMap<String, Binding>();
+		ids = new int[INITIAL_CAPACITY];
+		Arrays.fill(ids, EMPTY);
+		bindings = new Binding[INITIAL_CAPACITY];
+		size = 0;
 	}
-	
-	
+
+
 	////////////////////////////////////////////////////////////////
 	// installation and lookup of identifiers
 
-	public Binding install(String identifier, Binding binding) {
-		table.put(identifier, binding);
+	public Binding install(int identifierId, Binding binding) {
+		int slot = slotOf(identifierId);
+		if(ids[slot] == EMPTY) {
+			ids[slot] = identifierId;
+			installationOrder.add(identifierId);
+			size++;
+		}
+		bindings[slot] = binding;
+		if(2 * size > ids.length) {
+			grow();
+		}
 		return binding;
 	}
+	public Binding lookup(int identifierId) {
+		int slot = slotOf(identifierId);
+		return (ids[slot] == EMPTY) ? Binding.nullInstance() : bindings[slot];
+	}
+	public boolean containsKey(int identifierId) {
+		return ids[slotOf(identifierId)] != EMPTY;
+	}
+	public int size() {
+		return size;
+	}
+
+	public Binding install(String identifier, Binding binding) {
+		return install(idOf(identifier), binding);
+	}
 	public Binding lookup(String identifier) {
-		return table.getOrDefault(identifier, Binding.nullInstance());
+		return lookup(idOf(identifier));
 	}
-	
-	///////////////////////////////////////////////////////////////////////
-	// Map delegates	
-	
 	public boolean containsKey(String identifier) {
-		return table.containsKey(identifier);
+		return containsKey(idOf(identifier));
 	}
+	private static int idOf(String identifier) {
+		return CompilationContext.current().identifiers().intern(identifier);
+	}
+
+	///////////////////////////////////////////////////////////////////////
+	// open addressing: linear probing from a scrambled id.
+
+	private int slotOf(int identifierId) {
+		int mask = ids.length - 1;
+		int slot = (identifierId * 0x9E3779B9) >>> 16 & mask;
+		while(ids[slot] != EMPTY && ids[slot] != identifierId) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	private void grow() {
+		int[] oldIds = ids;
+		Binding[] oldBindings = bindings;
+		ids = new int[2 * oldIds.length];
+		Arrays.fill(ids, EMPTY);
+		bindings = new Binding[2 * oldIds.length];
+		for(int i = 0; i < oldIds.length; i++) {
+			if(oldIds[i] != EMPTY) {
+				int slot = slotOf(oldIds[i]);
+				ids[slot] = oldIds[i];
+				bindings[slot] = oldBindings[i];
+			}
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////
+	// Map delegates
+
 	public Set<String> keySet() {
-		return table.keySet();
+		IdentifierInterner identifiers = CompilationContext.current().identifiers();
+		Set<String> result = new LinkedHashSet<String>();
+		for(int id: installationOrder) {
+			result.add(identifiers.lexemeOf(id));
+		}
+		return result;
 	}
 	public Collection<Binding> values() {
-		return table.values();
+		List<Binding> result = new ArrayList<Binding>();
+		for(int id: installationOrder) {
+			result.add(lookup(id));
+		}
+		return result;
 	}
-	
+
 	///////////////////////////////////////////////////////////////////////
 	//error reporting
 
 	public void errorIfAlreadyDefined(Token token) {
-		if(containsKey(token.getLexeme())) {		
+		if(containsKey(identifierIdOf(token))) {
 			multipleDefinitionError(token);
 		}
 	}
+	public static int identifierIdOf(Token token) {
+		if(token instanceof IdentifierToken) {
+			return ((IdentifierToken)token).getIdentifierId();
+		}
+		return idOf(token.getLexeme());
+	}
 	protected static void multipleDefinitionError(Token token) {
 		PikaLogger log = PikaLogger.getLogger("compiler.symbolTable");
-		log.severe("variable \"" + token.getLexeme() + 
+		log.severe("variable \"" + token.getLexeme() +
 				          "\" multiply defined at " + token.getLocation());
 	}
 
@@ -59,10 +144,11 @@ public class SymbolTable {
 	// toString
 
 	public String toString() {
+		IdentifierInterner identifiers = CompilationContext.current().identifiers();
 		StringBuffer result = new StringBuffer("    symbol table: \n");
-		table.entrySet().forEach((entry) -> {
-			result.append("        " + entry + "\n");
-		});
+		for(int id: installationOrder) {
+			result.append("        " + identifiers.lexemeOf(id) + "=" + lookup(id) + "\n");
+		}
 		return result.toString();
 	}
 }
@@ -1,12 +1,11 @@
 package tokens;
 
-import inputHandler.TextLocation;
 
 public class CharacterToken extends TokenImp {
 	protected char value;
 
-	protected CharacterToken(TextLocation location, String lexeme) {
-		super(location, lexeme);
+	protected CharacterToken(long position, String lexeme) {
+		super(position, lexeme);
 	}
 
 	public char getValue() {
@@ -17,8 +16,8 @@ public class CharacterToken extends TokenImp {
 		this.value = value;
 	}
 	
-	public static CharacterToken make(TextLocation location, String lexeme) {
-		CharacterToken result = new CharacterToken(location, lexeme);
+	public static CharacterToken make(long position, String lexeme) {
+		CharacterToken result = new CharacterToken(position, lexeme);
 		result.setValue(lexeme.charAt(1));
 		return result;
 	}
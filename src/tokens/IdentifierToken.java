@@ -1,17 +1,27 @@
 package tokens;
 
-import inputHandler.TextLocation;
+import compiler.CompilationContext;
+import lexicalAnalyzer.IdentifierInterner;
+
 
 public class IdentifierToken extends TokenImp {
-	protected IdentifierToken(TextLocation location, String lexeme) {
-		super(location, lexeme.intern());
+	private final int identifierId;
+
+	protected IdentifierToken(long position, IdentifierInterner identifiers, int identifierId) {
+		super(position, identifiers.lexemeOf(identifierId));
+		this.identifierId = identifierId;
 	}
 	
-	public static IdentifierToken make(TextLocation location, String lexeme) {
-		IdentifierToken result = new IdentifierToken(location, lexeme);
+	public static IdentifierToken make(long position, String lexeme) {
+		IdentifierInterner identifiers = CompilationContext.current().identifiers();
+		IdentifierToken result = new IdentifierToken(position, identifiers, identifiers.intern(lexeme));
 		return result;
 	}
 
+	/** the dense id of this lexeme in the current compilation's IdentifierInterner. */
+	public int getIdentifierId() {
+		return identifierId;
+	}
 
 	@Override
 	protected String rawString() {
@@ -1,12 +1,11 @@
 package tokens;
 
-import inputHandler.TextLocation;
 
 public class IntegerToken extends TokenImp {
 	protected int value;
 	
-	protected IntegerToken(TextLocation location, String lexeme) {
-		super(location, lexeme);
+	protected IntegerToken(long position, String lexeme) {
+		super(position, lexeme);
 	}
 	protected void setValue(int value) {
 		this.value = value;
@@ -15,8 +14,8 @@ public class IntegerToken extends TokenImp {
 		return value;
 	}
 	
-	public static IntegerToken make(TextLocation location, String lexeme) {
-		IntegerToken result = new IntegerToken(location, lexeme);
+	public static IntegerToken make(long position, String lexeme) {
+		IntegerToken result = new IntegerToken(position, lexeme);
 		result.setValue(Integer.parseInt(lexeme));
 		return result;
 	}
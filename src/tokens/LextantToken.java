@@ -2,14 +2,13 @@ package tokens;
 
 import lexicalAnalyzer.Lextant;
 import lexicalAnalyzer.Punctuator;
-import inputHandler.TextLocation;
 
 public final class LextantToken extends TokenImp {
 
 	private Lextant lextant;
 	
-	private LextantToken(TextLocation location, String lexeme, Lextant lextant) {
-		super(location, lexeme);
+	private LextantToken(long position, String lexeme, Lextant lextant) {
+		super(position, lexeme);
 		this.lextant = lextant;
 	}
 	
@@ -28,8 +27,8 @@ public final class LextantToken extends TokenImp {
 	}
 	
 	
-	public static LextantToken make(TextLocation location, String lexeme, Lextant lextant) {
-		return new LextantToken(location, lexeme, lextant);
+	public static LextantToken make(long position, String lexeme, Lextant lextant) {
+		return new LextantToken(position, lexeme, lextant);
 	}
 
 	public static Token artificial(Token locator, Lextant lextant) {
@@ -37,6 +36,6 @@ public final class LextantToken extends TokenImp {
 		if(lexeme.equals("")) {
 			lexeme = lextant.toString();
 		}
-		return new LextantToken(locator.getLocation(), lexeme, lextant);
+		return new LextantToken(locator.getPosition(), lexeme, lextant);
 	}
 }
@@ -6,6 +6,7 @@ import inputHandler.TextLocation;
 public interface Token {
 	public String getLexeme();
 	public TextLocation getLocation();
+	public long getPosition();
 	public String fullString();
 	public boolean isLextant(Lextant ...lextants);
 }
@@ -1,15 +1,16 @@
 package tokens;
 
 import lexicalAnalyzer.Lextant;
+import inputHandler.SourcePosition;
 import inputHandler.TextLocation;
 
 public abstract class TokenImp implements Token {
-	private TextLocation location;
+	private long position;			// a packed SourcePosition
 	private String lexeme;
 
-	protected TokenImp(TextLocation location, String lexeme) {
+	protected TokenImp(long position, String lexeme) {
 		super();
-		this.location = location;
+		this.position = position;
 		this.lexeme = lexeme;
 	}
 
@@ -19,7 +20,11 @@ public abstract class TokenImp implements Token {
 	}
 	@Override
 	public TextLocation getLocation() {
-		return location;
+		return SourcePosition.toTextLocation(position);
+	}
+	@Override
+	public long getPosition() {
+		return position;
 	}
 	
 	/** A string (not surrounded by parentheses) representing the subclass information.
@@ -35,7 +40,7 @@ public abstract class TokenImp implements Token {
 	 * @return string with all token info.
 	 */
 	public String fullString() {
-		String locationString = location == null ? "(no text location)" : location.toString();
+		String locationString = getLocation().toString();
 		return "(" + rawString() + 
 			   ", " + locationString +
 			   ", " + lexeme +